@@ -0,0 +1,57 @@
+package rsc.primitive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rsc.publisher.Px;
+import rsc.util.PerfSubscriber;
+
+/**
+ * Compares the boxed range-map-filter-sum chain with its primitive counterpart.
+ * Run from command line as
+ * <br>
+ * gradle jmh -Pjmh='IntPxPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class IntPxPerf {
+
+    @Param({"1", "1000", "1000000"})
+    public int count;
+
+    Px<Integer> boxed;
+
+    Px<Integer> primitive;
+
+    Px<Integer> bridged;
+
+    @Setup
+    public void setup() {
+        boxed = Px.range(1, count).map(v -> v * 3).filter(v -> (v & 1) == 0).sumInt();
+
+        primitive = IntPx.range(1, count).map(v -> v * 3).filter(v -> (v & 1) == 0).sum();
+
+        bridged = Px.range(1, count).mapToInt(v -> v * 3).filter(v -> (v & 1) == 0).sum();
+    }
+
+    @Benchmark
+    public void boxed(Blackhole bh) {
+        boxed.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void primitive(Blackhole bh) {
+        primitive.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void bridged(Blackhole bh) {
+        bridged.subscribe(new PerfSubscriber(bh));
+    }
+}
@@ -0,0 +1,55 @@
+package rsc.processor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+
+import rsc.subscriber.SerializedSubscriber;
+import rsc.util.PerfSubscriber;
+
+/**
+ * Multiple threads emitting into a DirectProcessor serialized via SerializedSubscriber
+ * versus emitting into a MulticastProcessor directly.
+ * Run from command line as
+ * <br>
+ * gradle jmh -Pjmh='MulticastProcessorPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Threads(4)
+public class MulticastProcessorPerf {
+
+    @Param({"1", "4"})
+    int subscribers;
+
+    Subscriber<Integer> serialized;
+
+    MulticastProcessor<Integer> multicast;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        multicast = new MulticastProcessor<>(1024);
+        for (int i = 0; i < subscribers; i++) {
+            dp.subscribe(new PerfSubscriber(bh));
+            multicast.subscribe(new PerfSubscriber(bh));
+        }
+        serialized = new SerializedSubscriber<>(dp);
+    }
+
+    @Benchmark
+    public void serializedDirect() {
+        serialized.onNext(777);
+    }
+
+    @Benchmark
+    public void multicast() {
+        multicast.onNext(777);
+    }
+}
@@ -0,0 +1,80 @@
+package rsc.processor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rsc.scheduler.SingleTimedScheduler;
+import rsc.util.PerfSubscriber;
+
+/**
+ * Compares the per-item Node bounded buffer with the chunked size-and-time bounded
+ * and the serialized off-heap ones.
+ * Run from command line as
+ * <br>
+ * gradle jmh -Pjmh='ReplayProcessorPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class ReplayProcessorPerf {
+
+    @Param({"1000", "1000000"})
+    int count;
+
+    @Param({"16", "1024"})
+    int limit;
+
+    SingleTimedScheduler scheduler;
+
+    @Setup
+    public void setup() {
+        scheduler = new SingleTimedScheduler();
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void bounded(Blackhole bh) {
+        run(new ReplayProcessor<>(limit, false), bh);
+    }
+
+    @Benchmark
+    public void sizeAndTimeBounded(Blackhole bh) {
+        run(new ReplayProcessor<>(limit, 1, TimeUnit.MINUTES, scheduler), bh);
+    }
+
+    @Benchmark
+    public void serialized(Blackhole bh) {
+        run(new ReplayProcessor<>(CODEC, 64 * 1024, limit), bh);
+    }
+
+    static final ReplayProcessor.Codec<Integer> CODEC = new ReplayProcessor.Codec<Integer>() {
+        @Override
+        public void encode(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    void run(ReplayProcessor<Integer> rp, Blackhole bh) {
+        int s = count;
+        for (int i = 0; i < s; i++) {
+            rp.onNext(777);
+        }
+        rp.onComplete();
+        rp.subscribe(new PerfSubscriber(bh));
+    }
+}
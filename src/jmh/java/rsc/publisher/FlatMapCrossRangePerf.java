@@ -34,6 +34,10 @@ public class FlatMapCrossRangePerf {
 
     public Px<Integer> asyncSourceFused;
 
+    public Px<Integer> sourceShared;
+
+    public Px<Integer> asyncSourceShared;
+
     public ExecutorService exec;
     
     @Setup
@@ -59,6 +63,10 @@ public class FlatMapCrossRangePerf {
         asyncSource = source.observeOn(exec);
         
         asyncSourceFused = sourceFused.observeOn(exec);
+
+        sourceShared = Px.fromArray(first).flatMapShared(v -> secondSource);
+
+        asyncSourceShared = sourceShared.observeOn(exec);
     }
     
     @TearDown
@@ -88,4 +96,15 @@ public class FlatMapCrossRangePerf {
         s.await(TOTAL);
     }
 
+    @Benchmark
+    public void syncSourceShared(Blackhole bh) {
+        sourceShared.subscribe(new PerfSubscriber(bh));
+    }
+    @Benchmark
+    public void asyncSourceShared(Blackhole bh) {
+        PerfAsyncSubscriber s = new PerfAsyncSubscriber(bh);
+        asyncSourceShared.subscribe(s);
+        s.await(TOTAL);
+    }
+
 }
\ No newline at end of file
@@ -32,6 +32,10 @@ public class PublisherArrayPerf {
     PerfSubscriber         sharedSubscriber1;
     PerfSlowPathSubscriber sharedSubscriber2;
 
+    Publisher<Integer> sumBatch;
+
+    Publisher<Integer> sumUnfused;
+
     @Setup
     public void setup(Blackhole bh) {
         array = new Integer[count];
@@ -41,6 +45,9 @@ public class PublisherArrayPerf {
         source = createSource();
         sharedSubscriber1 = new PerfSubscriber(bh);
         sharedSubscriber2 = new PerfSlowPathSubscriber(bh, count);
+
+        sumBatch = Px.fromArray(array).sumInt();
+        sumUnfused = Px.fromArray(array).hide().sumInt();
     }
 
     Publisher<Integer> createSource() {
@@ -81,4 +88,23 @@ public class PublisherArrayPerf {
         p.subscribe(new PerfSlowPathSubscriber(bh, count));
     }
 
+    @Benchmark
+    public void sumBatch(Blackhole bh) {
+        sumBatch.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void sumUnfused(Blackhole bh) {
+        sumUnfused.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public int sumLoop() {
+        Integer[] a = array;
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
 }
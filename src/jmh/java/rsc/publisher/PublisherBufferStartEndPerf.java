@@ -0,0 +1,93 @@
+package rsc.publisher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import rsc.processor.DirectProcessor;
+import rsc.util.PerfSubscriber;
+
+
+/**
+ * Benchmark buffer(start, end) and window(start, end) with many overlapping buffers open
+ * at the same time: a new one opens every {@code STEP} elements and stays open for
+ * {@code open * STEP} elements.
+ * <p>
+ * gradle jmh -Pjmh='PublisherBufferStartEndPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class PublisherBufferStartEndPerf {
+
+    static final int STEP = 4;
+
+    @Param({"1", "16", "256"})
+    int open;
+
+    @Param({"65536"})
+    int count;
+
+    /**
+     * Drives the start and end publishers from the source so buffers open and close
+     * at fixed positions of the sequence.
+     */
+    Px<Integer> source(DirectProcessor<Integer> start, DirectProcessor<Integer>[] ends) {
+        int span = open * STEP;
+        return Px.range(0, count).doOnNext(v -> {
+            if (v % STEP == 0) {
+                if (v >= span) {
+                    ends[((v - span) / STEP) % open].onComplete();
+                }
+                ends[(v / STEP) % open] = new DirectProcessor<>();
+                start.onNext(v);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Benchmark
+    public void buffer(Blackhole bh) {
+        DirectProcessor<Integer> start = new DirectProcessor<>();
+        DirectProcessor<Integer>[] ends = new DirectProcessor[open];
+
+        source(start, ends).buffer(start, v -> ends[(v / STEP) % open]).subscribe(new PerfSubscriber(bh));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Benchmark
+    public void window(Blackhole bh) {
+        DirectProcessor<Integer> start = new DirectProcessor<>();
+        DirectProcessor<Integer>[] ends = new DirectProcessor[open];
+
+        PerfSubscriber inner = new PerfSubscriber(bh);
+
+        source(start, ends).window(start, v -> ends[(v / STEP) % open]).subscribe(new Subscriber<Px<Integer>>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Px<Integer> w) {
+                w.subscribe(inner);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                bh.consume(t);
+            }
+
+            @Override
+            public void onComplete() {
+                bh.consume(true);
+            }
+        });
+    }
+}
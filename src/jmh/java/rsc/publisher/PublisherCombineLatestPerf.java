@@ -0,0 +1,86 @@
+package rsc.publisher;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import rsc.scheduler.ExecutorServiceScheduler;
+import rsc.util.PerfAsyncSubscriber;
+
+
+/**
+ * Benchmark combineLatest with each source emitting on its own thread.
+ * <p>
+ * gradle jmh -Pjmh='PublisherCombineLatestPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class PublisherCombineLatestPerf {
+
+    @Param({"2", "8", "16"})
+    int sources;
+
+    @Param({"1000", "100000"})
+    int count;
+
+    ExecutorService exec;
+
+    Publisher<Integer> locked;
+
+    Publisher<Integer> lockFree;
+
+    Publisher<Integer> coalescing;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        exec = Executors.newFixedThreadPool(sources);
+
+        ExecutorServiceScheduler scheduler = new ExecutorServiceScheduler(exec);
+
+        Publisher<Integer>[] a = new Publisher[sources];
+        for (int i = 0; i < sources; i++) {
+            a[i] = Px.range(1, count).subscribeOn(scheduler);
+        }
+
+        locked = new PublisherCombineLatest<>(a, v -> v.length, Px.defaultUnboundedQueueSupplier(Px.BUFFER_SIZE), Px.BUFFER_SIZE);
+
+        lockFree = Px.combineLatestLockFree(v -> v.length, false, a);
+
+        coalescing = Px.combineLatestLockFree(v -> v.length, true, a);
+    }
+
+    @TearDown
+    public void teardown() {
+        exec.shutdownNow();
+    }
+
+    void run(Publisher<Integer> p, Blackhole bh) {
+        PerfAsyncSubscriber s = new PerfAsyncSubscriber(bh);
+
+        p.subscribe(s);
+
+        s.await(count);
+    }
+
+    @Benchmark
+    public void locked(Blackhole bh) {
+        run(locked, bh);
+    }
+
+    @Benchmark
+    public void lockFree(Blackhole bh) {
+        run(lockFree, bh);
+    }
+
+    @Benchmark
+    public void coalescing(Blackhole bh) {
+        run(coalescing, bh);
+    }
+}
@@ -0,0 +1,68 @@
+package rsc.publisher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import rsc.util.*;
+
+
+/**
+ * Compares the boxed and primitive keyed distinct and groupBy. Run from command line as
+ * <br>
+ * gradle jmh -Pjmh='PublisherDistinctPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class PublisherDistinctPerf {
+
+    @Param({"1000", "1000000"})
+    public int keys;
+
+    Publisher<Integer> distinct;
+
+    Publisher<Integer> distinctLong;
+
+    Publisher<Integer> groupBy;
+
+    Publisher<Integer> groupByLong;
+
+    @Setup
+    public void setup() {
+        int k = keys;
+
+        distinct = Px.range(0, 1_000_000).distinct(v -> (long)(v % k));
+
+        distinctLong = Px.range(0, 1_000_000).distinctLong(v -> v % k);
+
+        groupBy = Px.range(0, 1_000_000).groupBy(v -> (long)(v % k)).flatMap(g -> g, false, Integer.MAX_VALUE);
+
+        groupByLong = Px.range(0, 1_000_000).groupByLong(v -> v % k).flatMap(g -> g, false, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void distinct(Blackhole bh) {
+        distinct.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void distinctLong(Blackhole bh) {
+        distinctLong.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole bh) {
+        groupBy.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void groupByLong(Blackhole bh) {
+        groupByLong.subscribe(new PerfSubscriber(bh));
+    }
+}
@@ -0,0 +1,60 @@
+package rsc.publisher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rsc.scheduler.SingleTimedScheduler;
+import rsc.util.PerfSubscriber;
+
+/**
+ * Compares an equi-join expressed with join() and a filter, which keeps every item
+ * alive and visits all of them on each arrival, with the hash-indexed keyed join.
+ * Each key appears {@code count / keys} times on both sides.
+ * <p>
+ * gradle jmh -Pjmh='PublisherJoinKeyedPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class PublisherJoinKeyedPerf {
+
+    @Param({"1000", "10000"})
+    int count;
+
+    @Param({"100"})
+    int keys;
+
+    SingleTimedScheduler scheduler;
+
+    @Setup
+    public void setup() {
+        scheduler = new SingleTimedScheduler();
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void join(Blackhole bh) {
+        int k = keys;
+        Px.range(0, count).join(Px.range(0, count), v -> Px.never(), v -> Px.never(),
+                (a, b) -> a % k == b % k ? a : -1)
+        .filter(v -> v >= 0)
+        .subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void keyed(Blackhole bh) {
+        int k = keys;
+        Px.range(0, count).join(Px.range(0, count), v -> v % k, v -> v % k,
+                1, 1, TimeUnit.MINUTES, scheduler, (a, b) -> a)
+        .subscribe(new PerfSubscriber(bh));
+    }
+}
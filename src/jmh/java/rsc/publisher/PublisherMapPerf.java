@@ -1,6 +1,7 @@
 package rsc.publisher;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.*;
 
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
@@ -20,6 +21,7 @@ import rsc.util.PerfSubscriber;
 @OutputTimeUnit(TimeUnit.SECONDS)
 @Fork(value = 1)
 @State(Scope.Thread)
+@SuppressWarnings("unchecked")
 public class PublisherMapPerf {
     
     Publisher<Integer> simple;
@@ -28,6 +30,18 @@ public class PublisherMapPerf {
     
     Publisher<Integer> rangeConcatMapRange;
     
+    Publisher<Integer> mapSumBatch;
+
+    Publisher<Integer> mapSumUnfused;
+
+    Publisher<Integer> mapChain;
+
+    Publisher<Integer> mapChainSeparate;
+
+    Publisher<Integer>[] mixedChains;
+
+    Publisher<Integer>[] mixedChainsSeparate;
+    
     @Setup
     public void setup() {
         simple = Px.range(1, 1_000_000).map(v -> v + 1);
@@ -35,6 +49,59 @@ public class PublisherMapPerf {
         rangeFlatMapRange = Px.range(1, 1000).flatMap(v -> Px.range(1, 1000).map(w -> w + 1));
 
         rangeConcatMapRange = Px.range(1, 1000).concatMap(v -> Px.range(1, 1000).map(w -> w + 1));
+
+        mapSumBatch = Px.range(1, 1_000_000).map(v -> v + 1).filter(v -> (v & 1) == 0).sumInt();
+
+        mapSumUnfused = Px.range(1, 1_000_000).hide().map(v -> v + 1).filter(v -> (v & 1) == 0).sumInt();
+
+        mapChain = Px.range(1, 1_000_000).map(v -> v + 1).map(v -> v * 3).filter(v -> (v & 1) == 0).map(v -> v - 1);
+
+        mapChainSeparate = new PublisherMapFuseable<>(
+                new PublisherFilterFuseable<>(
+                        new PublisherMapFuseable<>(
+                                new PublisherMapFuseable<>(new PublisherRange(1, 1_000_000), v -> v + 1),
+                                v -> v * 3),
+                        v -> (v & 1) == 0),
+                v -> v - 1);
+
+        // chains of different shapes, so that the operators' call sites see
+        // many subscriber and callback types as in an actual application
+        Integer[] values = new Integer[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i & 127;
+        }
+
+        int n = 16;
+        mixedChains = new Publisher[n];
+        mixedChainsSeparate = new Publisher[n];
+        
+        for (int i = 0; i < n; i++) {
+            Px<Integer> fused = Px.fromArray(values);
+            Publisher<Integer> separate = new PublisherArray<>(values);
+            
+            for (int j = 0; j < 5; j++) {
+                int m = (i + j) & 3;
+                switch ((i * 7 + j * (i % 4 + 1)) % 3) {
+                case 0:
+                    Predicate<Integer> p = v -> (v & m) != 1;
+                    fused = fused.filter(p);
+                    separate = new PublisherFilterFuseable<>(separate, p);
+                    break;
+                case 1:
+                    Function<Integer, Integer> f = v -> (v + m) & 127;
+                    fused = fused.map(f);
+                    separate = new PublisherMapFuseable<>(separate, f);
+                    break;
+                default:
+                    Consumer<Integer> c = v -> { };
+                    fused = fused.doOnNext(c);
+                    separate = new PublisherPeekFuseable<>(separate, null, c, null, null, null, null, null);
+                }
+            }
+            
+            mixedChains[i] = fused;
+            mixedChainsSeparate[i] = separate;
+        }
     }
     
     @Benchmark
@@ -52,4 +119,49 @@ public class PublisherMapPerf {
         rangeConcatMapRange.subscribe(new PerfSubscriber(bh));
     }
 
+    @Benchmark
+    public void mapSumBatch(Blackhole bh) {
+        mapSumBatch.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void mapSumUnfused(Blackhole bh) {
+        mapSumUnfused.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void mapChain(Blackhole bh) {
+        mapChain.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void mapChainSeparate(Blackhole bh) {
+        mapChainSeparate.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void mixedChains(Blackhole bh) {
+        for (Publisher<Integer> p : mixedChains) {
+            p.subscribe(new PerfSubscriber(bh));
+        }
+    }
+
+    @Benchmark
+    public void mixedChainsSeparate(Blackhole bh) {
+        for (Publisher<Integer> p : mixedChainsSeparate) {
+            p.subscribe(new PerfSubscriber(bh));
+        }
+    }
+
+    @Benchmark
+    public int mapSumLoop() {
+        int sum = 0;
+        for (int i = 1; i <= 1_000_000; i++) {
+            Integer v = i + 1;
+            if ((v & 1) == 0) {
+                sum += v;
+            }
+        }
+        return sum;
+    }
 }
@@ -7,6 +7,7 @@ import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 import org.reactivestreams.Publisher;
 
+import rsc.scheduler.ParallelScheduler;
 import rsc.util.PerfAsyncSubscriber;
 
 
@@ -35,8 +36,16 @@ public class PublisherObserveOnPerf {
     Publisher<Integer> iterable;
     Publisher<Integer> iterableHidden;
 
+    Publisher<Integer> rangeParallel;
+    Publisher<Integer> rangeParallelTrampoline;
+    Publisher<Integer> rangeParallelPadded;
+
     ExecutorService exec;
     
+    ParallelScheduler parallel;
+
+    ParallelScheduler parallelTrampoline;
+    
     @Setup
     public void setup(Blackhole bh) {
         exec = Executors.newSingleThreadExecutor();
@@ -58,11 +67,20 @@ public class PublisherObserveOnPerf {
         
         iterable = it.observeOn(exec);
         iterableHidden = it.hide().observeOn(exec);
+        
+        parallel = new ParallelScheduler(1, "parallel-perf-", true);
+        parallelTrampoline = new ParallelScheduler(1, "parallel-perf-trampoline-", true, true);
+        
+        rangeParallel = source.hide().observeOn(parallel);
+        rangeParallelTrampoline = source.hide().observeOn(parallelTrampoline);
+        rangeParallelPadded = source.hide().observeOn(parallel, true, Px.bufferSize(), Px.paddedQueueSupplier(Px.bufferSize()));
     }
     
     @TearDown
     public void teardown() {
         exec.shutdownNow();
+        parallel.shutdown();
+        parallelTrampoline.shutdown();
     }
     
     void run(Publisher<Integer> p, Blackhole bh) {
@@ -102,4 +120,19 @@ public class PublisherObserveOnPerf {
     public void iterableHidden(Blackhole bh) {
         run(iterableHidden, bh);
     }
+
+    @Benchmark
+    public void rangeParallel(Blackhole bh) {
+        run(rangeParallel, bh);
+    }
+
+    @Benchmark
+    public void rangeParallelTrampoline(Blackhole bh) {
+        run(rangeParallelTrampoline, bh);
+    }
+
+    @Benchmark
+    public void rangeParallelPadded(Blackhole bh) {
+        run(rangeParallelPadded, bh);
+    }
 }
@@ -34,6 +34,10 @@ public class PublisherZipPerf {
     
     Px<Integer> zipRange;
     
+    Px<Integer> zip3Range;
+    
+    Px<Integer> zipArrayRange;
+    
     @Param({"1", "1000", "1000000"})
     int count;
     @Setup
@@ -52,6 +56,10 @@ public class PublisherZipPerf {
         zipArray = baselineArray.zipWith(baselineArray, (a, b) -> a + b);
 
         zipRange = baselineRange.zipWith(baselineRange, (a, b) -> a + b);
+        
+        zip3Range = zipRange.zipWith(baselineRange, (a, b) -> a + b);
+        
+        zipArrayRange = Px.zip(a -> (Integer)a[0] + (Integer)a[1], baselineRange, baselineRange);
     }
     
     @Benchmark
@@ -83,4 +91,14 @@ public class PublisherZipPerf {
     public void zipRange(Blackhole bh) {
         zipRange.subscribe(new PerfSubscriber(bh));
     }
+    
+    @Benchmark
+    public void zip3Range(Blackhole bh) {
+        zip3Range.subscribe(new PerfSubscriber(bh));
+    }
+    
+    @Benchmark
+    public void zipArrayRange(Blackhole bh) {
+        zipArrayRange.subscribe(new PerfSubscriber(bh));
+    }
 }
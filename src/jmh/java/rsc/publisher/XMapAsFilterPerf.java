@@ -34,6 +34,10 @@ public class XMapAsFilterPerf {
     
     public Px<Integer> rangeEmptyConcatMap;
 
+    public Px<Integer> filterMap;
+
+    public Px<Integer> filterMapSeparate;
+
     @Setup
     public void setup() {
         if (count == 1 && mask != 0) {
@@ -58,6 +62,10 @@ public class XMapAsFilterPerf {
         justEmptyConcatMap = Px.fromArray(values).concatMap(v -> (v & m) == 0 ? empty : just);
         
         rangeEmptyConcatMap = Px.fromArray(values).concatMap(v -> (v & m) == 0 ? empty : range);
+
+        filterMap = Px.fromArray(values).filter(v -> (v & m) != 0).map(v -> v + 1);
+
+        filterMapSeparate = new PublisherMapFuseable<>(new PublisherFilterFuseable<>(new PublisherArray<>(values), v -> (v & m) != 0), v -> v + 1);
     }
 
     @Benchmark
@@ -79,4 +87,14 @@ public class XMapAsFilterPerf {
     public void rangeEmptyConcatMap(Blackhole bh) {
         rangeEmptyConcatMap.subscribe(new PerfSubscriber(bh));
     }
+
+    @Benchmark
+    public void filterMap(Blackhole bh) {
+        filterMap.subscribe(new PerfSubscriber(bh));
+    }
+
+    @Benchmark
+    public void filterMapSeparate(Blackhole bh) {
+        filterMapSeparate.subscribe(new PerfSubscriber(bh));
+    }
 }
\ No newline at end of file
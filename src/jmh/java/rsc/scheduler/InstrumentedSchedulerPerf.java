@@ -0,0 +1,74 @@
+package rsc.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import rsc.publisher.Px;
+import rsc.util.PerfAsyncSubscriber;
+
+
+/**
+ * Measures the overhead of the scheduler instrumentation. Run from command line as
+ * <br>
+ * gradle jmh -Pjmh='InstrumentedSchedulerPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class InstrumentedSchedulerPerf {
+
+    @Param({"1", "1000", "1000000"})
+    int count;
+
+    @Param({"false", "true"})
+    boolean instrumented;
+
+    Scheduler scheduler;
+
+    Publisher<Integer> observeOn;
+
+    Scheduler.Worker worker;
+
+    @Setup
+    public void setup() {
+        Scheduler s = new ParallelScheduler(1, "instrumented-perf-", true);
+        if (instrumented) {
+            s = new InstrumentedScheduler(s);
+        }
+        scheduler = s;
+        worker = s.createWorker();
+
+        observeOn = Px.range(1, count).hide().observeOn(s);
+    }
+
+    @TearDown
+    public void teardown() {
+        worker.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void observeOn(Blackhole bh) {
+        PerfAsyncSubscriber ps = new PerfAsyncSubscriber(bh);
+        observeOn.subscribe(ps);
+        ps.await(count);
+    }
+
+    @Benchmark
+    public void workerTasks(Blackhole bh) {
+        PerfAsyncSubscriber ps = new PerfAsyncSubscriber(bh);
+        Scheduler.Worker w = worker;
+        int n = count;
+        for (int i = 1; i < n; i++) {
+            w.schedule(() -> bh.consume(1));
+        }
+        w.schedule(ps::onComplete);
+        ps.await(n);
+    }
+}
@@ -43,6 +43,10 @@ public class SchedulerPerf {
         FORKJOIN,
         FORKJOIN_TRAMPOLINE,
 
+        FORKJOIN_SCHEDULER,
+
+        WORK_STEALING,
+
         SCHEDULED_EXECUTOR_SINGLE(true),
         SCHEDULED_EXECUTOR_SINGLE_TRAMPOLINE,
 
@@ -103,6 +107,12 @@ public class SchedulerPerf {
 
     Scheduler forkjoinTrampoline;
 
+    // fixed pools of per-thread run queues
+
+    Scheduler forkjoinScheduler;
+
+    Scheduler workStealing;
+
     // wrapping a ScheduledExecutorService instance
     
     Scheduler scheduledExecutorSingle;
@@ -161,6 +171,10 @@ public class SchedulerPerf {
 
         forkjoinTrampoline = new ExecutorServiceScheduler(ForkJoinPool.commonPool(), false);
 
+        forkjoinScheduler = new ForkJoinScheduler();
+
+        workStealing = new WorkStealingScheduler();
+
         
         
         scheduledExecutorSingle = new ExecutorServiceScheduler(scheduledExecutorServiceSingle, false);
@@ -198,6 +212,9 @@ public class SchedulerPerf {
         
         schedulers.put(SchedulerType.FORKJOIN, forkjoin);
         schedulers.put(SchedulerType.FORKJOIN_TRAMPOLINE, forkjoin);
+
+        schedulers.put(SchedulerType.FORKJOIN_SCHEDULER, forkjoinScheduler);
+        schedulers.put(SchedulerType.WORK_STEALING, workStealing);
         
         schedulers.put(SchedulerType.SCHEDULED_EXECUTOR_SINGLE, scheduledExecutorSingle);
         schedulers.put(SchedulerType.SCHEDULED_EXECUTOR_SINGLE_TRAMPOLINE, scheduledExecutorTrampolineSingle);
@@ -224,6 +241,10 @@ public class SchedulerPerf {
         
         parallel.shutdown();
 
+        forkjoinScheduler.shutdown();
+
+        workStealing.shutdown();
+
         reactorSingle.shutdown();
 
         reactorParallel.shutdown();
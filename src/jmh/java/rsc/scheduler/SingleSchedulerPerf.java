@@ -12,6 +12,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 import org.reactivestreams.Publisher;
@@ -39,8 +40,38 @@ public class SingleSchedulerPerf {
     @Param({/*"1", */"128", /* "256", "512", "1024", "16384"/*, "1000000"*/})
     int prefetch;
 
+    @Param({"BUSY_SPIN", "SPIN_YIELD_PARK", "BLOCKING"})
+    Strategy strategy;
+
     Publisher<Integer> source;
 
+    Scheduler s1;
+
+    Scheduler s2;
+
+    public enum Strategy {
+        BUSY_SPIN {
+            @Override
+            WaitStrategy create() {
+                return WaitStrategy.busySpin();
+            }
+        },
+        SPIN_YIELD_PARK {
+            @Override
+            WaitStrategy create() {
+                return WaitStrategy.spinYieldPark(64, 16);
+            }
+        },
+        BLOCKING {
+            @Override
+            WaitStrategy create() {
+                return WaitStrategy.blocking();
+            }
+        };
+
+        abstract WaitStrategy create();
+    }
+
     @Setup
     public void setup(Blackhole bh) {
         Integer[] array = new Integer[count];
@@ -48,12 +79,18 @@ public class SingleSchedulerPerf {
             array[i] = i;
         }
         
-        Scheduler s1 = new SingleScheduler2();
-        Scheduler s2 = new SingleScheduler2();
+        s1 = new SingleScheduler2(strategy.create());
+        s2 = new SingleScheduler2(strategy.create());
         
         source = Px.fromArray(array).subscribeOn(s1).observeOn(s2, false, prefetch);
     }
 
+    @TearDown
+    public void teardown() {
+        s1.shutdown();
+        s2.shutdown();
+    }
+
     @Benchmark
     public void pipeline(Blackhole bh) {
         PerfAsyncSubscriber ps = new PerfAsyncSubscriber(bh);
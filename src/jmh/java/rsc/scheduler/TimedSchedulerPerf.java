@@ -0,0 +1,92 @@
+package rsc.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rsc.flow.Disposable;
+import rsc.scheduler.TimedScheduler.TimedWorker;
+
+/**
+ * Benchmark scheduling and then cancelling lots of timeouts, the typical
+ * lifecycle of a timeout() operator's timers.
+ * <p>
+ * gradle jmh -Pjmh='TimedSchedulerPerf'
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class TimedSchedulerPerf {
+
+    @Param({"1000", "1000000"})
+    public int count;
+
+    @Param
+    public TimedSchedulerType type;
+
+    public enum TimedSchedulerType {
+        SINGLE_TIMED,
+
+        TIMING_WHEEL
+    }
+
+    TimedScheduler scheduler;
+
+    Disposable[] disposables;
+
+    static final Runnable EMPTY = () -> { };
+
+    @Setup
+    public void setup() {
+        switch (type) {
+        case SINGLE_TIMED:
+            scheduler = new SingleTimedScheduler(true);
+            break;
+        default:
+            scheduler = new TimingWheelScheduler(true);
+        }
+        disposables = new Disposable[count];
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void direct_scheduleAndCancel() {
+        TimedScheduler s = scheduler;
+        Disposable[] a = disposables;
+        int n = a.length;
+
+        for (int i = 0; i < n; i++) {
+            a[i] = s.schedule(EMPTY, 30, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < n; i++) {
+            a[i].dispose();
+        }
+    }
+
+    @Benchmark
+    public void worker_scheduleAndCancel() {
+        TimedWorker w = scheduler.createWorker();
+        try {
+            Disposable[] a = disposables;
+            int n = a.length;
+
+            for (int i = 0; i < n; i++) {
+                a[i] = w.schedule(EMPTY, 30, TimeUnit.SECONDS);
+            }
+
+            for (int i = 0; i < n; i++) {
+                a[i].dispose();
+            }
+        } finally {
+            w.shutdown();
+        }
+    }
+}
@@ -33,6 +33,7 @@ public class QueuePerf {
 
     Px<Integer> rsc;
     Px<Integer> rscLinked;
+    Px<Integer> rscPadded;
     
     @Setup
     public void setup() {
@@ -51,6 +52,8 @@ public class QueuePerf {
         rsc = new PublisherObserveOn<>(source, s2, false, prefetch, () -> new SpscArrayQueue<>(prefetch));
         
         rscLinked = new PublisherObserveOn<>(source, s2, false, prefetch, () -> new SpscLinkedArrayQueue<>(prefetch));
+
+        rscPadded = new PublisherObserveOn<>(source, s2, false, prefetch, () -> new SpscPaddedArrayQueue<>(prefetch));
     }
     
     @TearDown
@@ -76,4 +79,9 @@ public class QueuePerf {
     public void rscLinked(Blackhole bh) {
         run(rscLinked, bh);
     }
-}
\ No newline at end of file
+
+    @Benchmark
+    public void rscPadded(Blackhole bh) {
+        run(rscPadded, bh);
+    }
+}
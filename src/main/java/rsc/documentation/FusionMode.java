@@ -17,6 +17,8 @@ public enum FusionMode {
     SYNC,
     /** Supports asynchronous fusion. */
     ASYNC,
+    /** Supports synchronous fusion with chunks of values, see {@link Fuseable#BATCH}. */
+    BATCH,
     /** 
      * Fusion is sensitive to a boundary marker.
      * <p> 
@@ -29,6 +29,15 @@ public interface Fuseable {
      * thread bound this way.
      */
     int THREAD_BARRIER = 4;
+    /**
+     * Operational mode constant: Running with a synchronous source that can also hand out its values
+     * in chunks via {@link BatchSubscription#poll(Object[], int)}.
+     * <p>
+     * This mode can be requested only from a {@link BatchSubscription} and only after the
+     * SYNC mode has been established with it; the implementor should return BATCH or NONE,
+     * and the SYNC mode remains in effect in either case.
+     */
+    int BATCH = 8;
 
     /**
      * A subscriber variant that can immediately tell if it consumed
@@ -171,6 +180,36 @@ public interface Fuseable {
 
     }
 
+    /**
+     * Synchronous source that, in addition to {@link #poll()}, can emit its items in chunks,
+     * saving a virtual call and a null check per item between adjacent batch-capable stages.
+     * <p>
+     * A consumer should first establish the SYNC mode, then request the BATCH mode via
+     * {@link #requestFusion(int)} and, if granted, may call {@link #poll(Object[], int)} (mixed with
+     * {@link #poll()} if necessary) until it returns zero.
+     *
+     * @param <T> the content value type
+     */
+    interface BatchSubscription<T> extends SynchronousSubscription<T> {
+
+        @Override
+        default int requestFusion(int requestedMode) {
+            return requestedMode == Fuseable.BATCH ? Fuseable.BATCH : Fuseable.SYNC;
+        }
+
+        /**
+         * Polls at most {@code max} items into the buffer, starting at index zero.
+         * <p>
+         * The contents of the buffer beyond the returned count are unspecified. The method
+         * may throw just like {@link #poll()} does.
+         *
+         * @param buffer the buffer to fill in, at least {@code max} long
+         * @param max the maximum number of items to poll, positive
+         * @return the number of items polled, zero if the source is exhausted
+         */
+        int poll(Object[] buffer, int max);
+    }
+
     /**
      * Marker interface indicating that the target can return a value or null
      * immediately and thus a viable target for assembly-time optimizations.
@@ -45,7 +45,7 @@ public final class ParallelOrderedRunOn<T> extends ParallelOrderedBase<T> {
         for (int i = 0; i < n; i++) {
             Subscriber<? super OrderedItem<T>> a = subscribers[i];
             
-            Worker w = scheduler.createWorker();
+            Worker w = scheduler.createWorker(i);
             Queue<OrderedItem<T>> q = queueSupplier.get();
             
             RunOnSubscriber<OrderedItem<T>> parent = new RunOnSubscriber<>(a, prefetch, q, w);
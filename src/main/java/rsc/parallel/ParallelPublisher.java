@@ -164,8 +164,10 @@ public abstract class ParallelPublisher<T> {
      * <p>
      * This operator uses the default prefetch size returned by {@code Px.bufferSize()}.
      * <p>
-     * The operator will call {@code Scheduler.createWorker()} as many
-     * times as this ParallelPublisher's parallelism level is.
+     * The operator will call {@code Scheduler.createWorker(int)} with each
+     * rail's index, as many times as this ParallelPublisher's parallelism level is,
+     * so schedulers with a fixed set of threads and a {@code ThreadPlacement} keep
+     * each rail on the same thread across subscriptions.
      * <p>
      * No assumptions are made about the Scheduler's parallelism level,
      * if the Scheduler's parallelism level is lwer than the ParallelPublisher's,
@@ -187,8 +189,10 @@ public abstract class ParallelPublisher<T> {
      * <p>
      * This operator uses the default prefetch size returned by {@code Px.bufferSize()}.
      * <p>
-     * The operator will call {@code Scheduler.createWorker()} as many
-     * times as this ParallelPublisher's parallelism level is.
+     * The operator will call {@code Scheduler.createWorker(int)} with each
+     * rail's index, as many times as this ParallelPublisher's parallelism level is,
+     * so schedulers with a fixed set of threads and a {@code ThreadPlacement} keep
+     * each rail on the same thread across subscriptions.
      * <p>
      * No assumptions are made about the Scheduler's parallelism level,
      * if the Scheduler's parallelism level is lwer than the ParallelPublisher's,
@@ -47,7 +47,7 @@ public final class ParallelUnorderedRunOn<T> extends ParallelPublisher<T> {
         for (int i = 0; i < n; i++) {
             Subscriber<? super T> a = subscribers[i];
             
-            Worker w = scheduler.createWorker();
+            Worker w = scheduler.createWorker(i);
             Queue<T> q = queueSupplier.get();
             
             RunOnSubscriber<T> parent = new RunOnSubscriber<>(a, prefetch, q, w);
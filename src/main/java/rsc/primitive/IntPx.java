@@ -0,0 +1,122 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.*;
+
+import org.reactivestreams.Publisher;
+
+import rsc.publisher.Px;
+
+/**
+ * Abstract base class for sequences of primitive int values that flow from operator
+ * to operator without being boxed.
+ * <p>
+ * Use {@link #boxed()} or {@link #mapToObj(IntFunction)} to convert back into a
+ * regular {@link Px} and {@code Px.mapToInt()} to enter this family from one.
+ * <p>
+ * Every {@link IntSubscriber} is conditional: the sources emit via
+ * {@link IntSubscriber#tryOnNextInt(int)} when running in backpressured mode so
+ * values dropped by a filter don't need to be requested again one by one.
+ */
+public abstract class IntPx {
+
+    /**
+     * Subscribes the IntSubscriber to this sequence.
+     * @param s the IntSubscriber, not null
+     */
+    public abstract void subscribe(IntSubscriber s);
+
+    /**
+     * Emits a range of int values.
+     * @param start the first value
+     * @param count the number of values to emit
+     * @return the new IntPx instance
+     */
+    public static IntPx range(int start, int count) {
+        return new IntPxRange(start, count);
+    }
+
+    /**
+     * Emits the elements of the array.
+     * @param array the array, not null
+     * @return the new IntPx instance
+     */
+    public static IntPx fromArray(int... array) {
+        return new IntPxArray(array);
+    }
+
+    /**
+     * Converts each element of the source Publisher into an int.
+     * @param <T> the source value type
+     * @param source the source Publisher, not null
+     * @param mapper the function turning the source values into ints, not null
+     * @return the new IntPx instance
+     */
+    public static <T> IntPx from(Publisher<? extends T> source, ToIntFunction<? super T> mapper) {
+        return new IntPxFromPublisher<>(source, mapper);
+    }
+
+    public final IntPx map(IntUnaryOperator mapper) {
+        return new IntPxMap(this, mapper);
+    }
+
+    public final IntPx filter(IntPredicate predicate) {
+        return new IntPxFilter(this, predicate);
+    }
+
+    public final LongPx mapToLong(IntToLongFunction mapper) {
+        return new IntPxMapToLong(this, mapper);
+    }
+
+    public final <R> Px<R> mapToObj(IntFunction<? extends R> mapper) {
+        return new IntPxMapToObj<>(this, mapper);
+    }
+
+    /**
+     * Converts this sequence into a regular Publisher of Integers, boxing each value.
+     * @return the new Px instance
+     */
+    public final Px<Integer> boxed() {
+        return mapToObj(Integer::valueOf);
+    }
+
+    /**
+     * Combines the values with the reducer function and emits the result as a single
+     * Integer; emits nothing if this sequence is empty.
+     * @param reducer the function combining the accumulated value with the next one
+     * @return the new Px instance
+     */
+    public final Px<Integer> reduce(IntBinaryOperator reducer) {
+        return new IntPxReduce(this, reducer);
+    }
+
+    public final Px<Integer> sum() {
+        return reduce(Integer::sum);
+    }
+
+    public final Px<Integer> min() {
+        return reduce(Math::min);
+    }
+
+    public final Px<Integer> max() {
+        return reduce(Math::max);
+    }
+
+    /**
+     * Collects the values into an int array, emitted as a single value; emits an
+     * empty array if this sequence is empty.
+     * @return the new Px instance
+     */
+    public final Px<int[]> toArray() {
+        return new IntPxToArray(this);
+    }
+
+    /**
+     * Subscribes to this sequence and calls the consumer for each value.
+     * @param consumer the consumer of the values, not null
+     */
+    public final void forEach(IntConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        subscribe(new IntPxForEach(consumer));
+    }
+}
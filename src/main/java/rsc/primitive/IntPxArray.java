@@ -0,0 +1,133 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+
+/**
+ * Emits the elements of an int array.
+ */
+final class IntPxArray extends IntPx {
+
+    final int[] array;
+
+    public IntPxArray(int[] array) {
+        this.array = Objects.requireNonNull(array, "array");
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        if (array.length == 0) {
+            s.onSubscribe(SubscriptionHelper.empty());
+            s.onComplete();
+            return;
+        }
+        s.onSubscribe(new IntArraySubscription(s, array));
+    }
+
+    static final class IntArraySubscription implements Subscription {
+
+        final IntSubscriber actual;
+
+        final int[] array;
+
+        int index;
+
+        volatile boolean cancelled;
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<IntArraySubscription> REQUESTED =
+          AtomicLongFieldUpdater.newUpdater(IntArraySubscription.class, "requested");
+
+        public IntArraySubscription(IntSubscriber actual, int[] array) {
+            this.actual = actual;
+            this.array = array;
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                if (BackpressureHelper.getAndAddCap(REQUESTED, this, n) == 0) {
+                    if (n == Long.MAX_VALUE) {
+                        fastPath();
+                    } else {
+                        slowPath(n);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void fastPath() {
+            final int[] a = array;
+            final int len = a.length;
+            final IntSubscriber s = actual;
+
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+
+                s.onNextInt(a[i]);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            s.onComplete();
+        }
+
+        void slowPath(long n) {
+            final int[] a = array;
+            final int len = a.length;
+            final IntSubscriber s = actual;
+
+            int i = index;
+            long e = 0L;
+
+            for (;;) {
+                if (cancelled) {
+                    return;
+                }
+
+                while (i != len && e != n) {
+                    boolean b = s.tryOnNextInt(a[i]);
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    if (b) {
+                        e++;
+                    }
+                    i++;
+                }
+
+                if (i == len) {
+                    s.onComplete();
+                    return;
+                }
+
+                n = requested;
+
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0L;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Filters the int values of the source with a predicate.
+ */
+final class IntPxFilter extends IntPx {
+
+    final IntPx source;
+
+    final IntPredicate predicate;
+
+    public IntPxFilter(IntPx source, IntPredicate predicate) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.predicate = Objects.requireNonNull(predicate, "predicate");
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        source.subscribe(new IntFilterSubscriber(s, predicate));
+    }
+
+    static final class IntFilterSubscriber implements IntSubscriber, Subscription {
+
+        final IntSubscriber actual;
+
+        final IntPredicate predicate;
+
+        Subscription s;
+
+        boolean done;
+
+        public IntFilterSubscriber(IntSubscriber actual, IntPredicate predicate) {
+            this.actual = actual;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (!tryOnNextInt(t) && !done) {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNextInt(int t) {
+            if (done) {
+                return false;
+            }
+
+            boolean b;
+
+            try {
+                b = predicate.test(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return b && actual.tryOnNextInt(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package rsc.primitive;
+
+import java.util.function.IntConsumer;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Consumes an IntPx with a callback, requesting everything upfront.
+ */
+final class IntPxForEach implements IntSubscriber {
+
+    final IntConsumer consumer;
+
+    Subscription s;
+
+    boolean done;
+
+    public IntPxForEach(IntConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (SubscriptionHelper.validate(this.s, s)) {
+            this.s = s;
+            s.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNextInt(int t) {
+        if (done) {
+            return;
+        }
+        try {
+            consumer.accept(t);
+        } catch (Throwable ex) {
+            ExceptionHelper.throwIfFatal(ex);
+            s.cancel();
+            onError(ExceptionHelper.unwrap(ex));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        done = true;
+        UnsignalledExceptions.onErrorDropped(t);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+    }
+}
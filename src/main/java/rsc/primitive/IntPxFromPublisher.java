@@ -0,0 +1,126 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+import org.reactivestreams.*;
+
+import rsc.flow.Fuseable.ConditionalSubscriber;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the values of a regular Publisher into int values, bridging into an IntPx.
+ *
+ * @param <T> the source value type
+ */
+final class IntPxFromPublisher<T> extends IntPx {
+
+    final Publisher<? extends T> source;
+
+    final ToIntFunction<? super T> mapper;
+
+    public IntPxFromPublisher(Publisher<? extends T> source, ToIntFunction<? super T> mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        source.subscribe(new FromPublisherSubscriber<>(s, mapper));
+    }
+
+    static final class FromPublisherSubscriber<T> implements ConditionalSubscriber<T>, Subscription {
+
+        final IntSubscriber actual;
+
+        final ToIntFunction<? super T> mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public FromPublisherSubscriber(IntSubscriber actual, ToIntFunction<? super T> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNextInt(v);
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                return false;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return actual.tryOnNextInt(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
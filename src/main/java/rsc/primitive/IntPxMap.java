@@ -0,0 +1,123 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the int values of the source one-on-one via a mapper function.
+ */
+final class IntPxMap extends IntPx {
+
+    final IntPx source;
+
+    final IntUnaryOperator mapper;
+
+    public IntPxMap(IntPx source, IntUnaryOperator mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        source.subscribe(new IntMapSubscriber(s, mapper));
+    }
+
+    static final class IntMapSubscriber implements IntSubscriber, Subscription {
+
+        final IntSubscriber actual;
+
+        final IntUnaryOperator mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public IntMapSubscriber(IntSubscriber actual, IntUnaryOperator mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (done) {
+                return;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNextInt(v);
+        }
+
+        @Override
+        public boolean tryOnNextInt(int t) {
+            if (done) {
+                return false;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return actual.tryOnNextInt(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.IntToLongFunction;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the int values of the source into long values via a mapper function.
+ */
+final class IntPxMapToLong extends LongPx {
+
+    final IntPx source;
+
+    final IntToLongFunction mapper;
+
+    public IntPxMapToLong(IntPx source, IntToLongFunction mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(LongSubscriber s) {
+        source.subscribe(new IntMapToLongSubscriber(s, mapper));
+    }
+
+    static final class IntMapToLongSubscriber implements IntSubscriber, Subscription {
+
+        final LongSubscriber actual;
+
+        final IntToLongFunction mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public IntMapToLongSubscriber(LongSubscriber actual, IntToLongFunction mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (done) {
+                return;
+            }
+
+            long v;
+
+            try {
+                v = mapper.applyAsLong(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNextLong(v);
+        }
+
+        @Override
+        public boolean tryOnNextInt(int t) {
+            if (done) {
+                return false;
+            }
+
+            long v;
+
+            try {
+                v = mapper.applyAsLong(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return actual.tryOnNextLong(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
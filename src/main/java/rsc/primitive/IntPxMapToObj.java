@@ -0,0 +1,106 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import org.reactivestreams.*;
+
+import rsc.publisher.Px;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the int values of the source into objects, bridging back into a regular Publisher.
+ *
+ * @param <R> the result value type
+ */
+final class IntPxMapToObj<R> extends Px<R> {
+
+    final IntPx source;
+
+    final IntFunction<? extends R> mapper;
+
+    public IntPxMapToObj(IntPx source, IntFunction<? extends R> mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+        source.subscribe(new IntMapToObjSubscriber<>(s, mapper));
+    }
+
+    static final class IntMapToObjSubscriber<R> implements IntSubscriber, Subscription {
+
+        final Subscriber<? super R> actual;
+
+        final IntFunction<? extends R> mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public IntMapToObjSubscriber(Subscriber<? super R> actual, IntFunction<? extends R> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (done) {
+                return;
+            }
+
+            R v;
+
+            try {
+                v = Objects.requireNonNull(mapper.apply(t), "The mapper returned a null value.");
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNext(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
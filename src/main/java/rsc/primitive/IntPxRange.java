@@ -0,0 +1,149 @@
+package rsc.primitive;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+
+/**
+ * Emits a range of int values.
+ */
+final class IntPxRange extends IntPx {
+
+    final long start;
+
+    final long end;
+
+    public IntPxRange(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= required but it was " + count);
+        }
+        long e = (long) start + count;
+        if (e - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start + count must be less than Integer.MAX_VALUE + 1");
+        }
+
+        this.start = start;
+        this.end = e;
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        long st = start;
+        long en = end;
+        if (st == en) {
+            s.onSubscribe(SubscriptionHelper.empty());
+            s.onComplete();
+            return;
+        }
+        s.onSubscribe(new IntRangeSubscription(s, st, en));
+    }
+
+    static final class IntRangeSubscription implements Subscription {
+
+        final IntSubscriber actual;
+
+        final long end;
+
+        volatile boolean cancelled;
+
+        long index;
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<IntRangeSubscription> REQUESTED =
+          AtomicLongFieldUpdater.newUpdater(IntRangeSubscription.class, "requested");
+
+        public IntRangeSubscription(IntSubscriber actual, long start, long end) {
+            this.actual = actual;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                if (BackpressureHelper.getAndAddCap(REQUESTED, this, n) == 0) {
+                    if (n == Long.MAX_VALUE) {
+                        fastPath();
+                    } else {
+                        slowPath(n);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void fastPath() {
+            final long e = end;
+            final IntSubscriber a = actual;
+
+            for (long i = index; i != e; i++) {
+                if (cancelled) {
+                    return;
+                }
+
+                a.onNextInt((int) i);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            a.onComplete();
+        }
+
+        void slowPath(long n) {
+            final IntSubscriber a = actual;
+
+            long f = end;
+            long e = 0;
+            long i = index;
+
+            for (; ; ) {
+
+                if (cancelled) {
+                    return;
+                }
+
+                while (e != n && i != f) {
+
+                    boolean b = a.tryOnNextInt((int) i);
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    if (b) {
+                        e++;
+                    }
+                    i++;
+                }
+
+                if (cancelled) {
+                    return;
+                }
+
+                if (i == f) {
+                    a.onComplete();
+                    return;
+                }
+
+                n = requested;
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+
+import org.reactivestreams.*;
+
+import rsc.publisher.Px;
+import rsc.subscriber.*;
+import rsc.util.*;
+
+/**
+ * Reduces the int values of the source into a single value, boxed only once at the end.
+ */
+final class IntPxReduce extends Px<Integer> {
+
+    final IntPx source;
+
+    final IntBinaryOperator reducer;
+
+    public IntPxReduce(IntPx source, IntBinaryOperator reducer) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.reducer = Objects.requireNonNull(reducer, "reducer");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Integer> s) {
+        source.subscribe(new IntReduceSubscriber(s, reducer));
+    }
+
+    static final class IntReduceSubscriber extends DeferredScalarSubscriber<Integer, Integer>
+    implements IntSubscriber {
+
+        final IntBinaryOperator reducer;
+
+        Subscription s;
+
+        int accumulator;
+
+        boolean hasValue;
+
+        boolean done;
+
+        public IntReduceSubscriber(Subscriber<? super Integer> actual, IntBinaryOperator reducer) {
+            super(actual);
+            this.reducer = reducer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                subscriber.onSubscribe(this);
+
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Integer t) {
+            onNextInt(t);
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (done) {
+                return;
+            }
+
+            if (hasValue) {
+                try {
+                    accumulator = reducer.applyAsInt(accumulator, t);
+                } catch (Throwable ex) {
+                    ExceptionHelper.throwIfFatal(ex);
+                    s.cancel();
+                    onError(ExceptionHelper.unwrap(ex));
+                }
+            } else {
+                hasValue = true;
+                accumulator = t;
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            subscriber.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (hasValue) {
+                complete(accumulator);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package rsc.primitive;
+
+import java.util.*;
+
+import org.reactivestreams.*;
+
+import rsc.publisher.Px;
+import rsc.subscriber.*;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Collects the int values of the source into an int array, growing it as necessary.
+ */
+final class IntPxToArray extends Px<int[]> {
+
+    final IntPx source;
+
+    public IntPxToArray(IntPx source) {
+        this.source = Objects.requireNonNull(source, "source");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super int[]> s) {
+        source.subscribe(new IntToArraySubscriber(s));
+    }
+
+    static final class IntToArraySubscriber extends DeferredScalarSubscriber<Integer, int[]>
+    implements IntSubscriber {
+
+        Subscription s;
+
+        int[] array;
+
+        int size;
+
+        boolean done;
+
+        public IntToArraySubscriber(Subscriber<? super int[]> actual) {
+            super(actual);
+            this.array = new int[16];
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                subscriber.onSubscribe(this);
+
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Integer t) {
+            onNextInt(t);
+        }
+
+        @Override
+        public void onNextInt(int t) {
+            if (done) {
+                return;
+            }
+            int[] a = array;
+            int n = size;
+            if (n == a.length) {
+                a = Arrays.copyOf(a, n + (n >> 1));
+                array = a;
+            }
+            a[n] = t;
+            size = n + 1;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            array = null;
+            subscriber.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            int[] a = array;
+            array = null;
+            complete(size == a.length ? a : Arrays.copyOf(a, size));
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
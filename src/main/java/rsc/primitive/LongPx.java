@@ -0,0 +1,122 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.*;
+
+import org.reactivestreams.Publisher;
+
+import rsc.publisher.Px;
+
+/**
+ * Abstract base class for sequences of primitive long values that flow from operator
+ * to operator without being boxed.
+ * <p>
+ * Use {@link #boxed()} or {@link #mapToObj(LongFunction)} to convert back into a
+ * regular {@link Px} and {@code Px.mapToLong()} to enter this family from one.
+ * <p>
+ * Every {@link LongSubscriber} is conditional: the sources emit via
+ * {@link LongSubscriber#tryOnNextLong(long)} when running in backpressured mode so
+ * values dropped by a filter don't need to be requested again one by one.
+ */
+public abstract class LongPx {
+
+    /**
+     * Subscribes the LongSubscriber to this sequence.
+     * @param s the LongSubscriber, not null
+     */
+    public abstract void subscribe(LongSubscriber s);
+
+    /**
+     * Emits a range of long values.
+     * @param start the first value
+     * @param count the number of values to emit
+     * @return the new LongPx instance
+     */
+    public static LongPx range(long start, long count) {
+        return new LongPxRange(start, count);
+    }
+
+    /**
+     * Emits the elements of the array.
+     * @param array the array, not null
+     * @return the new LongPx instance
+     */
+    public static LongPx fromArray(long... array) {
+        return new LongPxArray(array);
+    }
+
+    /**
+     * Converts each element of the source Publisher into a long.
+     * @param <T> the source value type
+     * @param source the source Publisher, not null
+     * @param mapper the function turning the source values into longs, not null
+     * @return the new LongPx instance
+     */
+    public static <T> LongPx from(Publisher<? extends T> source, ToLongFunction<? super T> mapper) {
+        return new LongPxFromPublisher<>(source, mapper);
+    }
+
+    public final LongPx map(LongUnaryOperator mapper) {
+        return new LongPxMap(this, mapper);
+    }
+
+    public final LongPx filter(LongPredicate predicate) {
+        return new LongPxFilter(this, predicate);
+    }
+
+    public final IntPx mapToInt(LongToIntFunction mapper) {
+        return new LongPxMapToInt(this, mapper);
+    }
+
+    public final <R> Px<R> mapToObj(LongFunction<? extends R> mapper) {
+        return new LongPxMapToObj<>(this, mapper);
+    }
+
+    /**
+     * Converts this sequence into a regular Publisher of Longs, boxing each value.
+     * @return the new Px instance
+     */
+    public final Px<Long> boxed() {
+        return mapToObj(Long::valueOf);
+    }
+
+    /**
+     * Combines the values with the reducer function and emits the result as a single
+     * Long; emits nothing if this sequence is empty.
+     * @param reducer the function combining the accumulated value with the next one
+     * @return the new Px instance
+     */
+    public final Px<Long> reduce(LongBinaryOperator reducer) {
+        return new LongPxReduce(this, reducer);
+    }
+
+    public final Px<Long> sum() {
+        return reduce(Long::sum);
+    }
+
+    public final Px<Long> min() {
+        return reduce(Math::min);
+    }
+
+    public final Px<Long> max() {
+        return reduce(Math::max);
+    }
+
+    /**
+     * Collects the values into a long array, emitted as a single value; emits an
+     * empty array if this sequence is empty.
+     * @return the new Px instance
+     */
+    public final Px<long[]> toArray() {
+        return new LongPxToArray(this);
+    }
+
+    /**
+     * Subscribes to this sequence and calls the consumer for each value.
+     * @param consumer the consumer of the values, not null
+     */
+    public final void forEach(LongConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        subscribe(new LongPxForEach(consumer));
+    }
+}
@@ -0,0 +1,133 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+
+/**
+ * Emits the elements of a long array.
+ */
+final class LongPxArray extends LongPx {
+
+    final long[] array;
+
+    public LongPxArray(long[] array) {
+        this.array = Objects.requireNonNull(array, "array");
+    }
+
+    @Override
+    public void subscribe(LongSubscriber s) {
+        if (array.length == 0) {
+            s.onSubscribe(SubscriptionHelper.empty());
+            s.onComplete();
+            return;
+        }
+        s.onSubscribe(new LongArraySubscription(s, array));
+    }
+
+    static final class LongArraySubscription implements Subscription {
+
+        final LongSubscriber actual;
+
+        final long[] array;
+
+        int index;
+
+        volatile boolean cancelled;
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<LongArraySubscription> REQUESTED =
+          AtomicLongFieldUpdater.newUpdater(LongArraySubscription.class, "requested");
+
+        public LongArraySubscription(LongSubscriber actual, long[] array) {
+            this.actual = actual;
+            this.array = array;
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                if (BackpressureHelper.getAndAddCap(REQUESTED, this, n) == 0) {
+                    if (n == Long.MAX_VALUE) {
+                        fastPath();
+                    } else {
+                        slowPath(n);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void fastPath() {
+            final long[] a = array;
+            final int len = a.length;
+            final LongSubscriber s = actual;
+
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+
+                s.onNextLong(a[i]);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            s.onComplete();
+        }
+
+        void slowPath(long n) {
+            final long[] a = array;
+            final int len = a.length;
+            final LongSubscriber s = actual;
+
+            int i = index;
+            long e = 0L;
+
+            for (;;) {
+                if (cancelled) {
+                    return;
+                }
+
+                while (i != len && e != n) {
+                    boolean b = s.tryOnNextLong(a[i]);
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    if (b) {
+                        e++;
+                    }
+                    i++;
+                }
+
+                if (i == len) {
+                    s.onComplete();
+                    return;
+                }
+
+                n = requested;
+
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0L;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.LongPredicate;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Filters the long values of the source with a predicate.
+ */
+final class LongPxFilter extends LongPx {
+
+    final LongPx source;
+
+    final LongPredicate predicate;
+
+    public LongPxFilter(LongPx source, LongPredicate predicate) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.predicate = Objects.requireNonNull(predicate, "predicate");
+    }
+
+    @Override
+    public void subscribe(LongSubscriber s) {
+        source.subscribe(new LongFilterSubscriber(s, predicate));
+    }
+
+    static final class LongFilterSubscriber implements LongSubscriber, Subscription {
+
+        final LongSubscriber actual;
+
+        final LongPredicate predicate;
+
+        Subscription s;
+
+        boolean done;
+
+        public LongFilterSubscriber(LongSubscriber actual, LongPredicate predicate) {
+            this.actual = actual;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextLong(long t) {
+            if (!tryOnNextLong(t) && !done) {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNextLong(long t) {
+            if (done) {
+                return false;
+            }
+
+            boolean b;
+
+            try {
+                b = predicate.test(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return b && actual.tryOnNextLong(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package rsc.primitive;
+
+import java.util.function.LongConsumer;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Consumes a LongPx with a callback, requesting everything upfront.
+ */
+final class LongPxForEach implements LongSubscriber {
+
+    final LongConsumer consumer;
+
+    Subscription s;
+
+    boolean done;
+
+    public LongPxForEach(LongConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (SubscriptionHelper.validate(this.s, s)) {
+            this.s = s;
+            s.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNextLong(long t) {
+        if (done) {
+            return;
+        }
+        try {
+            consumer.accept(t);
+        } catch (Throwable ex) {
+            ExceptionHelper.throwIfFatal(ex);
+            s.cancel();
+            onError(ExceptionHelper.unwrap(ex));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        done = true;
+        UnsignalledExceptions.onErrorDropped(t);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+    }
+}
@@ -0,0 +1,126 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+import org.reactivestreams.*;
+
+import rsc.flow.Fuseable.ConditionalSubscriber;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the values of a regular Publisher into long values, bridging into a LongPx.
+ *
+ * @param <T> the source value type
+ */
+final class LongPxFromPublisher<T> extends LongPx {
+
+    final Publisher<? extends T> source;
+
+    final ToLongFunction<? super T> mapper;
+
+    public LongPxFromPublisher(Publisher<? extends T> source, ToLongFunction<? super T> mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(LongSubscriber s) {
+        source.subscribe(new FromPublisherSubscriber<>(s, mapper));
+    }
+
+    static final class FromPublisherSubscriber<T> implements ConditionalSubscriber<T>, Subscription {
+
+        final LongSubscriber actual;
+
+        final ToLongFunction<? super T> mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public FromPublisherSubscriber(LongSubscriber actual, ToLongFunction<? super T> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+
+            long v;
+
+            try {
+                v = mapper.applyAsLong(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNextLong(v);
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                return false;
+            }
+
+            long v;
+
+            try {
+                v = mapper.applyAsLong(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return actual.tryOnNextLong(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.LongToIntFunction;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps the long values of the source into int values via a mapper function.
+ */
+final class LongPxMapToInt extends IntPx {
+
+    final LongPx source;
+
+    final LongToIntFunction mapper;
+
+    public LongPxMapToInt(LongPx source, LongToIntFunction mapper) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    @Override
+    public void subscribe(IntSubscriber s) {
+        source.subscribe(new LongMapToIntSubscriber(s, mapper));
+    }
+
+    static final class LongMapToIntSubscriber implements LongSubscriber, Subscription {
+
+        final IntSubscriber actual;
+
+        final LongToIntFunction mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public LongMapToIntSubscriber(IntSubscriber actual, LongToIntFunction mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextLong(long t) {
+            if (done) {
+                return;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            actual.onNextInt(v);
+        }
+
+        @Override
+        public boolean tryOnNextLong(long t) {
+            if (done) {
+                return false;
+            }
+
+            int v;
+
+            try {
+                v = mapper.applyAsInt(t);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                s.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return false;
+            }
+
+            return actual.tryOnNextInt(v);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
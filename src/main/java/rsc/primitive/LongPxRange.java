@@ -0,0 +1,148 @@
+package rsc.primitive;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+
+/**
+ * Emits a range of long values.
+ */
+final class LongPxRange extends LongPx {
+
+    final long start;
+
+    final long end;
+
+    public LongPxRange(long start, long count) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("count >= required but it was " + count);
+        }
+        if (start > Long.MAX_VALUE - count) {
+            throw new IllegalArgumentException("start + count must be less than or equal to Long.MAX_VALUE");
+        }
+
+        this.start = start;
+        this.end = start + count;
+    }
+
+    @Override
+    public void subscribe(LongSubscriber s) {
+        long st = start;
+        long en = end;
+        if (st == en) {
+            s.onSubscribe(SubscriptionHelper.empty());
+            s.onComplete();
+            return;
+        }
+        s.onSubscribe(new LongRangeSubscription(s, st, en));
+    }
+
+    static final class LongRangeSubscription implements Subscription {
+
+        final LongSubscriber actual;
+
+        final long end;
+
+        volatile boolean cancelled;
+
+        long index;
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<LongRangeSubscription> REQUESTED =
+          AtomicLongFieldUpdater.newUpdater(LongRangeSubscription.class, "requested");
+
+        public LongRangeSubscription(LongSubscriber actual, long start, long end) {
+            this.actual = actual;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                if (BackpressureHelper.getAndAddCap(REQUESTED, this, n) == 0) {
+                    if (n == Long.MAX_VALUE) {
+                        fastPath();
+                    } else {
+                        slowPath(n);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void fastPath() {
+            final long e = end;
+            final LongSubscriber a = actual;
+
+            for (long i = index; i != e; i++) {
+                if (cancelled) {
+                    return;
+                }
+
+                a.onNextLong(i);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            a.onComplete();
+        }
+
+        void slowPath(long n) {
+            final LongSubscriber a = actual;
+
+            long f = end;
+            long e = 0;
+            long i = index;
+
+            for (; ; ) {
+
+                if (cancelled) {
+                    return;
+                }
+
+                while (e != n && i != f) {
+
+                    boolean b = a.tryOnNextLong(i);
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    if (b) {
+                        e++;
+                    }
+                    i++;
+                }
+
+                if (cancelled) {
+                    return;
+                }
+
+                if (i == f) {
+                    a.onComplete();
+                    return;
+                }
+
+                n = requested;
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+    }
+}
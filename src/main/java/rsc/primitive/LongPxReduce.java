@@ -0,0 +1,114 @@
+package rsc.primitive;
+
+import java.util.Objects;
+import java.util.function.LongBinaryOperator;
+
+import org.reactivestreams.*;
+
+import rsc.publisher.Px;
+import rsc.subscriber.*;
+import rsc.util.*;
+
+/**
+ * Reduces the long values of the source into a single value, boxed only once at the end.
+ */
+final class LongPxReduce extends Px<Long> {
+
+    final LongPx source;
+
+    final LongBinaryOperator reducer;
+
+    public LongPxReduce(LongPx source, LongBinaryOperator reducer) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.reducer = Objects.requireNonNull(reducer, "reducer");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Long> s) {
+        source.subscribe(new LongReduceSubscriber(s, reducer));
+    }
+
+    static final class LongReduceSubscriber extends DeferredScalarSubscriber<Long, Long>
+    implements LongSubscriber {
+
+        final LongBinaryOperator reducer;
+
+        Subscription s;
+
+        long accumulator;
+
+        boolean hasValue;
+
+        boolean done;
+
+        public LongReduceSubscriber(Subscriber<? super Long> actual, LongBinaryOperator reducer) {
+            super(actual);
+            this.reducer = reducer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                subscriber.onSubscribe(this);
+
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Long t) {
+            onNextLong(t);
+        }
+
+        @Override
+        public void onNextLong(long t) {
+            if (done) {
+                return;
+            }
+
+            if (hasValue) {
+                try {
+                    accumulator = reducer.applyAsLong(accumulator, t);
+                } catch (Throwable ex) {
+                    ExceptionHelper.throwIfFatal(ex);
+                    s.cancel();
+                    onError(ExceptionHelper.unwrap(ex));
+                }
+            } else {
+                hasValue = true;
+                accumulator = t;
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            subscriber.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (hasValue) {
+                complete(accumulator);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
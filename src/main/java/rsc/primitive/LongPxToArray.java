@@ -0,0 +1,102 @@
+package rsc.primitive;
+
+import java.util.*;
+
+import org.reactivestreams.*;
+
+import rsc.publisher.Px;
+import rsc.subscriber.*;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Collects the long values of the source into a long array, growing it as necessary.
+ */
+final class LongPxToArray extends Px<long[]> {
+
+    final LongPx source;
+
+    public LongPxToArray(LongPx source) {
+        this.source = Objects.requireNonNull(source, "source");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super long[]> s) {
+        source.subscribe(new LongToArraySubscriber(s));
+    }
+
+    static final class LongToArraySubscriber extends DeferredScalarSubscriber<Long, long[]>
+    implements LongSubscriber {
+
+        Subscription s;
+
+        long[] array;
+
+        int size;
+
+        boolean done;
+
+        public LongToArraySubscriber(Subscriber<? super long[]> actual) {
+            super(actual);
+            this.array = new long[16];
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                subscriber.onSubscribe(this);
+
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Long t) {
+            onNextLong(t);
+        }
+
+        @Override
+        public void onNextLong(long t) {
+            if (done) {
+                return;
+            }
+            long[] a = array;
+            int n = size;
+            if (n == a.length) {
+                a = Arrays.copyOf(a, n + (n >> 1));
+                array = a;
+            }
+            a[n] = t;
+            size = n + 1;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            array = null;
+            subscriber.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            long[] a = array;
+            array = null;
+            complete(size == a.length ? a : Arrays.copyOf(a, size));
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package rsc.primitive;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * The consumer side of an {@link LongPx} sequence, receiving the values as primitive longs.
+ * <p>
+ * It follows the Reactive Streams Subscriber rules, only {@code onNext} is replaced by
+ * {@link #onNextLong(long)} and {@link #tryOnNextLong(long)}.
+ */
+public interface LongSubscriber {
+
+    /**
+     * Invoked once, before any other signal, with the Subscription to request values with.
+     * @param s the Subscription
+     */
+    void onSubscribe(Subscription s);
+
+    /**
+     * Receives the next value.
+     * @param t the value
+     */
+    void onNextLong(long t);
+
+    /**
+     * Receives the next value and tells if it has been consumed, in which case it counts
+     * against the outstanding requests, or dropped, in which case the source can emit
+     * another value without a new request; similar to ConditionalSubscriber.tryOnNext.
+     * @param t the value
+     * @return true if the value has been consumed, false if it has been dropped
+     */
+    default boolean tryOnNextLong(long t) {
+        onNextLong(t);
+        return true;
+    }
+
+    /**
+     * Receives the terminal error.
+     * @param t the error, not null
+     */
+    void onError(Throwable t);
+
+    /**
+     * Receives the completion signal.
+     */
+    void onComplete();
+}
@@ -0,0 +1,494 @@
+package rsc.processor;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.flow.MultiProducer;
+import rsc.flow.Producer;
+import rsc.flow.Receiver;
+import rsc.flow.Trackable;
+import rsc.publisher.Px;
+import rsc.scheduler.WaitStrategy;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+import rsc.util.PowerOf2;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Dispatches the values to zero-to-many Subscribers through a bounded ring buffer,
+ * accepting onNext calls from multiple threads concurrently.
+ * <p>
+ * Producers claim ring slots with a CAS on the shared producer index; every Subscriber
+ * reads the ring through its own cursor, at the pace of its own requests. A producer
+ * can't claim a slot until every Subscriber has moved past the value it held before,
+ * so the slowest Subscriber backpressures the producers: they wait, according to a
+ * {@link WaitStrategy}, in onNext until there is room. The terminal signals still have
+ * to be called after all onNext calls returned.
+ * <p>
+ * Like DirectProcessor, Subscribers only receive the values produced after they
+ * subscribed and a terminated MulticastProcessor signals the terminal event to late
+ * Subscribers. Values produced while there are no Subscribers are dropped.
+ * <p>
+ * Don't call onNext from within a Subscriber's onNext: if the ring is full, the
+ * producer would wait for the very Subscriber it is blocking.
+ *
+ * @param <T> the input and output value type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+public final class MulticastProcessor<T>
+    extends Px<T>
+    implements Processor<T, T>, Receiver, MultiProducer, Trackable {
+
+    /** How long a waiting producer parks before checking the cursors again. */
+    static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.spinYieldPark(64, 64);
+
+    final AtomicReferenceArray<T> buffer;
+
+    /** The sequence last written into each slot. */
+    final AtomicLongArray published;
+
+    final int mask;
+
+    final WaitStrategy waitStrategy;
+
+    volatile long producerIndex;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MulticastProcessor> PRODUCER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MulticastProcessor.class, "producerIndex");
+
+    /** A lower bound of the slowest cursor, refreshed when the producers catch up with it. */
+    volatile long gating;
+
+    volatile MulticastInner<T>[] subscribers;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<MulticastProcessor, MulticastInner[]> SUBSCRIBERS =
+            AtomicReferenceFieldUpdater.newUpdater(MulticastProcessor.class, MulticastInner[].class, "subscribers");
+
+    @SuppressWarnings("rawtypes")
+    static final MulticastInner[] EMPTY = new MulticastInner[0];
+    @SuppressWarnings("rawtypes")
+    static final MulticastInner[] TERMINATED = new MulticastInner[0];
+
+    Subscription subscription;
+
+    volatile boolean done;
+    Throwable error;
+
+    public MulticastProcessor(int capacity) {
+        this(capacity, DEFAULT_WAIT_STRATEGY);
+    }
+
+    /**
+     * Constructs a MulticastProcessor with the given ring size and the strategy the
+     * producers use to wait for room in the ring.
+     * @param capacity the ring size, rounded up to the next power of 2
+     * @param waitStrategy the wait strategy of the producers; PARK parks for a short
+     *                     period as the Subscribers don't know which producers wait
+     */
+    public MulticastProcessor(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity > 0 required but it was " + capacity);
+        }
+        int c = PowerOf2.roundUp(capacity);
+        this.buffer = new AtomicReferenceArray<>(c);
+        AtomicLongArray p = new AtomicLongArray(c);
+        for (int i = 0; i < c; i++) {
+            p.lazySet(i, -1L);
+        }
+        this.published = p;
+        this.mask = c - 1;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+        SUBSCRIBERS.lazySet(this, EMPTY);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (done) {
+            s.cancel();
+        } else {
+            if (!SubscriptionHelper.validate(subscription, s)) {
+                s.cancel();
+                return;
+            }
+            subscription = s;
+            // backpressure is applied by blocking the onNext caller
+            s.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        Objects.requireNonNull(t, "t");
+        if (done) {
+            UnsignalledExceptions.onNextDropped(t);
+            return;
+        }
+
+        long index = claim();
+        int offset = (int)index & mask;
+        buffer.lazySet(offset, t);
+        published.lazySet(offset, index);
+
+        for (MulticastInner<T> inner : subscribers) {
+            drain(inner);
+        }
+    }
+
+    long claim() {
+        final long capacity = mask + 1;
+        int idleRounds = 0;
+        for (;;) {
+            long p = producerIndex;
+            long wrap = p - capacity;
+            if (wrap >= gating) {
+                long g = minCursor(p);
+                gating = g;
+                if (wrap >= g) {
+                    idle(idleRounds++);
+                    continue;
+                }
+            }
+            if (PRODUCER_INDEX.compareAndSet(this, p, p + 1)) {
+                return p;
+            }
+        }
+    }
+
+    /**
+     * Returns the slowest cursor among the current Subscribers, the given producer
+     * index if there are none.
+     * <p>
+     * The producer index has to be read before the Subscribers: a Subscriber added
+     * after that starts from a later index.
+     */
+    long minCursor(long p) {
+        long min = p;
+        for (MulticastInner<T> inner : subscribers) {
+            min = Math.min(min, inner.cursor);
+        }
+        return min;
+    }
+
+    void idle(int idleRounds) {
+        switch (waitStrategy.idle(idleRounds)) {
+        case WaitStrategy.SPIN:
+            break;
+        case WaitStrategy.YIELD:
+            Thread.yield();
+            break;
+        default:
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Objects.requireNonNull(t, "t");
+        if (done) {
+            UnsignalledExceptions.onErrorDropped(t);
+            return;
+        }
+        error = t;
+        done = true;
+        @SuppressWarnings("unchecked")
+        MulticastInner<T>[] a = SUBSCRIBERS.getAndSet(this, TERMINATED);
+        for (MulticastInner<T> inner : a) {
+            drain(inner);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        done = true;
+        @SuppressWarnings("unchecked")
+        MulticastInner<T>[] a = SUBSCRIBERS.getAndSet(this, TERMINATED);
+        for (MulticastInner<T> inner : a) {
+            drain(inner);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> s) {
+        Objects.requireNonNull(s, "s");
+
+        MulticastInner<T> inner = new MulticastInner<>(s, this, producerIndex);
+        s.onSubscribe(inner);
+
+        if (add(inner)) {
+            if (inner.cancelled) {
+                remove(inner);
+                return;
+            }
+            // producers that didn't see this Subscriber can't have wrapped past this index
+            inner.cursor = producerIndex;
+            inner.connected = true;
+            drain(inner);
+        } else {
+            if (!inner.cancelled) {
+                Throwable e = error;
+                if (e != null) {
+                    s.onError(e);
+                } else {
+                    s.onComplete();
+                }
+            }
+        }
+    }
+
+    boolean add(MulticastInner<T> inner) {
+        for (;;) {
+            MulticastInner<T>[] a = subscribers;
+            if (a == TERMINATED) {
+                return false;
+            }
+            int n = a.length;
+
+            @SuppressWarnings("unchecked")
+            MulticastInner<T>[] b = new MulticastInner[n + 1];
+            System.arraycopy(a, 0, b, 0, n);
+            b[n] = inner;
+            if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                return true;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void remove(MulticastInner<T> inner) {
+        outer:
+        for (;;) {
+            MulticastInner<T>[] a = subscribers;
+            if (a == TERMINATED || a == EMPTY) {
+                return;
+            }
+            int n = a.length;
+
+            for (int i = 0; i < n; i++) {
+                if (a[i] == inner) {
+                    MulticastInner<T>[] b;
+
+                    if (n == 1) {
+                        b = EMPTY;
+                    } else {
+                        b = new MulticastInner[n - 1];
+                        System.arraycopy(a, 0, b, 0, i);
+                        System.arraycopy(a, i + 1, b, i, n - i - 1);
+                    }
+
+                    if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                        return;
+                    }
+
+                    continue outer;
+                }
+            }
+
+            break;
+        }
+    }
+
+    void drain(MulticastInner<T> inner) {
+        if (!inner.connected || MulticastInner.WIP.getAndIncrement(inner) != 0) {
+            return;
+        }
+
+        final Subscriber<? super T> a = inner.actual;
+        final AtomicReferenceArray<T> b = buffer;
+        final AtomicLongArray p = published;
+        final int m = mask;
+
+        int missed = 1;
+
+        for (;;) {
+
+            long r = inner.requested;
+            long c = inner.cursor;
+            long e = 0L;
+
+            while (e != r) {
+                if (inner.cancelled) {
+                    return;
+                }
+
+                boolean d = done;
+                int offset = (int)c & m;
+                boolean empty = p.get(offset) != c;
+
+                if (d && empty && c == producerIndex) {
+                    Throwable ex = error;
+                    if (ex != null) {
+                        a.onError(ex);
+                    } else {
+                        a.onComplete();
+                    }
+                    return;
+                }
+
+                if (empty) {
+                    break;
+                }
+
+                T v = b.get(offset);
+
+                c++;
+                // let the producers reuse the slot as soon as possible
+                MulticastInner.CURSOR.lazySet(inner, c);
+
+                a.onNext(v);
+
+                e++;
+            }
+
+            if (e == r) {
+                if (inner.cancelled) {
+                    return;
+                }
+
+                boolean d = done;
+
+                if (d && p.get((int)c & m) != c && c == producerIndex) {
+                    Throwable ex = error;
+                    if (ex != null) {
+                        a.onError(ex);
+                    } else {
+                        a.onComplete();
+                    }
+                    return;
+                }
+            }
+
+            if (e != 0L && r != Long.MAX_VALUE) {
+                MulticastInner.REQUESTED.addAndGet(inner, -e);
+            }
+
+            missed = MulticastInner.WIP.addAndGet(inner, -missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<?> downstreams() {
+        return Arrays.asList(subscribers).iterator();
+    }
+
+    @Override
+    public long downstreamCount() {
+        return subscribers.length;
+    }
+
+    @Override
+    public long getCapacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public long getPending() {
+        long p = producerIndex;
+        return p - minCursor(p);
+    }
+
+    @Override
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public boolean isStarted() {
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return done;
+    }
+
+    @Override
+    public Object upstream() {
+        return subscription;
+    }
+
+    static final class MulticastInner<T> implements Subscription, Producer, Receiver, Trackable {
+
+        final Subscriber<? super T> actual;
+
+        final MulticastProcessor<T> parent;
+
+        /** The index of the next value to read; producers read it to gate their claims. */
+        volatile long cursor;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<MulticastInner> CURSOR =
+                AtomicLongFieldUpdater.newUpdater(MulticastInner.class, "cursor");
+
+        volatile boolean connected;
+
+        volatile boolean cancelled;
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<MulticastInner> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(MulticastInner.class, "wip");
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<MulticastInner> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(MulticastInner.class, "requested");
+
+        public MulticastInner(Subscriber<? super T> actual, MulticastProcessor<T> parent, long cursor) {
+            this.actual = actual;
+            this.parent = parent;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+                parent.drain(this);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public long requestedFromDownstream() {
+            return requested;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object upstream() {
+            return parent;
+        }
+    }
+}
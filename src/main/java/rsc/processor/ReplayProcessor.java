@@ -1,11 +1,17 @@
 package rsc.processor;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.reactivestreams.Processor;
 import org.reactivestreams.Subscriber;
@@ -20,12 +26,14 @@ import rsc.flow.Producer;
 import rsc.flow.Receiver;
 import rsc.publisher.Px;
 import rsc.flow.Trackable;
+import rsc.scheduler.TimedScheduler;
 import rsc.subscriber.SubscriptionHelper;
 import rsc.util.BackpressureHelper;
+import rsc.util.ExceptionHelper;
 import rsc.util.UnsignalledExceptions;
 
 /**
- * Replays all or the last N items to Subscribers.
+ * Replays all, the last N or the last N time units worth of items to Subscribers.
  * 
  * @param <T> the value type
  */
@@ -47,6 +55,8 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
     static final ReplaySubscription[] EMPTY = new ReplaySubscription[0];
     @SuppressWarnings("rawtypes")
     static final ReplaySubscription[] TERMINATED = new ReplaySubscription[0];
+
+    static final int DEFAULT_CHUNK_SIZE = 64;
     
     /**
      * Constructs a ReplayProcessor with bounded or unbounded
@@ -63,6 +73,97 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
         }
         SUBSCRIBERS.lazySet(this, EMPTY);
     }
+
+    /**
+     * Constructs a ReplayProcessor that retains at most the given number of items
+     * that are not older than the given age, measured by the scheduler's clock.
+     * @param maxSize the maximum number of retained items, Integer.MAX_VALUE for a
+     *                time-only bound
+     * @param maxAge the maximum age of the retained items
+     * @param unit the time unit of the maximum age
+     * @param scheduler the scheduler providing the current time
+     */
+    public ReplayProcessor(int maxSize, long maxAge, TimeUnit unit, TimedScheduler scheduler) {
+        this(DEFAULT_CHUNK_SIZE, maxSize, maxAge, unit, scheduler);
+    }
+
+    /**
+     * Constructs a ReplayProcessor that retains at most the given number of items
+     * that are not older than the given age, measured by the scheduler's clock.
+     * @param chunkSize the number of items stored in one array chunk of the buffer
+     * @param maxSize the maximum number of retained items, Integer.MAX_VALUE for a
+     *                time-only bound
+     * @param maxAge the maximum age of the retained items
+     * @param unit the time unit of the maximum age
+     * @param scheduler the scheduler providing the current time
+     */
+    public ReplayProcessor(int chunkSize, int maxSize, long maxAge, TimeUnit unit, TimedScheduler scheduler) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize > 0 required but it was " + maxSize);
+        }
+        if (maxAge < 0L) {
+            throw new IllegalArgumentException("maxAge >= 0 required but it was " + maxAge);
+        }
+        Objects.requireNonNull(unit, "unit");
+        Objects.requireNonNull(scheduler, "scheduler");
+        this.buffer = new SizeAndTimeBoundedBuffer<>(Math.min(chunkSize, maxSize), maxSize, unit.toNanos(maxAge), scheduler);
+        SUBSCRIBERS.lazySet(this, EMPTY);
+    }
+
+    /**
+     * Constructs a ReplayProcessor that replays all items, keeping them serialized in
+     * direct ByteBuffer segments outside the heap.
+     * @param codec the codec turning the items into bytes and back
+     * @param segmentSize the size of each segment in bytes, must fit the largest encoded item
+     */
+    public ReplayProcessor(Codec<T> codec, int segmentSize) {
+        this(codec, segmentSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a ReplayProcessor that replays the last N items, keeping them serialized
+     * in direct ByteBuffer segments outside the heap.
+     * @param codec the codec turning the items into bytes and back
+     * @param segmentSize the size of each segment in bytes, must fit the largest encoded item
+     * @param maxSize the maximum number of items replayed to late Subscribers
+     */
+    public ReplayProcessor(Codec<T> codec, int segmentSize, int maxSize) {
+        this(codec, maxSize, directSegments(segmentSize), b -> { });
+    }
+
+    static Supplier<ByteBuffer> directSegments(int segmentSize) {
+        if (segmentSize <= 4) {
+            throw new IllegalArgumentException("segmentSize > 4 required but it was " + segmentSize);
+        }
+        return () -> ByteBuffer.allocateDirect(segmentSize);
+    }
+
+    /**
+     * Constructs a ReplayProcessor that replays the last N items, keeping them serialized
+     * in the ByteBuffer segments provided by the caller, which can be direct or memory-mapped.
+     * <p>
+     * A segment is handed to the release callback once it has been evicted and no
+     * Subscriber is reading it anymore.
+     * @param codec the codec turning the items into bytes and back
+     * @param maxSize the maximum number of items replayed to late Subscribers,
+     *                Integer.MAX_VALUE to replay all
+     * @param segmentSupplier provides empty segments to write into; each must fit the largest encoded item
+     * @param segmentRelease called with the segments no longer in use
+     */
+    public ReplayProcessor(Codec<T> codec, int maxSize, Supplier<? extends ByteBuffer> segmentSupplier,
+            Consumer<? super ByteBuffer> segmentRelease) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize > 0 required but it was " + maxSize);
+        }
+        Objects.requireNonNull(codec, "codec");
+        Objects.requireNonNull(segmentSupplier, "segmentSupplier");
+        Objects.requireNonNull(segmentRelease, "segmentRelease");
+        this.buffer = new SerializedBuffer<>(codec, maxSize, segmentSupplier, segmentRelease);
+        SUBSCRIBERS.lazySet(this, EMPTY);
+    }
     
     @Override
     public void subscribe(Subscriber<? super T> s) {
@@ -186,7 +287,18 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
         if (b.isDone()) {
             UnsignalledExceptions.onNextDropped(t);
         } else {
-            b.onNext(t);
+            try {
+                b.onNext(t);
+            } catch (Throwable ex) {
+                // the serialized buffer may fail to encode the item
+                ExceptionHelper.throwIfFatal(ex);
+                Subscription s = subscription;
+                if (s != null) {
+                    s.cancel();
+                }
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
             for (ReplaySubscription<T> rp : subscribers) {
                 b.drain(rp);
             }
@@ -225,6 +337,30 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
         }
     }
 
+    /**
+     * Turns items into bytes and back for the serialized replay buffer.
+     *
+     * @param <T> the value type
+     */
+    public interface Codec<T> {
+
+        /**
+         * Writes the value into the buffer starting at its current position.
+         * @param value the value to encode
+         * @param buffer the target buffer
+         * @throws BufferOverflowException if the buffer doesn't have enough room left
+         */
+        void encode(T value, ByteBuffer buffer);
+
+        /**
+         * Reads a value from the buffer, whose remaining bytes are exactly the ones
+         * written by one {@link #encode(Object, ByteBuffer)} call.
+         * @param buffer the source buffer
+         * @return the decoded value, not null
+         */
+        T decode(ByteBuffer buffer);
+    }
+
     interface Buffer<T> {
         
         void onNext(T value);
@@ -735,6 +871,814 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
             return count;
         }
     }
+
+    /**
+     * Retains the last items up to a count and age limit in linked array chunks,
+     * each slot holding the item and its arrival time.
+     * <p>
+     * The items are addressed by their absolute index; the producer publishes them by
+     * advancing {@code produced} and evicts them by advancing {@code headIndex}. Evicted
+     * chunks are unlinked from the head but are left intact so Subscribers still reading
+     * them can continue.
+     */
+    static final class SizeAndTimeBoundedBuffer<T> implements Buffer<T> {
+
+        final int chunkSize;
+
+        final int limit;
+
+        final long maxAgeNanos;
+
+        final TimedScheduler scheduler;
+
+        /** The chunk holding the oldest retained item; written before headIndex. */
+        volatile TimedChunk head;
+
+        volatile long headIndex;
+
+        /** The number of items added so far. */
+        volatile long produced;
+
+        TimedChunk tail;
+
+        int tailOffset;
+
+        volatile boolean done;
+        Throwable error;
+
+        public SizeAndTimeBoundedBuffer(int chunkSize, int limit, long maxAgeNanos, TimedScheduler scheduler) {
+            this.chunkSize = chunkSize;
+            this.limit = limit;
+            this.maxAgeNanos = maxAgeNanos;
+            this.scheduler = scheduler;
+            TimedChunk n = new TimedChunk(chunkSize, 0L);
+            this.tail = n;
+            this.head = n;
+        }
+
+        @Override
+        public int capacity() {
+            return limit;
+        }
+
+        @Override
+        public void onNext(T value) {
+            long now = scheduler.now(TimeUnit.NANOSECONDS);
+            TimedChunk t = tail;
+            int o = tailOffset;
+            if (o == chunkSize) {
+                TimedChunk n = new TimedChunk(chunkSize, t.base + o);
+                t.next = n;
+                tail = n;
+                t = n;
+                o = 0;
+            }
+            t.values[o] = value;
+            t.times[o] = now;
+            tailOffset = o + 1;
+            long p = produced + 1;
+            produced = p;
+
+            trim(now, p);
+        }
+
+        void trim(long now, long p) {
+            long h = headIndex;
+            TimedChunk c = head;
+            long cutoff = p - limit;
+            final int n = chunkSize;
+
+            long i = h;
+            while (i != p) {
+                int offset = (int)(i - c.base);
+                if (offset == n) {
+                    c = c.next;
+                    offset = 0;
+                }
+                if (i >= cutoff && now - c.times[offset] <= maxAgeNanos) {
+                    break;
+                }
+                i++;
+            }
+
+            if (i != h) {
+                head = c;
+                headIndex = i;
+            }
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            error = ex;
+            done = true;
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+
+        /**
+         * Positions a Subscriber that hasn't started yet at the oldest item that is
+         * still fresh.
+         */
+        TimedChunk start(ReplaySubscription<T> rp) {
+            long h = headIndex;
+            TimedChunk c = head;
+            if (h < c.base) {
+                // the producer evicted more since we read the index
+                h = c.base;
+            }
+            long p = produced;
+            long now = scheduler.now(TimeUnit.NANOSECONDS);
+            final int n = chunkSize;
+
+            while (h != p) {
+                int offset = (int)(h - c.base);
+                if (offset == n) {
+                    c = c.next;
+                    offset = 0;
+                }
+                if (now - c.times[offset] <= maxAgeNanos) {
+                    break;
+                }
+                h++;
+            }
+
+            rp.node = c;
+            rp.tailIndex = (int)(h - c.base);
+            return c;
+        }
+
+        void drainNormal(ReplaySubscription<T> rp) {
+            final Subscriber<? super T> a = rp.actual;
+            final int n = chunkSize;
+
+            int missed = 1;
+
+            for (;;) {
+
+                long r = rp.requested;
+                long e = 0L;
+
+                TimedChunk node = (TimedChunk)rp.node;
+                if (node == null) {
+                    node = start(rp);
+                }
+                int offset = rp.tailIndex;
+
+                while (e != r) {
+                    if (rp.cancelled) {
+                        rp.node = null;
+                        return;
+                    }
+
+                    boolean d = done;
+                    boolean empty = node.base + offset == produced;
+
+                    if (d && empty) {
+                        rp.node = null;
+                        Throwable ex = error;
+                        if (ex != null) {
+                            a.onError(ex);
+                        } else {
+                            a.onComplete();
+                        }
+                        return;
+                    }
+
+                    if (empty) {
+                        break;
+                    }
+
+                    if (offset == n) {
+                        node = node.next;
+                        offset = 0;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    T v = (T)node.values[offset];
+
+                    a.onNext(v);
+
+                    e++;
+                    offset++;
+                }
+
+                if (e == r) {
+                    if (rp.cancelled) {
+                        rp.node = null;
+                        return;
+                    }
+
+                    boolean d = done;
+                    boolean empty = node.base + offset == produced;
+
+                    if (d && empty) {
+                        rp.node = null;
+                        Throwable ex = error;
+                        if (ex != null) {
+                            a.onError(ex);
+                        } else {
+                            a.onComplete();
+                        }
+                        return;
+                    }
+                }
+
+                if (e != 0L) {
+                    if (r != Long.MAX_VALUE) {
+                        rp.produced(e);
+                    }
+                }
+
+                rp.node = node;
+                rp.tailIndex = offset;
+
+                missed = rp.leave(missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        void drainFused(ReplaySubscription<T> rp) {
+            int missed = 1;
+
+            final Subscriber<? super T> a = rp.actual;
+
+            for (;;) {
+
+                if (rp.cancelled) {
+                    rp.node = null;
+                    return;
+                }
+
+                boolean d = done;
+
+                a.onNext(null);
+
+                if (d) {
+                    Throwable ex = error;
+                    if (ex != null) {
+                        a.onError(ex);
+                    } else {
+                        a.onComplete();
+                    }
+                    return;
+                }
+
+                missed = rp.leave(missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void drain(ReplaySubscription<T> rp) {
+            if (!rp.enter()) {
+                return;
+            }
+
+            if (rp.fusionMode == NONE) {
+                drainNormal(rp);
+            } else {
+                drainFused(rp);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public T poll(ReplaySubscription<T> rp) {
+            TimedChunk node = (TimedChunk)rp.node;
+            if (node == null) {
+                node = start(rp);
+            }
+            int offset = rp.tailIndex;
+            if (node.base + offset == produced) {
+                return null;
+            }
+            if (offset == chunkSize) {
+                node = node.next;
+                offset = 0;
+                rp.node = node;
+            }
+            @SuppressWarnings("unchecked")
+            T v = (T)node.values[offset];
+            rp.tailIndex = offset + 1;
+            return v;
+        }
+
+        @Override
+        public void clear(ReplaySubscription<T> rp) {
+            rp.node = null;
+        }
+
+        @Override
+        public boolean isEmpty(ReplaySubscription<T> rp) {
+            TimedChunk node = (TimedChunk)rp.node;
+            if (node == null) {
+                node = start(rp);
+            }
+            return node.base + rp.tailIndex == produced;
+        }
+
+        @Override
+        public int size(ReplaySubscription<T> rp) {
+            TimedChunk node = (TimedChunk)rp.node;
+            long index;
+            if (node == null) {
+                index = Math.max(headIndex, head.base);
+            } else {
+                index = node.base + rp.tailIndex;
+            }
+            return (int)Math.min(Integer.MAX_VALUE, produced - index);
+        }
+
+        static final class TimedChunk {
+            /** The absolute index of the first slot. */
+            final long base;
+
+            final Object[] values;
+
+            final long[] times;
+
+            volatile TimedChunk next;
+
+            TimedChunk(int size, long base) {
+                this.base = base;
+                this.values = new Object[size];
+                this.times = new long[size];
+            }
+        }
+    }
+
+    /**
+     * Keeps the items encoded in ByteBuffer segments and decodes them separately for
+     * each Subscriber as it reads them.
+     * <p>
+     * Each item is written as its encoded length followed by its bytes. The segments
+     * are reference counted: the buffer holds the head segment, each segment holds its
+     * successor and each Subscriber holds the segment it reads; a segment reaching zero
+     * goes to the release callback and drops its hold on the successor.
+     */
+    static final class SerializedBuffer<T> implements Buffer<T> {
+
+        final Codec<T> codec;
+
+        final int limit;
+
+        final Supplier<? extends ByteBuffer> segmentSupplier;
+
+        final Consumer<? super ByteBuffer> segmentRelease;
+
+        volatile Segment head;
+
+        /** The number of items added so far. */
+        volatile long produced;
+
+        Segment tail;
+
+        volatile boolean done;
+        Throwable error;
+
+        public SerializedBuffer(Codec<T> codec, int limit, Supplier<? extends ByteBuffer> segmentSupplier,
+                Consumer<? super ByteBuffer> segmentRelease) {
+            this.codec = codec;
+            this.limit = limit;
+            this.segmentSupplier = segmentSupplier;
+            this.segmentRelease = segmentRelease;
+            Segment s = newSegment(0L);
+            this.tail = s;
+            this.head = s;
+        }
+
+        Segment newSegment(long base) {
+            ByteBuffer b = Objects.requireNonNull(segmentSupplier.get(), "The segmentSupplier returned a null ByteBuffer");
+            return new Segment(b, base);
+        }
+
+        @Override
+        public int capacity() {
+            return limit;
+        }
+
+        @Override
+        public void onNext(T value) {
+            Segment t = tail;
+            if (!t.write(codec, value)) {
+                if (t.count == 0) {
+                    throw new IllegalArgumentException("The encoded item doesn't fit into an empty segment: " + value);
+                }
+                Segment n = newSegment(t.base + t.count);
+                if (!n.write(codec, value)) {
+                    segmentRelease.accept(n.data);
+                    throw new IllegalArgumentException("The encoded item doesn't fit into an empty segment: " + value);
+                }
+                t.next = n;
+                tail = n;
+            }
+            long p = produced + 1;
+            produced = p;
+
+            if (limit != Integer.MAX_VALUE) {
+                trim(p);
+            }
+        }
+
+        void trim(long p) {
+            Segment h = head;
+            for (;;) {
+                Segment n = h.next;
+                if (n == null || p - n.base < limit) {
+                    break;
+                }
+                n.acquire();
+                head = n;
+                release(h);
+                h = n;
+            }
+        }
+
+        void release(Segment s) {
+            while (s != null && s.release()) {
+                segmentRelease.accept(s.data);
+                s = s.next;
+            }
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            error = ex;
+            done = true;
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+
+        /**
+         * Positions a Subscriber that hasn't started yet at the oldest item to be replayed.
+         */
+        SegmentCursor start(ReplaySubscription<T> rp) {
+            Segment s;
+            for (;;) {
+                s = head;
+                if (s.tryAcquire()) {
+                    break;
+                }
+            }
+            SegmentCursor c = new SegmentCursor(s);
+            rp.node = c;
+
+            long from = produced - limit;
+            while (c.index < from) {
+                c.skip(this);
+            }
+            return c;
+        }
+
+        /**
+         * Releases the segment held by the Subscriber; its cursor stays in place so
+         * it won't start over.
+         */
+        void stop(ReplaySubscription<T> rp) {
+            Object o = rp.node;
+            if (o != null) {
+                SegmentCursor c = (SegmentCursor)o;
+                Segment s = c.segment;
+                if (s != null) {
+                    c.segment = null;
+                    c.view = null;
+                    release(s);
+                }
+            }
+        }
+
+        void drainNormal(ReplaySubscription<T> rp) {
+            final Subscriber<? super T> a = rp.actual;
+
+            int missed = 1;
+
+            for (;;) {
+
+                long r = rp.requested;
+                long e = 0L;
+
+                SegmentCursor c = (SegmentCursor)rp.node;
+                if (c == null) {
+                    c = start(rp);
+                } else if (c.segment == null) {
+                    // terminated or cancelled, stay in the drain loop forever
+                    return;
+                }
+
+                while (e != r) {
+                    if (rp.cancelled) {
+                        stop(rp);
+                        return;
+                    }
+
+                    boolean d = done;
+                    boolean empty = c.index == produced;
+
+                    if (d && empty) {
+                        stop(rp);
+                        Throwable ex = error;
+                        if (ex != null) {
+                            a.onError(ex);
+                        } else {
+                            a.onComplete();
+                        }
+                        return;
+                    }
+
+                    if (empty) {
+                        break;
+                    }
+
+                    T v;
+
+                    try {
+                        v = c.read(this);
+                    } catch (Throwable ex) {
+                        ExceptionHelper.throwIfFatal(ex);
+                        rp.cancel();
+                        stop(rp);
+                        a.onError(ExceptionHelper.unwrap(ex));
+                        return;
+                    }
+
+                    a.onNext(v);
+
+                    e++;
+                }
+
+                if (e == r) {
+                    if (rp.cancelled) {
+                        stop(rp);
+                        return;
+                    }
+
+                    boolean d = done;
+                    boolean empty = c.index == produced;
+
+                    if (d && empty) {
+                        stop(rp);
+                        Throwable ex = error;
+                        if (ex != null) {
+                            a.onError(ex);
+                        } else {
+                            a.onComplete();
+                        }
+                        return;
+                    }
+                }
+
+                if (e != 0L) {
+                    if (r != Long.MAX_VALUE) {
+                        rp.produced(e);
+                    }
+                }
+
+                missed = rp.leave(missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        void drainFused(ReplaySubscription<T> rp) {
+            int missed = 1;
+
+            final Subscriber<? super T> a = rp.actual;
+
+            for (;;) {
+
+                if (rp.cancelled) {
+                    stop(rp);
+                    return;
+                }
+
+                boolean d = done;
+
+                a.onNext(null);
+
+                if (d) {
+                    Throwable ex = error;
+                    if (ex != null) {
+                        a.onError(ex);
+                    } else {
+                        a.onComplete();
+                    }
+                    return;
+                }
+
+                missed = rp.leave(missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void drain(ReplaySubscription<T> rp) {
+            if (!rp.enter()) {
+                return;
+            }
+
+            if (rp.fusionMode == NONE) {
+                drainNormal(rp);
+            } else {
+                drainFused(rp);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public T poll(ReplaySubscription<T> rp) {
+            SegmentCursor c = (SegmentCursor)rp.node;
+            if (c == null) {
+                c = start(rp);
+            }
+            if (c.segment == null) {
+                return null;
+            }
+            boolean d = done;
+            if (c.index == produced) {
+                if (d) {
+                    stop(rp);
+                }
+                return null;
+            }
+            return c.read(this);
+        }
+
+        @Override
+        public void clear(ReplaySubscription<T> rp) {
+            stop(rp);
+        }
+
+        @Override
+        public boolean isEmpty(ReplaySubscription<T> rp) {
+            SegmentCursor c = (SegmentCursor)rp.node;
+            if (c == null) {
+                c = start(rp);
+            }
+            return c.segment == null || c.index == produced;
+        }
+
+        @Override
+        public int size(ReplaySubscription<T> rp) {
+            SegmentCursor c = (SegmentCursor)rp.node;
+            long p = produced;
+            long index;
+            if (c == null) {
+                index = Math.max(head.base, p - limit);
+            } else if (c.segment == null) {
+                return 0;
+            } else {
+                index = c.index;
+            }
+            return (int)Math.min(Integer.MAX_VALUE, p - index);
+        }
+
+        static final class Segment {
+            final ByteBuffer data;
+
+            /** The absolute index of the first item. */
+            final long base;
+
+            /** The number of items written; published by the buffer's produced index. */
+            int count;
+
+            volatile Segment next;
+
+            volatile int refs;
+            static final AtomicIntegerFieldUpdater<Segment> REFS =
+                    AtomicIntegerFieldUpdater.newUpdater(Segment.class, "refs");
+
+            Segment(ByteBuffer data, long base) {
+                this.data = data;
+                this.base = base;
+                this.refs = 1;
+            }
+
+            <T> boolean write(Codec<T> codec, T value) {
+                ByteBuffer b = data;
+                int start = b.position();
+                if (b.limit() - start <= 4) {
+                    return false;
+                }
+                b.position(start + 4);
+                try {
+                    codec.encode(value, b);
+                } catch (BufferOverflowException ex) {
+                    b.position(start);
+                    return false;
+                }
+                b.putInt(start, b.position() - start - 4);
+                count++;
+                return true;
+            }
+
+            void acquire() {
+                REFS.getAndIncrement(this);
+            }
+
+            boolean tryAcquire() {
+                for (;;) {
+                    int r = refs;
+                    if (r == 0) {
+                        return false;
+                    }
+                    if (REFS.compareAndSet(this, r, r + 1)) {
+                        return true;
+                    }
+                }
+            }
+
+            /**
+             * Drops one reference.
+             * @return true if this was the last reference
+             */
+            boolean release() {
+                return REFS.decrementAndGet(this) == 0;
+            }
+        }
+
+        /**
+         * The reading position of a Subscriber, with its own view of the segment.
+         */
+        static final class SegmentCursor {
+            Segment segment;
+
+            ByteBuffer view;
+
+            int offset;
+
+            long index;
+
+            SegmentCursor(Segment segment) {
+                this.segment = segment;
+                this.view = view(segment);
+                this.index = segment.base;
+            }
+
+            /**
+             * Returns the length of the next item, moving to the next segment if
+             * the current one has been read fully.
+             */
+            int next(SerializedBuffer<?> buffer) {
+                Segment s = segment;
+                if (index - s.base == s.count) {
+                    Segment n = s.next;
+                    // n is kept alive by s, which is kept alive by us
+                    n.acquire();
+                    segment = n;
+                    view = view(n);
+                    offset = 0;
+                    buffer.release(s);
+                }
+                return view.getInt(offset);
+            }
+
+            static ByteBuffer view(Segment s) {
+                ByteBuffer b = s.data;
+                // duplicate() doesn't keep the byte order
+                return b.duplicate().order(b.order());
+            }
+
+            void skip(SerializedBuffer<?> buffer) {
+                int len = next(buffer);
+                offset += 4 + len;
+                index++;
+            }
+
+            <T> T read(SerializedBuffer<T> buffer) {
+                int len = next(buffer);
+                ByteBuffer b = view;
+                int start = offset + 4;
+                int end = start + len;
+                b.limit(end).position(start);
+                T v = Objects.requireNonNull(buffer.codec.decode(b), "The codec returned a null value");
+                b.limit(b.capacity());
+                offset = end;
+                index++;
+                return v;
+            }
+        }
+    }
     
     static final class ReplaySubscription<T> implements QueueSubscription<T>, Producer,
                                                         Trackable, Receiver {
@@ -837,7 +1781,7 @@ extends Px<T> implements Processor<T, T>, Fuseable, MultiProducer, Receiver, Tra
                 parent.remove(this);
                 
                 if (enter()) {
-                    node = null;
+                    buffer.clear(this);
                 }
             }
         }
@@ -21,7 +21,7 @@ import rsc.util.*;
  * @param <T> the value type
  */
 @BackpressureSupport(input = BackpressureMode.NOT_APPLICABLE, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.CONDITIONAL })
+@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.BATCH, FusionMode.CONDITIONAL })
 public final class PublisherArray<T> 
 extends Px<T>
         implements Fuseable {
@@ -51,7 +51,7 @@ extends Px<T>
 
     static final class ArraySubscription<T>
             implements Producer, Trackable, MultiReceiver,
-                       SynchronousSubscription<T> {
+                       BatchSubscription<T> {
         final Subscriber<? super T> actual;
 
         final T[] array;
@@ -202,6 +202,24 @@ extends Px<T>
             return null;
         }
 
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final T[] a = array;
+            final int i = index;
+            final int n = Math.min(max, a.length - i);
+
+            for (int j = 0; j < n; j++) {
+                T t = a[i + j];
+                if (t == null) {
+                    index = i + j;
+                    throw new NullPointerException("The " + (i + j) + "th array element was null");
+                }
+                buffer[j] = t;
+            }
+            index = i + n;
+            return n;
+        }
+
         @Override
         public boolean isEmpty() {
             return index == array.length;
@@ -219,7 +237,7 @@ extends Px<T>
     }
 
     static final class ArrayConditionalSubscription<T>
-    implements Producer, Trackable, MultiReceiver, SynchronousSubscription<T> {
+    implements Producer, Trackable, MultiReceiver, BatchSubscription<T> {
         final ConditionalSubscriber<? super T> actual;
 
         final T[] array;
@@ -372,6 +390,24 @@ extends Px<T>
             return null;
         }
 
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final T[] a = array;
+            final int i = index;
+            final int n = Math.min(max, a.length - i);
+
+            for (int j = 0; j < n; j++) {
+                T t = a[i + j];
+                if (t == null) {
+                    index = i + j;
+                    throw new NullPointerException("The " + (i + j) + "th array element was null");
+                }
+                buffer[j] = t;
+            }
+            index = i + n;
+            return n;
+        }
+
         @Override
         public boolean isEmpty() {
             return index == array.length;
@@ -1,12 +1,8 @@
 package rsc.publisher;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -17,6 +13,7 @@ import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import rsc.util.BackpressureHelper;
+import rsc.util.ChunkedLog;
 import rsc.subscriber.DeferredSubscription;
 
 import rsc.util.ExceptionHelper;
@@ -26,6 +23,12 @@ import rsc.util.UnsignalledExceptions;
 /**
  * buffers elements into possibly overlapping buffers whose boundaries are determined
   by a start Publisher's element and a signal of a derived Publisher
+ * <p>
+ * Source elements are appended once to a shared {@link ChunkedLog} and each open buffer
+ * is just a cursor into it; the buffer collection is filled with the slice between
+ * the open and close positions when the buffer closes. Opening and closing buffers
+ * doesn't take any locks, hence the queue returned by the queueSupplier has to
+ * support concurrent offers.
  *
  * @param <T> the source value type
  * @param <U> the value type of the publisher opening the buffers
@@ -95,11 +98,19 @@ extends PublisherSource<T, C> {
         
         final Function<? super U, ? extends Publisher<V>> end;
         
-        Set<Subscription> endSubscriptions;
-        
         final BufferStartEndStarter<U> starter;
 
-        Map<Long, C> buffers;
+        final ChunkedLog<T> log;
+        
+        volatile BufferStartEndEnder<T, V, C>[] enders;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<BufferStartEndMainSubscriber, BufferStartEndEnder[]> ENDERS =
+                AtomicReferenceFieldUpdater.newUpdater(BufferStartEndMainSubscriber.class, BufferStartEndEnder[].class, "enders");
+        
+        @SuppressWarnings("rawtypes")
+        static final BufferStartEndEnder[] EMPTY = new BufferStartEndEnder[0];
+        @SuppressWarnings("rawtypes")
+        static final BufferStartEndEnder[] TERMINATED = new BufferStartEndEnder[0];
         
         volatile Subscription s;
         @SuppressWarnings("rawtypes")
@@ -110,8 +121,6 @@ extends PublisherSource<T, C> {
         @SuppressWarnings("rawtypes")
         static final AtomicLongFieldUpdater<BufferStartEndMainSubscriber> REQUESTED =
                 AtomicLongFieldUpdater.newUpdater(BufferStartEndMainSubscriber.class, "requested");
-
-        long index;
         
         volatile int wip;
         @SuppressWarnings("rawtypes")
@@ -127,16 +136,23 @@ extends PublisherSource<T, C> {
         
         volatile boolean cancelled;
 
+        /** Number of ender signals between winning {@link BufferStartEndEnder#tryClose()} and offering the buffer. */
+        volatile int closing;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<BufferStartEndMainSubscriber> CLOSING =
+                AtomicIntegerFieldUpdater.newUpdater(BufferStartEndMainSubscriber.class, "closing");
+        
         volatile int open;
         @SuppressWarnings("rawtypes")
         static final AtomicIntegerFieldUpdater<BufferStartEndMainSubscriber> OPEN =
                 AtomicIntegerFieldUpdater.newUpdater(BufferStartEndMainSubscriber.class, "open");
 
+        @SuppressWarnings("unchecked")
         public BufferStartEndMainSubscriber(Subscriber<? super C> actual, Supplier<C> bufferSupplier, Queue<C> queue, Function<? super U, ? extends Publisher<V>> end) {
             this.actual = actual;
             this.bufferSupplier = bufferSupplier;
-            this.buffers = new HashMap<>();
-            this.endSubscriptions = new HashSet<>();
+            this.log = new ChunkedLog<>(Px.BUFFER_SIZE);
+            this.enders = EMPTY;
             this.queue = queue;
             this.end = end;
             this.open = 1;
@@ -152,33 +168,20 @@ extends PublisherSource<T, C> {
         
         @Override
         public void onNext(T t) {
-            synchronized (this) {
-                Map<Long, C> set = buffers;
-                if (set != null) {
-                    for (C b : set.values()) {
-                        b.add(t);
-                    }
-                    return;
-                }
+            // values arriving while no buffer is open would never be read
+            if (enders.length != 0) {
+                log.append(t);
             }
-            
-            UnsignalledExceptions.onNextDropped(t);
         }
-        
+            
         @Override
+        @SuppressWarnings("unchecked")
         public void onError(Throwable t) {
-            boolean report;
-            synchronized (this) {
-                Map<Long, C> set = buffers;
-                if (set != null) {
-                    buffers = null;
-                    report = true;
-                } else {
-                    report = false;
+            BufferStartEndEnder<T, V, C>[] a = ENDERS.getAndSet(this, TERMINATED);
+            if (a != TERMINATED) {
+                for (BufferStartEndEnder<T, V, C> ender : a) {
+                    ender.cancel();
                 }
-            }
-            
-            if (report) {
                 anyError(t);
             } else {
                 UnsignalledExceptions.onErrorDropped(t);
@@ -186,21 +189,21 @@ extends PublisherSource<T, C> {
         }
         
         @Override
+        @SuppressWarnings("unchecked")
         public void onComplete() {
-            Map<Long, C> set;
-            
-            synchronized (this) {
-                set = buffers;
-                if (set == null) {
-                    return;
-                }
+            BufferStartEndEnder<T, V, C>[] a = ENDERS.getAndSet(this, TERMINATED);
+            if (a == TERMINATED) {
+                return;
             }
             
             cancelStart();
-            cancelEnds();
             
-            for (C b : set.values()) {
-                queue.offer(b);
+            long index = log.size();
+            for (BufferStartEndEnder<T, V, C> ender : a) {
+                ender.cancel();
+                if (ender.tryClose()) {
+                    queue.offer(ender.slice(index));
+                }
             }
             done = true;
             drain();
@@ -221,33 +224,68 @@ extends PublisherSource<T, C> {
             starter.cancel();
         }
         
+        @SuppressWarnings("unchecked")
         void cancelEnds() {
-            Set<Subscription> set;
-            synchronized (starter) {
-                set = endSubscriptions;
-                
-                if (set == null) {
-                    return;
+            BufferStartEndEnder<T, V, C>[] a = enders;
+            if (a != TERMINATED) {
+                a = ENDERS.getAndSet(this, TERMINATED);
+                for (BufferStartEndEnder<T, V, C> ender : a) {
+                    ender.cancel();
                 }
-                endSubscriptions = null;
-            }
-            
-            for (Subscription s : set) {
-                s.cancel();
             }
         }
         
-        boolean addEndSubscription(Subscription s) {
-            synchronized (starter) {
-                Set<Subscription> set = endSubscriptions;
+        boolean add(BufferStartEndEnder<T, V, C> ender) {
+            for (;;) {
+                BufferStartEndEnder<T, V, C>[] a = enders;
+                if (a == TERMINATED) {
+                    ender.cancel();
+                    return false;
+                }
+                int n = a.length;
                 
-                if (set != null) {
-                    set.add(s);
+                @SuppressWarnings("unchecked")
+                BufferStartEndEnder<T, V, C>[] b = new BufferStartEndEnder[n + 1];
+                System.arraycopy(a, 0, b, 0, n);
+                b[n] = ender;
+                if (ENDERS.compareAndSet(this, a, b)) {
                     return true;
                 }
             }
-            s.cancel();
-            return false;
+        }
+        
+        @SuppressWarnings("unchecked")
+        void remove(BufferStartEndEnder<T, V, C> ender) {
+            outer:
+            for (;;) {
+                BufferStartEndEnder<T, V, C>[] a = enders;
+                if (a == TERMINATED || a == EMPTY) {
+                    return;
+                }
+                int n = a.length;
+                
+                for (int i = 0; i < n; i++) {
+                    if (a[i] == ender) {
+                        BufferStartEndEnder<T, V, C>[] b;
+                        
+                        if (n == 1) {
+                            b = EMPTY;
+                        } else {
+                            b = new BufferStartEndEnder[n - 1];
+                            System.arraycopy(a, 0, b, 0, i);
+                            System.arraycopy(a, i + 1, b, i, n - i - 1);
+                        }
+                        
+                        if (ENDERS.compareAndSet(this, a, b)) {
+                            return;
+                        }
+                        
+                        continue outer;
+                    }
+                }
+                
+                break;
+            }
         }
         
         @Override
@@ -263,22 +301,6 @@ extends PublisherSource<T, C> {
             }
         }
         
-        boolean emit(C b) {
-            long r = requested;
-            if (r != 0L) {
-                actual.onNext(b);
-                if (r != Long.MAX_VALUE) {
-                    REQUESTED.decrementAndGet(this);
-                }
-                return true;
-            } else {
-                
-                actual.onError(new IllegalStateException("Could not emit buffer due to lack of requests"));
-                
-                return false;
-            }
-        }
-        
         void anyError(Throwable t) {
             if (ExceptionHelper.addThrowable(ERROR, this, t)) {
                 done = true;
@@ -290,9 +312,6 @@ extends PublisherSource<T, C> {
         
         void startNext(U u) {
             
-            long idx = index;
-            index = idx + 1;
-            
             C b;
 
             try {
@@ -311,15 +330,6 @@ extends PublisherSource<T, C> {
                 return;
             }
             
-            synchronized (this) {
-                Map<Long, C> set = buffers;
-                if (set == null) {
-                    return;
-                }
-                
-                set.put(idx, b);
-            }
-            
             Publisher<V> p;
             
             try {
@@ -338,9 +348,9 @@ extends PublisherSource<T, C> {
                 return;
             }
             
-            BufferStartEndEnder<T, V, C> end = new BufferStartEndEnder<>(this, b, idx);
+            BufferStartEndEnder<T, V, C> end = new BufferStartEndEnder<>(this, b, log.cursor());
             
-            if (addEndSubscription(end)) {
+            if (add(end)) {
                 OPEN.getAndIncrement(this);
                 
                 p.subscribe(end);
@@ -368,19 +378,16 @@ extends PublisherSource<T, C> {
         }
         
         void endSignal(BufferStartEndEnder<T, V, C> ender) {
-            synchronized (this) {
-                Map<Long, C> set = buffers;
+            CLOSING.getAndIncrement(this);
+            if (!ender.tryClose()) {
+                CLOSING.decrementAndGet(this);
+                return;
+            }
+            remove(ender);
                 
-                if (set == null) {
-                    return;
-                }
+            queue.offer(ender.slice(log.size()));
+            CLOSING.decrementAndGet(this);
                 
-                if (set.remove(ender.index) == null) {
-                    return;
-                }
-                
-                queue.offer(ender.buffer);
-            }
             if (OPEN.decrementAndGet(this) == 0) {
                 cancelAll();
                 done = true;
@@ -405,7 +412,8 @@ extends PublisherSource<T, C> {
             for (;;) {
                 
                 for (;;) {
-                    boolean d = done;
+                    // a buffer closed before onComplete may still be on its way into the queue
+                    boolean d = done && closing == 0;
                     
                     C b = q.poll();
                     
@@ -498,12 +506,17 @@ extends PublisherSource<T, C> {
 
         final C buffer;
         
-        final long index;
+        final ChunkedLog.Cursor<T> cursor;
+        
+        volatile int closed;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<BufferStartEndEnder> CLOSED =
+                AtomicIntegerFieldUpdater.newUpdater(BufferStartEndEnder.class, "closed");
         
-        public BufferStartEndEnder(BufferStartEndMainSubscriber<T, ?, V, C> main, C buffer, long index) {
+        public BufferStartEndEnder(BufferStartEndMainSubscriber<T, ?, V, C> main, C buffer, ChunkedLog.Cursor<T> cursor) {
             this.main = main;
             this.buffer = buffer;
-            this.index = index;
+            this.cursor = cursor;
         }
 
         @Override
@@ -534,5 +547,25 @@ extends PublisherSource<T, C> {
             }
         }
         
+        /**
+         * Atomically marks this buffer closed; only the caller which succeeds
+         * may take the {@link #slice(long)}.
+         * @return true if this call closed the buffer
+         */
+        boolean tryClose() {
+            return closed == 0 && CLOSED.compareAndSet(this, 0, 1);
+        }
+        
+        /**
+         * Copies the log values from the open position up to the given index into the buffer.
+         * @param end the index of the log where the buffer closed (exclusive)
+         * @return the buffer
+         */
+        C slice(long end) {
+            ChunkedLog.Cursor<T> c = cursor;
+            c.drainTo(buffer, end);
+            c.clear();
+            return buffer;
+        }
     }
 }
@@ -0,0 +1,826 @@
+package rsc.publisher;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import org.reactivestreams.*;
+
+import rsc.documentation.*;
+import rsc.flow.*;
+
+import rsc.flow.Trackable;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Combines the latest values from multiple sources through a function, without
+ * locking on the sources' emissions.
+ * <p>
+ * In the default mode, each source value is offered, along with its source, to a shared
+ * multi-producer single-consumer queue and the drain loop, being the only writer of the
+ * latest values array, applies them one by one and emits a combination for each as
+ * {@link PublisherCombineLatest} does.
+ * <p>
+ * In the coalescing mode, the sources are consumed in an unbounded manner and each
+ * stores its latest value into its own slot with an ordered store. The drain loop takes
+ * the changed slots and emits only the latest combination whenever the downstream
+ * requests, thus the intermediate combinations are dropped instead of being queued.
+ *
+ * @param <T> the value type of the sources
+ * @param <R> the result type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, innerInput = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.NONE })
+public final class PublisherCombineLatestLockFree<T, R>
+extends Px<R>
+        implements MultiReceiver {
+
+    final Publisher<? extends T>[] array;
+
+    final Iterable<? extends Publisher<? extends T>> iterable;
+
+    final Function<Object[], R> combiner;
+
+    final int bufferSize;
+
+    final boolean coalesce;
+
+    /**
+     * Constructs a PublisherCombineLatestLockFree instance.
+     *
+     * @param array the source Publishers
+     * @param combiner the function receiving the latest values, one per source
+     * @param bufferSize the prefetch amount of each source, ignored in the coalescing mode
+     * @param coalesce if true, only the latest combination is emitted when the downstream
+     * can't keep up; if false, a combination is emitted for each source value
+     */
+    public PublisherCombineLatestLockFree(Publisher<? extends T>[] array,
+            Function<Object[], R> combiner, int bufferSize, boolean coalesce) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("BUFFER_SIZE > 0 required but it was " + bufferSize);
+        }
+
+        this.array = Objects.requireNonNull(array, "array");
+        this.iterable = null;
+        this.combiner = Objects.requireNonNull(combiner, "combiner");
+        this.bufferSize = bufferSize;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Constructs a PublisherCombineLatestLockFree instance.
+     *
+     * @param iterable the source Publishers
+     * @param combiner the function receiving the latest values, one per source
+     * @param bufferSize the prefetch amount of each source, ignored in the coalescing mode
+     * @param coalesce if true, only the latest combination is emitted when the downstream
+     * can't keep up; if false, a combination is emitted for each source value
+     */
+    public PublisherCombineLatestLockFree(Iterable<? extends Publisher<? extends T>> iterable,
+            Function<Object[], R> combiner, int bufferSize, boolean coalesce) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("BUFFER_SIZE > 0 required but it was " + bufferSize);
+        }
+
+        this.array = null;
+        this.iterable = Objects.requireNonNull(iterable, "iterable");
+        this.combiner = Objects.requireNonNull(combiner, "combiner");
+        this.bufferSize = bufferSize;
+        this.coalesce = coalesce;
+    }
+
+    @Override
+    public Iterator<?> upstreams() {
+        return iterable != null ? iterable.iterator() : Arrays.asList(array).iterator();
+    }
+
+    @Override
+    public long upstreamCount() {
+        return array != null ? array.length : -1L;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+        Publisher<? extends T>[] a = array;
+        int n;
+        if (a == null) {
+            n = 0;
+            a = new Publisher[8];
+
+            Iterator<? extends Publisher<? extends T>> it;
+
+            try {
+                it = iterable.iterator();
+            } catch (Throwable e) {
+                SubscriptionHelper.error(s, e);
+                return;
+            }
+
+            if (it == null) {
+                SubscriptionHelper.error(s, new NullPointerException("The iterator returned is null"));
+                return;
+            }
+
+            for (;;) {
+
+                boolean b;
+
+                try {
+                    b = it.hasNext();
+                } catch (Throwable e) {
+                    SubscriptionHelper.error(s, e);
+                    return;
+                }
+
+                if (!b) {
+                    break;
+                }
+
+                Publisher<? extends T> p;
+
+                try {
+                    p = it.next();
+                } catch (Throwable e) {
+                    SubscriptionHelper.error(s, e);
+                    return;
+                }
+
+                if (p == null) {
+                    SubscriptionHelper.error(s, new NullPointerException("The Publisher returned by the iterator is " +
+                      "null"));
+                    return;
+                }
+
+                if (n == a.length) {
+                    Publisher<? extends T>[] c = new Publisher[n + (n >> 2)];
+                    System.arraycopy(a, 0, c, 0, n);
+                    a = c;
+                }
+                a[n++] = p;
+            }
+
+        } else {
+            n = a.length;
+        }
+
+        if (n == 0) {
+            SubscriptionHelper.complete(s);
+            return;
+        }
+        if (n == 1) {
+            new PublisherMap<>(a[0], new Function<T, R>() {
+                @Override
+                public R apply(T t) {
+                    return combiner.apply(new Object[] { t });
+                }
+            }).subscribe(s);
+            return;
+        }
+
+        if (coalesce) {
+            CoalescingCoordinator<T, R> coordinator = new CoalescingCoordinator<>(s, combiner, n);
+
+            s.onSubscribe(coordinator);
+
+            coordinator.subscribe(a, n);
+        } else {
+            QueueingCoordinator<T, R> coordinator = new QueueingCoordinator<>(s, combiner, n, bufferSize);
+
+            s.onSubscribe(coordinator);
+
+            coordinator.subscribe(a, n);
+        }
+    }
+
+    static final class QueueingCoordinator<T, R>
+    implements Subscription, MultiReceiver, Trackable {
+
+        final Subscriber<? super R> actual;
+
+        final Function<Object[], R> combiner;
+
+        final QueueingInner<T>[] subscribers;
+
+        /** Holds (inner, value) pairs offered atomically. */
+        final MpscLinkedArrayQueue<Object> queue;
+
+        /** Accessed by the drain loop only. */
+        final Object[] latest;
+
+        int nonEmptySources;
+
+        boolean done;
+
+        volatile boolean cancelled;
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<QueueingCoordinator> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(QueueingCoordinator.class, "requested");
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<QueueingCoordinator> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(QueueingCoordinator.class, "wip");
+
+        volatile Throwable error;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<QueueingCoordinator, Throwable> ERROR =
+                AtomicReferenceFieldUpdater.newUpdater(QueueingCoordinator.class, Throwable.class, "error");
+
+        public QueueingCoordinator(Subscriber<? super R> actual,
+                Function<Object[], R> combiner, int n, int bufferSize) {
+            this.actual = actual;
+            this.combiner = combiner;
+            @SuppressWarnings("unchecked")
+            QueueingInner<T>[] a = new QueueingInner[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = new QueueingInner<>(this, i, bufferSize);
+            }
+            this.subscribers = a;
+            this.latest = new Object[n];
+            this.queue = new MpscLinkedArrayQueue<>(bufferSize);
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelAll();
+
+            if (WIP.getAndIncrement(this) == 0) {
+                queue.clear();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public Iterator<?> upstreams() {
+            return Arrays.asList(subscribers).iterator();
+        }
+
+        @Override
+        public long upstreamCount() {
+            return subscribers.length;
+        }
+
+        void subscribe(Publisher<? extends T>[] sources, int n) {
+            QueueingInner<T>[] a = subscribers;
+
+            for (int i = 0; i < n; i++) {
+                if (error != null || cancelled) {
+                    return;
+                }
+                sources[i].subscribe(a[i]);
+            }
+        }
+
+        void innerValue(QueueingInner<T> inner, T value) {
+            queue.test(inner, value);
+            drain();
+        }
+
+        void innerComplete(QueueingInner<T> inner) {
+            inner.done = true;
+            drain();
+        }
+
+        void innerError(Throwable e) {
+            if (ExceptionHelper.addThrowable(ERROR, this, e)) {
+                drain();
+            } else {
+                UnsignalledExceptions.onErrorDropped(e);
+            }
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+
+            final Subscriber<? super R> a = actual;
+            final MpscLinkedArrayQueue<Object> q = queue;
+            final Object[] os = latest;
+            final int n = os.length;
+
+            int missed = 1;
+
+            for (;;) {
+
+                long r = requested;
+                long e = 0L;
+
+                for (;;) {
+                    if (cancelled) {
+                        q.clear();
+                        return;
+                    }
+
+                    if (error != null) {
+                        Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                        done = true;
+                        cancelAll();
+                        q.clear();
+                        a.onError(ex);
+                        return;
+                    }
+
+                    // once all but one sources have a value, any value may produce a combination
+                    @SuppressWarnings("unchecked")
+                    QueueingInner<T> inner = e == r && nonEmptySources >= n - 1 ? null : (QueueingInner<T>)q.poll();
+
+                    if (inner == null) {
+                        if (isDone(os)) {
+                            done = true;
+                            cancelAll();
+                            a.onComplete();
+                            return;
+                        }
+                        break;
+                    }
+
+                    // the pair's second element is visible once the first is
+                    Object v = q.poll();
+                    int index = inner.index;
+
+                    if (os[index] == null) {
+                        nonEmptySources++;
+                    }
+                    os[index] = v;
+
+                    if (nonEmptySources == n) {
+                        R w;
+
+                        try {
+                            w = combiner.apply(os.clone());
+                        } catch (Throwable ex) {
+                            ExceptionHelper.throwIfFatal(ex);
+                            ExceptionHelper.addThrowable(ERROR, this, ExceptionHelper.unwrap(ex));
+                            continue;
+                        }
+
+                        if (w == null) {
+                            ExceptionHelper.addThrowable(ERROR, this, new NullPointerException("The combiner returned a null value"));
+                            continue;
+                        }
+
+                        a.onNext(w);
+
+                        e++;
+                    }
+
+                    inner.requestOne();
+                }
+
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    REQUESTED.addAndGet(this, -e);
+                }
+
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Checks if all sources completed or one completed without a value, and all
+         * the values they emitted have been consumed.
+         */
+        boolean isDone(Object[] os) {
+            QueueingInner<T>[] subs = subscribers;
+            boolean allDone = true;
+            boolean emptyDone = false;
+            // read the flags before the queue: a source's values are offered before it is marked done
+            for (int i = 0; i < subs.length; i++) {
+                boolean d = subs[i].done;
+                allDone &= d;
+                emptyDone |= d && os[i] == null;
+            }
+            return (allDone || emptyDone) && queue.isEmpty();
+        }
+
+        void cancelAll() {
+            for (QueueingInner<T> inner : subscribers) {
+                inner.cancel();
+            }
+        }
+    }
+
+    static final class QueueingInner<T>
+            implements Subscriber<T>, Receiver, Producer, Trackable {
+
+        final QueueingCoordinator<T, ?> parent;
+
+        final int index;
+
+        final int prefetch;
+
+        final int limit;
+
+        volatile Subscription s;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<QueueingInner, Subscription> S =
+          AtomicReferenceFieldUpdater.newUpdater(QueueingInner.class, Subscription.class, "s");
+
+        /** Accessed by the drain loop only. */
+        int produced;
+
+        volatile boolean done;
+
+        public QueueingInner(QueueingCoordinator<T, ?> parent, int index, int prefetch) {
+            this.parent = parent;
+            this.index = index;
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.setOnce(S, this, s)) {
+                s.request(prefetch);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            parent.innerValue(this, t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            parent.innerError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            parent.innerComplete(this);
+        }
+
+        public void cancel() {
+            SubscriptionHelper.terminate(S, this);
+        }
+
+        public void requestOne() {
+            int p = produced + 1;
+            if (p == limit) {
+                produced = 0;
+                s.request(p);
+            } else {
+                produced = p;
+            }
+        }
+
+        @Override
+        public Object downstream() {
+            return parent;
+        }
+
+        @Override
+        public long requestedFromDownstream() {
+            return produced;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public long limit() {
+            return limit;
+        }
+
+        @Override
+        public long expectedFromUpstream() {
+            return limit - produced;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+    }
+
+    static final class CoalescingCoordinator<T, R>
+    implements Subscription, MultiReceiver, Trackable {
+
+        final Subscriber<? super R> actual;
+
+        final Function<Object[], R> combiner;
+
+        final CoalescingInner<T>[] subscribers;
+
+        /** Accessed by the drain loop only. */
+        final Object[] latest;
+
+        int nonEmptySources;
+
+        /** Indicates there is a combination not yet emitted; accessed by the drain loop only. */
+        boolean pending;
+
+        long emitted;
+
+        boolean done;
+
+        volatile boolean cancelled;
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<CoalescingCoordinator> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(CoalescingCoordinator.class, "requested");
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<CoalescingCoordinator> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(CoalescingCoordinator.class, "wip");
+
+        volatile Throwable error;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<CoalescingCoordinator, Throwable> ERROR =
+                AtomicReferenceFieldUpdater.newUpdater(CoalescingCoordinator.class, Throwable.class, "error");
+
+        public CoalescingCoordinator(Subscriber<? super R> actual,
+                Function<Object[], R> combiner, int n) {
+            this.actual = actual;
+            this.combiner = combiner;
+            @SuppressWarnings("unchecked")
+            CoalescingInner<T>[] a = new CoalescingInner[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = new CoalescingInner<>(this);
+            }
+            this.subscribers = a;
+            this.latest = new Object[n];
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelAll();
+
+            if (WIP.getAndIncrement(this) == 0) {
+                clear();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public Iterator<?> upstreams() {
+            return Arrays.asList(subscribers).iterator();
+        }
+
+        @Override
+        public long upstreamCount() {
+            return subscribers.length;
+        }
+
+        void subscribe(Publisher<? extends T>[] sources, int n) {
+            CoalescingInner<T>[] a = subscribers;
+
+            for (int i = 0; i < n; i++) {
+                if (error != null || cancelled) {
+                    return;
+                }
+                sources[i].subscribe(a[i]);
+            }
+        }
+
+        void innerError(Throwable e) {
+            if (ExceptionHelper.addThrowable(ERROR, this, e)) {
+                drain();
+            } else {
+                UnsignalledExceptions.onErrorDropped(e);
+            }
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+
+            final Subscriber<? super R> a = actual;
+            final CoalescingInner<T>[] subs = subscribers;
+            final Object[] os = latest;
+            final int n = os.length;
+
+            int missed = 1;
+
+            for (;;) {
+
+                for (;;) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+
+                    if (error != null) {
+                        Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                        done = true;
+                        cancelAll();
+                        clear();
+                        a.onError(ex);
+                        return;
+                    }
+
+                    boolean allDone = true;
+
+                    for (int i = 0; i < n; i++) {
+                        CoalescingInner<T> inner = subs[i];
+                        // read done before the slot: a completed source with an empty slot has no more values
+                        boolean d = inner.done;
+
+                        if (inner.value != null) {
+                            Object v = CoalescingInner.VALUE.getAndSet(inner, null);
+                            if (os[i] == null) {
+                                nonEmptySources++;
+                            }
+                            os[i] = v;
+                            pending = nonEmptySources == n;
+                        } else
+                        if (d && os[i] == null) {
+                            done = true;
+                            cancelAll();
+                            clear();
+                            a.onComplete();
+                            return;
+                        }
+
+                        allDone &= d;
+                    }
+
+                    if (pending) {
+                        if (requested == emitted) {
+                            break;
+                        }
+
+                        pending = false;
+
+                        R w;
+
+                        try {
+                            w = combiner.apply(os.clone());
+                        } catch (Throwable ex) {
+                            ExceptionHelper.throwIfFatal(ex);
+                            ExceptionHelper.addThrowable(ERROR, this, ExceptionHelper.unwrap(ex));
+                            continue;
+                        }
+
+                        if (w == null) {
+                            ExceptionHelper.addThrowable(ERROR, this, new NullPointerException("The combiner returned a null value"));
+                            continue;
+                        }
+
+                        a.onNext(w);
+
+                        emitted++;
+                        continue;
+                    }
+
+                    if (allDone) {
+                        done = true;
+                        clear();
+                        a.onComplete();
+                        return;
+                    }
+
+                    break;
+                }
+
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(latest, null);
+            for (CoalescingInner<T> inner : subscribers) {
+                inner.value = null;
+            }
+        }
+
+        void cancelAll() {
+            for (CoalescingInner<T> inner : subscribers) {
+                inner.cancel();
+            }
+        }
+    }
+
+    static final class CoalescingInner<T>
+            implements Subscriber<T>, Receiver, Producer, Trackable {
+
+        final CoalescingCoordinator<T, ?> parent;
+
+        volatile Subscription s;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<CoalescingInner, Subscription> S =
+          AtomicReferenceFieldUpdater.newUpdater(CoalescingInner.class, Subscription.class, "s");
+
+        /** The latest value not yet taken by the drain loop. */
+        volatile Object value;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<CoalescingInner, Object> VALUE =
+          AtomicReferenceFieldUpdater.newUpdater(CoalescingInner.class, Object.class, "value");
+
+        volatile boolean done;
+
+        public CoalescingInner(CoalescingCoordinator<T, ?> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.setOnce(S, this, s)) {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            VALUE.lazySet(this, t);
+            parent.drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            parent.innerError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        public void cancel() {
+            SubscriptionHelper.terminate(S, this);
+        }
+
+        @Override
+        public Object downstream() {
+            return parent;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+    }
+}
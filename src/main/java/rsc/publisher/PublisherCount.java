@@ -11,14 +11,18 @@ import rsc.documentation.FusionSupport;
 import rsc.flow.*;
 import rsc.subscriber.DeferredScalarSubscriber;
 import rsc.subscriber.SubscriptionHelper;
+import rsc.util.ExceptionHelper;
 
 /**
  * Counts the number of values in the source sequence.
+ * <p>
+ * If the source supports the BATCH fusion mode, the values are pulled synchronously
+ * in chunks and only the chunk sizes are summed up.
  *
  * @param <T> the source value type
  */
 @BackpressureSupport(input = BackpressureMode.UNBOUNDED, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.NONE }, output = { FusionMode.ASYNC })
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.BATCH }, output = { FusionMode.ASYNC })
 public final class PublisherCount<T> extends PublisherSource<T, Long> implements Fuseable {
 
     public PublisherCount(Publisher<? extends T> source) {
@@ -52,17 +56,69 @@ public final class PublisherCount<T> extends PublisherSource<T, Long> implements
             s.cancel();
         }
 
+        @SuppressWarnings("unchecked")
         @Override
         public void onSubscribe(Subscription s) {
             if (SubscriptionHelper.validate(this.s, s)) {
                 this.s = s;
 
+                if (s instanceof BatchSubscription) {
+                    BatchSubscription<T> qs = (BatchSubscription<T>) s;
+
+                    if (qs.requestFusion(Fuseable.SYNC) == Fuseable.SYNC) {
+                        subscriber.onSubscribe(this);
+
+                        drainSync(qs, qs.requestFusion(Fuseable.BATCH) == Fuseable.BATCH);
+                        return;
+                    }
+                }
+
                 subscriber.onSubscribe(this);
 
                 s.request(Long.MAX_VALUE);
             }
         }
 
+        void drainSync(BatchSubscription<T> qs, boolean batch) {
+            long c = counter;
+
+            try {
+                if (batch) {
+                    Object[] buffer = new Object[Px.BUFFER_SIZE];
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+
+                        int n = qs.poll(buffer, Px.BUFFER_SIZE);
+                        if (n == 0) {
+                            break;
+                        }
+                        c += n;
+                    }
+                } else {
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+
+                        if (qs.poll() == null) {
+                            break;
+                        }
+                        c++;
+                    }
+                }
+            } catch (Throwable e) {
+                ExceptionHelper.throwIfFatal(e);
+                qs.cancel();
+                onError(ExceptionHelper.unwrap(e));
+                return;
+            }
+
+            counter = c;
+            onComplete();
+        }
+
         @Override
         public void onNext(T t) {
             counter++;
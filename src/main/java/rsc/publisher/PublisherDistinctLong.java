@@ -0,0 +1,324 @@
+package rsc.publisher;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.documentation.FusionMode;
+import rsc.documentation.FusionSupport;
+import rsc.flow.Fuseable;
+import rsc.flow.Fuseable.ConditionalSubscriber;
+import rsc.flow.Loopback;
+import rsc.flow.Producer;
+import rsc.flow.Receiver;
+import rsc.flow.Trackable;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.ExceptionHelper;
+import rsc.util.OpenHashLongSet;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * For each subscriber, tracks the primitive long keys of the source values that have been seen and
+ * filters out duplicates.
+ * <p>
+ * The keys are kept in an {@link OpenHashLongSet} which avoids the boxing and the
+ * per-entry objects of a {@code HashSet<Long>}.
+ *
+ * @param <T> the source value type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(input = { FusionMode.CONDITIONAL }, output = { FusionMode.CONDITIONAL })
+public final class PublisherDistinctLong<T> extends PublisherSource<T, T> {
+
+    final ToLongFunction<? super T> keyExtractor;
+
+    final int capacityHint;
+
+    public PublisherDistinctLong(Publisher<? extends T> source, ToLongFunction<? super T> keyExtractor) {
+        this(source, keyExtractor, 16);
+    }
+
+    public PublisherDistinctLong(Publisher<? extends T> source, ToLongFunction<? super T> keyExtractor,
+                                 int capacityHint) {
+        super(source);
+        if (capacityHint <= 0) {
+            throw new IllegalArgumentException("capacityHint > 0 required but it was " + capacityHint);
+        }
+        this.keyExtractor = Objects.requireNonNull(keyExtractor, "keyExtractor");
+        this.capacityHint = capacityHint;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> s) {
+        OpenHashLongSet set = new OpenHashLongSet(capacityHint);
+
+        if (s instanceof ConditionalSubscriber) {
+            source.subscribe(new PublisherDistinctLongConditionalSubscriber<>((ConditionalSubscriber<? super T>)s, set, keyExtractor));
+        } else {
+            source.subscribe(new PublisherDistinctLongSubscriber<>(s, set, keyExtractor));
+        }
+    }
+
+    static final class PublisherDistinctLongSubscriber<T>
+            implements Fuseable.ConditionalSubscriber<T>, Receiver, Producer, Loopback,
+                       Subscription, Trackable {
+        final Subscriber<? super T> actual;
+
+        final OpenHashLongSet set;
+
+        final ToLongFunction<? super T> keyExtractor;
+
+        Subscription s;
+
+        boolean done;
+
+        public PublisherDistinctLongSubscriber(Subscriber<? super T> actual, OpenHashLongSet set,
+                                               ToLongFunction<? super T> keyExtractor) {
+            this.actual = actual;
+            this.set = set;
+            this.keyExtractor = keyExtractor;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!tryOnNext(t)) {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            long k;
+
+            try {
+                k = keyExtractor.applyAsLong(t);
+            } catch (Throwable e) {
+                s.cancel();
+                ExceptionHelper.throwIfFatal(e);
+                onError(ExceptionHelper.unwrap(e));
+                return true;
+            }
+
+            if (set.add(k)) {
+                actual.onNext(t);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            set.clear();
+
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            set.clear();
+
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return keyExtractor;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+
+    static final class PublisherDistinctLongConditionalSubscriber<T>
+    implements Fuseable.ConditionalSubscriber<T>, Receiver, Producer, Loopback,
+               Subscription, Trackable {
+        final ConditionalSubscriber<? super T> actual;
+
+        final OpenHashLongSet set;
+
+        final ToLongFunction<? super T> keyExtractor;
+
+        Subscription s;
+
+        boolean done;
+
+        public PublisherDistinctLongConditionalSubscriber(ConditionalSubscriber<? super T> actual, OpenHashLongSet set,
+                ToLongFunction<? super T> keyExtractor) {
+            this.actual = actual;
+            this.set = set;
+            this.keyExtractor = keyExtractor;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return;
+            }
+
+            long k;
+
+            try {
+                k = keyExtractor.applyAsLong(t);
+            } catch (Throwable e) {
+                s.cancel();
+                ExceptionHelper.throwIfFatal(e);
+                onError(ExceptionHelper.unwrap(e));
+                return;
+            }
+
+            if (set.add(k)) {
+                actual.onNext(t);
+            } else {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            long k;
+
+            try {
+                k = keyExtractor.applyAsLong(t);
+            } catch (Throwable e) {
+                s.cancel();
+                ExceptionHelper.throwIfFatal(e);
+                onError(ExceptionHelper.unwrap(e));
+                return true;
+            }
+
+            if (set.add(k)) {
+                return actual.tryOnNext(t);
+            }
+            return false;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            set.clear();
+
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            set.clear();
+
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return keyExtractor;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+
+}
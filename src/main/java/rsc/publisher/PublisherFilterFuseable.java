@@ -23,7 +23,7 @@ import rsc.util.UnsignalledExceptions;
  * @param <T> the value type
  */
 @BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.CONDITIONAL }, output = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.CONDITIONAL, FusionMode.BOUNDARY })
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL }, output = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL, FusionMode.BOUNDARY })
 public final class PublisherFilterFuseable<T> extends PublisherSource<T, T>
         implements Fuseable {
 
@@ -51,7 +51,7 @@ public final class PublisherFilterFuseable<T> extends PublisherSource<T, T>
     }
 
     static final class FilterFuseableSubscriber<T> 
-    implements Receiver, Producer, Loopback, SynchronousSubscription<T>, ConditionalSubscriber<T>,
+    implements Receiver, Producer, Loopback, BatchSubscription<T>, ConditionalSubscriber<T>,
                Trackable {
         final Subscriber<? super T> actual;
 
@@ -232,8 +232,37 @@ public final class PublisherFilterFuseable<T> extends PublisherSource<T, T>
             s.clear();
         }
         
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final BatchSubscription<T> a = (BatchSubscription<T>)s;
+            final Predicate<? super T> p = predicate;
+            for (;;) {
+                int n = a.poll(buffer, max);
+                if (n == 0) {
+                    return 0;
+                }
+                int j = 0;
+                for (int i = 0; i < n; i++) {
+                    T v = (T)buffer[i];
+                    if (p.test(v)) {
+                        buffer[j++] = v;
+                    }
+                }
+                if (j != 0) {
+                    return j;
+                }
+            }
+        }
+
         @Override
         public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
             int m;
             if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
                 m = Fuseable.NONE;
@@ -251,7 +280,7 @@ public final class PublisherFilterFuseable<T> extends PublisherSource<T, T>
     }
 
     static final class FilterFuseableConditionalSubscriber<T> 
-    implements Receiver, Producer, Loopback, ConditionalSubscriber<T>, SynchronousSubscription<T>,
+    implements Receiver, Producer, Loopback, ConditionalSubscriber<T>, BatchSubscription<T>,
                Trackable {
         final ConditionalSubscriber<? super T> actual;
 
@@ -436,8 +465,37 @@ public final class PublisherFilterFuseable<T> extends PublisherSource<T, T>
             return s.size();
         }
         
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final BatchSubscription<T> a = (BatchSubscription<T>)s;
+            final Predicate<? super T> p = predicate;
+            for (;;) {
+                int n = a.poll(buffer, max);
+                if (n == 0) {
+                    return 0;
+                }
+                int j = 0;
+                for (int i = 0; i < n; i++) {
+                    T v = (T)buffer[i];
+                    if (p.test(v)) {
+                        buffer[j++] = v;
+                    }
+                }
+                if (j != 0) {
+                    return j;
+                }
+            }
+        }
+
         @Override
         public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
             int m;
             if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
                 m = Fuseable.NONE;
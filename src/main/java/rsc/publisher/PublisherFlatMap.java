@@ -22,6 +22,10 @@ import rsc.util.*;
 /**
  * Maps a sequence of values each into a Publisher and flattens them 
  * back into a single sequence, interleaving events from the various inner Publishers.
+ * <p>
+ * If the maximum prefetch is larger than the (minimum) prefetch, the amount each inner
+ * subscriber requests adapts to the consumption rate, see {@link AdaptivePrefetch}; the
+ * inner queues have to be able to hold the maximum prefetch amount of items then.
  *
  * @param <T> the source value type
  * @param <R> the result value type
@@ -40,20 +44,32 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
 
     final int prefetch;
     
+    final int maxPrefetch;
+    
     final Supplier<? extends Queue<R>> innerQueueSupplier;
     
     public PublisherFlatMap(Publisher<? extends T> source, Function<? super T, ? extends Publisher<? extends R>> mapper,
             boolean delayError, int maxConcurrency, Supplier<? extends Queue<R>> mainQueueSupplier, int prefetch, Supplier<? extends Queue<R>> innerQueueSupplier) {
+        this(source, mapper, delayError, maxConcurrency, mainQueueSupplier, prefetch, prefetch, innerQueueSupplier);
+    }
+
+    public PublisherFlatMap(Publisher<? extends T> source, Function<? super T, ? extends Publisher<? extends R>> mapper,
+            boolean delayError, int maxConcurrency, Supplier<? extends Queue<R>> mainQueueSupplier, int prefetch, int maxPrefetch,
+            Supplier<? extends Queue<R>> innerQueueSupplier) {
         super(source);
         if (prefetch <= 0) {
             throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
         }
+        if (maxPrefetch < prefetch) {
+            throw new IllegalArgumentException("maxPrefetch >= prefetch required but it was " + maxPrefetch + " < " + prefetch);
+        }
         if (maxConcurrency <= 0) {
             throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
         }
         this.mapper = Objects.requireNonNull(mapper, "mapper");
         this.delayError = delayError;
         this.prefetch = prefetch;
+        this.maxPrefetch = maxPrefetch;
         this.maxConcurrency = maxConcurrency;
         this.mainQueueSupplier = Objects.requireNonNull(mainQueueSupplier, "mainQueueSupplier");
         this.innerQueueSupplier = Objects.requireNonNull(innerQueueSupplier, "innerQueueSupplier");
@@ -83,7 +99,7 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
             boolean delayError, 
             int maxConcurrency, Supplier<? extends Queue<R>> mainQueueSupplier, 
             int prefetch, Supplier<? extends Queue<R>> innerQueueSupplier) {
-        return new PublisherFlatMapMain<>(s, mapper, delayError, maxConcurrency, mainQueueSupplier, prefetch, innerQueueSupplier);
+        return new PublisherFlatMapMain<>(s, mapper, delayError, maxConcurrency, mainQueueSupplier, prefetch, prefetch, innerQueueSupplier);
     }
     
     @Override
@@ -93,7 +109,7 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
             return;
         }
         
-        source.subscribe(new PublisherFlatMapMain<>(s, mapper, delayError, maxConcurrency, mainQueueSupplier, prefetch, innerQueueSupplier));
+        source.subscribe(new PublisherFlatMapMain<>(s, mapper, delayError, maxConcurrency, mainQueueSupplier, prefetch, maxPrefetch, innerQueueSupplier));
     }
 
     /**
@@ -190,6 +206,8 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
 
         final int prefetch;
 
+        final int maxPrefetch;
+
         final Supplier<? extends Queue<R>> innerQueueSupplier;
         
         final int limit;
@@ -229,13 +247,15 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
         
         public PublisherFlatMapMain(Subscriber<? super R> actual,
                 Function<? super T, ? extends Publisher<? extends R>> mapper, boolean delayError, int maxConcurrency,
-                Supplier<? extends Queue<R>> mainQueueSupplier, int prefetch, Supplier<? extends Queue<R>> innerQueueSupplier) {
+                Supplier<? extends Queue<R>> mainQueueSupplier, int prefetch, int maxPrefetch,
+                Supplier<? extends Queue<R>> innerQueueSupplier) {
             this.actual = actual;
             this.mapper = mapper;
             this.delayError = delayError;
             this.maxConcurrency = maxConcurrency;
             this.mainQueueSupplier = mainQueueSupplier;
             this.prefetch = prefetch;
+            this.maxPrefetch = maxPrefetch;
             this.innerQueueSupplier = innerQueueSupplier;
             this.limit = maxConcurrency - (maxConcurrency >> 2);
         }
@@ -341,7 +361,7 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
                 }
                 emitScalar(v);
             } else {
-                PublisherFlatMapInner<R> inner = new PublisherFlatMapInner<>(this, prefetch);
+                PublisherFlatMapInner<R> inner = new PublisherFlatMapInner<>(this, prefetch, maxPrefetch);
                 if (add(inner)) {
                     
                     p.subscribe(inner);
@@ -856,7 +876,13 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
             if (wip == 0 && WIP.compareAndSet(this, 0, 1)) {
                 Queue<R> q = inner.queue;
                 if (q == null || q.isEmpty()) {
-                    remove(inner.index);
+                    // a drain on another thread may have seen the inner done and removed it already
+                    PublisherFlatMapInner<R>[] as = get();
+                    int idx = inner.index;
+                    boolean tracked = idx < as.length && as[idx] == inner;
+                    if (tracked) {
+                        remove(idx);
+                    }
                     
                     boolean d = done;
                     Queue<R> sq = scalarQueue;
@@ -866,7 +892,7 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
                         return;
                     }
 
-                    if (!d) {
+                    if (!d && tracked) {
                         s.request(1);
                     }
 
@@ -952,7 +978,11 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
         
         final int prefetch;
         
-        final int limit;
+        final int maxPrefetch;
+        
+        int limit;
+        
+        AdaptivePrefetch adaptive;
         
         volatile Subscription s;
         @SuppressWarnings("rawtypes")
@@ -982,10 +1012,14 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
 
         int index;
         
-        public PublisherFlatMapInner(PublisherFlatMapMain<?, R> parent, int prefetch) {
+        public PublisherFlatMapInner(PublisherFlatMapMain<?, R> parent, int prefetch, int maxPrefetch) {
             this.parent = parent;
             this.prefetch = prefetch;
+            this.maxPrefetch = maxPrefetch;
             this.limit = prefetch - (prefetch >> 2);
+            if (maxPrefetch != prefetch) {
+                this.adaptive = new AdaptivePrefetch(prefetch, maxPrefetch);
+            }
         }
 
         @Override
@@ -1004,6 +1038,8 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
                     if (m == Fuseable.ASYNC) {
                         sourceMode = ASYNC;
                         queue = f;
+                        // the fused queue is sized by the upstream, keep the window fixed
+                        adaptive = null;
                     }
                     // NONE is just fall-through as the queue will be created on demand
                 }
@@ -1041,6 +1077,12 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
                 long p = produced + n;
                 if (p >= limit) {
                     produced = 0L;
+                    AdaptivePrefetch ap = adaptive;
+                    if (ap != null) {
+                        Queue<R> q = queue;
+                        p = ap.replenish(p, q != null ? q.size() : 0);
+                        limit = ap.limit();
+                    }
                     s.request(p);
                 } else {
                     produced = p;
@@ -1055,7 +1097,7 @@ public final class PublisherFlatMap<T, R> extends PublisherSource<T, R> {
 
         @Override
         public long getCapacity() {
-            return prefetch;
+            return maxPrefetch;
         }
 
         @Override
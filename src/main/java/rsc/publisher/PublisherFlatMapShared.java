@@ -0,0 +1,630 @@
+package rsc.publisher;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
+import org.reactivestreams.*;
+
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.documentation.FusionMode;
+import rsc.documentation.FusionSupport;
+import rsc.flow.*;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.*;
+
+/**
+ * Maps a sequence of values each into a Publisher and flattens them
+ * back into a single sequence, interleaving events from the various inner Publishers
+ * through a single shared queue.
+ * <p>
+ * Unlike {@link PublisherFlatMap}, which gives each inner Publisher its own queue and scans
+ * all of them in its drain loop, the inner subscribers here offer their values, tagged with
+ * themselves, into one {@link MpscLinkedArrayQueue}. The drain loop polls that single queue,
+ * so its cost doesn't grow with the number of active inner Publishers; this pays off
+ * with a high maxConcurrency and many asynchronous, sparsely emitting inner sources.
+ * Inner Publishers are not fused.
+ *
+ * @param <T> the source value type
+ * @param <R> the result value type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, innerInput = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(input = { FusionMode.SCALAR }, innerInput = { FusionMode.SCALAR })
+public final class PublisherFlatMapShared<T, R> extends PublisherSource<T, R> {
+
+    final Function<? super T, ? extends Publisher<? extends R>> mapper;
+
+    final boolean delayError;
+
+    final int maxConcurrency;
+
+    final int prefetch;
+
+    public PublisherFlatMapShared(Publisher<? extends T> source, Function<? super T, ? extends Publisher<? extends R>> mapper,
+            boolean delayError, int maxConcurrency, int prefetch) {
+        super(source);
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
+        }
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+        this.delayError = delayError;
+        this.prefetch = prefetch;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public long getPrefetch() {
+        return prefetch;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+
+        if (PublisherFlatMap.trySubscribeScalarMap(source, s, mapper, false)) {
+            return;
+        }
+
+        source.subscribe(new FlatMapSharedMain<>(s, mapper, delayError, maxConcurrency, prefetch));
+    }
+
+    static final class FlatMapSharedMain<T, R>
+            extends SpscFreeListTracker<FlatMapSharedInner<R>>
+    implements Subscriber<T>, Subscription, Receiver, MultiReceiver, Producer, Trackable {
+
+        final Subscriber<? super R> actual;
+
+        final Function<? super T, ? extends Publisher<? extends R>> mapper;
+
+        final boolean delayError;
+
+        final int maxConcurrency;
+
+        final int prefetch;
+
+        final int limit;
+
+        /** Holds (source, value) pairs where the source is an inner or this for scalars. */
+        final MpscLinkedArrayQueue<Object> queue;
+
+        volatile Throwable error;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<FlatMapSharedMain, Throwable> ERROR =
+                AtomicReferenceFieldUpdater.newUpdater(FlatMapSharedMain.class, Throwable.class, "error");
+
+        volatile boolean done;
+
+        volatile boolean cancelled;
+
+        Subscription s;
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<FlatMapSharedMain> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(FlatMapSharedMain.class, "requested");
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<FlatMapSharedMain> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(FlatMapSharedMain.class, "wip");
+
+        @SuppressWarnings("rawtypes")
+        static final FlatMapSharedInner[] EMPTY = new FlatMapSharedInner[0];
+
+        @SuppressWarnings("rawtypes")
+        static final FlatMapSharedInner[] TERMINATED = new FlatMapSharedInner[0];
+
+        /** Marks the completion of an inner source in the shared queue. */
+        static final Object COMPLETE = new Object();
+
+        /** A pair polled from the queue while there was no downstream demand for it. */
+        Object heldSource;
+        Object heldValue;
+
+        int produced;
+
+        public FlatMapSharedMain(Subscriber<? super R> actual,
+                Function<? super T, ? extends Publisher<? extends R>> mapper, boolean delayError, int maxConcurrency,
+                int prefetch) {
+            this.actual = actual;
+            this.mapper = mapper;
+            this.delayError = delayError;
+            this.maxConcurrency = maxConcurrency;
+            this.prefetch = prefetch;
+            this.limit = maxConcurrency - (maxConcurrency >> 2);
+            this.queue = new MpscLinkedArrayQueue<>(Px.bufferSize());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected FlatMapSharedInner<R>[] empty() {
+            return EMPTY;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected FlatMapSharedInner<R>[] terminated() {
+            return TERMINATED;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected FlatMapSharedInner<R>[] newArray(int size) {
+            return new FlatMapSharedInner[size];
+        }
+
+        @Override
+        protected void setIndex(FlatMapSharedInner<R> entry, int index) {
+            entry.index = index;
+        }
+
+        @Override
+        protected void unsubscribeEntry(FlatMapSharedInner<R> entry) {
+            entry.cancel();
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+
+                if (WIP.getAndIncrement(this) == 0) {
+                    cleanup();
+                }
+            }
+        }
+
+        void cleanup() {
+            heldSource = null;
+            heldValue = null;
+            queue.clear();
+            s.cancel();
+            unsubscribe();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+
+                actual.onSubscribe(this);
+
+                if (maxConcurrency == Integer.MAX_VALUE) {
+                    s.request(Long.MAX_VALUE);
+                } else {
+                    s.request(maxConcurrency);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return;
+            }
+
+            Publisher<? extends R> p;
+
+            try {
+                p = mapper.apply(t);
+            } catch (Throwable e) {
+                s.cancel();
+                ExceptionHelper.throwIfFatal(e);
+                onError(e);
+                return;
+            }
+
+            if (p == null) {
+                s.cancel();
+
+                onError(new NullPointerException("The mapper returned a null Publisher"));
+                return;
+            }
+
+            if (p instanceof Callable) {
+                R v;
+                try {
+                    v = ((Callable<R>)p).call();
+                } catch (Throwable e) {
+                    s.cancel();
+                    onError(ExceptionHelper.unwrap(e));
+                    return;
+                }
+                emitScalar(v);
+            } else {
+                FlatMapSharedInner<R> inner = new FlatMapSharedInner<>(this, prefetch);
+                if (add(inner)) {
+
+                    p.subscribe(inner);
+                }
+            }
+
+        }
+
+        void replenishScalar() {
+            if (maxConcurrency != Integer.MAX_VALUE) {
+                int p = produced + 1;
+                if (p == limit) {
+                    produced = 0;
+                    s.request(p);
+                } else {
+                    produced = p;
+                }
+            }
+        }
+
+        void emitScalar(R v) {
+            if (v == null) {
+                replenishScalar();
+                return;
+            }
+            if (wip == 0 && WIP.compareAndSet(this, 0, 1)) {
+                long r = requested;
+
+                if (r != 0L && heldSource == null && queue.isEmpty()) {
+                    actual.onNext(v);
+
+                    if (r != Long.MAX_VALUE) {
+                        REQUESTED.decrementAndGet(this);
+                    }
+
+                    replenishScalar();
+                } else {
+                    queue.test(this, v);
+                }
+                if (WIP.decrementAndGet(this) == 0) {
+                    return;
+                }
+
+                drainLoop();
+            } else {
+                queue.test(this, v);
+                drain();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            if (ExceptionHelper.addThrowable(ERROR, this, t)) {
+                done = true;
+                drain();
+            } else {
+                UnsignalledExceptions.onErrorDropped(t);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+
+            done = true;
+            drain();
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            drainLoop();
+        }
+
+        @SuppressWarnings("unchecked")
+        void drainLoop() {
+            int missed = 1;
+
+            final Subscriber<? super R> a = actual;
+            final MpscLinkedArrayQueue<Object> q = queue;
+
+            for (;;) {
+
+                long r = requested;
+                long e = 0L;
+                long replenishMain = 0L;
+
+                for (;;) {
+                    if (cancelled) {
+                        cleanup();
+                        return;
+                    }
+
+                    if (!delayError && error != null) {
+                        Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                        cleanup();
+                        if (ex != ExceptionHelper.TERMINATED) {
+                            a.onError(ex);
+                        }
+                        return;
+                    }
+
+                    Object source = heldSource;
+                    Object v;
+
+                    if (source != null) {
+                        v = heldValue;
+                    } else {
+                        source = q.poll();
+                        if (source == null) {
+                            break;
+                        }
+                        // pairs are written second-first so the value is already there
+                        v = q.poll();
+                    }
+
+                    if (v == COMPLETE) {
+                        remove(((FlatMapSharedInner<R>)source).index);
+                        replenishMain++;
+                        continue;
+                    }
+
+                    if (e == r) {
+                        heldSource = source;
+                        heldValue = v;
+                        break;
+                    }
+
+                    heldSource = null;
+                    heldValue = null;
+
+                    a.onNext((R)v);
+
+                    e++;
+
+                    if (source == this) {
+                        replenishMain++;
+                    } else {
+                        ((FlatMapSharedInner<R>)source).request(1);
+                    }
+                }
+
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    REQUESTED.addAndGet(this, -e);
+                }
+
+                if (done && isEmpty() && heldSource == null && q.isEmpty()) {
+                    Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                    if (ex != null && ex != ExceptionHelper.TERMINATED) {
+                        a.onError(ex);
+                    } else {
+                        a.onComplete();
+                    }
+                    return;
+                }
+
+                if (replenishMain != 0L && !done && !cancelled && maxConcurrency != Integer.MAX_VALUE) {
+                    s.request(replenishMain);
+                }
+
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        void innerNext(FlatMapSharedInner<R> inner, R v) {
+            if (wip == 0 && WIP.compareAndSet(this, 0, 1)) {
+                long r = requested;
+
+                if (r != 0L && heldSource == null && queue.isEmpty()) {
+                    actual.onNext(v);
+
+                    if (r != Long.MAX_VALUE) {
+                        REQUESTED.decrementAndGet(this);
+                    }
+
+                    inner.request(1);
+                } else {
+                    queue.test(inner, v);
+                }
+                if (WIP.decrementAndGet(this) == 0) {
+                    return;
+                }
+
+                drainLoop();
+            } else {
+                queue.test(inner, v);
+                drain();
+            }
+        }
+
+        void innerError(FlatMapSharedInner<R> inner, Throwable e) {
+            if (ExceptionHelper.addThrowable(ERROR, this, e)) {
+                if (delayError) {
+                    queue.test(inner, COMPLETE);
+                } else {
+                    done = true;
+                }
+                drain();
+            } else {
+                UnsignalledExceptions.onErrorDropped(e);
+            }
+        }
+
+        void innerComplete(FlatMapSharedInner<R> inner) {
+            queue.test(inner, COMPLETE);
+            drain();
+        }
+
+        @Override
+        public long getCapacity() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public long getPending() {
+            return done ? -1L : queue.size() / 2;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !isTerminated() && !isCancelled();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done && get().length == 0;
+        }
+
+        @Override
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public Iterator<?> upstreams() {
+            return Arrays.asList(get()).iterator();
+        }
+
+        @Override
+        public long upstreamCount() {
+            return get().length;
+        }
+
+        @Override
+        public long requestedFromDownstream() {
+            return requested;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+    }
+
+    static final class FlatMapSharedInner<R>
+    implements Subscriber<R>, Subscription, Producer, Receiver, Trackable {
+
+        final FlatMapSharedMain<?, R> parent;
+
+        final int prefetch;
+
+        final int limit;
+
+        volatile Subscription s;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<FlatMapSharedInner, Subscription> S =
+                AtomicReferenceFieldUpdater.newUpdater(FlatMapSharedInner.class, Subscription.class, "s");
+
+        long produced;
+
+        volatile boolean done;
+
+        int index;
+
+        public FlatMapSharedInner(FlatMapSharedMain<?, R> parent, int prefetch) {
+            this.parent = parent;
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.setOnce(S, this, s)) {
+                s.request(prefetch);
+            }
+        }
+
+        @Override
+        public void onNext(R t) {
+            parent.innerNext(this, t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+            parent.innerError(this, t);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.innerComplete(this);
+        }
+
+        @Override
+        public void request(long n) {
+            long p = produced + n;
+            if (p >= limit) {
+                produced = 0L;
+                s.request(p);
+            } else {
+                produced = p;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            SubscriptionHelper.terminate(S, this);
+        }
+
+        @Override
+        public long getCapacity() {
+            return prefetch;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return s == SubscriptionHelper.cancelled();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done && !isCancelled();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public long expectedFromUpstream() {
+            return produced;
+        }
+
+        @Override
+        public long limit() {
+            return limit;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public Object downstream() {
+            return parent;
+        }
+    }
+}
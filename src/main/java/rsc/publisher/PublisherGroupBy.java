@@ -1,15 +1,21 @@
 package rsc.publisher;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -24,13 +30,27 @@ import rsc.flow.Producer;
 import rsc.flow.Receiver;
 
 import rsc.flow.Trackable;
+import rsc.scheduler.TimedScheduler;
+import rsc.scheduler.TimedScheduler.TimedWorker;
 import rsc.subscriber.SubscriptionHelper;
 import rsc.util.BackpressureHelper;
 import rsc.util.ExceptionHelper;
+import rsc.util.OpenHashLongMap;
 import rsc.util.UnsignalledExceptions;
 
 /**
  * Groups upstream items into their own Publisher sequence based on a key selector.
+ * <p>
+ * The number of live groups can be bounded: when a value with a new key arrives while
+ * {@code maxGroups} groups are live, an old group is completed to make room for the new one.
+ * The victim is picked in second-chance (CLOCK) order: groups are visited in creation
+ * order and those that received a value since the last visit are skipped once.
+ * <p>
+ * Groups can also be completed after they haven't received any value for the given
+ * idle timeout. The check runs periodically on the given TimedScheduler at half the
+ * timeout, thus a group is completed after being idle between 1 and 1.5 times the timeout.
+ * <p>
+ * A value arriving for a key whose group has been evicted starts a new group with that key.
  *
  * @param <T> the source value type
  * @param <K> the key value type
@@ -51,6 +71,14 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
 
     final int prefetch;
 
+    final int maxGroups;
+
+    final long idleTimeout;
+
+    final TimeUnit unit;
+
+    final TimedScheduler scheduler;
+
     public PublisherGroupBy(
             Publisher<? extends T> source, 
             Function<? super T, ? extends K> keySelector,
@@ -58,15 +86,65 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
             Supplier<? extends Queue<GroupedPublisher<K, V>>> mainQueueSupplier, 
             Supplier<? extends Queue<V>> groupQueueSupplier, 
             int prefetch) {
+        this(source, keySelector, valueSelector, mainQueueSupplier, groupQueueSupplier, prefetch, Integer.MAX_VALUE);
+    }
+
+    public PublisherGroupBy(
+            Publisher<? extends T> source, 
+            Function<? super T, ? extends K> keySelector,
+            Function<? super T, ? extends V> valueSelector,
+            Supplier<? extends Queue<GroupedPublisher<K, V>>> mainQueueSupplier, 
+            Supplier<? extends Queue<V>> groupQueueSupplier, 
+            int prefetch,
+            int maxGroups) {
         super(source);
         if (prefetch <= 0) {
             throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
         }
+        if (maxGroups <= 0) {
+            throw new IllegalArgumentException("maxGroups > 0 required but it was " + maxGroups);
+        }
         this.keySelector = Objects.requireNonNull(keySelector, "keySelector");
         this.valueSelector = Objects.requireNonNull(valueSelector, "valueSelector");
         this.mainQueueSupplier = Objects.requireNonNull(mainQueueSupplier, "mainQueueSupplier");
         this.groupQueueSupplier = Objects.requireNonNull(groupQueueSupplier, "groupQueueSupplier");
         this.prefetch = prefetch;
+        this.maxGroups = maxGroups;
+        this.idleTimeout = 0L;
+        this.unit = null;
+        this.scheduler = null;
+    }
+
+    public PublisherGroupBy(
+            Publisher<? extends T> source, 
+            Function<? super T, ? extends K> keySelector,
+            Function<? super T, ? extends V> valueSelector,
+            Supplier<? extends Queue<GroupedPublisher<K, V>>> mainQueueSupplier, 
+            Supplier<? extends Queue<V>> groupQueueSupplier, 
+            int prefetch,
+            int maxGroups,
+            long idleTimeout,
+            TimeUnit unit,
+            TimedScheduler scheduler) {
+        super(source);
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        if (maxGroups <= 0) {
+            throw new IllegalArgumentException("maxGroups > 0 required but it was " + maxGroups);
+        }
+        if (idleTimeout <= 0L) {
+            throw new IllegalArgumentException("idleTimeout > 0 required but it was " + idleTimeout);
+        }
+        this.keySelector = Objects.requireNonNull(keySelector, "keySelector");
+        this.valueSelector = Objects.requireNonNull(valueSelector, "valueSelector");
+        this.mainQueueSupplier = Objects.requireNonNull(mainQueueSupplier, "mainQueueSupplier");
+        this.groupQueueSupplier = Objects.requireNonNull(groupQueueSupplier, "groupQueueSupplier");
+        this.prefetch = prefetch;
+        this.maxGroups = maxGroups;
+        this.idleTimeout = idleTimeout;
+        this.unit = Objects.requireNonNull(unit, "unit");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
     }
     
     @Override
@@ -86,7 +164,24 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
             return;
         }
         
-        source.subscribe(new PublisherGroupByMain<>(s, q, groupQueueSupplier, prefetch, keySelector, valueSelector));
+        TimedWorker w = null;
+        if (scheduler != null) {
+            try {
+                w = scheduler.createWorker();
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                SubscriptionHelper.error(s, ex);
+                return;
+            }
+            
+            if (w == null) {
+                SubscriptionHelper.error(s, new NullPointerException("The scheduler returned a null TimedWorker"));
+                return;
+            }
+        }
+        
+        source.subscribe(new PublisherGroupByMain<>(s, q, groupQueueSupplier, prefetch, keySelector, null, valueSelector,
+                maxGroups, w != null ? unit.toNanos(idleTimeout) : 0L, w));
     }
 
     @Override
@@ -101,6 +196,9 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
 
         final Function<? super T, ? extends K> keySelector;
         
+        /** Extracts primitive keys instead of the keySelector, the keys are then Longs. */
+        final ToLongFunction<? super T> longKeySelector;
+        
         final Function<? super T, ? extends V> valueSelector;
         
         final Subscriber<? super GroupedPublisher<K, V>> actual;
@@ -111,8 +209,12 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
 
         final int prefetch;
         
+        /** The live groups by key; null if the keys are primitive longs. */
         final ConcurrentMap<K, UnicastGroupedPublisher<K, V>> groupMap; 
         
+        /** The live groups by primitive key, guarded by itself; null if the keys are objects. */
+        final OpenHashLongMap<UnicastGroupedPublisher<K, V>> longGroupMap;
+        
         volatile int wip;
         @SuppressWarnings("rawtypes")
         static final AtomicIntegerFieldUpdater<PublisherGroupByMain> WIP =
@@ -143,21 +245,52 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
         
         volatile boolean enableAsyncFusion;
         
+        final int maxGroups;
+        
+        /** The groups in creation order, visited when a group has to be evicted; null if unbounded. */
+        final ArrayDeque<UnicastGroupedPublisher<K, V>> evictionOrder;
+        
+        final long idleNanos;
+        
+        /** Runs the idle check; null if there is no idle timeout. */
+        final TimedWorker worker;
+        
+        /** Incremented by each idle check, stamps the groups when they receive a value. */
+        volatile long tick;
+        
+        /** A group is evicted if it hasn't received any value since this many ticks. */
+        static final long IDLE_TICKS = 3L;
+        
         public PublisherGroupByMain(
                 Subscriber<? super GroupedPublisher<K, V>> actual,
                 Queue<GroupedPublisher<K, V>> queue, 
                 Supplier<? extends Queue<V>> groupQueueSupplier, 
                 int prefetch,
                 Function<? super T, ? extends K> keySelector,
-                Function<? super T, ? extends V> valueSelector
+                ToLongFunction<? super T> longKeySelector,
+                Function<? super T, ? extends V> valueSelector,
+                int maxGroups,
+                long idleNanos,
+                TimedWorker worker
                 ) {
             this.actual = actual;
             this.queue = queue;
             this.groupQueueSupplier = groupQueueSupplier;
             this.prefetch = prefetch;
-            this.groupMap = new ConcurrentHashMap<>();
+            if (longKeySelector != null) {
+                this.groupMap = null;
+                this.longGroupMap = new OpenHashLongMap<>();
+            } else {
+                this.groupMap = new ConcurrentHashMap<>();
+                this.longGroupMap = null;
+            }
             this.keySelector = keySelector;
+            this.longKeySelector = longKeySelector;
             this.valueSelector = valueSelector;
+            this.maxGroups = maxGroups;
+            this.evictionOrder = maxGroups != Integer.MAX_VALUE ? new ArrayDeque<>() : null;
+            this.idleNanos = idleNanos;
+            this.worker = worker;
             GROUP_COUNT.lazySet(this, 1);
         }
 
@@ -166,17 +299,29 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
             if (SubscriptionHelper.validate(this.s, s)) {
                 this.s = s;
                 actual.onSubscribe(this);
+                TimedWorker w = worker;
+                if (w != null) {
+                    long period = Math.max(1L, idleNanos >> 1);
+                    w.schedulePeriodically(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+                }
                 s.request(prefetch);
             }
         }
         
         @Override
         public void onNext(T t) {
+            ToLongFunction<? super T> lks = longKeySelector;
             K key;
+            long longKey = 0L;
             V value;
             
             try {
-                key = keySelector.apply(t);
+                if (lks != null) {
+                    longKey = lks.applyAsLong(t);
+                    key = null;
+                } else {
+                    key = keySelector.apply(t);
+                }
                 value = valueSelector.apply(t);
             } catch (Throwable ex) {
                 ExceptionHelper.throwIfFatal(ex);
@@ -185,7 +330,7 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
                 onError(ex);
                 return;
             }
-            if (key == null) {
+            if (lks == null && key == null) {
                 s.cancel();
                 onError(new NullPointerException("The keySelector returned a null value"));
                 return;
@@ -196,31 +341,183 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
                 return;
             }
             
-            UnicastGroupedPublisher<K, V> g = groupMap.get(key);
+            UnicastGroupedPublisher<K, V> g;
+            if (lks != null) {
+                OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+                synchronized (m) {
+                    g = m.get(longKey);
+                }
+            } else {
+                g = groupMap.get(key);
+            }
             
-            if (g == null) {
-                // if the main is cancelled, don't create new groups
-                if (cancelled == 0) {
-                    Queue<V> q;
-                    
-                    try {
-                        q = groupQueueSupplier.get();
-                    } catch (Throwable ex) {
-                        s.cancel();
-                        onError(ex);
-                        return;
-                    }
-                    
-                    GROUP_COUNT.getAndIncrement(this);
-                    g = new UnicastGroupedPublisher<>(key, q, this, prefetch);
+            if (g != null) {
+                if (worker == null) {
+                    g.referenced = true;
+                    g.onNext(value);
+                    return;
+                }
+                long last = g.lastActive;
+                if (last == UnicastGroupedPublisher.BUSY) {
+                    // reentrant call from the group's downstream requesting more, the outer call will exit
+                    g.referenced = true;
                     g.onNext(value);
+                    return;
+                }
+                if (g.enter(last)) {
+                    g.referenced = true;
+                    g.onNext(value);
+                    g.exit(tick);
+                    return;
+                }
+                // the group has just been evicted as idle, start a new one for the key
+            }
+            
+            // if the main is cancelled, don't create new groups
+            if (cancelled == 0) {
+                ArrayDeque<UnicastGroupedPublisher<K, V>> order = evictionOrder;
+                if (order != null) {
+                    evictForNewGroup(order);
+                }
+                
+                Queue<V> q;
+                
+                try {
+                    q = groupQueueSupplier.get();
+                } catch (Throwable ex) {
+                    s.cancel();
+                    onError(ex);
+                    return;
+                }
+                
+                GROUP_COUNT.getAndIncrement(this);
+                if (lks != null) {
+                    key = boxKey(longKey);
+                }
+                g = new UnicastGroupedPublisher<>(key, q, this, prefetch, tick);
+                g.onNext(value);
+                if (lks != null) {
+                    OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+                    synchronized (m) {
+                        m.put(longKey, g);
+                    }
+                } else {
                     groupMap.put(key, g);
-                    
-                    queue.offer(g);
-                    drain();
+                }
+                
+                if (order != null) {
+                    order.offer(g);
+                    // drop the groups that terminated on their own
+                    if (order.size() - maxGroups > maxGroups) {
+                        order.removeIf(UnicastGroupedPublisher::isTerminatedGroup);
+                    }
+                }
+                
+                queue.offer(g);
+                drain();
+            }
+        }
+        
+        /**
+         * Completes old groups, in second-chance order, until there is room for a new group.
+         * Called from onNext only.
+         * @param order the groups in creation order
+         */
+        void evictForNewGroup(ArrayDeque<UnicastGroupedPublisher<K, V>> order) {
+            // the group an outer onNext is routing to when called reentrantly
+            UnicastGroupedPublisher<K, V> busy = null;
+            
+            while (liveGroups() >= maxGroups) {
+                UnicastGroupedPublisher<K, V> g = order.poll();
+                if (g == null) {
+                    break;
+                }
+                if (g.isTerminatedGroup()) {
+                    continue;
+                }
+                if (g.referenced) {
+                    g.referenced = false;
+                    order.offer(g);
+                    continue;
+                }
+                long t = g.lastActive;
+                if (g.evict(t)) {
+                    g.onComplete();
+                } else
+                if (t == UnicastGroupedPublisher.BUSY) {
+                    busy = g;
+                }
+            }
+            
+            if (busy != null) {
+                order.offer(busy);
+            }
+        }
+        
+        /**
+         * Completes the groups that haven't received any value for the idle timeout.
+         * Runs periodically on the worker.
+         */
+        void evictIdle() {
+            long now = tick + 1;
+            tick = now;
+            
+            for (UnicastGroupedPublisher<K, V> g : groups()) {
+                long t = g.lastActive;
+                if (now - t >= IDLE_TICKS && g.evict(t)) {
+                    g.onComplete();
+                }
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        K boxKey(long key) {
+            return (K)Long.valueOf(key);
+        }
+        
+        int liveGroups() {
+            OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+            if (m != null) {
+                synchronized (m) {
+                    return m.size();
+                }
+            }
+            return groupMap.size();
+        }
+        
+        /**
+         * Returns the live groups; a snapshot if the keys are primitive so
+         * the groups can be terminated while iterating.
+         * @return the live groups
+         */
+        Collection<UnicastGroupedPublisher<K, V>> groups() {
+            OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+            if (m != null) {
+                List<UnicastGroupedPublisher<K, V>> list;
+                synchronized (m) {
+                    list = new ArrayList<>(m.size());
+                    m.forEach(list::add);
+                }
+                return list;
+            }
+            return groupMap.values();
+        }
+        
+        void clearGroups() {
+            OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+            if (m != null) {
+                synchronized (m) {
+                    m.clear();
                 }
             } else {
-                g.onNext(value);
+                groupMap.clear();
+            }
+        }
+        
+        void stopEviction() {
+            TimedWorker w = worker;
+            if (w != null) {
+                w.shutdown();
             }
         }
         
@@ -236,10 +533,13 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
         
         @Override
         public void onComplete() {
-            for (UnicastGroupedPublisher<K, V> g : groupMap.values()) {
-                g.onComplete();
+            stopEviction();
+            for (UnicastGroupedPublisher<K, V> g : groups()) {
+                if (g.terminate()) {
+                    g.onComplete();
+                }
             }
-            groupMap.clear();
+            clearGroups();
             GROUP_COUNT.decrementAndGet(this);
             done = true;
             drain();
@@ -277,12 +577,16 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
 
         @Override
         public Iterator<?> downstreams() {
-            return groupMap.values().iterator();
+            return groups().iterator();
         }
 
+        /**
+         * Returns the number of live groups.
+         * @return the number of live groups
+         */
         @Override
         public long downstreamCount() {
-            return GROUP_COUNT.get(this);
+            return liveGroups();
         }
 
         @Override
@@ -301,13 +605,16 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
         }
 
         void signalAsyncError() {
+            stopEviction();
             Throwable e = ExceptionHelper.terminate(ERROR, this);
             groupCount = 0;
-            for (UnicastGroupedPublisher<K, V> g : groupMap.values()) {
-                g.onError(e);
+            for (UnicastGroupedPublisher<K, V> g : groups()) {
+                if (g.terminate()) {
+                    g.onError(e);
+                }
             }
             actual.onError(e);
-            groupMap.clear();
+            clearGroups();
         }
         
         @Override
@@ -322,6 +629,7 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
         public void cancel() {
             if (CANCELLED.compareAndSet(this, 0, 1)) {
                 if (GROUP_COUNT.decrementAndGet(this) == 0) {
+                    stopEviction();
                     s.cancel();
                 } else {
                     if (!enableAsyncFusion) {
@@ -343,12 +651,21 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
             }
         }
         
-        void groupTerminated(K key) {
+        void groupTerminated(K key, UnicastGroupedPublisher<K, V> g) {
             if (groupCount == 0) {
                 return;
             }
-            groupMap.remove(key);
+            // the key may already be mapped to a new group if this one was evicted
+            OpenHashLongMap<UnicastGroupedPublisher<K, V>> m = longGroupMap;
+            if (m != null) {
+                synchronized (m) {
+                    m.remove((Long)key, g);
+                }
+            } else {
+                groupMap.remove(key, g);
+            }
             if (GROUP_COUNT.decrementAndGet(this) == 0) {
+                stopEviction();
                 s.cancel();
             }
         }
@@ -516,6 +833,10 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
         
         final Queue<V> queue;
         
+        /** Replenishes the values this group delivers, even after it has been evicted. */
+        final PublisherGroupByMain<?, K, V> main;
+        
+        /** Cleared once the group has been terminated and removed from the main's map. */
         volatile PublisherGroupByMain<?, K, V> parent;
         @SuppressWarnings("rawtypes")
         static final AtomicReferenceFieldUpdater<UnicastGroupedPublisher, PublisherGroupByMain> PARENT =
@@ -550,20 +871,77 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
 
         int produced;
         
-        public UnicastGroupedPublisher(K key, Queue<V> queue, PublisherGroupByMain<?, K, V> parent, int prefetch) {
+        /** 
+         * The tick of the last value routed to this group, {@link #BUSY} while a value is being routed
+         * or {@link #EVICTED} once the group has been picked for completion by the main.
+         */
+        volatile long lastActive;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<UnicastGroupedPublisher> LAST_ACTIVE =
+                AtomicLongFieldUpdater.newUpdater(UnicastGroupedPublisher.class, "lastActive");
+        
+        static final long BUSY = Long.MAX_VALUE;
+        
+        static final long EVICTED = Long.MIN_VALUE;
+        
+        /** Set when the group receives a value, cleared by the main's eviction scan; accessed from onNext only. */
+        boolean referenced;
+        
+        public UnicastGroupedPublisher(K key, Queue<V> queue, PublisherGroupByMain<?, K, V> parent, int prefetch, long tick) {
             this.key = key;
             this.queue = queue;
+            this.main = parent;
             this.parent = parent;
             this.limit = prefetch - (prefetch >> 2);
+            this.referenced = true;
+            LAST_ACTIVE.lazySet(this, tick);
         }
         
         void doTerminate() {
             PublisherGroupByMain<?, K, V> r = parent;
             if (r != null && PARENT.compareAndSet(this, r, null)) {
-                r.groupTerminated(key);
+                r.groupTerminated(key, this);
             }
         }
         
+        boolean isTerminatedGroup() {
+            return parent == null;
+        }
+        
+        /**
+         * Marks the group busy so it can't be evicted while the main routes a value to it.
+         * @param expected the lastActive value read by the caller
+         * @return false if the group has been evicted
+         */
+        boolean enter(long expected) {
+            return expected != EVICTED && LAST_ACTIVE.compareAndSet(this, expected, BUSY);
+        }
+        
+        /**
+         * Stamps the group with the current tick unless the main has terminated it meanwhile.
+         * @param tick the current tick
+         */
+        void exit(long tick) {
+            LAST_ACTIVE.compareAndSet(this, BUSY, tick);
+        }
+        
+        /**
+         * Atomically picks this group for completion unless it is busy or already picked.
+         * @param expected the lastActive value the caller decided on
+         * @return true if the caller should complete the group
+         */
+        boolean evict(long expected) {
+            return expected != BUSY && expected != EVICTED && LAST_ACTIVE.compareAndSet(this, expected, EVICTED);
+        }
+        
+        /**
+         * Picks this group for completion due to the main terminating.
+         * @return true if the caller should terminate the group
+         */
+        boolean terminate() {
+            return LAST_ACTIVE.getAndSet(this, EVICTED) != EVICTED;
+        }
+        
         void drainRegular(Subscriber<? super V> a) {
             int missed = 1;
             
@@ -600,10 +978,7 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
                 }
                 
                 if (e != 0) {
-                    PublisherGroupByMain<?, K, V> main = parent;
-                    if (main != null) {
-                        main.requestInner(e);
-                    }
+                    main.requestInner(e);
                     if (r != Long.MAX_VALUE) {
                         REQUESTED.addAndGet(this, -e);
                     }
@@ -781,10 +1156,7 @@ public final class PublisherGroupBy<T, K, V> extends PublisherSource<T, GroupedP
                 int p = produced;
                 if (p != 0) {
                     produced = 0;
-                    PublisherGroupByMain<?, K, V> main = parent;
-                    if (main != null) {
-                        main.requestInner(p);
-                    }
+                    main.requestInner(p);
                 }
             }
             return v;
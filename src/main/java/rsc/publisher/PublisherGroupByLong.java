@@ -0,0 +1,166 @@
+package rsc.publisher;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.documentation.FusionMode;
+import rsc.documentation.FusionSupport;
+import rsc.flow.Fuseable;
+import rsc.publisher.PublisherGroupBy.PublisherGroupByMain;
+import rsc.scheduler.TimedScheduler;
+import rsc.scheduler.TimedScheduler.TimedWorker;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.ExceptionHelper;
+
+/**
+ * Groups upstream items into their own Publisher sequence based on a primitive long key selector.
+ * <p>
+ * Works like {@link PublisherGroupBy} but the live groups are tracked in an open hash map
+ * keyed by primitive longs, thus routing a value doesn't box its key nor does a live group
+ * cost a map entry object. The key is boxed only once, when its group is created.
+ *
+ * @param <T> the source value type
+ * @param <V> the group item value type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, innerOutput = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(innerOutput = { FusionMode.ASYNC}, output = { FusionMode.ASYNC })
+public final class PublisherGroupByLong<T, V> extends PublisherSource<T, GroupedPublisher<Long, V>>
+        implements Fuseable {
+
+    final ToLongFunction<? super T> keySelector;
+
+    final Function<? super T, ? extends V> valueSelector;
+
+    final Supplier<? extends Queue<V>> groupQueueSupplier;
+
+    final Supplier<? extends Queue<GroupedPublisher<Long, V>>> mainQueueSupplier;
+
+    final int prefetch;
+
+    final int maxGroups;
+
+    final long idleTimeout;
+
+    final TimeUnit unit;
+
+    final TimedScheduler scheduler;
+
+    public PublisherGroupByLong(
+            Publisher<? extends T> source,
+            ToLongFunction<? super T> keySelector,
+            Function<? super T, ? extends V> valueSelector,
+            Supplier<? extends Queue<GroupedPublisher<Long, V>>> mainQueueSupplier,
+            Supplier<? extends Queue<V>> groupQueueSupplier,
+            int prefetch) {
+        this(source, keySelector, valueSelector, mainQueueSupplier, groupQueueSupplier, prefetch, Integer.MAX_VALUE);
+    }
+
+    public PublisherGroupByLong(
+            Publisher<? extends T> source,
+            ToLongFunction<? super T> keySelector,
+            Function<? super T, ? extends V> valueSelector,
+            Supplier<? extends Queue<GroupedPublisher<Long, V>>> mainQueueSupplier,
+            Supplier<? extends Queue<V>> groupQueueSupplier,
+            int prefetch,
+            int maxGroups) {
+        super(source);
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        if (maxGroups <= 0) {
+            throw new IllegalArgumentException("maxGroups > 0 required but it was " + maxGroups);
+        }
+        this.keySelector = Objects.requireNonNull(keySelector, "keySelector");
+        this.valueSelector = Objects.requireNonNull(valueSelector, "valueSelector");
+        this.mainQueueSupplier = Objects.requireNonNull(mainQueueSupplier, "mainQueueSupplier");
+        this.groupQueueSupplier = Objects.requireNonNull(groupQueueSupplier, "groupQueueSupplier");
+        this.prefetch = prefetch;
+        this.maxGroups = maxGroups;
+        this.idleTimeout = 0L;
+        this.unit = null;
+        this.scheduler = null;
+    }
+
+    public PublisherGroupByLong(
+            Publisher<? extends T> source,
+            ToLongFunction<? super T> keySelector,
+            Function<? super T, ? extends V> valueSelector,
+            Supplier<? extends Queue<GroupedPublisher<Long, V>>> mainQueueSupplier,
+            Supplier<? extends Queue<V>> groupQueueSupplier,
+            int prefetch,
+            int maxGroups,
+            long idleTimeout,
+            TimeUnit unit,
+            TimedScheduler scheduler) {
+        super(source);
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        if (maxGroups <= 0) {
+            throw new IllegalArgumentException("maxGroups > 0 required but it was " + maxGroups);
+        }
+        if (idleTimeout <= 0L) {
+            throw new IllegalArgumentException("idleTimeout > 0 required but it was " + idleTimeout);
+        }
+        this.keySelector = Objects.requireNonNull(keySelector, "keySelector");
+        this.valueSelector = Objects.requireNonNull(valueSelector, "valueSelector");
+        this.mainQueueSupplier = Objects.requireNonNull(mainQueueSupplier, "mainQueueSupplier");
+        this.groupQueueSupplier = Objects.requireNonNull(groupQueueSupplier, "groupQueueSupplier");
+        this.prefetch = prefetch;
+        this.maxGroups = maxGroups;
+        this.idleTimeout = idleTimeout;
+        this.unit = Objects.requireNonNull(unit, "unit");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super GroupedPublisher<Long, V>> s) {
+        Queue<GroupedPublisher<Long, V>> q;
+
+        try {
+            q = mainQueueSupplier.get();
+        } catch (Throwable ex) {
+            ExceptionHelper.throwIfFatal(ex);
+            SubscriptionHelper.error(s, ex);
+            return;
+        }
+
+        if (q == null) {
+            SubscriptionHelper.error(s, new NullPointerException("The mainQueueSupplier returned a null queue"));
+            return;
+        }
+
+        TimedWorker w = null;
+        if (scheduler != null) {
+            try {
+                w = scheduler.createWorker();
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                SubscriptionHelper.error(s, ex);
+                return;
+            }
+
+            if (w == null) {
+                SubscriptionHelper.error(s, new NullPointerException("The scheduler returned a null TimedWorker"));
+                return;
+            }
+        }
+
+        source.subscribe(new PublisherGroupByMain<T, Long, V>(s, q, groupQueueSupplier, prefetch, null, keySelector, valueSelector,
+                maxGroups, w != null ? unit.toNanos(idleTimeout) : 0L, w));
+    }
+
+    @Override
+    public long getPrefetch() {
+        return prefetch;
+    }
+}
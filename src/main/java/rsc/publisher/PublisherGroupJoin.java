@@ -23,6 +23,7 @@ import rsc.processor.UnicastProcessor;
 import rsc.subscriber.SubscriptionHelper;
 import rsc.util.BackpressureHelper;
 import rsc.util.ExceptionHelper;
+import rsc.util.MpscLinkedArrayQueue;
 import rsc.util.OpenHashSet;
 import rsc.util.UnsignalledExceptions;
 
@@ -123,6 +124,9 @@ public final class PublisherGroupJoin<TLeft, TRight, TLeftEnd, TRightEnd, R> ext
         final         Queue<Object>               queue;
         final BiPredicate<Object, Object> queueBiOffer;
 
+        /** True if the queue accepts concurrent pair offers without external locking. */
+        final boolean queueMultiProducer;
+
         final OpenHashSet<Disposable> cancellations;
 
         final Map<Integer, UnicastProcessor<TRight>> lefts;
@@ -196,6 +200,7 @@ public final class PublisherGroupJoin<TLeft, TRight, TLeftEnd, TRightEnd, R> ext
 				        "BiPredicate to expose atomic dual insert");
 	        }
 	        this.queueBiOffer = (BiPredicate<Object, Object>)queue;
+	        this.queueMultiProducer = queue instanceof MpscLinkedArrayQueue;
 	        this.lefts = new LinkedHashMap<>();
 	        this.rights = new LinkedHashMap<>();
 	        this.leftEnd = leftEnd;
@@ -446,19 +451,25 @@ public final class PublisherGroupJoin<TLeft, TRight, TLeftEnd, TRightEnd, R> ext
             drain();
         }
 
+        void offer(Object mode, Object value) {
+            if (queueMultiProducer) {
+                queueBiOffer.test(mode, value);
+            } else {
+                synchronized (this) {
+                    queueBiOffer.test(mode, value);
+                }
+            }
+        }
+
         @Override
         public void innerValue(boolean isLeft, Object o) {
-	        synchronized (this) {
-		        queueBiOffer.test(isLeft ? LEFT_VALUE : RIGHT_VALUE, o);
-	        }
+            offer(isLeft ? LEFT_VALUE : RIGHT_VALUE, o);
             drain();
         }
 
         @Override
         public void innerClose(boolean isLeft, LeftRightEndSubscriber index) {
-	        synchronized (this) {
-		        queueBiOffer.test(isLeft ? LEFT_CLOSE : RIGHT_CLOSE, index);
-	        }
+            offer(isLeft ? LEFT_CLOSE : RIGHT_CLOSE, index);
             drain();
         }
 
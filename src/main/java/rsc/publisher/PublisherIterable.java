@@ -23,7 +23,7 @@ import rsc.subscriber.SubscriptionHelper;
  * @param <T> the value type
  */
 @BackpressureSupport(input = BackpressureMode.NOT_APPLICABLE, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.CONDITIONAL })
+@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.BATCH, FusionMode.CONDITIONAL })
 public final class PublisherIterable<T> 
 extends Px<T>
         implements Receiver, Fuseable {
@@ -86,7 +86,7 @@ extends Px<T>
     }
 
     static final class IterableSubscription<T>
-            implements Producer, Trackable, SynchronousSubscription<T> {
+            implements Producer, Trackable, BatchSubscription<T> {
 
         final Subscriber<? super T> actual;
 
@@ -321,6 +321,30 @@ extends Px<T>
             return null;
         }
         
+        @Override
+        public int poll(Object[] buffer, int max) {
+            T c = poll();
+            if (c == null) {
+                return 0;
+            }
+            buffer[0] = c;
+
+            final Iterator<? extends T> a = iterator;
+            int n = 1;
+            while (n != max) {
+                if (!a.hasNext()) {
+                    state = STATE_NO_NEXT;
+                    break;
+                }
+                c = a.next();
+                if (c == null) {
+                    throw new NullPointerException();
+                }
+                buffer[n++] = c;
+            }
+            return n;
+        }
+
         @Override
         public int size() {
             if (state == STATE_NO_NEXT) {
@@ -331,7 +355,7 @@ extends Px<T>
     }
 
     static final class IterableSubscriptionConditional<T>
-            implements Producer, Trackable, Subscription, SynchronousSubscription<T> {
+            implements Producer, Trackable, Subscription, BatchSubscription<T> {
 
         final ConditionalSubscriber<? super T> actual;
 
@@ -565,6 +589,30 @@ extends Px<T>
             return null;
         }
         
+        @Override
+        public int poll(Object[] buffer, int max) {
+            T c = poll();
+            if (c == null) {
+                return 0;
+            }
+            buffer[0] = c;
+
+            final Iterator<? extends T> a = iterator;
+            int n = 1;
+            while (n != max) {
+                if (!a.hasNext()) {
+                    state = STATE_NO_NEXT;
+                    break;
+                }
+                c = a.next();
+                if (c == null) {
+                    throw new NullPointerException();
+                }
+                buffer[n++] = c;
+            }
+            return n;
+        }
+
         @Override
         public int size() {
             if (state == STATE_NO_NEXT) {
@@ -25,6 +25,7 @@ import rsc.publisher.PublisherGroupJoin.LeftRightSubscriber;
 import rsc.subscriber.SubscriptionHelper;
 import rsc.util.BackpressureHelper;
 import rsc.util.ExceptionHelper;
+import rsc.util.MpscLinkedArrayQueue;
 import rsc.util.OpenHashSet;
 import rsc.util.UnsignalledExceptions;
 
@@ -101,6 +102,9 @@ public final class PublisherJoin<TLeft, TRight, TLeftEnd, TRightEnd, R>
 		final Queue<Object>               queue;
 		final BiPredicate<Object, Object> queueBiOffer;
 
+		/** True if the queue accepts concurrent pair offers without external locking. */
+		final boolean queueMultiProducer;
+
 		final OpenHashSet<Disposable> cancellations;
 
 		final Map<Integer, TLeft> lefts;
@@ -169,6 +173,7 @@ public final class PublisherJoin<TLeft, TRight, TLeftEnd, TRightEnd, R>
 						"BiPredicate to expose atomic dual insert");
 			}
 			this.queueBiOffer = (BiPredicate<Object, Object>)queue;
+			this.queueMultiProducer = queue instanceof MpscLinkedArrayQueue;
 			this.lefts = new LinkedHashMap<>();
 			this.rights = new LinkedHashMap<>();
 			this.leftEnd = leftEnd;
@@ -479,19 +484,25 @@ public final class PublisherJoin<TLeft, TRight, TLeftEnd, TRightEnd, R>
 			drain();
 		}
 
+		void offer(Object mode, Object value) {
+			if (queueMultiProducer) {
+				queueBiOffer.test(mode, value);
+			} else {
+				synchronized (this) {
+					queueBiOffer.test(mode, value);
+				}
+			}
+		}
+
 		@Override
 		public void innerValue(boolean isLeft, Object o) {
-			synchronized (this) {
-				queueBiOffer.test(isLeft ? LEFT_VALUE : RIGHT_VALUE, o);
-			}
+			offer(isLeft ? LEFT_VALUE : RIGHT_VALUE, o);
 			drain();
 		}
 
 		@Override
 		public void innerClose(boolean isLeft, LeftRightEndSubscriber index) {
-			synchronized (this) {
-				queueBiOffer.test(isLeft ? LEFT_CLOSE : RIGHT_CLOSE, index);
-			}
+			offer(isLeft ? LEFT_CLOSE : RIGHT_CLOSE, index);
 			drain();
 		}
 
@@ -0,0 +1,422 @@
+package rsc.publisher;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.publisher.PublisherGroupJoin.JoinSupport;
+import rsc.publisher.PublisherGroupJoin.LeftRightEndSubscriber;
+import rsc.publisher.PublisherGroupJoin.LeftRightSubscriber;
+import rsc.scheduler.TimedScheduler;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.BackpressureHelper;
+import rsc.util.ExceptionHelper;
+import rsc.util.MpscLinkedArrayQueue;
+import rsc.util.TimedKeyIndex;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Correlates the items of two Publishers which have the same key and overlap in time.
+ * <p>
+ * Each item stays alive for a fixed duration of its side after its arrival. The live items
+ * of each side are indexed by key in a {@link TimedKeyIndex}, so an arriving item only visits
+ * the live items of the other side with an equal key and expired items are dropped in
+ * arrival order without a timer or end Publisher per item. The two sides hand their items
+ * to the single drain loop through a lock-free queue.
+ * <p>
+ * The items with the same key are combined in the arrival order of the other side's items.
+ *
+ * @param <TLeft> the value type of the source Publisher
+ * @param <TRight> the value type of the other Publisher
+ * @param <K> the key type
+ * @param <R> the result value type
+ */
+@BackpressureSupport(input = BackpressureMode.UNBOUNDED, output = BackpressureMode.ERROR)
+public final class PublisherJoinKeyed<TLeft, TRight, K, R> extends PublisherSource<TLeft, R> {
+
+    final Publisher<? extends TRight> other;
+
+    final Function<? super TLeft, ? extends K> leftKey;
+
+    final Function<? super TRight, ? extends K> rightKey;
+
+    final long leftDuration;
+
+    final long rightDuration;
+
+    final TimeUnit unit;
+
+    final TimedScheduler scheduler;
+
+    final BiFunction<? super TLeft, ? super TRight, ? extends R> resultSelector;
+
+    /**
+     * Constructs a PublisherJoinKeyed.
+     * @param source the left Publisher
+     * @param other the right Publisher
+     * @param leftKey the function extracting the key of the left items
+     * @param rightKey the function extracting the key of the right items
+     * @param leftDuration how long a left item can be matched after its arrival, zero
+     * to match it only with the right items alive at its arrival
+     * @param rightDuration how long a right item can be matched after its arrival, zero
+     * to match it only with the left items alive at its arrival
+     * @param unit the unit of the durations
+     * @param scheduler the scheduler whose {@code now()} provides the time
+     * @param resultSelector the function combining a left and a right item with the same key
+     */
+    public PublisherJoinKeyed(Publisher<? extends TLeft> source,
+            Publisher<? extends TRight> other,
+            Function<? super TLeft, ? extends K> leftKey,
+            Function<? super TRight, ? extends K> rightKey,
+            long leftDuration, long rightDuration, TimeUnit unit, TimedScheduler scheduler,
+            BiFunction<? super TLeft, ? super TRight, ? extends R> resultSelector) {
+        super(source);
+        if (leftDuration < 0L) {
+            throw new IllegalArgumentException("leftDuration >= 0 required but it was " + leftDuration);
+        }
+        if (rightDuration < 0L) {
+            throw new IllegalArgumentException("rightDuration >= 0 required but it was " + rightDuration);
+        }
+        this.other = Objects.requireNonNull(other, "other");
+        this.leftKey = Objects.requireNonNull(leftKey, "leftKey");
+        this.rightKey = Objects.requireNonNull(rightKey, "rightKey");
+        this.leftDuration = leftDuration;
+        this.rightDuration = rightDuration;
+        this.unit = Objects.requireNonNull(unit, "unit");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.resultSelector = Objects.requireNonNull(resultSelector, "resultSelector");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+        TimedKeyIndex<K, TLeft> lefts = leftDuration != 0L ? new TimedKeyIndex<>(leftDuration, unit, scheduler) : null;
+        TimedKeyIndex<K, TRight> rights = rightDuration != 0L ? new TimedKeyIndex<>(rightDuration, unit, scheduler) : null;
+
+        JoinKeyedSubscription<TLeft, TRight, K, R> parent =
+                new JoinKeyedSubscription<>(s, leftKey, rightKey, lefts, rights, resultSelector);
+
+        s.onSubscribe(parent);
+
+        source.subscribe(parent.left);
+        other.subscribe(parent.right);
+    }
+
+    static final class JoinKeyedSubscription<TLeft, TRight, K, R>
+    implements Subscription, JoinSupport {
+
+        final Subscriber<? super R> actual;
+
+        final MpscLinkedArrayQueue<Object> queue;
+
+        final Function<? super TLeft, ? extends K> leftKey;
+
+        final Function<? super TRight, ? extends K> rightKey;
+
+        /** The live left items by key, null if they are not retained at all. */
+        final TimedKeyIndex<K, TLeft> lefts;
+
+        /** The live right items by key, null if they are not retained at all. */
+        final TimedKeyIndex<K, TRight> rights;
+
+        final BiFunction<? super TLeft, ? super TRight, ? extends R> resultSelector;
+
+        final LeftRightSubscriber left;
+
+        final LeftRightSubscriber right;
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<JoinKeyedSubscription> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(JoinKeyedSubscription.class, "wip");
+
+        volatile int active;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<JoinKeyedSubscription> ACTIVE =
+                AtomicIntegerFieldUpdater.newUpdater(JoinKeyedSubscription.class, "active");
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<JoinKeyedSubscription> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(JoinKeyedSubscription.class, "requested");
+
+        volatile Throwable error;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<JoinKeyedSubscription, Throwable> ERROR =
+                AtomicReferenceFieldUpdater.newUpdater(JoinKeyedSubscription.class, Throwable.class, "error");
+
+        volatile boolean cancelled;
+
+        static final Object LEFT_VALUE = new Object();
+
+        static final Object RIGHT_VALUE = new Object();
+
+        public JoinKeyedSubscription(Subscriber<? super R> actual,
+                Function<? super TLeft, ? extends K> leftKey,
+                Function<? super TRight, ? extends K> rightKey,
+                TimedKeyIndex<K, TLeft> lefts,
+                TimedKeyIndex<K, TRight> rights,
+                BiFunction<? super TLeft, ? super TRight, ? extends R> resultSelector) {
+            this.actual = actual;
+            this.queue = new MpscLinkedArrayQueue<>(Px.BUFFER_SIZE);
+            this.leftKey = leftKey;
+            this.rightKey = rightKey;
+            this.lefts = lefts;
+            this.rights = rights;
+            this.resultSelector = resultSelector;
+            this.left = new LeftRightSubscriber(this, true);
+            this.right = new LeftRightSubscriber(this, false);
+            ACTIVE.lazySet(this, 2);
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelAll();
+            if (WIP.getAndIncrement(this) == 0) {
+                clear();
+            }
+        }
+
+        void cancelAll() {
+            left.dispose();
+            right.dispose();
+        }
+
+        void clear() {
+            queue.clear();
+            if (lefts != null) {
+                lefts.clear();
+            }
+            if (rights != null) {
+                rights.clear();
+            }
+        }
+
+        void fail(Throwable exc, Subscriber<?> a) {
+            ExceptionHelper.throwIfFatal(exc);
+            ExceptionHelper.addThrowable(ERROR, this, ExceptionHelper.unwrap(exc));
+            errorAll(a);
+        }
+
+        void errorAll(Subscriber<?> a) {
+            Throwable ex = ExceptionHelper.terminate(ERROR, this);
+
+            clear();
+            cancelAll();
+
+            a.onError(ex);
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+
+            int missed = 1;
+            MpscLinkedArrayQueue<Object> q = queue;
+            Subscriber<? super R> a = actual;
+
+            for (;;) {
+                for (;;) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+
+                    if (error != null) {
+                        errorAll(a);
+                        return;
+                    }
+
+                    boolean d = active == 0;
+
+                    Object mode = q.poll();
+
+                    boolean empty = mode == null;
+
+                    if (d && empty) {
+                        clear();
+
+                        a.onComplete();
+                        return;
+                    }
+
+                    if (empty) {
+                        break;
+                    }
+
+                    Object val = q.poll();
+
+                    boolean ok;
+                    if (mode == LEFT_VALUE) {
+                        @SuppressWarnings("unchecked")
+                        TLeft v = (TLeft)val;
+                        ok = leftValue(v, a);
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        TRight v = (TRight)val;
+                        ok = rightValue(v, a);
+                    }
+
+                    if (!ok) {
+                        return;
+                    }
+                }
+
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        boolean leftValue(TLeft v, Subscriber<? super R> a) {
+            K key;
+
+            try {
+                key = Objects.requireNonNull(leftKey.apply(v), "The leftKey returned a null key");
+            } catch (Throwable exc) {
+                fail(exc, a);
+                return false;
+            }
+
+            if (lefts != null) {
+                lefts.put(key, v);
+            }
+
+            if (rights == null) {
+                return true;
+            }
+
+            long r = requested;
+            long e = 0L;
+
+            for (TRight w : rights.get(key)) {
+                R result;
+
+                try {
+                    result = Objects.requireNonNull(resultSelector.apply(v, w), "The resultSelector returned a null value");
+                } catch (Throwable exc) {
+                    fail(exc, a);
+                    return false;
+                }
+
+                if (!emit(a, result, e, r)) {
+                    return false;
+                }
+                e++;
+            }
+
+            produced(e, r);
+            return true;
+        }
+
+        boolean rightValue(TRight v, Subscriber<? super R> a) {
+            K key;
+
+            try {
+                key = Objects.requireNonNull(rightKey.apply(v), "The rightKey returned a null key");
+            } catch (Throwable exc) {
+                fail(exc, a);
+                return false;
+            }
+
+            if (rights != null) {
+                rights.put(key, v);
+            }
+
+            if (lefts == null) {
+                return true;
+            }
+
+            long r = requested;
+            long e = 0L;
+
+            for (TLeft w : lefts.get(key)) {
+                R result;
+
+                try {
+                    result = Objects.requireNonNull(resultSelector.apply(w, v), "The resultSelector returned a null value");
+                } catch (Throwable exc) {
+                    fail(exc, a);
+                    return false;
+                }
+
+                if (!emit(a, result, e, r)) {
+                    return false;
+                }
+                e++;
+            }
+
+            produced(e, r);
+            return true;
+        }
+
+        boolean emit(Subscriber<? super R> a, R result, long e, long r) {
+            if (e != r) {
+                a.onNext(result);
+                return true;
+            }
+            ExceptionHelper.addThrowable(ERROR, this, new IllegalStateException("Could not emit value due to lack of requests"));
+            errorAll(a);
+            return false;
+        }
+
+        void produced(long e, long r) {
+            if (e != 0L && r != Long.MAX_VALUE) {
+                REQUESTED.addAndGet(this, -e);
+            }
+        }
+
+        @Override
+        public void innerError(Throwable ex) {
+            if (ExceptionHelper.addThrowable(ERROR, this, ex)) {
+                ACTIVE.decrementAndGet(this);
+                drain();
+            } else {
+                UnsignalledExceptions.onErrorDropped(ex);
+            }
+        }
+
+        @Override
+        public void innerComplete(LeftRightSubscriber sender) {
+            ACTIVE.decrementAndGet(this);
+            drain();
+        }
+
+        @Override
+        public void innerValue(boolean isLeft, Object o) {
+            queue.test(isLeft ? LEFT_VALUE : RIGHT_VALUE, o);
+            drain();
+        }
+
+        @Override
+        public void innerClose(boolean isLeft, LeftRightEndSubscriber index) {
+            // the durations are timed, there are no end Publishers
+        }
+
+        @Override
+        public void innerCloseError(Throwable ex) {
+            innerError(ex);
+        }
+    }
+}
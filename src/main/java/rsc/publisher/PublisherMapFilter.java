@@ -0,0 +1,437 @@
+package rsc.publisher;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.documentation.FusionMode;
+import rsc.documentation.FusionSupport;
+import rsc.flow.*;
+import rsc.flow.Trackable;
+import rsc.util.ExceptionHelper;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Maps the values of the source publisher via a function and filters out those
+ * the function maps to null.
+ * <p>
+ * This is the target of the assembly-time fusion of consecutive map, filter and
+ * doOnNext stages: the stages are collected into a single function returning null for
+ * dropped values, thus the chain runs as a single subscriber.
+ *
+ * @param <T> the source value type
+ * @param <R> the result value type
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.CONDITIONAL }, output = { FusionMode.CONDITIONAL })
+public final class PublisherMapFilter<T, R> extends PublisherSource<T, R> {
+
+    final Function<? super T, ? extends R> mapper;
+
+    /**
+     * Constructs a PublisherMapFilter instance with the given source and mapper.
+     *
+     * @param source the source Publisher instance
+     * @param mapper the mapper function, returning null for values to be filtered out
+     * @throws NullPointerException if either {@code source} or {@code mapper} is null.
+     */
+    public PublisherMapFilter(Publisher<? extends T> source, Function<? super T, ? extends R> mapper) {
+        super(source);
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    public Function<? super T, ? extends R> mapper() {
+        return mapper;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+        if (source instanceof Fuseable) {
+            if (s instanceof Fuseable.ConditionalSubscriber) {
+                source.subscribe(new PublisherMapFilterFuseable.MapFilterFuseableConditionalSubscriber<>((Fuseable.ConditionalSubscriber<? super R>)s, mapper));
+                return;
+            }
+            source.subscribe(new PublisherMapFilterFuseable.MapFilterFuseableSubscriber<>(s, mapper));
+            return;
+        }
+        if (s instanceof Fuseable.ConditionalSubscriber) {
+            source.subscribe(new MapFilterConditionalSubscriber<>((Fuseable.ConditionalSubscriber<? super R>)s, mapper));
+            return;
+        }
+        source.subscribe(new MapFilterSubscriber<>(s, mapper));
+    }
+
+    /**
+     * Tries to fuse a map, filter or doOnNext stage with the upstream map, filter,
+     * doOnNext or map-filter operator.
+     *
+     * @param <T> the upstream value type
+     * @param <R> the result value type
+     * @param upstream the upstream operator
+     * @param kind the stage kind, one of {@link Stages#MAP}, {@link Stages#FILTER} or {@link Stages#PEEK}
+     * @param function the stage's Function, Predicate or Consumer
+     * @return the fused operator or null if the upstream can't be fused
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <T, R> Px<R> fuse(Px<T> upstream, int kind, Object function) {
+        Stages<Object, T> stages;
+        if (upstream instanceof PublisherMapFilter) {
+            stages = Stages.of(Stages.MAP_FILTER, ((PublisherMapFilter) upstream).mapper);
+        } else
+        if (upstream instanceof PublisherMapFilterFuseable) {
+            stages = Stages.of(Stages.MAP_FILTER, ((PublisherMapFilterFuseable) upstream).mapper);
+        } else
+        if (upstream instanceof PublisherMap) {
+            stages = Stages.of(Stages.MAP, ((PublisherMap) upstream).mapper);
+        } else
+        if (upstream instanceof PublisherMapFuseable) {
+            stages = Stages.of(Stages.MAP, ((PublisherMapFuseable) upstream).mapper);
+        } else
+        if (upstream instanceof PublisherFilter) {
+            stages = Stages.of(Stages.FILTER, ((PublisherFilter) upstream).predicate);
+        } else
+        if (upstream instanceof PublisherFilterFuseable) {
+            stages = Stages.of(Stages.FILTER, ((PublisherFilterFuseable) upstream).predicate);
+        } else
+        if (upstream instanceof PublisherPeekHelper && ((PublisherPeekHelper) upstream).isOnNextOnly()) {
+            stages = Stages.of(Stages.PEEK, ((PublisherPeekHelper) upstream).onNextCall());
+        } else {
+            return null;
+        }
+
+        Publisher source = ((PublisherSource) upstream).source;
+        Stages<Object, R> g = stages.append(kind, function);
+        if (source instanceof Fuseable) {
+            return new PublisherMapFilterFuseable<>(source, g);
+        }
+        return new PublisherMapFilter<>(source, g);
+    }
+
+    /**
+     * The fused map, filter and doOnNext stages, applied one after the other; returns null
+     * if a stage dropped the value.
+     * <p>
+     * The stages are kept in a flat array and dispatched by kind instead of being composed
+     * into nested lambdas so that each kind of callback is invoked from its own call site
+     * and the chain doesn't add a call frame per stage.
+     *
+     * @param <T> the input value type
+     * @param <R> the output value type
+     */
+    static final class Stages<T, R> implements Function<T, R> {
+        /** Function stage, a null result is an error. */
+        static final int MAP = 0;
+        /** Predicate stage, drops the value if the predicate returns false. */
+        static final int FILTER = 1;
+        /** Consumer stage, called with the value before passing it along. */
+        static final int PEEK = 2;
+        /** Function stage, a null result drops the value. */
+        static final int MAP_FILTER = 3;
+
+        final int[] kinds;
+
+        final Object[] functions;
+
+        Stages(int[] kinds, Object[] functions) {
+            this.kinds = kinds;
+            this.functions = functions;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T, R> Stages<T, R> of(int kind, Object function) {
+            if (kind == MAP_FILTER && function instanceof Stages) {
+                return (Stages<T, R>)function;
+            }
+            return new Stages<>(new int[] { kind }, new Object[] { function });
+        }
+
+        <U> Stages<T, U> append(int kind, Object function) {
+            int n = kinds.length;
+            int[] k = Arrays.copyOf(kinds, n + 1);
+            Object[] f = Arrays.copyOf(functions, n + 1);
+            k[n] = kind;
+            f[n] = Objects.requireNonNull(function, "function");
+            return new Stages<>(k, f);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public R apply(T t) {
+            final int[] k = kinds;
+            final Object[] f = functions;
+            Object v = t;
+            for (int i = 0; i < k.length; i++) {
+                switch (k[i]) {
+                case MAP:
+                    v = ((Function<Object, Object>)f[i]).apply(v);
+                    if (v == null) {
+                        throw new NullPointerException("The mapper returned a null value.");
+                    }
+                    break;
+                case FILTER:
+                    if (!((Predicate<Object>)f[i]).test(v)) {
+                        return null;
+                    }
+                    break;
+                case PEEK:
+                    ((Consumer<Object>)f[i]).accept(v);
+                    break;
+                default:
+                    v = ((Function<Object, Object>)f[i]).apply(v);
+                    if (v == null) {
+                        return null;
+                    }
+                }
+            }
+            return (R)v;
+        }
+    }
+
+    static final class MapFilterSubscriber<T, R>
+            implements Receiver, Producer, Loopback, Subscription, Fuseable.ConditionalSubscriber<T>,
+                       Trackable {
+        final Subscriber<? super R> actual;
+
+        final Function<? super T, ? extends R> mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public MapFilterSubscriber(Subscriber<? super R> actual, Function<? super T, ? extends R> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!tryOnNext(t)) {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            R v;
+
+            try {
+                v = mapper.apply(t);
+            } catch (Throwable e) {
+                ExceptionHelper.throwIfFatal(e);
+                s.cancel();
+
+                onError(ExceptionHelper.unwrap(e));
+                return true;
+            }
+            if (v != null) {
+                actual.onNext(v);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return mapper;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+
+    static final class MapFilterConditionalSubscriber<T, R>
+    implements Receiver, Producer, Loopback, Subscription, Fuseable.ConditionalSubscriber<T>,
+               Trackable {
+        final Fuseable.ConditionalSubscriber<? super R> actual;
+
+        final Function<? super T, ? extends R> mapper;
+
+        Subscription s;
+
+        boolean done;
+
+        public MapFilterConditionalSubscriber(Fuseable.ConditionalSubscriber<? super R> actual, Function<? super T, ? extends R> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return;
+            }
+
+            R v;
+
+            try {
+                v = mapper.apply(t);
+            } catch (Throwable e) {
+                ExceptionHelper.throwIfFatal(e);
+                s.cancel();
+
+                onError(ExceptionHelper.unwrap(e));
+                return;
+            }
+            if (v != null) {
+                actual.onNext(v);
+            } else {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            R v;
+
+            try {
+                v = mapper.apply(t);
+            } catch (Throwable e) {
+                ExceptionHelper.throwIfFatal(e);
+                s.cancel();
+
+                onError(ExceptionHelper.unwrap(e));
+                return true;
+            }
+            if (v != null) {
+                return actual.tryOnNext(v);
+            }
+            return false;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return mapper;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
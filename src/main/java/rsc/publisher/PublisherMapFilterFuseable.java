@@ -0,0 +1,539 @@
+package rsc.publisher;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import rsc.documentation.BackpressureMode;
+import rsc.documentation.BackpressureSupport;
+import rsc.documentation.FusionMode;
+import rsc.documentation.FusionSupport;
+import rsc.flow.*;
+import rsc.flow.Trackable;
+import rsc.util.ExceptionHelper;
+import rsc.subscriber.SubscriptionHelper;
+import rsc.util.UnsignalledExceptions;
+
+/**
+ * Maps the values of the source publisher via a function and filters out those
+ * the function maps to null.
+ * <p>
+ * This variant allows composing fuseable stages.
+ *
+ * @param <T> the source value type
+ * @param <R> the result value type
+ * @see PublisherMapFilter
+ */
+@BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL }, output = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL, FusionMode.BOUNDARY })
+public final class PublisherMapFilterFuseable<T, R> extends PublisherSource<T, R>
+        implements Fuseable {
+
+    final Function<? super T, ? extends R> mapper;
+
+    /**
+     * Constructs a PublisherMapFilterFuseable instance with the given source and mapper.
+     *
+     * @param source the source Publisher instance
+     * @param mapper the mapper function, returning null for values to be filtered out
+     * @throws NullPointerException if either {@code source} or {@code mapper} is null.
+     */
+    public PublisherMapFilterFuseable(Publisher<? extends T> source, Function<? super T, ? extends R> mapper) {
+        super(source);
+        if (!(source instanceof Fuseable)) {
+            throw new IllegalArgumentException("The source must implement the Fuseable interface for this operator to work");
+        }
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    public Function<? super T, ? extends R> mapper() {
+        return mapper;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> s) {
+        if (s instanceof ConditionalSubscriber) {
+            source.subscribe(new MapFilterFuseableConditionalSubscriber<>((ConditionalSubscriber<? super R>)s, mapper));
+            return;
+        }
+        source.subscribe(new MapFilterFuseableSubscriber<>(s, mapper));
+    }
+
+    static final class MapFilterFuseableSubscriber<T, R> 
+    implements Receiver, Producer, Loopback, ConditionalSubscriber<T>, BatchSubscription<R>,
+               Trackable {
+        final Subscriber<? super R> actual;
+
+        final Function<? super T, ? extends R> mapper;
+
+        QueueSubscription<T> s;
+
+        boolean done;
+        
+        int sourceMode;
+
+        public MapFilterFuseableSubscriber(Subscriber<? super R> actual, Function<? super T, ? extends R> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = (QueueSubscription<T>)s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return;
+            }
+
+            int m = sourceMode;
+            
+            if (m == NONE) {
+                R v;
+    
+                try {
+                    v = mapper.apply(t);
+                } catch (Throwable e) {
+                    ExceptionHelper.throwIfFatal(e);
+                    s.cancel();
+    
+                    onError(ExceptionHelper.unwrap(e));
+                    return;
+                }
+                if (v != null) {
+                    actual.onNext(v);
+                } else {
+                    s.request(1);
+                }
+            } else
+            if (m == ASYNC) {
+                actual.onNext(null);
+            }
+        }
+        
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            int m = sourceMode;
+            
+            if (m == NONE) {
+                R v;
+    
+                try {
+                    v = mapper.apply(t);
+                } catch (Throwable e) {
+                    ExceptionHelper.throwIfFatal(e);
+                    s.cancel();
+    
+                    onError(ExceptionHelper.unwrap(e));
+                    return true;
+                }
+                if (v != null) {
+                    actual.onNext(v);
+                    return true;
+                }
+                return false;
+            } else
+            if (m == ASYNC) {
+                actual.onNext(null);
+            }
+            return true;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return mapper;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+        
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+        
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+
+        @Override
+        public R poll() {
+            if (sourceMode == ASYNC) {
+                long dropped = 0;
+                for (;;) {
+                    T v = s.poll();
+                    if (v == null) {
+                        if (dropped != 0) {
+                            request(dropped);
+                        }
+                        return null;
+                    }
+                    R u = mapper.apply(v);
+                    if (u != null) {
+                        if (dropped != 0) {
+                            request(dropped);
+                        }
+                        return u;
+                    }
+                    dropped++;
+                }
+            } else {
+                for (;;) {
+                    T v = s.poll();
+                    if (v == null) {
+                        return null;
+                    }
+                    R u = mapper.apply(v);
+                    if (u != null) {
+                        return u;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return s.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            s.clear();
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final BatchSubscription<T> a = (BatchSubscription<T>)s;
+            final Function<? super T, ? extends R> f = mapper;
+            for (;;) {
+                int n = a.poll(buffer, max);
+                if (n == 0) {
+                    return 0;
+                }
+                int j = 0;
+                for (int i = 0; i < n; i++) {
+                    R u = f.apply((T)buffer[i]);
+                    if (u != null) {
+                        buffer[j++] = u;
+                    }
+                }
+                if (j != 0) {
+                    return j;
+                }
+            }
+        }
+
+        @Override
+        public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
+            int m;
+            if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
+                m = Fuseable.NONE;
+            } else {
+                m = s.requestFusion(requestedMode);
+            }
+            sourceMode = m;
+            return m;
+        }
+        
+        @Override
+        public int size() {
+            return s.size();
+        }
+    }
+
+    static final class MapFilterFuseableConditionalSubscriber<T, R> 
+    implements Receiver, Producer, Loopback, ConditionalSubscriber<T>, BatchSubscription<R>,
+               Trackable {
+        final ConditionalSubscriber<? super R> actual;
+
+        final Function<? super T, ? extends R> mapper;
+
+        QueueSubscription<T> s;
+
+        boolean done;
+        
+        int sourceMode;
+
+        public MapFilterFuseableConditionalSubscriber(ConditionalSubscriber<? super R> actual, Function<? super T, ? extends R> mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (SubscriptionHelper.validate(this.s, s)) {
+                this.s = (QueueSubscription<T>)s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return;
+            }
+
+            int m = sourceMode;
+            
+            if (m == NONE) {
+                R v;
+    
+                try {
+                    v = mapper.apply(t);
+                } catch (Throwable e) {
+                    ExceptionHelper.throwIfFatal(e);
+                    s.cancel();
+    
+                    onError(ExceptionHelper.unwrap(e));
+                    return;
+                }
+                if (v != null) {
+                    actual.onNext(v);
+                } else {
+                    s.request(1);
+                }
+            } else
+            if (m == ASYNC) {
+                actual.onNext(null);
+            }
+        }
+        
+        @Override
+        public boolean tryOnNext(T t) {
+            if (done) {
+                UnsignalledExceptions.onNextDropped(t);
+                return true;
+            }
+
+            int m = sourceMode;
+            
+            if (m == NONE) {
+                R v;
+    
+                try {
+                    v = mapper.apply(t);
+                } catch (Throwable e) {
+                    ExceptionHelper.throwIfFatal(e);
+                    s.cancel();
+    
+                    onError(ExceptionHelper.unwrap(e));
+                    return true;
+                }
+                if (v != null) {
+                    return actual.tryOnNext(v);
+                }
+                return false;
+            } else
+            if (m == ASYNC) {
+                actual.onNext(null);
+            }
+            return true;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                UnsignalledExceptions.onErrorDropped(t);
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return s != null && !done;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return done;
+        }
+
+        @Override
+        public Object downstream() {
+            return actual;
+        }
+
+        @Override
+        public Object connectedInput() {
+            return mapper;
+        }
+
+        @Override
+        public Object upstream() {
+            return s;
+        }
+        
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+        
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+
+        @Override
+        public R poll() {
+            if (sourceMode == ASYNC) {
+                long dropped = 0;
+                for (;;) {
+                    T v = s.poll();
+                    if (v == null) {
+                        if (dropped != 0) {
+                            request(dropped);
+                        }
+                        return null;
+                    }
+                    R u = mapper.apply(v);
+                    if (u != null) {
+                        if (dropped != 0) {
+                            request(dropped);
+                        }
+                        return u;
+                    }
+                    dropped++;
+                }
+            } else {
+                for (;;) {
+                    T v = s.poll();
+                    if (v == null) {
+                        return null;
+                    }
+                    R u = mapper.apply(v);
+                    if (u != null) {
+                        return u;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return s.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            s.clear();
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final BatchSubscription<T> a = (BatchSubscription<T>)s;
+            final Function<? super T, ? extends R> f = mapper;
+            for (;;) {
+                int n = a.poll(buffer, max);
+                if (n == 0) {
+                    return 0;
+                }
+                int j = 0;
+                for (int i = 0; i < n; i++) {
+                    R u = f.apply((T)buffer[i]);
+                    if (u != null) {
+                        buffer[j++] = u;
+                    }
+                }
+                if (j != 0) {
+                    return j;
+                }
+            }
+        }
+
+        @Override
+        public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
+            int m;
+            if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
+                m = Fuseable.NONE;
+            } else {
+                m = s.requestFusion(requestedMode);
+            }
+            sourceMode = m;
+            return m;
+        }
+        
+        @Override
+        public int size() {
+            return s.size();
+        }
+    }
+}
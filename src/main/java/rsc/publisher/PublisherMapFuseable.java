@@ -19,13 +19,14 @@ import rsc.util.*;
 /**
  * Maps the values of the source publisher one-on-one via a mapper function.
  * <p>
- * This variant allows composing fuseable stages.
+ * This variant allows composing fuseable stages; with a BATCH-capable source,
+ * it maps whole chunks of values in place.
  * 
  * @param <T> the source value type
  * @param <R> the result value type
  */
 @BackpressureSupport(input = BackpressureMode.BOUNDED, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.CONDITIONAL }, output = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.CONDITIONAL, FusionMode.BOUNDARY })
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL }, output = { FusionMode.SYNC, FusionMode.ASYNC, FusionMode.BATCH, FusionMode.CONDITIONAL, FusionMode.BOUNDARY })
 public final class PublisherMapFuseable<T, R> extends PublisherSource<T, R>
         implements Fuseable {
 
@@ -62,7 +63,7 @@ public final class PublisherMapFuseable<T, R> extends PublisherSource<T, R>
     }
 
     static final class MapFuseableSubscriber<T, R> 
-    implements Subscriber<T>, Receiver, Producer, Loopback, Subscription, SynchronousSubscription<R>,
+    implements Subscriber<T>, Receiver, Producer, Loopback, Subscription, BatchSubscription<R>,
                Trackable {
         final Subscriber<? super R>            actual;
         final Function<? super T, ? extends R> mapper;
@@ -201,8 +202,29 @@ public final class PublisherMapFuseable<T, R> extends PublisherSource<T, R>
             s.clear();
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            int n = ((BatchSubscription<T>)s).poll(buffer, max);
+            final Function<? super T, ? extends R> f = mapper;
+            for (int i = 0; i < n; i++) {
+                R u = f.apply((T)buffer[i]);
+                if (u == null) {
+                    throw new NullPointerException();
+                }
+                buffer[i] = u;
+            }
+            return n;
+        }
+
         @Override
         public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
             int m;
             if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
                 m = Fuseable.NONE;
@@ -220,7 +242,7 @@ public final class PublisherMapFuseable<T, R> extends PublisherSource<T, R>
     }
 
     static final class MapFuseableConditionalSubscriber<T, R> 
-    implements ConditionalSubscriber<T>, Receiver, Producer, Loopback, SynchronousSubscription<R>,
+    implements ConditionalSubscriber<T>, Receiver, Producer, Loopback, BatchSubscription<R>,
                Trackable {
         final Fuseable.ConditionalSubscriber<? super R>            actual;
         final Function<? super T, ? extends R> mapper;
@@ -397,8 +419,29 @@ public final class PublisherMapFuseable<T, R> extends PublisherSource<T, R>
             s.clear();
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public int poll(Object[] buffer, int max) {
+            int n = ((BatchSubscription<T>)s).poll(buffer, max);
+            final Function<? super T, ? extends R> f = mapper;
+            for (int i = 0; i < n; i++) {
+                R u = f.apply((T)buffer[i]);
+                if (u == null) {
+                    throw new NullPointerException();
+                }
+                buffer[i] = u;
+            }
+            return n;
+        }
+
         @Override
         public int requestFusion(int requestedMode) {
+            if (requestedMode == Fuseable.BATCH) {
+                if (sourceMode == Fuseable.SYNC && s instanceof BatchSubscription) {
+                    return s.requestFusion(Fuseable.BATCH);
+                }
+                return Fuseable.NONE;
+            }
             int m;
             if ((requestedMode & Fuseable.THREAD_BARRIER) != 0) {
                 m = Fuseable.NONE;
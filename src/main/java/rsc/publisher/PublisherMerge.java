@@ -58,7 +58,7 @@ public final class PublisherMerge<T> extends Px<T> implements MultiReceiver, Tra
     public void subscribe(Subscriber<? super T> s) {
         @SuppressWarnings("unchecked")
         PublisherFlatMap.PublisherFlatMapMain<Publisher<? extends T>, T> merger = new PublisherFlatMap.PublisherFlatMapMain<>(
-                s, IDENTITY_FUNCTION, delayError, maxConcurrency, mainQueueSupplier, prefetch, innerQueueSupplier);
+                s, IDENTITY_FUNCTION, delayError, maxConcurrency, mainQueueSupplier, prefetch, prefetch, innerQueueSupplier);
         
         merger.onSubscribe(new PublisherArray.ArraySubscription<>(merger, sources));
     }
@@ -18,6 +18,7 @@ import rsc.flow.*;
 import rsc.scheduler.Scheduler;
 import rsc.scheduler.Scheduler.Worker;
 import rsc.flow.Trackable;
+import rsc.util.AdaptivePrefetch;
 import rsc.util.BackpressureHelper;
 
 import rsc.util.ExceptionHelper;
@@ -25,6 +26,10 @@ import rsc.subscriber.SubscriptionHelper;
 
 /**
  * Emits events on a different thread specified by a scheduler callback.
+ * <p>
+ * If the maximum prefetch is larger than the (minimum) prefetch, the amount requested
+ * from upstream adapts to the consumption rate, see {@link AdaptivePrefetch}; the
+ * queue provided has to be able to hold the maximum prefetch amount of items then.
  *
  * @param <T> the value type
  */
@@ -40,19 +45,35 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
     
     final int prefetch;
     
+    final int maxPrefetch;
+    
     public PublisherObserveOn(
             Publisher<? extends T> source, 
             Scheduler scheduler, 
             boolean delayError,
             int prefetch,
             Supplier<? extends Queue<T>> queueSupplier) {
+        this(source, scheduler, delayError, prefetch, prefetch, queueSupplier);
+    }
+
+    public PublisherObserveOn(
+            Publisher<? extends T> source, 
+            Scheduler scheduler, 
+            boolean delayError,
+            int prefetch,
+            int maxPrefetch,
+            Supplier<? extends Queue<T>> queueSupplier) {
         super(source);
         if (prefetch <= 0) {
             throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
         }
+        if (maxPrefetch < prefetch) {
+            throw new IllegalArgumentException("maxPrefetch >= prefetch required but it was " + maxPrefetch + " < " + prefetch);
+        }
         this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
         this.delayError = delayError;
         this.prefetch = prefetch;
+        this.maxPrefetch = maxPrefetch;
         this.queueSupplier = Objects.requireNonNull(queueSupplier, "queueSupplier");
     }
 
@@ -85,10 +106,10 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
         
         if (s instanceof Fuseable.ConditionalSubscriber) {
             Fuseable.ConditionalSubscriber<? super T> cs = (Fuseable.ConditionalSubscriber<? super T>) s;
-            source.subscribe(new PublisherObserveOnConditionalSubscriber<>(cs, worker, delayError, prefetch, queueSupplier));
+            source.subscribe(new PublisherObserveOnConditionalSubscriber<>(cs, worker, delayError, prefetch, maxPrefetch, queueSupplier));
             return;
         }
-        source.subscribe(new PublisherObserveOnSubscriber<>(s, worker, delayError, prefetch, queueSupplier));
+        source.subscribe(new PublisherObserveOnSubscriber<>(s, worker, delayError, prefetch, maxPrefetch, queueSupplier));
     }
 
 
@@ -109,9 +130,13 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
         
         final int prefetch;
         
-        final int limit;
+        final int maxPrefetch;
         
         final Supplier<? extends Queue<T>> queueSupplier;
+
+        int limit;
+
+        AdaptivePrefetch adaptive;
         
         Subscription s;
         
@@ -144,17 +169,22 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                 Worker worker,
                 boolean delayError,
                 int prefetch,
+                int maxPrefetch,
                 Supplier<? extends Queue<T>> queueSupplier) {
             this.actual = actual;
             this.worker = worker;
             this.delayError = delayError;
             this.prefetch = prefetch;
+            this.maxPrefetch = maxPrefetch;
             this.queueSupplier = queueSupplier;
             if (prefetch != Integer.MAX_VALUE) {
                 this.limit = prefetch - (prefetch >> 2);
             } else {
                 this.limit = Integer.MAX_VALUE;
             }
+            if (maxPrefetch != prefetch) {
+                this.adaptive = new AdaptivePrefetch(prefetch, maxPrefetch);
+            }
         }
         
         @Override
@@ -179,6 +209,8 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                     if (m == Fuseable.ASYNC) {
                         sourceMode = Fuseable.ASYNC;
                         queue = f;
+                        // the fused queue is sized by the upstream, keep the window fixed
+                        adaptive = null;
                         
                         actual.onSubscribe(this);
                         
@@ -214,6 +246,20 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                 s.request(prefetch);
             }
         }
+
+        int window() {
+            AdaptivePrefetch ap = adaptive;
+            return ap != null ? ap.window() : prefetch;
+        }
+
+        void replenish(long n) {
+            AdaptivePrefetch ap = adaptive;
+            if (ap != null) {
+                n = ap.replenish(n, queue.size());
+                limit = ap.limit();
+            }
+            s.request(n);
+        }
         
         @Override
         public void onNext(T t) {
@@ -388,7 +434,7 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                         if (r != Long.MAX_VALUE) {
                             r = REQUESTED.addAndGet(this, -e);
                         }
-                        s.request(e);
+                        replenish(e);
                         e = 0L;
                     }
                 }
@@ -519,12 +565,13 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
 
         @Override
         public long requestedFromDownstream() {
-            return queue == null ? prefetch : (prefetch - queue.size());
+            int w = window();
+            return queue == null ? w : (w - queue.size());
         }
 
         @Override
         public long getCapacity() {
-            return prefetch;
+            return maxPrefetch;
         }
 
         @Override
@@ -564,7 +611,8 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
 
         @Override
         public long expectedFromUpstream() {
-            return queue == null ? prefetch : (prefetch - queue.size());
+            int w = window();
+            return queue == null ? w : (w - queue.size());
         }
 
         @Override
@@ -599,7 +647,7 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                 long p = produced + 1;
                 if (p == limit) {
                     produced = 0;
-                    s.request(p);
+                    replenish(p);
                 } else {
                     produced = p;
                 }
@@ -634,9 +682,13 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
         
         final int prefetch;
         
-        final int limit;
+        final int maxPrefetch;
 
         final Supplier<? extends Queue<T>> queueSupplier;
+
+        int limit;
+
+        AdaptivePrefetch adaptive;
         
         Subscription s;
         
@@ -671,17 +723,22 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                 Worker worker,
                 boolean delayError,
                 int prefetch,
+                int maxPrefetch,
                 Supplier<? extends Queue<T>> queueSupplier) {
             this.actual = actual;
             this.worker = worker;
             this.delayError = delayError;
             this.prefetch = prefetch;
+            this.maxPrefetch = maxPrefetch;
             this.queueSupplier = queueSupplier;
             if (prefetch != Integer.MAX_VALUE) {
                 this.limit = prefetch - (prefetch >> 2);
             } else {
                 this.limit = Integer.MAX_VALUE;
             }
+            if (maxPrefetch != prefetch) {
+                this.adaptive = new AdaptivePrefetch(prefetch, maxPrefetch);
+            }
         }
         
         @Override
@@ -706,6 +763,8 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                     if (m == Fuseable.ASYNC) {
                         sourceMode = Fuseable.ASYNC;
                         queue = f;
+                        // the fused queue is sized by the upstream, keep the window fixed
+                        adaptive = null;
                         
                         actual.onSubscribe(this);
                         
@@ -743,6 +802,20 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
             }
         }
 
+        int window() {
+            AdaptivePrefetch ap = adaptive;
+            return ap != null ? ap.window() : prefetch;
+        }
+
+        void replenish(long n) {
+            AdaptivePrefetch ap = adaptive;
+            if (ap != null) {
+                n = ap.replenish(n, queue.size());
+                limit = ap.limit();
+            }
+            s.request(n);
+        }
+
         @Override
         public void onNext(T t) {
             if (sourceMode == Fuseable.ASYNC) {
@@ -915,7 +988,7 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                     polled++;
                     
                     if (polled == limit) {
-                        s.request(polled);
+                        replenish(polled);
                         polled = 0L;
                     }
                 }
@@ -999,7 +1072,7 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
 
         @Override
         public long getCapacity() {
-            return prefetch;
+            return maxPrefetch;
         }
 
         @Override
@@ -1039,7 +1112,8 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
 
         @Override
         public long expectedFromUpstream() {
-            return queue == null ? prefetch : (prefetch - queue.size());
+            int w = window();
+            return queue == null ? w : (w - queue.size());
         }
 
         @Override
@@ -1128,7 +1202,7 @@ public final class PublisherObserveOn<T> extends PublisherSource<T, T> implement
                 long p = consumed + 1;
                 if (p == limit) {
                     consumed = 0;
-                    s.request(p);
+                    replenish(p);
                 } else {
                     consumed = p;
                 }
@@ -24,4 +24,15 @@ interface PublisherPeekHelper<T> {
     LongConsumer onRequestCall();
 
     Runnable onCancelCall();
+
+    /**
+     * Returns true if only the onNext callback is set, thus the peeking can be fused
+     * with adjacent map and filter stages.
+     * @return true if only the onNext callback is set
+     */
+    default boolean isOnNextOnly() {
+        return onNextCall() != null && onSubscribeCall() == null && onErrorCall() == null
+                && onCompleteCall() == null && onAfterTerminateCall() == null
+                && onRequestCall() == null && onCancelCall() == null;
+    }
 }
\ No newline at end of file
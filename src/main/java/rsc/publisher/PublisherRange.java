@@ -19,7 +19,7 @@ import rsc.subscriber.SubscriptionHelper;
  * Emits a range of integer values.
  */
 @BackpressureSupport(input = BackpressureMode.NOT_APPLICABLE, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.CONDITIONAL })
+@FusionSupport(input = { FusionMode.NOT_APPLICABLE }, output = { FusionMode.SYNC, FusionMode.BATCH, FusionMode.CONDITIONAL })
 public final class PublisherRange 
 extends Px<Integer>
         implements Fuseable {
@@ -62,7 +62,7 @@ extends Px<Integer>
     }
 
     static final class RangeSubscription
-            implements Trackable, Producer, SynchronousSubscription<Integer>  {
+            implements Trackable, Producer, BatchSubscription<Integer>  {
 
         final Subscriber<? super Integer> actual;
 
@@ -200,6 +200,18 @@ extends Px<Integer>
             return (int)i;
         }
 
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final long i = index;
+            final int n = (int)Math.min(max, end - i);
+
+            for (int j = 0; j < n; j++) {
+                buffer[j] = (int)(i + j);
+            }
+            index = i + n;
+            return n;
+        }
+
         @Override
         public boolean isEmpty() {
             return index == end;
@@ -217,7 +229,7 @@ extends Px<Integer>
     }
     
     static final class RangeSubscriptionConditional
-            implements Trackable, Producer, SynchronousSubscription<Integer> {
+            implements Trackable, Producer, BatchSubscription<Integer> {
 
         final ConditionalSubscriber<? super Integer> actual;
 
@@ -357,6 +369,18 @@ extends Px<Integer>
             return (int)i;
         }
 
+        @Override
+        public int poll(Object[] buffer, int max) {
+            final long i = index;
+            final int n = (int)Math.min(max, end - i);
+
+            for (int j = 0; j < n; j++) {
+                buffer[j] = (int)(i + j);
+            }
+            index = i + n;
+            return n;
+        }
+
         @Override
         public boolean isEmpty() {
             return index == end;
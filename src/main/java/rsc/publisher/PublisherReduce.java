@@ -22,12 +22,15 @@ import rsc.util.UnsignalledExceptions;
 /**
  * Aggregates the source values with the help of an accumulator
  * function and emits the the final accumulated value.
+ * <p>
+ * If the source supports the BATCH fusion mode, the values are pulled synchronously
+ * in chunks and accumulated in a tight loop.
  *
  * @param <T> the source value type
  * @param <R> the accumulated result type
  */
 @BackpressureSupport(input = BackpressureMode.UNBOUNDED, output = BackpressureMode.BOUNDED)
-@FusionSupport(input = { FusionMode.NONE }, output = { FusionMode.ASYNC })
+@FusionSupport(input = { FusionMode.SYNC, FusionMode.BATCH }, output = { FusionMode.ASYNC })
 public final class PublisherReduce<T, R> extends PublisherSource<T, R> implements Fuseable {
 
     final Supplier<R> initialSupplier;
@@ -93,17 +96,81 @@ public final class PublisherReduce<T, R> extends PublisherSource<T, R> implement
             // value already saved
         }
 
+        @SuppressWarnings("unchecked")
         @Override
         public void onSubscribe(Subscription s) {
             if (SubscriptionHelper.validate(this.s, s)) {
                 this.s = s;
 
+                if (s instanceof BatchSubscription) {
+                    BatchSubscription<T> qs = (BatchSubscription<T>) s;
+
+                    if (qs.requestFusion(Fuseable.SYNC) == Fuseable.SYNC) {
+                        subscriber.onSubscribe(this);
+
+                        drainSync(qs, qs.requestFusion(Fuseable.BATCH) == Fuseable.BATCH);
+                        return;
+                    }
+                }
                 
                 subscriber.onSubscribe(this);
 
                 s.request(Long.MAX_VALUE);
             }
         }
+
+        @SuppressWarnings("unchecked")
+        void drainSync(BatchSubscription<T> qs, boolean batch) {
+            final BiFunction<R, ? super T, R> f = accumulator;
+            R acc = value;
+
+            try {
+                if (batch) {
+                    Object[] buffer = new Object[Px.BUFFER_SIZE];
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+
+                        int n = qs.poll(buffer, Px.BUFFER_SIZE);
+                        if (n == 0) {
+                            break;
+                        }
+
+                        for (int i = 0; i < n; i++) {
+                            acc = f.apply(acc, (T)buffer[i]);
+                            if (acc == null) {
+                                throw new NullPointerException("The accumulator returned a null value");
+                            }
+                        }
+                    }
+                } else {
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+
+                        T t = qs.poll();
+                        if (t == null) {
+                            break;
+                        }
+
+                        acc = f.apply(acc, t);
+                        if (acc == null) {
+                            throw new NullPointerException("The accumulator returned a null value");
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                ExceptionHelper.throwIfFatal(e);
+                qs.cancel();
+                onError(ExceptionHelper.unwrap(e));
+                return;
+            }
+
+            value = acc;
+            onComplete();
+        }
         
         @Override
         public void onNext(T t) {
@@ -30,5 +30,15 @@ public final class PublisherSumInt extends PublisherSource<Integer, Integer> {
             }
             accumulator += t.intValue();
         }
+        
+        @Override
+        protected void onNextBatch(Object[] values, int count) {
+            int acc = accumulator;
+            for (int i = 0; i < count; i++) {
+                acc += ((Integer)values[i]).intValue();
+            }
+            accumulator = acc;
+            hasValue = true;
+        }
     }
 }
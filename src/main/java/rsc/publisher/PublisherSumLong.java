@@ -29,5 +29,15 @@ public final class PublisherSumLong extends PublisherSource<Long, Long> {
             }
             accumulator += t.longValue();
         }
+        
+        @Override
+        protected void onNextBatch(Object[] values, int count) {
+            long acc = accumulator;
+            for (int i = 0; i < count; i++) {
+                acc += ((Long)values[i]).longValue();
+            }
+            accumulator = acc;
+            hasValue = true;
+        }
     }
 }
@@ -23,7 +23,8 @@ import rsc.util.UnsignalledExceptions;
  * are determined by other publishers.
  * 
  * <p>
- * This implementation uses a fixed buffer and open windows go in lockstep.
+ * This implementation uses a fixed buffer and open windows go in lockstep; each element
+ * is queued once and shared by all open windows, which are added and removed without locks.
  *
  * @param <T> the source value type
  * @param <U> the window-start indicator values
@@ -108,6 +109,9 @@ public final class PublisherWindowBeginEnd<T, U, V> extends PublisherSource<T, P
                 AtomicReferenceFieldUpdater.newUpdater(WindowBeginEndMainSubscriber.class, Subscription.class, "main");
 
         volatile PublisherWindowInner<T, V>[] windows;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<WindowBeginEndMainSubscriber, PublisherWindowInner[]> WINDOWS =
+                AtomicReferenceFieldUpdater.newUpdater(WindowBeginEndMainSubscriber.class, PublisherWindowInner[].class, "windows");
         
         @SuppressWarnings("rawtypes")
         static final PublisherWindowInner[] EMPTY = new PublisherWindowInner[0];
@@ -246,16 +250,11 @@ public final class PublisherWindowBeginEnd<T, U, V> extends PublisherSource<T, P
         }
         
         boolean add(PublisherWindowInner<T, V> inner) {
-            if (windows == TERMINATED) {
-                return false;
-            }
-            
-            synchronized (this) {
-                if (windows == TERMINATED) {
+            for (;;) {
+                PublisherWindowInner<T, V>[] a = windows;
+                if (a == TERMINATED) {
                     return false;
                 }
-
-                PublisherWindowInner<T, V>[] a = windows;
                 int n = a.length;
                 
                 @SuppressWarnings("unchecked")
@@ -263,66 +262,54 @@ public final class PublisherWindowBeginEnd<T, U, V> extends PublisherSource<T, P
                 System.arraycopy(a, 0, b, 0, n);
                 b[n] = inner;
                 
-                windows = b;
-                return true;
+                if (WINDOWS.compareAndSet(this, a, b)) {
+                    return true;
+                }
             }
         }
         
         @SuppressWarnings("unchecked")
         void remove(PublisherWindowInner<T, V> inner) {
-            if (windows == TERMINATED) {
-                return;
-            }
-            
-            synchronized (this) {
+            outer:
+            for (;;) {
                 PublisherWindowInner<T, V>[] a = windows;
-                if (a == TERMINATED) {
+                if (a == TERMINATED || a == EMPTY) {
                     return;
                 }
                 int n = a.length;
                 
-                int j = -1;
-                
                 for (int i = 0; i < n; i++) {
                     if (a[i] == inner) {
-                        j = i;
-                        break;
+                        PublisherWindowInner<T, V>[] b;
+                        
+                        if (n == 1) {
+                            b = EMPTY;
+                        } else {
+                            b = new PublisherWindowInner[n - 1];
+                            System.arraycopy(a, 0, b, 0, i);
+                            System.arraycopy(a, i + 1, b, i, n - i - 1);
+                        }
+                        
+                        if (WINDOWS.compareAndSet(this, a, b)) {
+                            inner.cancelEnd();
+                            return;
+                        }
+                        
+                        continue outer;
                     }
                 }
                 
-                if (j < 0) {
-                    return;
-                }
-                
-                if (n == 1) {
-                    windows = EMPTY;
-                    return;
-                }
-                
-                PublisherWindowInner<T, V>[] b = new PublisherWindowInner[n - 1];
-                
-                System.arraycopy(a, 0, b, 0, j);
-                System.arraycopy(a, j + 1, b, j, n - j - 1);
-                
-                windows = b;
+                return;
             }
-            inner.cancelEnd();
         }
         
         @SuppressWarnings("unchecked")
         void terminate() {
-            if (windows == TERMINATED) {
+            PublisherWindowInner<T, V>[] a = windows;
+            if (a == TERMINATED) {
                 return;
             }
-            
-            PublisherWindowInner<T, V>[] a;
-            synchronized (this) {
-                a = windows;
-                if (a == TERMINATED) {
-                    return;
-                }
-                windows = TERMINATED;
-            }
+            a = WINDOWS.getAndSet(this, TERMINATED);
             for (PublisherWindowInner<T, V> inner : a) {
                 inner.cancelEnd();
             }
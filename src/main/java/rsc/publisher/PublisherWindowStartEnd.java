@@ -1,9 +1,7 @@
 package rsc.publisher;
 
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -14,8 +12,8 @@ import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import rsc.flow.Disposable;
-import rsc.processor.UnicastProcessor;
 import rsc.util.BackpressureHelper;
+import rsc.util.ChunkedLog;
 import rsc.subscriber.DeferredSubscription;
 
 import rsc.util.ExceptionHelper;
@@ -23,8 +21,12 @@ import rsc.subscriber.SubscriptionHelper;
 import rsc.util.UnsignalledExceptions;
 
 /**
- * Splits the source sequence into potentially overlapping windowEnds controlled by items of a 
+ * Splits the source sequence into potentially overlapping windowEnds controlled by items of a
  * start Publisher and end Publishers derived from the start values.
+ * <p>
+ * Source elements are appended once to a shared {@link ChunkedLog} and each window
+ * replays the section of the log between its open and close positions to its own
+ * subscriber, at its own pace. Windows are opened and closed without locks.
  *
  * @param <T> the source value type
  * @param <U> the window starter value type
@@ -38,16 +40,12 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
     
     final Supplier<? extends Queue<Object>> drainQueueSupplier;
     
-    final Supplier<? extends Queue<T>> processorQueueSupplier;
-
     public PublisherWindowStartEnd(Publisher<? extends T> source, Publisher<U> start,
-            Function<? super U, ? extends Publisher<V>> end, Supplier<? extends Queue<Object>> drainQueueSupplier,
-            Supplier<? extends Queue<T>> processorQueueSupplier) {
+            Function<? super U, ? extends Publisher<V>> end, Supplier<? extends Queue<Object>> drainQueueSupplier) {
         super(source);
         this.start = Objects.requireNonNull(start, "start");
         this.end = Objects.requireNonNull(end, "end");
         this.drainQueueSupplier = Objects.requireNonNull(drainQueueSupplier, "drainQueueSupplier");
-        this.processorQueueSupplier = Objects.requireNonNull(processorQueueSupplier, "processorQueueSupplier");
     }
 
     @Override
@@ -73,7 +71,7 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         }
         
         WindowStartEndMainSubscriber<T, U, V>
-                main = new WindowStartEndMainSubscriber<>(s, q, end, processorQueueSupplier);
+                main = new WindowStartEndMainSubscriber<>(s, q, end);
         
         s.onSubscribe(main);
         
@@ -93,7 +91,7 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         
         final Function<? super U, ? extends Publisher<V>> end;
         
-        final Supplier<? extends Queue<T>> processorQueueSupplier;
+        final ChunkedLog<T> log;
         
         volatile long requested;
         @SuppressWarnings("rawtypes")
@@ -122,9 +120,15 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         static final AtomicIntegerFieldUpdater<WindowStartEndMainSubscriber> OPEN =
                 AtomicIntegerFieldUpdater.newUpdater(WindowStartEndMainSubscriber.class, "open");
         
-        Set<WindowStartEndEnder<T, V>> windowEnds;
+        volatile WindowStartEndWindow<T, V>[] windows;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<WindowStartEndMainSubscriber, WindowStartEndWindow[]> WINDOWS =
+                AtomicReferenceFieldUpdater.newUpdater(WindowStartEndMainSubscriber.class, WindowStartEndWindow[].class, "windows");
         
-        Set<UnicastProcessor<T>> windows;
+        @SuppressWarnings("rawtypes")
+        static final WindowStartEndWindow[] EMPTY = new WindowStartEndWindow[0];
+        @SuppressWarnings("rawtypes")
+        static final WindowStartEndWindow[] TERMINATED = new WindowStartEndWindow[0];
 
         volatile boolean mainDone;
         
@@ -133,16 +137,15 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         static final AtomicReferenceFieldUpdater<WindowStartEndMainSubscriber, Throwable> ERROR =
                 AtomicReferenceFieldUpdater.newUpdater(WindowStartEndMainSubscriber.class, Throwable.class,  "error");
 
+        @SuppressWarnings("unchecked")
         public WindowStartEndMainSubscriber(Subscriber<? super Px<T>> actual, Queue<Object> queue,
-                Function<? super U, ? extends Publisher<V>> end,
-                Supplier<? extends Queue<T>> processorQueueSupplier) {
+                Function<? super U, ? extends Publisher<V>> end) {
             this.actual = actual;
             this.queue = queue;
             this.starter = new WindowStartEndStarter<>(this);
             this.end = end;
-            this.windowEnds = new HashSet<>();
-            this.windows = new HashSet<>();
-            this.processorQueueSupplier = processorQueueSupplier;
+            this.log = new ChunkedLog<>(Px.BUFFER_SIZE);
+            this.windows = EMPTY;
             this.open = 1;
         }
         
@@ -155,10 +158,18 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         
         @Override
         public void onNext(T t) {
-            synchronized (this) {
-                queue.offer(t);
+            // values arriving while no window is open would never be read
+            if (windows.length == 0) {
+                return;
+            }
+
+            log.append(t);
+
+            // re-read after the append: a window added in between either shows up
+            // here or sees the new size when it drains itself
+            for (WindowStartEndWindow<T, V> w : windows) {
+                w.drain();
             }
-            drain();
         }
         
         @Override
@@ -195,11 +206,37 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         }
         
         void starterNext(U u) {
-            NewWindow<U> nw = new NewWindow<>(u);
-            synchronized (this) {
-                queue.offer(nw);
+            if (cancelled || open == 0 || mainDone) {
+                return;
+            }
+
+            Publisher<V> p;
+
+            try {
+                p = end.apply(u);
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                starterError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+
+            if (p == null) {
+                starterError(new NullPointerException("The end returned a null publisher"));
+                return;
+            }
+
+            OPEN.getAndIncrement(this);
+
+            WindowStartEndWindow<T, V> w = new WindowStartEndWindow<>(this, log.cursor());
+
+            if (add(w)) {
+                queue.offer(w);
+                drain();
+
+                p.subscribe(w);
+            } else {
+                dispose();
             }
-            drain();
         }
         
         void starterError(Throwable e) {
@@ -215,11 +252,9 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
             drain();
         }
         
-        void endSignal(WindowStartEndEnder<T, V> end) {
-            remove(end);
-            synchronized (this) {
-                queue.offer(end);
-            }
+        void endSignal(WindowStartEndWindow<T, V> w) {
+            remove(w);
+            w.close(log.size(), null);
             drain();
         }
         
@@ -244,39 +279,65 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
             }
         }
         
-        boolean add(WindowStartEndEnder<T, V> ender) {
-            synchronized (starter) {
-                Set<WindowStartEndEnder<T, V>> set = windowEnds;
-                if (set != null) {
-                    set.add(ender);
-                    return true;
+        boolean add(WindowStartEndWindow<T, V> w) {
+            for (;;) {
+                WindowStartEndWindow<T, V>[] a = windows;
+                if (a == TERMINATED) {
+                    return false;
                 }
-            }
-            ender.cancel();
-            return false;
-        }
+                int n = a.length;
         
-        void remove(WindowStartEndEnder<T, V> ender) {
-            synchronized (starter) {
-                Set<WindowStartEndEnder<T, V>> set = windowEnds;
-                if (set != null) {
-                    set.remove(ender);
+                @SuppressWarnings("unchecked")
+                WindowStartEndWindow<T, V>[] b = new WindowStartEndWindow[n + 1];
+                System.arraycopy(a, 0, b, 0, n);
+                b[n] = w;
+                if (WINDOWS.compareAndSet(this, a, b)) {
+                    return true;
                 }
             }
         }
         
-        void removeAll() {
-            Set<WindowStartEndEnder<T, V>> set;
-            synchronized (starter) {
-                set = windowEnds;
-                if (set == null) {
+        @SuppressWarnings("unchecked")
+        void remove(WindowStartEndWindow<T, V> w) {
+            outer:
+            for (;;) {
+                WindowStartEndWindow<T, V>[] a = windows;
+                if (a == TERMINATED || a == EMPTY) {
                     return;
                 }
-                windowEnds = null;
-            }
+                int n = a.length;
+
+                for (int i = 0; i < n; i++) {
+                    if (a[i] == w) {
+                        WindowStartEndWindow<T, V>[] b;
+
+                        if (n == 1) {
+                            b = EMPTY;
+                        } else {
+                            b = new WindowStartEndWindow[n - 1];
+                            System.arraycopy(a, 0, b, 0, i);
+                            System.arraycopy(a, i + 1, b, i, n - i - 1);
+                        }
             
-            for (Subscription s : set) {
-                s.cancel();
+                        if (WINDOWS.compareAndSet(this, a, b)) {
+                            return;
+                        }
+
+                        continue outer;
+                    }
+                }
+
+                break;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void closeAll(Throwable e) {
+            WindowStartEndWindow<T, V>[] a = WINDOWS.getAndSet(this, TERMINATED);
+            long index = log.size();
+            for (WindowStartEndWindow<T, V> w : a) {
+                w.cancelEnd();
+                w.close(index, e);
             }
         }
         
@@ -285,7 +346,7 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
                 return;
             }
             
-            final Subscriber<? super UnicastProcessor<T>> a = actual;
+            final Subscriber<? super Px<T>> a = actual;
             final Queue<Object> q = queue;
             
             int missed = 1;
@@ -299,12 +360,7 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
                         if (e != ExceptionHelper.TERMINATED) {
                             SubscriptionHelper.terminate(S, this);
                             starter.cancel();
-                            removeAll();
-
-                            for (UnicastProcessor<T> w : windows) {
-                                w.onError(e);
-                            }
-                            windows = null;
+                            closeAll(e);
                             
                             q.clear();
                             
@@ -315,12 +371,9 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
                     }
                     
                     if (mainDone || open == 0) {
-                        removeAll();
+                        closeAll(null);
 
-                        for (UnicastProcessor<T> w : windows) {
-                            w.onComplete();
-                        }
-                        windows = null;
+                        q.clear();
                         
                         a.onComplete();
                         return;
@@ -332,76 +385,22 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
                         break;
                     }
                     
-                    if (o instanceof NewWindow) {
-                        if (!cancelled && open != 0 && !mainDone) {
-                            @SuppressWarnings("unchecked")
-                            NewWindow<U> newWindow = (NewWindow<U>) o;
-                            
-                            Queue<T> pq;
-                            
-                            try {
-                                pq = processorQueueSupplier.get();
-                            } catch (Throwable ex) {
-                                ExceptionHelper.addThrowable(ERROR, this, ex);
-                                continue;
-                            }
-                            
-                            if (pq == null) {
-                                ExceptionHelper.addThrowable(ERROR, this, new NullPointerException("The processorQueueSupplier returned a null queue"));
-                                continue;
-                            }
-                            
-                            Publisher<V> p;
-                            
-                            try {
-                                p = end.apply(newWindow.value);
-                            } catch (Throwable ex) {
-                                ExceptionHelper.throwIfFatal(ex);
-                                ExceptionHelper.addThrowable(ERROR, this, ExceptionHelper.unwrap(ex));
-                                continue;
-                            }
-
-                            if (p == null) {
-                                ExceptionHelper.addThrowable(ERROR, this, new NullPointerException("The end returned a null publisher"));
-                                continue;
-                            }
-
-                            OPEN.getAndIncrement(this);
-                            
-                            UnicastProcessor<T> w = new UnicastProcessor<>(pq, this);
+                    @SuppressWarnings("unchecked")
+                    WindowStartEndWindow<T, V> w = (WindowStartEndWindow<T, V>) o;
                             
-                            WindowStartEndEnder<T, V> end = new WindowStartEndEnder<>(this, w);
-                            
-                            windows.add(w);
-                            
-                            if (add(end)) {
-                                
-                                long r = requested;
-                                if (r != 0L) {
-                                    a.onNext(w);
-                                    if (r != Long.MAX_VALUE) {
-                                        REQUESTED.decrementAndGet(this);
-                                    }
-                                } else {
-                                    ExceptionHelper.addThrowable(ERROR, this, new IllegalStateException("Could not emit window due to lack of requests"));
-                                    continue;
-                                }
+                    if (cancelled) {
+                        w.cancel();
+                        continue;
+                    }
                                 
-                                p.subscribe(end);
-                            }
+                    long r = requested;
+                    if (r != 0L) {
+                        a.onNext(w);
+                        if (r != Long.MAX_VALUE) {
+                            REQUESTED.decrementAndGet(this);
                         }
-                    } else
-                    if (o instanceof WindowStartEndEnder) {
-                        @SuppressWarnings("unchecked") WindowStartEndEnder<T, V> end = (WindowStartEndEnder<T, V>) o;
-                        
-                        end.window.onComplete();
                     } else {
-                        @SuppressWarnings("unchecked")
-                        T v = (T)o;
-                        
-                        for (UnicastProcessor<T> w : windows) {
-                            w.onNext(v);
-                        }
+                        ExceptionHelper.addThrowable(ERROR, this, new IllegalStateException("Could not emit window due to lack of requests"));
                     }
                 }
                 
@@ -447,29 +446,119 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
         
     }
     
-    static final class WindowStartEndEnder<T, V>
-    extends DeferredSubscription
-    implements Subscriber<V> {
+    /**
+     * A window over the shared log which also listens to the end publisher of the window.
+     *
+     * @param <T> the value type
+     * @param <V> the window end value type
+     */
+    static final class WindowStartEndWindow<T, V>
+    extends Px<T>
+    implements Subscriber<V>, Subscription {
 
         final WindowStartEndMainSubscriber<T, ?, V> main;
         
-        final UnicastProcessor<T> window;
+        final ChunkedLog<T> log;
         
-        public WindowStartEndEnder(WindowStartEndMainSubscriber<T, ?, V> main, UnicastProcessor<T> window) {
+        ChunkedLog.Cursor<T> cursor;
+
+        /** The log index where the window closed, Long.MAX_VALUE while open. */
+        volatile long end;
+
+        /** Set before {@link #end} and read after it. */
+        Throwable error;
+
+        volatile int closed;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<WindowStartEndWindow> CLOSED =
+                AtomicIntegerFieldUpdater.newUpdater(WindowStartEndWindow.class, "closed");
+
+        volatile int released;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<WindowStartEndWindow> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(WindowStartEndWindow.class, "released");
+
+        volatile int once;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<WindowStartEndWindow> ONCE =
+                AtomicIntegerFieldUpdater.newUpdater(WindowStartEndWindow.class, "once");
+
+        volatile Subscriber<? super T> actual;
+
+        volatile boolean cancelled;
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<WindowStartEndWindow> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(WindowStartEndWindow.class, "requested");
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<WindowStartEndWindow> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(WindowStartEndWindow.class, "wip");
+
+        volatile Subscription s;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<WindowStartEndWindow, Subscription> S =
+                AtomicReferenceFieldUpdater.newUpdater(WindowStartEndWindow.class, Subscription.class, "s");
+
+        public WindowStartEndWindow(WindowStartEndMainSubscriber<T, ?, V> main, ChunkedLog.Cursor<T> cursor) {
             this.main = main;
-            this.window = window;
+            this.log = main.log;
+            this.cursor = cursor;
+            this.end = Long.MAX_VALUE;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super T> s) {
+            if (once == 0 && ONCE.compareAndSet(this, 0, 1)) {
+                s.onSubscribe(this);
+                actual = s;
+                if (cancelled) {
+                    actual = null;
+                } else {
+                    drain();
+                }
+            } else {
+                SubscriptionHelper.error(s, new IllegalStateException("This processor allows only a single Subscriber"));
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (SubscriptionHelper.validate(n)) {
+                BackpressureHelper.getAndAddCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+
+            cancelEnd();
+            main.remove(this);
+            release();
+
+            if (WIP.getAndIncrement(this) == 0) {
+                actual = null;
+                cursor = null;
+            }
         }
         
         @Override
         public void onSubscribe(Subscription s) {
-            if (set(s)) {
+            if (SubscriptionHelper.setOnce(S, this, s)) {
                 s.request(Long.MAX_VALUE);
             }
         }
 
         @Override
         public void onNext(V t) {
-            cancel();
+            cancelEnd();
             
             main.endSignal(this);
         }
@@ -484,12 +573,93 @@ public final class PublisherWindowStartEnd<T, U, V> extends PublisherSource<T, P
             main.endSignal(this);
         }
         
-    }
+        void cancelEnd() {
+            SubscriptionHelper.terminate(S, this);
+        }
     
-    static final class NewWindow<U> {
-        final U value;
-        public NewWindow(U value) {
-            this.value = value;
+        /**
+         * Closes the window at the given log index; the values before it are still
+         * delivered, then the window completes or signals the error.
+         * @param index the log index where the window closes
+         * @param e the error to signal after the values, null to complete normally
+         */
+        void close(long index, Throwable e) {
+            if (CLOSED.compareAndSet(this, 0, 1)) {
+                error = e;
+                end = index;
+                release();
+                drain();
+            }
+        }
+
+        void release() {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                main.dispose();
+            }
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            for (;;) {
+                Subscriber<? super T> a = actual;
+
+                if (a != null) {
+                    final ChunkedLog.Cursor<T> c = cursor;
+
+                    long r = requested;
+                    long e = 0L;
+
+                    for (;;) {
+                        if (cancelled) {
+                            actual = null;
+                            cursor = null;
+                            return;
+                        }
+
+                        long idx = c.index();
+
+                        if (idx == end) {
+                            actual = null;
+                            cursor = null;
+                            c.clear();
+
+                            Throwable ex = error;
+                            if (ex != null) {
+                                a.onError(ex);
+                            } else {
+                                a.onComplete();
+                            }
+                            return;
+                        }
+
+                        if (e == r || idx == log.size()) {
+                            break;
+                        }
+
+                        a.onNext(c.next());
+
+                        e++;
+                    }
+
+                    if (e != 0L && r != Long.MAX_VALUE) {
+                        REQUESTED.addAndGet(this, -e);
+                    }
+                } else
+                if (cancelled) {
+                    cursor = null;
+                    return;
+                }
+
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
         }
     }
 }
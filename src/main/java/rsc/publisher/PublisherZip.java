@@ -256,7 +256,16 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
             
         } else {
             
-            PublisherZipCoordinator<T, R> coordinator = new PublisherZipCoordinator<>(s, zipper, n, queueSupplier, prefetch);
+            PublisherZipCoordinatorBase<T, R> coordinator;
+            
+            if ((n == 2 || n == 3) && zipper instanceof PairwiseZipper
+                    && ((PairwiseZipper<?>)zipper).zippers.length == n - 1) {
+                @SuppressWarnings("unchecked")
+                PairwiseZipper<R> z = (PairwiseZipper<R>)zipper;
+                coordinator = new PublisherZipPairwiseCoordinator<>(s, z, n, queueSupplier, prefetch);
+            } else {
+                coordinator = new PublisherZipCoordinator<>(s, zipper, n, queueSupplier, prefetch);
+            }
             
             s.onSubscribe(coordinator);
             
@@ -493,47 +502,47 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
         }
     }
     
-    static final class PublisherZipCoordinator<T, R> implements Subscription, MultiReceiver,
+    /**
+     * Holds the state shared by the coordinators: the inner subscribers, the downstream
+     * request amount and the termination flags; the subclasses implement the draining.
+     *
+     * @param <T> the common input type
+     * @param <R> the output value type
+     */
+    static abstract class PublisherZipCoordinatorBase<T, R> implements Subscription, MultiReceiver,
                                                                 Trackable {
 
         final Subscriber<? super R> actual;
         
         final PublisherZipInner<T>[] subscribers;
         
-        final Function<? super Object[], ? extends R> zipper;
-        
         volatile int wip;
         @SuppressWarnings("rawtypes")
-        static final AtomicIntegerFieldUpdater<PublisherZipCoordinator> WIP =
-                AtomicIntegerFieldUpdater.newUpdater(PublisherZipCoordinator.class, "wip");
+        static final AtomicIntegerFieldUpdater<PublisherZipCoordinatorBase> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(PublisherZipCoordinatorBase.class, "wip");
         
         volatile long requested;
         @SuppressWarnings("rawtypes")
-        static final AtomicLongFieldUpdater<PublisherZipCoordinator> REQUESTED =
-                AtomicLongFieldUpdater.newUpdater(PublisherZipCoordinator.class, "requested");
+        static final AtomicLongFieldUpdater<PublisherZipCoordinatorBase> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(PublisherZipCoordinatorBase.class, "requested");
         
         volatile Throwable error;
         @SuppressWarnings("rawtypes")
-        static final AtomicReferenceFieldUpdater<PublisherZipCoordinator, Throwable> ERROR =
-                AtomicReferenceFieldUpdater.newUpdater(PublisherZipCoordinator.class, Throwable.class, "error");
+        static final AtomicReferenceFieldUpdater<PublisherZipCoordinatorBase, Throwable> ERROR =
+                AtomicReferenceFieldUpdater.newUpdater(PublisherZipCoordinatorBase.class, Throwable.class, "error");
         
         volatile boolean done;
         
         volatile boolean cancelled;
         
-        final Object[] current;
-        
-        public PublisherZipCoordinator(Subscriber<? super R> actual, 
-                Function<? super Object[], ? extends R> zipper, int n, 
+        PublisherZipCoordinatorBase(Subscriber<? super R> actual, int n, 
                 Supplier<? extends Queue<T>> queueSupplier, int prefetch) {
             this.actual = actual;
-            this.zipper = zipper;
             @SuppressWarnings("unchecked")
             PublisherZipInner<T>[] a = new PublisherZipInner[n];
             for (int i = 0; i < n; i++) {
                 a[i] = new PublisherZipInner<>(this, prefetch, i, queueSupplier); 
             }
-            this.current = new Object[n];
             this.subscribers = a;
         }
         
@@ -629,6 +638,28 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
             }
         }
         
+        abstract void drain();
+    }
+    
+    static final class PublisherZipCoordinator<T, R> extends PublisherZipCoordinatorBase<T, R> {
+        
+        final Function<? super Object[], ? extends R> zipper;
+        
+        final Object[] current;
+        
+        /** True if the zipper doesn't retain the array so it can be handed out as is. */
+        final boolean reuseValues;
+        
+        public PublisherZipCoordinator(Subscriber<? super R> actual, 
+                Function<? super Object[], ? extends R> zipper, int n, 
+                Supplier<? extends Queue<T>> queueSupplier, int prefetch) {
+            super(actual, n, queueSupplier, prefetch);
+            this.zipper = zipper;
+            this.current = new Object[n];
+            this.reuseValues = zipper instanceof NonRetainingZipper;
+        }
+        
+        @Override
         void drain() {
             
             if (WIP.getAndIncrement(this) != 0) {
@@ -708,7 +739,7 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
                     R v;
                     
                     try {
-                        v = zipper.apply(values.clone());
+                        v = zipper.apply(reuseValues ? values : values.clone());
                     } catch (Throwable ex) {
                         ExceptionHelper.throwIfFatal(ex);
                         
@@ -812,10 +843,231 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
         }
     }
     
+    /**
+     * Zips two or three sources with the BiFunctions of a {@link PairwiseZipper} called
+     * directly on the current values, without packing them into an array.
+     *
+     * @param <T> the common input type
+     * @param <R> the output value type
+     */
+    static final class PublisherZipPairwiseCoordinator<T, R> extends PublisherZipCoordinatorBase<T, R> {
+        
+        final BiFunction<Object, Object, Object> zipper1;
+        
+        /** Combines the result of zipper1 with the third value, null with two sources. */
+        final BiFunction<Object, Object, Object> zipper2;
+        
+        Object v0;
+        
+        Object v1;
+        
+        Object v2;
+        
+        static final Object COMPLETE = new Object();
+        
+        @SuppressWarnings("unchecked")
+        public PublisherZipPairwiseCoordinator(Subscriber<? super R> actual, 
+                PairwiseZipper<R> zipper, int n, 
+                Supplier<? extends Queue<T>> queueSupplier, int prefetch) {
+            super(actual, n, queueSupplier, prefetch);
+            this.zipper1 = zipper.zippers[0];
+            this.zipper2 = n == 3 ? zipper.zippers[1] : null;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        void drain() {
+            
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+
+            final Subscriber<? super R> a = actual;
+            
+            int missed = 1;
+            
+            for (;;) {
+                
+                long r = requested;
+                long e = 0L;
+                
+                while (r != e) {
+                    
+                    if (cancelled) {
+                        return;
+                    }
+                    
+                    if (error != null) {
+                        cancelAll();
+
+                        Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                        
+                        a.onError(ex);
+                        
+                        return;
+                    }
+                    
+                    int state = fill(a);
+                    
+                    if (state < 0) {
+                        return;
+                    }
+                    
+                    if (state == 0) {
+                        break;
+                    }
+                    
+                    R v;
+                    
+                    try {
+                        Object o = zipper1.apply(v0, v1);
+                        BiFunction<Object, Object, Object> z2 = zipper2;
+                        if (z2 != null) {
+                            o = z2.apply(o, v2);
+                        }
+                        v = (R)o;
+                    } catch (Throwable ex) {
+                        ExceptionHelper.throwIfFatal(ex);
+                        
+                        fail(a, ex);
+                        
+                        return;
+                    }
+                    
+                    if (v == null) {
+                        fail(a, new NullPointerException("The zipper returned a null value"));
+                        
+                        return;
+                    }
+                    
+                    a.onNext(v);
+                    
+                    e++;
+                    
+                    v0 = null;
+                    v1 = null;
+                    v2 = null;
+                }
+                
+                if (r == e) {
+                    if (cancelled) {
+                        return;
+                    }
+                    
+                    if (error != null) {
+                        cancelAll();
+
+                        Throwable ex = ExceptionHelper.terminate(ERROR, this);
+                        
+                        a.onError(ex);
+                        
+                        return;
+                    }
+                    
+                    if (fill(a) < 0) {
+                        return;
+                    }
+                }
+                
+                if (e != 0L) {
+                    
+                    for (PublisherZipInner<T> inner : subscribers) {
+                        inner.request(e);
+                    }
+                    
+                    if (r != Long.MAX_VALUE) {
+                        REQUESTED.addAndGet(this, -e);
+                    }
+                }
+                
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+        
+        /**
+         * Polls the sources whose current value is missing, in order.
+         * @param a the downstream subscriber
+         * @return 1 if all current values are present, 0 if some are missing and
+         * -1 if the sequence has been terminated
+         */
+        int fill(Subscriber<? super R> a) {
+            PublisherZipInner<T>[] qs = subscribers;
+            boolean empty = false;
+            
+            try {
+                if (v0 == null) {
+                    Object o = poll(qs[0]);
+                    if (o == COMPLETE) {
+                        complete(a);
+                        return -1;
+                    }
+                    v0 = o;
+                    empty = o == null;
+                }
+                if (v1 == null) {
+                    Object o = poll(qs[1]);
+                    if (o == COMPLETE) {
+                        complete(a);
+                        return -1;
+                    }
+                    v1 = o;
+                    empty |= o == null;
+                }
+                if (zipper2 != null && v2 == null) {
+                    Object o = poll(qs[2]);
+                    if (o == COMPLETE) {
+                        complete(a);
+                        return -1;
+                    }
+                    v2 = o;
+                    empty |= o == null;
+                }
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                
+                fail(a, ex);
+                
+                return -1;
+            }
+            
+            return empty ? 0 : 1;
+        }
+        
+        Object poll(PublisherZipInner<T> inner) {
+            boolean d = inner.done;
+            Queue<T> q = inner.queue;
+            
+            T v = q != null ? q.poll() : null;
+            
+            if (v == null && d) {
+                return COMPLETE;
+            }
+            return v;
+        }
+        
+        void complete(Subscriber<? super R> a) {
+            cancelAll();
+            
+            a.onComplete();
+        }
+        
+        void fail(Subscriber<? super R> a, Throwable ex) {
+            cancelAll();
+            
+            ExceptionHelper.addThrowable(ERROR, this, ex);
+            ex = ExceptionHelper.terminate(ERROR, this);
+            
+            a.onError(ex);
+        }
+    }
+    
     static final class PublisherZipInner<T> implements Subscriber<T>, Receiver, Producer,
                                                        Trackable {
         
-        final PublisherZipCoordinator<T, ?> parent;
+        final PublisherZipCoordinatorBase<T, ?> parent;
 
         final int prefetch;
         
@@ -850,7 +1102,7 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
         static final AtomicIntegerFieldUpdater<PublisherZipInner> ONCE =
                 AtomicIntegerFieldUpdater.newUpdater(PublisherZipInner.class, "once");
         
-        public PublisherZipInner(PublisherZipCoordinator<T, ?> parent, int prefetch, int index, Supplier<? extends Queue<T>> queueSupplier) {
+        public PublisherZipInner(PublisherZipCoordinatorBase<T, ?> parent, int prefetch, int index, Supplier<? extends Queue<T>> queueSupplier) {
             this.parent = parent;
             this.prefetch = prefetch;
             this.index = index;
@@ -981,8 +1233,21 @@ public final class PublisherZip<T, R> extends Px<R> implements MultiReceiver, Tr
         }
     }
     
+    /**
+     * A zipper function that only reads the array it receives during the {@code apply}
+     * call and doesn't keep a reference to it afterwards.
+     * <p>
+     * The zip operators reuse the same array for every tuple when given such a zipper
+     * instead of handing out a fresh copy per output value.
+     *
+     * @param <R> the output value type
+     */
+    public interface NonRetainingZipper<R> extends Function<Object[], R> {
+        
+    }
+    
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    static final class PairwiseZipper<R> implements Function<Object[], R> {
+    static final class PairwiseZipper<R> implements NonRetainingZipper<R> {
         final BiFunction[] zippers;
         
         public PairwiseZipper(BiFunction[] zippers) {
@@ -20,6 +20,8 @@ import java.util.function.Function;
 import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Stream;
 
@@ -31,6 +33,8 @@ import org.reactivestreams.Subscription;
 import rsc.flow.Disposable;
 import rsc.flow.Fuseable;
 import rsc.parallel.ParallelPublisher;
+import rsc.primitive.IntPx;
+import rsc.primitive.LongPx;
 import rsc.scheduler.ExecutorServiceScheduler;
 import rsc.scheduler.Scheduler;
 import rsc.scheduler.TimedScheduler;
@@ -40,8 +44,13 @@ import rsc.subscriber.EmptyAsyncSubscriber;
 import rsc.subscriber.LambdaSubscriber;
 import rsc.subscriber.PeekLastSubscriber;
 import rsc.test.TestSubscriber;
+import rsc.util.BloomFilter;
+import rsc.util.CountWindowSet;
+import rsc.util.MpscLinkedArrayQueue;
 import rsc.util.SpscArrayQueue;
 import rsc.util.SpscLinkedArrayQueue;
+import rsc.util.SpscPaddedArrayQueue;
+import rsc.util.TimedWindowSet;
 import rsc.util.UnsignalledExceptions;
 
 /**
@@ -67,6 +76,9 @@ public abstract class Px<T> implements Publisher<T> {
     }
 
     static final int BUFFER_SIZE = 128;
+
+    /** The link size of the per-group queues of groupBy, kept small as there may be lots of mostly idle groups. */
+    static final int GROUP_LINK_SIZE = 16;
     
     /**
      * If set to true, applying operators on this will inject an
@@ -129,6 +141,27 @@ public abstract class Px<T> implements Publisher<T> {
         };
     }
 
+    /**
+     * Returns a supplier of bounded single-producer single-consumer queues with padded
+     * indexes and a producer-side lookahead cache, suited for long-lived queues between
+     * two busy threads.
+     * @param <T> the value type
+     * @param capacity the capacity of each queue, Integer.MAX_VALUE for an unbounded queue
+     * @return the queue supplier
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <T> Supplier<Queue<T>> paddedQueueSupplier(final int capacity) {
+        if (capacity == Integer.MAX_VALUE) {
+            return (Supplier)QUEUE_SUPPLIER;
+        }
+        return new Supplier<Queue<T>>() {
+            @Override
+            public Queue<T> get() {
+                return new SpscPaddedArrayQueue<>(capacity);
+            }
+        };
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public static <T> Supplier<Queue<T>> defaultUnboundedQueueSupplier(final int capacity) {
         if (capacity == Integer.MAX_VALUE) {
@@ -146,7 +179,19 @@ public abstract class Px<T> implements Publisher<T> {
         return BUFFER_SIZE;
     }
 
+    @SuppressWarnings("unchecked")
     public final <R> Px<R> map(Function<? super T, ? extends R> mapper) {
+        if (this instanceof Fuseable.ScalarCallable) {
+            T value = ((Fuseable.ScalarCallable<T>)this).call();
+            if (value == null) {
+                return empty();
+            }
+            return onAssembly(new PublisherCallable<>(() -> Objects.requireNonNull(mapper.apply(value), "The mapper returned a null value.")));
+        }
+        Px<R> fused = PublisherMapFilter.fuse(this, PublisherMapFilter.Stages.MAP, mapper);
+        if (fused != null) {
+            return onAssembly(fused);
+        }
         if (this instanceof Fuseable) {
             return onAssembly(new PublisherMapFuseable<>(this, mapper));
         }
@@ -154,13 +199,26 @@ public abstract class Px<T> implements Publisher<T> {
     }
     
     public final Px<T> filter(Predicate<? super T> predicate) {
+        Px<T> fused = PublisherMapFilter.fuse(this, PublisherMapFilter.Stages.FILTER, predicate);
+        if (fused != null) {
+            return onAssembly(fused);
+        }
         if (this instanceof Fuseable) {
             return onAssembly(new PublisherFilterFuseable<>(this, predicate));
         }
         return onAssembly(new PublisherFilter<>(this, predicate));
     }
     
+    @SuppressWarnings("unchecked")
     public final Px<T> take(long n) {
+        if (this instanceof PublisherTake) {
+            PublisherTake<T> t = (PublisherTake<T>)this;
+            return onAssembly(new PublisherTake<>(t.source, Math.min(t.n, n)));
+        }
+        if (this instanceof PublisherTakeFuseable) {
+            PublisherTakeFuseable<T> t = (PublisherTakeFuseable<T>)this;
+            return onAssembly(new PublisherTakeFuseable<>(t.source, Math.min(t.n, n)));
+        }
         if (this instanceof Fuseable) {
             return onAssembly(new PublisherTakeFuseable<>(this, n));
         }
@@ -293,6 +351,141 @@ public abstract class Px<T> implements Publisher<T> {
         return onAssembly(new PublisherDistinct<>(this, keyExtractor, () -> new HashSet<>()));
     }
     
+    /**
+     * Filters out values whose key has (probably) been seen recently, using constant memory.
+     * <p>
+     * The keys are remembered by rotating Bloom filters, thus some values with a new key
+     * are dropped with about the given false-positive probability, and a key is forgotten
+     * once at least {@code expectedKeys} other distinct keys have been seen after it.
+     * @param <K> the key type
+     * @param keyExtractor the function extracting the key from a value
+     * @param expectedKeys the number of distinct keys remembered at least
+     * @param fpp the probability of dropping a value with a new key
+     * @return the new Px instance
+     * @see rsc.util.BloomFilter
+     */
+    public final <K> Px<T> distinctApprox(Function<? super T, K> keyExtractor, int expectedKeys, double fpp) {
+        BloomFilter.verify(expectedKeys, fpp, Long.MAX_VALUE, true);
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, keyExtractor, () -> new BloomFilter<>(expectedKeys, fpp)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, keyExtractor, () -> new BloomFilter<>(expectedKeys, fpp)));
+    }
+    
+    /**
+     * Filters out values whose key has (probably) been seen recently, using constant memory;
+     * keys are also forgotten after between one and two times the given maximum age.
+     * @param <K> the key type
+     * @param keyExtractor the function extracting the key from a value
+     * @param expectedKeys the number of distinct keys remembered at least, unless they age out
+     * @param fpp the probability of dropping a value with a new key
+     * @param maxAge the time a key is remembered at least
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler providing the current time
+     * @return the new Px instance
+     * @see rsc.util.BloomFilter
+     */
+    public final <K> Px<T> distinctApprox(Function<? super T, K> keyExtractor, int expectedKeys, double fpp,
+            long maxAge, TimeUnit unit, TimedScheduler clock) {
+        BloomFilter.verify(expectedKeys, fpp, maxAge, true);
+        Objects.requireNonNull(unit, "unit");
+        Objects.requireNonNull(clock, "clock");
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, keyExtractor, () -> new BloomFilter<>(expectedKeys, fpp, maxAge, unit, clock)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, keyExtractor, () -> new BloomFilter<>(expectedKeys, fpp, maxAge, unit, clock)));
+    }
+    
+    /**
+     * Filters out values whose primitive long key has (probably) been seen recently, using
+     * constant memory.
+     * <p>
+     * Unlike {@link #distinctApprox(Function, int, double)}, the Bloom filters hash the full
+     * 64 bits of the key instead of its 32-bit {@code hashCode()}, so keys with colliding
+     * hash codes don't put a floor under the false-positive probability.
+     * @param keyExtractor the function extracting the key from a value
+     * @param expectedKeys the number of distinct keys remembered at least
+     * @param fpp the probability of dropping a value with a new key
+     * @return the new Px instance
+     * @see rsc.util.BloomFilter
+     */
+    public final Px<T> distinctApproxLong(ToLongFunction<? super T> keyExtractor, int expectedKeys, double fpp) {
+        Objects.requireNonNull(keyExtractor, "keyExtractor");
+        BloomFilter.verify(expectedKeys, fpp, Long.MAX_VALUE, false);
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, v -> v, () -> new BloomFilter<>(expectedKeys, fpp, keyExtractor)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, v -> v, () -> new BloomFilter<>(expectedKeys, fpp, keyExtractor)));
+    }
+    
+    /**
+     * Filters out values whose primitive long key has (probably) been seen recently, using
+     * constant memory; keys are also forgotten after between one and two times the given
+     * maximum age.
+     * @param keyExtractor the function extracting the key from a value
+     * @param expectedKeys the number of distinct keys remembered at least, unless they age out
+     * @param fpp the probability of dropping a value with a new key
+     * @param maxAge the time a key is remembered at least
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler providing the current time
+     * @return the new Px instance
+     * @see rsc.util.BloomFilter
+     */
+    public final Px<T> distinctApproxLong(ToLongFunction<? super T> keyExtractor, int expectedKeys, double fpp,
+            long maxAge, TimeUnit unit, TimedScheduler clock) {
+        Objects.requireNonNull(keyExtractor, "keyExtractor");
+        BloomFilter.verify(expectedKeys, fpp, maxAge, false);
+        Objects.requireNonNull(unit, "unit");
+        Objects.requireNonNull(clock, "clock");
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, v -> v, () -> new BloomFilter<>(expectedKeys, fpp, maxAge, unit, clock, keyExtractor)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, v -> v, () -> new BloomFilter<>(expectedKeys, fpp, maxAge, unit, clock, keyExtractor)));
+    }
+    
+    /**
+     * Filters out values whose key has been seen within the given time window, measured
+     * from the time the key was first let through.
+     * @param <K> the key type
+     * @param keyExtractor the function extracting the key from a value
+     * @param timespan the time a key is remembered
+     * @param unit the unit of the timespan
+     * @param clock the scheduler providing the current time
+     * @return the new Px instance
+     * @see rsc.util.TimedWindowSet
+     */
+    public final <K> Px<T> distinctWithin(Function<? super T, K> keyExtractor, long timespan, TimeUnit unit, TimedScheduler clock) {
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, keyExtractor, () -> new TimedWindowSet<>(timespan, unit, clock)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, keyExtractor, () -> new TimedWindowSet<>(timespan, unit, clock)));
+    }
+    
+    /**
+     * Filters out values whose key is among the last {@code count} keys let through.
+     * @param <K> the key type
+     * @param keyExtractor the function extracting the key from a value
+     * @param count the number of keys remembered
+     * @return the new Px instance
+     * @see rsc.util.CountWindowSet
+     */
+    public final <K> Px<T> distinctLast(Function<? super T, K> keyExtractor, int count) {
+        if (this instanceof Fuseable) {
+            return onAssembly(new PublisherDistinctFuseable<>(this, keyExtractor, () -> new CountWindowSet<>(count)));
+        }
+        return onAssembly(new PublisherDistinct<>(this, keyExtractor, () -> new CountWindowSet<>(count)));
+    }
+    
+    /**
+     * Filters out values whose primitive long key has been seen before, tracking the keys
+     * in an open hash set instead of boxing them into a HashSet.
+     * @param keyExtractor the function extracting the key from a value
+     * @return the new Px instance
+     */
+    public final Px<T> distinctLong(ToLongFunction<? super T> keyExtractor) {
+        return onAssembly(new PublisherDistinctLong<>(this, keyExtractor));
+    }
+    
     public final Px<T> distinctUntilChanged() {
         return distinctUntilChanged(v -> v);
     }
@@ -338,6 +531,10 @@ public abstract class Px<T> implements Publisher<T> {
     }
     
     public final Px<T> doOnNext(Consumer<? super T> onNext) {
+        Px<T> fused = PublisherMapFilter.fuse(this, PublisherMapFilter.Stages.PEEK, onNext);
+        if (fused != null) {
+            return onAssembly(fused);
+        }
         if (this instanceof Fuseable) {
             return onAssembly(new PublisherPeekFuseable<>(this, null, onNext, null, null, null, null, null));
         }
@@ -435,7 +632,15 @@ public abstract class Px<T> implements Publisher<T> {
         return onAssembly(new PublisherSingle<>(this, () -> defaultValue));
     }
 
+    @SuppressWarnings("unchecked")
     public final Px<T> skip(long n) {
+        if (this instanceof PublisherSkip) {
+            PublisherSkip<T> k = (PublisherSkip<T>)this;
+            if (n >= 0L) {
+                long m = k.n + n;
+                return onAssembly(new PublisherSkip<>(k.source, m < 0L ? Long.MAX_VALUE : m));
+            }
+        }
         return onAssembly(new PublisherSkip<>(this, n));
     }
     
@@ -456,7 +661,7 @@ public abstract class Px<T> implements Publisher<T> {
     }
     
     public final <U, V> Px<Px<T>> window(Publisher<U> start, Function<? super U, ? extends Publisher<V>> end) {
-        return onAssembly(new PublisherWindowStartEnd<>(this, start, end, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(BUFFER_SIZE)));
+        return onAssembly(new PublisherWindowStartEnd<>(this, start, end, defaultUnboundedQueueSupplier(BUFFER_SIZE)));
     }
 
     public final <U, V> Px<Px<T>> window2(Publisher<U> start, Function<? super U, ? extends Publisher<V>> end) {
@@ -570,6 +775,30 @@ public abstract class Px<T> implements Publisher<T> {
         return onAssembly(new PublisherFlatMap<>(this, mapper, delayError, maxConcurrency, defaultQueueSupplier(maxConcurrency), prefetch, defaultQueueSupplier(prefetch)));
     }
 
+    /**
+     * Maps the values into Publishers and merges them, letting each inner subscriber
+     * adapt its request amount between the minimum and maximum prefetch based on how
+     * fast its items are consumed.
+     * @param <R> the result value type
+     * @param mapper the function mapping each value into a Publisher
+     * @param delayError delay errors until all sources terminated?
+     * @param maxConcurrency the maximum number of active inner Publishers
+     * @param minPrefetch the initial and minimum amount requested by the inner subscribers
+     * @param maxPrefetch the maximum amount requested by the inner subscribers
+     * @return the new Px instance
+     */
+    public final <R> Px<R> flatMap(Function<? super T, ? extends Publisher<? extends R>> mapper, boolean delayError, int maxConcurrency, int minPrefetch, int maxPrefetch) {
+        return onAssembly(new PublisherFlatMap<>(this, mapper, delayError, maxConcurrency, defaultQueueSupplier(maxConcurrency), minPrefetch, maxPrefetch, defaultUnboundedQueueSupplier(minPrefetch)));
+    }
+
+    public final <R> Px<R> flatMapShared(Function<? super T, ? extends Publisher<? extends R>> mapper) {
+        return flatMapShared(mapper, false, Integer.MAX_VALUE, BUFFER_SIZE);
+    }
+
+    public final <R> Px<R> flatMapShared(Function<? super T, ? extends Publisher<? extends R>> mapper, boolean delayError, int maxConcurrency, int prefetch) {
+        return onAssembly(new PublisherFlatMapShared<>(this, mapper, delayError, maxConcurrency, prefetch));
+    }
+
     @SuppressWarnings("unchecked")
     public final <U, R> Px<R> zipWith(Publisher<? extends U> other, BiFunction<? super T, ? super U, ? extends R> zipper) {
         if (this instanceof PublisherZip) {
@@ -633,12 +862,35 @@ public abstract class Px<T> implements Publisher<T> {
     }
     
     public final Px<T> observeOn(Scheduler scheduler, boolean delayError, int prefetch) {
+        return observeOn(scheduler, delayError, prefetch, defaultQueueSupplier(prefetch));
+    }
+
+    public final Px<T> observeOn(Scheduler scheduler, boolean delayError, int prefetch, Supplier<? extends Queue<T>> queueSupplier) {
         if (this instanceof Fuseable.ScalarCallable) {
             @SuppressWarnings("unchecked")
             T value = ((Fuseable.ScalarCallable<T>)this).call();
             return onAssembly(new PublisherSubscribeOnValue<>(value, scheduler));
         }
-        return onAssembly(new PublisherObserveOn<>(this, scheduler, delayError, prefetch, defaultQueueSupplier(prefetch)));
+        return onAssembly(new PublisherObserveOn<>(this, scheduler, delayError, prefetch, queueSupplier));
+    }
+
+    /**
+     * Emits the values on the given Scheduler, adapting the amount requested from
+     * upstream between the minimum and maximum prefetch based on how fast the
+     * values are consumed.
+     * @param scheduler the Scheduler to emit the values on
+     * @param delayError delay an error until all values have been emitted?
+     * @param minPrefetch the initial and minimum amount requested from upstream
+     * @param maxPrefetch the maximum amount requested from upstream
+     * @return the new Px instance
+     */
+    public final Px<T> observeOn(Scheduler scheduler, boolean delayError, int minPrefetch, int maxPrefetch) {
+        if (this instanceof Fuseable.ScalarCallable) {
+            @SuppressWarnings("unchecked")
+            T value = ((Fuseable.ScalarCallable<T>)this).call();
+            return onAssembly(new PublisherSubscribeOnValue<>(value, scheduler));
+        }
+        return onAssembly(new PublisherObserveOn<>(this, scheduler, delayError, minPrefetch, maxPrefetch, defaultUnboundedQueueSupplier(minPrefetch)));
     }
 
     public final Px<T> subscribeOn(ExecutorService executor) {
@@ -682,7 +934,92 @@ public abstract class Px<T> implements Publisher<T> {
     }
 
     public final <K, V> Px<GroupedPublisher<K, V>> groupBy(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector) {
-        return onAssembly(new PublisherGroupBy<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(BUFFER_SIZE), BUFFER_SIZE));
+        return onAssembly(new PublisherGroupBy<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * Groups the values by key, keeping at most the given number of groups live;
+     * an old group is completed when a value with a new key arrives and the limit is reached.
+     * @param <K> the key type
+     * @param <V> the group value type
+     * @param keySelector the function extracting the key from a value
+     * @param valueSelector the function extracting the group value from a value
+     * @param maxGroups the maximum number of live groups
+     * @return the new Px instance
+     */
+    public final <K, V> Px<GroupedPublisher<K, V>> groupBy(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int maxGroups) {
+        return onAssembly(new PublisherGroupBy<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE, maxGroups));
+    }
+
+    /**
+     * Groups the values by key, keeping at most the given number of groups live and
+     * completing the groups that haven't received any value for the idle timeout.
+     * @param <K> the key type
+     * @param <V> the group value type
+     * @param keySelector the function extracting the key from a value
+     * @param valueSelector the function extracting the group value from a value
+     * @param maxGroups the maximum number of live groups, Integer.MAX_VALUE for unbounded
+     * @param idleTimeout the time a group may go without receiving a value
+     * @param unit the unit of the idle timeout
+     * @param scheduler the scheduler running the idle check
+     * @return the new Px instance
+     */
+    public final <K, V> Px<GroupedPublisher<K, V>> groupBy(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, 
+            int maxGroups, long idleTimeout, TimeUnit unit, TimedScheduler scheduler) {
+        return onAssembly(new PublisherGroupBy<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE, 
+                maxGroups, idleTimeout, unit, scheduler));
+    }
+
+    /**
+     * Groups the values by a primitive long key, routing the values without boxing their keys.
+     * @param keySelector the function extracting the key from a value
+     * @return the new Px instance
+     */
+    public final Px<GroupedPublisher<Long, T>> groupByLong(ToLongFunction<? super T> keySelector) {
+        return groupByLong(keySelector, v -> v);
+    }
+
+    /**
+     * Groups the values by a primitive long key, routing the values without boxing their keys.
+     * @param <V> the group value type
+     * @param keySelector the function extracting the key from a value
+     * @param valueSelector the function extracting the group value from a value
+     * @return the new Px instance
+     */
+    public final <V> Px<GroupedPublisher<Long, V>> groupByLong(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector) {
+        return onAssembly(new PublisherGroupByLong<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * Groups the values by a primitive long key, keeping at most the given number of groups live.
+     * @param <V> the group value type
+     * @param keySelector the function extracting the key from a value
+     * @param valueSelector the function extracting the group value from a value
+     * @param maxGroups the maximum number of live groups
+     * @return the new Px instance
+     * @see #groupBy(Function, Function, int)
+     */
+    public final <V> Px<GroupedPublisher<Long, V>> groupByLong(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int maxGroups) {
+        return onAssembly(new PublisherGroupByLong<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE, maxGroups));
+    }
+
+    /**
+     * Groups the values by a primitive long key, keeping at most the given number of groups live and
+     * completing the groups that haven't received any value for the idle timeout.
+     * @param <V> the group value type
+     * @param keySelector the function extracting the key from a value
+     * @param valueSelector the function extracting the group value from a value
+     * @param maxGroups the maximum number of live groups, Integer.MAX_VALUE for unbounded
+     * @param idleTimeout the time a group may go without receiving a value
+     * @param unit the unit of the idle timeout
+     * @param scheduler the scheduler running the idle check
+     * @return the new Px instance
+     * @see #groupBy(Function, Function, int, long, TimeUnit, TimedScheduler)
+     */
+    public final <V> Px<GroupedPublisher<Long, V>> groupByLong(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, 
+            int maxGroups, long idleTimeout, TimeUnit unit, TimedScheduler scheduler) {
+        return onAssembly(new PublisherGroupByLong<>(this, keySelector, valueSelector, defaultUnboundedQueueSupplier(BUFFER_SIZE), defaultUnboundedQueueSupplier(GROUP_LINK_SIZE), BUFFER_SIZE, 
+                maxGroups, idleTimeout, unit, scheduler));
     }
 
     public final <U> Px<Px<T>> windowBatch(int maxSize, Supplier<? extends Publisher<U>> boundarySupplier) {
@@ -787,6 +1124,14 @@ public abstract class Px<T> implements Publisher<T> {
     public final Px<Integer> maxInt() {
         return onAssembly(new PublisherMaxInt((Px<Integer>)this));
     }
+
+    public final IntPx mapToInt(ToIntFunction<? super T> mapper) {
+        return IntPx.from(this, mapper);
+    }
+
+    public final LongPx mapToLong(ToLongFunction<? super T> mapper) {
+        return LongPx.from(this, mapper);
+    }
     
     // ------------------------------------------------------------------------------------------------
     
@@ -1034,7 +1379,22 @@ public abstract class Px<T> implements Publisher<T> {
         return onAssembly(new PublisherCombineLatest<T, R>(new Publisher[] { p1, p2 }, a -> combiner.apply((T)a[0], (U)a[1]),
                 defaultUnboundedQueueSupplier(BUFFER_SIZE), BUFFER_SIZE));
     }
-    
+
+    /**
+     * Combines the latest values of the sources without locking on the sources' emissions.
+     * @param <T> the common value type of the sources
+     * @param <R> the result type
+     * @param combiner the function receiving the latest values, one per source
+     * @param coalesce if true, only the latest combination is emitted when the downstream
+     * can't keep up; if false, a combination is emitted for each source value
+     * @param sources the source Publishers
+     * @return the new Px instance
+     */
+    @SafeVarargs
+    public static <T, R> Px<R> combineLatestLockFree(Function<Object[], R> combiner, boolean coalesce, Publisher<? extends T>... sources) {
+        return onAssembly(new PublisherCombineLatestLockFree<>(sources, combiner, BUFFER_SIZE, coalesce));
+    }
+
     public static <T, S> Px<T> using(Callable<S> resourceSupplier, 
             Function<? super S, ? extends Publisher<? extends T>> sourceCreator, Consumer<? super S> disposer) {
         return using(resourceSupplier, sourceCreator, disposer, true);
@@ -1074,7 +1434,7 @@ public abstract class Px<T> implements Publisher<T> {
     ) {
         return new PublisherGroupJoin<>(
                 this, other, leftEnd, rightEnd, resultSelector,
-                defaultUnboundedQueueSupplier(bufferSize()),
+                () -> new MpscLinkedArrayQueue<>(bufferSize()),
                 defaultUnboundedQueueSupplier(bufferSize()));
     }
 
@@ -1085,7 +1445,18 @@ public abstract class Px<T> implements Publisher<T> {
             BiFunction<? super T, ? super TRight, ? extends R> resultSelector
     ) {
         return new PublisherJoin<T, TRight, TLeftEnd, TRightEnd, R>(
-                this, other, leftEnd, rightEnd, resultSelector, defaultUnboundedQueueSupplier(bufferSize()));
+                this, other, leftEnd, rightEnd, resultSelector, () -> new MpscLinkedArrayQueue<>(bufferSize()));
+    }
+
+    public final <TRight, K, R> Px<R> join(
+            Publisher<? extends TRight> other,
+            Function<? super T, ? extends K> leftKey,
+            Function<? super TRight, ? extends K> rightKey,
+            long leftDuration, long rightDuration, TimeUnit unit, TimedScheduler scheduler,
+            BiFunction<? super T, ? super TRight, ? extends R> resultSelector
+    ) {
+        return onAssembly(new PublisherJoinKeyed<>(
+                this, other, leftKey, rightKey, leftDuration, rightDuration, unit, scheduler, resultSelector));
     }
 
 
@@ -0,0 +1,83 @@
+package rsc.scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Reads the CPU socket layout of the current machine from the Linux sysfs.
+ */
+final class CpuTopology {
+
+    static final String SYS_CPU = "/sys/devices/system/cpu";
+
+    private CpuTopology() {
+        throw new IllegalStateException("No instances!");
+    }
+
+    /**
+     * Returns the CPU ids of each socket, ordered by socket id, or a single socket with
+     * all available processors if the topology can't be read.
+     * @return the CPU ids of each socket
+     */
+    static int[][] sockets() {
+        int[][] result = sockets(Paths.get(SYS_CPU));
+        if (result == null) {
+            int n = Runtime.getRuntime().availableProcessors();
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return new int[][] { all };
+        }
+        return result;
+    }
+
+    /**
+     * Returns the CPU ids of each socket, found in the given sysfs directory.
+     * @param root the directory containing the cpuN subdirectories
+     * @return the CPU ids of each socket or null if the topology can't be read
+     */
+    static int[][] sockets(Path root) {
+        if (!Files.isDirectory(root)) {
+            return null;
+        }
+        SortedMap<Integer, List<Integer>> map = new TreeMap<>();
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(root, "cpu[0-9]*")) {
+            for (Path p : ds) {
+                int cpu;
+                try {
+                    cpu = Integer.parseInt(p.getFileName().toString().substring(3));
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                Path id = p.resolve("topology").resolve("physical_package_id");
+                if (!Files.isReadable(id)) {
+                    continue;
+                }
+                int socket = Integer.parseInt(new String(Files.readAllBytes(id), StandardCharsets.US_ASCII).trim());
+                map.computeIfAbsent(socket, k -> new ArrayList<>()).add(cpu);
+            }
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+
+        if (map.isEmpty()) {
+            return null;
+        }
+
+        int[][] result = new int[map.size()][];
+        int i = 0;
+        for (List<Integer> list : map.values()) {
+            Collections.sort(list);
+            int[] a = new int[list.size()];
+            for (int j = 0; j < a.length; j++) {
+                a[j] = list.get(j);
+            }
+            result[i++] = a;
+        }
+        return result;
+    }
+}
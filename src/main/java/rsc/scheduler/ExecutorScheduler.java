@@ -274,6 +274,45 @@ public final class ExecutorScheduler implements Scheduler {
             return r;
         }
 
+        @Override
+        public Disposable scheduleAll(Runnable... tasks) {
+            int n = tasks.length;
+            if (terminated) {
+                return REJECTED;
+            }
+
+            ExecutorTrackedRunnable[] rs = new ExecutorTrackedRunnable[n];
+            for (int i = 0; i < n; i++) {
+                rs[i] = new ExecutorTrackedRunnable(Objects.requireNonNull(tasks[i], "task"), this, false);
+            }
+
+            synchronized (this) {
+                if (terminated) {
+                    return REJECTED;
+                }
+                for (ExecutorTrackedRunnable r : rs) {
+                    queue.offer(r);
+                }
+            }
+
+            Disposable d = () -> {
+                for (ExecutorTrackedRunnable r : rs) {
+                    r.dispose();
+                }
+            };
+
+            if (n != 0 && WIP.getAndAdd(this, n) == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    d.dispose();
+                    return REJECTED;
+                }
+            }
+
+            return d;
+        }
+
         @Override
         public void shutdown() {
             if (terminated) {
@@ -314,6 +353,8 @@ public final class ExecutorScheduler implements Scheduler {
                     ExecutorTrackedRunnable task = q.poll();
                     
                     if (task == null) {
+                        // the missing tasks were taken out by delete(); count them as consumed
+                        e = r;
                         break;
                     }
                     
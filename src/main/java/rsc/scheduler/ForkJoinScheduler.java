@@ -1,5 +1,6 @@
 package rsc.scheduler;
 
+import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
@@ -9,11 +10,17 @@ import rsc.util.*;
 /**
  * Scheduler that hosts a fixed pool of single-threaded ForkJoinPool-based workers
  * and is suited for parallel work.
+ * <p>
+ * A {@link ThreadPlacement} other than the default round-robin one decides which pool
+ * hosts the worker of a given index, see {@link #createWorker(int)}, and may pin each
+ * pool's thread to a set of CPUs.
  */
 public final class ForkJoinScheduler implements Scheduler {
 
     final int n;
     
+    final ThreadPlacement placement;
+    
     volatile ExecutorService[] executors;
     static final AtomicReferenceFieldUpdater<ForkJoinScheduler, ExecutorService[]> EXECUTORS =
             AtomicReferenceFieldUpdater.newUpdater(ForkJoinScheduler.class, ExecutorService[].class, "executors");
@@ -30,22 +37,41 @@ public final class ForkJoinScheduler implements Scheduler {
     
     public ForkJoinScheduler() {
         this.n = Runtime.getRuntime().availableProcessors();
+        this.placement = ThreadPlacement.roundRobin();
         init(n);
     }
 
     public ForkJoinScheduler(int n) {
         this.n = n;
+        this.placement = ThreadPlacement.roundRobin();
+        init(n);
+    }
+
+    public ForkJoinScheduler(int n, ThreadPlacement placement) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n > 0 required but it was " + n);
+        }
+        this.n = n;
+        this.placement = Objects.requireNonNull(placement, "placement");
         init(n);
     }
 
     private void init(int n) {
         ExecutorService[] a = new ExecutorService[n];
         for (int i = 0; i < n; i++) {
-            a[i] = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+            a[i] = newExecutor(i);
         }
         EXECUTORS.lazySet(this, a);
     }
     
+    ExecutorService newExecutor(int slot) {
+        ThreadPlacement p = placement;
+        if (p == ThreadPlacement.roundRobin()) {
+            return new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+        }
+        return new ForkJoinPool(1, pool -> new PlacedWorkerThread(pool, p, slot, n), null, false);
+    }
+    
     public int parallelism() {
         return n;
     }
@@ -71,7 +97,7 @@ public final class ForkJoinScheduler implements Scheduler {
             if (b == null) {
                 b = new ExecutorService[n];
                 for (int i = 0; i < n; i++) {
-                    b[i] = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+                    b[i] = newExecutor(i);
                 }
             }
             
@@ -122,6 +148,43 @@ public final class ForkJoinScheduler implements Scheduler {
         return new ParallelWorker(pick());
     }
     
+    @Override
+    public Worker createWorker(int index) {
+        if (placement == ThreadPlacement.roundRobin()) {
+            // keep spreading the workers of concurrent flows over all pools
+            return createWorker();
+        }
+        ExecutorService[] a = executors;
+        if (a != SHUTDOWN) {
+            return new ParallelWorker(a[placement.slot(index, n)]);
+        }
+        return new ParallelWorker(TERMINATED);
+    }
+    
+    /**
+     * Lets the placement pin the pool's thread before it starts executing tasks.
+     */
+    static final class PlacedWorkerThread extends ForkJoinWorkerThread {
+        final ThreadPlacement placement;
+        
+        final int slot;
+        
+        final int n;
+        
+        PlacedWorkerThread(ForkJoinPool pool, ThreadPlacement placement, int slot, int n) {
+            super(pool);
+            this.placement = placement;
+            this.slot = slot;
+            this.n = n;
+        }
+        
+        @Override
+        protected void onStart() {
+            super.onStart();
+            placement.onStart(slot, n);
+        }
+    }
+    
     static final class ParallelWorker implements Worker {
         final ExecutorService exec;
         
@@ -0,0 +1,314 @@
+package rsc.scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.*;
+
+import rsc.flow.Disposable;
+
+/**
+ * Wraps another Scheduler and records the number of pending, completed, cancelled and
+ * rejected tasks, their enqueue-to-run latency and run time and the busy ratio of the
+ * threads executing them into a {@link SchedulerMetrics}.
+ * <p>
+ * Instrumentation is opt-in: schedulers that are not wrapped pay nothing. A wrapped
+ * scheduler allocates one extra object per task to carry its submission time; the
+ * metrics themselves are recorded without allocation.
+ * <p>
+ * Tasks still pending when this scheduler or one of its Workers is shut down are counted
+ * as cancelled and won't run afterwards. If the wrapped scheduler is shut down directly,
+ * its dropped tasks are counted as cancelled once it rejects a task.
+ * <p>
+ * Use {@link InstrumentedTimedScheduler} to wrap a {@link TimedScheduler}.
+ */
+public final class InstrumentedScheduler implements Scheduler {
+
+    final Scheduler actual;
+
+    final SchedulerMetrics metrics;
+
+    final PendingTasks tasks;
+
+    public InstrumentedScheduler(Scheduler actual) {
+        this(actual, new SchedulerMetrics());
+    }
+
+    public InstrumentedScheduler(Scheduler actual, SchedulerMetrics metrics) {
+        this.actual = Objects.requireNonNull(actual, "actual");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.tasks = new PendingTasks(metrics);
+    }
+
+    /**
+     * Returns the metrics this scheduler and its Workers record into.
+     * @return the metrics
+     */
+    public SchedulerMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        PendingTasks p = tasks;
+        if (!p.acquire()) {
+            return REJECTED;
+        }
+        InstrumentedTask t = new InstrumentedTask(task, metrics, p);
+
+        Disposable f;
+        try {
+            f = actual.schedule(t);
+        } catch (RuntimeException ex) {
+            // some schedulers signal rejection by throwing
+            t.reject();
+            throw ex;
+        }
+        return t.accept(f);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new InstrumentedWorker(actual.createWorker(), metrics);
+    }
+
+    @Override
+    public Worker createWorker(int index) {
+        return new InstrumentedWorker(actual.createWorker(index), metrics);
+    }
+
+    @Override
+    public void start() {
+        actual.start();
+        tasks.restart();
+    }
+
+    @Override
+    public void shutdown() {
+        tasks.terminate();
+        actual.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedScheduler[" + actual + "]";
+    }
+
+    /**
+     * Counts the tasks of a Scheduler or Worker that have neither started nor been
+     * cancelled, so the ones the wrapped scheduler drops on shutdown can be accounted for
+     * as cancelled.
+     */
+    static class PendingTasks {
+        final SchedulerMetrics metrics;
+
+        /**
+         * The number of tasks not yet started or cancelled, {@link #TERMINATED} after
+         * shutdown.
+         */
+        volatile long outstanding;
+        static final AtomicLongFieldUpdater<PendingTasks> OUTSTANDING =
+                AtomicLongFieldUpdater.newUpdater(PendingTasks.class, "outstanding");
+
+        static final long TERMINATED = Long.MIN_VALUE;
+
+        public PendingTasks(SchedulerMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        /**
+         * Accounts for a new task entering the pending state.
+         * @return false if the tasks have been terminated, in which case the task has
+         * been recorded as rejected
+         */
+        boolean acquire() {
+            SchedulerMetrics m = metrics;
+            m.onSchedule();
+            for (;;) {
+                long c = outstanding;
+                if (c == TERMINATED) {
+                    m.onReject();
+                    return false;
+                }
+                if (OUTSTANDING.compareAndSet(this, c, c + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Accounts for a task leaving the pending state.
+         * @return false if the tasks have been terminated and all pending tasks have
+         * already been accounted for
+         */
+        boolean release() {
+            for (;;) {
+                long c = outstanding;
+                if (c == TERMINATED) {
+                    return false;
+                }
+                if (OUTSTANDING.compareAndSet(this, c, c - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Records the tasks still pending as cancelled; they won't run even if the
+         * wrapped scheduler executes them later.
+         */
+        void terminate() {
+            long c = outstanding;
+            if (c != TERMINATED) {
+                c = OUTSTANDING.getAndSet(this, TERMINATED);
+                if (c != TERMINATED && c != 0L) {
+                    metrics.onCancel(c);
+                }
+            }
+        }
+
+        void restart() {
+            OUTSTANDING.compareAndSet(this, TERMINATED, 0L);
+        }
+    }
+
+    static class InstrumentedWorker extends PendingTasks implements Worker {
+        final Worker actual;
+
+        public InstrumentedWorker(Worker actual, SchedulerMetrics metrics) {
+            super(metrics);
+            this.actual = actual;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Objects.requireNonNull(task, "task");
+            if (!acquire()) {
+                return REJECTED;
+            }
+            InstrumentedTask t = new InstrumentedTask(task, metrics, this);
+
+            Disposable f;
+            try {
+                f = actual.schedule(t);
+            } catch (RuntimeException ex) {
+                t.reject();
+                throw ex;
+            }
+            return t.accept(f);
+        }
+
+        @Override
+        public void shutdown() {
+            terminate();
+            actual.shutdown();
+        }
+    }
+
+    static class InstrumentedTask extends AtomicInteger implements Runnable, Disposable {
+        /** */
+        private static final long serialVersionUID = 2592458913066829498L;
+
+        final Runnable task;
+
+        final SchedulerMetrics metrics;
+
+        final PendingTasks tasks;
+
+        final long enqueued;
+
+        volatile Disposable future;
+        static final AtomicReferenceFieldUpdater<InstrumentedTask, Disposable> FUTURE =
+                AtomicReferenceFieldUpdater.newUpdater(InstrumentedTask.class, Disposable.class, "future");
+
+        static final Disposable CANCELLED = () -> { };
+
+        static final int READY = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        public InstrumentedTask(Runnable task, SchedulerMetrics metrics, PendingTasks tasks) {
+            this(task, metrics, tasks, System.nanoTime());
+        }
+
+        /**
+         * @param enqueued the nanoTime from which the latency is measured, the time the
+         * task becomes due for delayed tasks
+         */
+        public InstrumentedTask(Runnable task, SchedulerMetrics metrics, PendingTasks tasks, long enqueued) {
+            this.task = task;
+            this.metrics = metrics;
+            this.tasks = tasks;
+            this.enqueued = enqueued;
+        }
+
+        boolean release() {
+            return tasks.release();
+        }
+
+        @Override
+        public void run() {
+            if (!compareAndSet(READY, RUNNING)) {
+                return;
+            }
+            SchedulerMetrics m = metrics;
+            if (!release()) {
+                // the Scheduler or Worker has been shut down and counted this task as cancelled
+                lazySet(DONE);
+                return;
+            }
+            long start = m.onStart(enqueued);
+            try {
+                task.run();
+            } finally {
+                m.onFinish(start);
+                lazySet(DONE);
+            }
+        }
+
+        void reject() {
+            if (compareAndSet(READY, DONE) && release()) {
+                metrics.onReject();
+            }
+            // the wrapped scheduler has been shut down and dropped the tasks it had
+            tasks.terminate();
+        }
+
+        /**
+         * Completes the submission with the Disposable the wrapped scheduler returned.
+         * @return this task or {@link Scheduler#REJECTED}
+         */
+        Disposable accept(Disposable f) {
+            if (f == REJECTED) {
+                reject();
+                return REJECTED;
+            }
+            setFuture(f);
+            return this;
+        }
+
+        void setFuture(Disposable f) {
+            if (!FUTURE.compareAndSet(this, null, f)) {
+                f.dispose();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(READY, DONE) && release()) {
+                metrics.onCancel(1L);
+            }
+            Disposable f = future;
+            if (f != CANCELLED) {
+                f = FUTURE.getAndSet(this, CANCELLED);
+                if (f != null && f != CANCELLED) {
+                    f.dispose();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "InstrumentedTask[state=" + get() + ", task=" + task + "]";
+        }
+    }
+}
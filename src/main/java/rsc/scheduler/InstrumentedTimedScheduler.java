@@ -0,0 +1,245 @@
+package rsc.scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import rsc.flow.Disposable;
+import rsc.scheduler.InstrumentedScheduler.InstrumentedTask;
+import rsc.scheduler.InstrumentedScheduler.InstrumentedWorker;
+import rsc.scheduler.InstrumentedScheduler.PendingTasks;
+
+/**
+ * Wraps another TimedScheduler and records the same metrics as
+ * {@link InstrumentedScheduler}, for delayed and periodic tasks as well.
+ * <p>
+ * The latency of a delayed task is measured from the time it becomes due, not from its
+ * submission. A periodic task is pending until its first execution and every execution
+ * counts as a completed task.
+ */
+public final class InstrumentedTimedScheduler implements TimedScheduler {
+
+    final TimedScheduler actual;
+
+    final SchedulerMetrics metrics;
+
+    final PendingTasks tasks;
+
+    public InstrumentedTimedScheduler(TimedScheduler actual) {
+        this(actual, new SchedulerMetrics());
+    }
+
+    public InstrumentedTimedScheduler(TimedScheduler actual, SchedulerMetrics metrics) {
+        this.actual = Objects.requireNonNull(actual, "actual");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.tasks = new PendingTasks(metrics);
+    }
+
+    /**
+     * Returns the metrics this scheduler and its Workers record into.
+     * @return the metrics
+     */
+    public SchedulerMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        PendingTasks p = tasks;
+        if (!p.acquire()) {
+            return REJECTED;
+        }
+        InstrumentedTask t = new InstrumentedTask(task, metrics, p);
+
+        Disposable f;
+        try {
+            f = actual.schedule(t);
+        } catch (RuntimeException ex) {
+            t.reject();
+            throw ex;
+        }
+        return t.accept(f);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        PendingTasks p = tasks;
+        if (!p.acquire()) {
+            return REJECTED;
+        }
+        InstrumentedTask t = new InstrumentedTask(task, metrics, p, due(delay, unit));
+
+        Disposable f;
+        try {
+            f = actual.schedule(t, delay, unit);
+        } catch (RuntimeException ex) {
+            t.reject();
+            throw ex;
+        }
+        return t.accept(f);
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        PendingTasks p = tasks;
+        if (!p.acquire()) {
+            return REJECTED;
+        }
+        InstrumentedPeriodicTask t = new InstrumentedPeriodicTask(task, metrics, p, due(initialDelay, unit), unit.toNanos(period));
+
+        Disposable f;
+        try {
+            f = actual.schedulePeriodically(t, initialDelay, period, unit);
+        } catch (RuntimeException ex) {
+            t.reject();
+            throw ex;
+        }
+        return t.accept(f);
+    }
+
+    @Override
+    public long now(TimeUnit unit) {
+        return actual.now(unit);
+    }
+
+    @Override
+    public TimedWorker createWorker() {
+        return new InstrumentedTimedWorker(actual.createWorker(), metrics);
+    }
+
+    @Override
+    public Worker createWorker(int index) {
+        Worker w = actual.createWorker(index);
+        if (w instanceof TimedWorker) {
+            return new InstrumentedTimedWorker((TimedWorker)w, metrics);
+        }
+        return new InstrumentedWorker(w, metrics);
+    }
+
+    @Override
+    public void start() {
+        actual.start();
+        tasks.restart();
+    }
+
+    @Override
+    public void shutdown() {
+        tasks.terminate();
+        actual.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedTimedScheduler[" + actual + "]";
+    }
+
+    static long due(long delay, TimeUnit unit) {
+        long now = System.nanoTime();
+        return delay > 0L ? now + unit.toNanos(delay) : now;
+    }
+
+    static final class InstrumentedTimedWorker extends InstrumentedWorker implements TimedWorker {
+        final TimedWorker timed;
+
+        public InstrumentedTimedWorker(TimedWorker actual, SchedulerMetrics metrics) {
+            super(actual, metrics);
+            this.timed = actual;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            Objects.requireNonNull(task, "task");
+            if (!acquire()) {
+                return REJECTED;
+            }
+            InstrumentedTask t = new InstrumentedTask(task, metrics, this, due(delay, unit));
+
+            Disposable f;
+            try {
+                f = timed.schedule(t, delay, unit);
+            } catch (RuntimeException ex) {
+                t.reject();
+                throw ex;
+            }
+            return t.accept(f);
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            Objects.requireNonNull(task, "task");
+            if (!acquire()) {
+                return REJECTED;
+            }
+            InstrumentedPeriodicTask t = new InstrumentedPeriodicTask(task, metrics, this, due(initialDelay, unit), unit.toNanos(period));
+
+            Disposable f;
+            try {
+                f = timed.schedulePeriodically(t, initialDelay, period, unit);
+            } catch (RuntimeException ex) {
+                t.reject();
+                throw ex;
+            }
+            return t.accept(f);
+        }
+
+        @Override
+        public long now(TimeUnit unit) {
+            return timed.now(unit);
+        }
+    }
+
+    /**
+     * Stays in the running state after its first execution so a later dispose() doesn't
+     * count it as cancelled; each execution measures its latency from its own due time.
+     */
+    static final class InstrumentedPeriodicTask extends InstrumentedTask {
+        /** */
+        private static final long serialVersionUID = -3817349152075104474L;
+
+        final long period;
+
+        /** Only accessed by the executions, which don't overlap. */
+        long due;
+
+        public InstrumentedPeriodicTask(Runnable task, SchedulerMetrics metrics, PendingTasks tasks,
+                long due, long period) {
+            super(task, metrics, tasks, due);
+            this.due = due;
+            this.period = period;
+        }
+
+        @Override
+        public void run() {
+            SchedulerMetrics m = metrics;
+            long start;
+            int s = get();
+            if (s == READY) {
+                if (!compareAndSet(READY, RUNNING)) {
+                    return;
+                }
+                if (!release()) {
+                    lazySet(DONE);
+                    return;
+                }
+                start = m.onStart(due);
+            } else if (s == RUNNING) {
+                start = m.onRun(due);
+            } else {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                m.onFinish(start);
+                due += period;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "InstrumentedPeriodicTask[state=" + get() + ", task=" + task + "]";
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package rsc.scheduler;
 
+import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
 import rsc.flow.Disposable;
+import rsc.scheduler.ExecutorScheduler.ExecutorSchedulerTrampolineWorker;
 import rsc.util.*;
 
 /**
  * Scheduler that hosts a fixed pool of single-threaded ExecutorService-based workers
  * and is suited for parallel work.
+ * <p>
+ * Workers either submit each task to their ExecutorService individually or,
+ * in trampolining mode, enqueue tasks into their own queue and only submit a drain
+ * loop when they go from idle to busy, which coalesces the wakeups of bursty
+ * schedules into one.
+ * <p>
+ * A {@link ThreadPlacement} other than the default round-robin one decides which thread
+ * hosts the worker of a given index, see {@link #createWorker(int)}, and may pin each
+ * thread to a set of CPUs.
  */
 public final class ParallelScheduler implements Scheduler {
 
@@ -29,6 +40,10 @@ public final class ParallelScheduler implements Scheduler {
     
     final ThreadFactory factory;
 
+    final boolean trampoline;
+
+    final ThreadPlacement placement;
+
     volatile ExecutorService[] executors;
     static final AtomicReferenceFieldUpdater<ParallelScheduler, ExecutorService[]> EXECUTORS =
             AtomicReferenceFieldUpdater.newUpdater(ParallelScheduler.class, ExecutorService[].class, "executors");
@@ -46,12 +61,16 @@ public final class ParallelScheduler implements Scheduler {
     public ParallelScheduler() {
         this.n = Runtime.getRuntime().availableProcessors();
         this.factory = THREAD_FACTORY;
+        this.trampoline = false;
+        this.placement = ThreadPlacement.roundRobin();
         init(n);
     }
 
     public ParallelScheduler(int n) {
         this.n = n;
         this.factory = THREAD_FACTORY;
+        this.trampoline = false;
+        this.placement = ThreadPlacement.roundRobin();
         init(n);
     }
 
@@ -69,32 +88,65 @@ public final class ParallelScheduler implements Scheduler {
             t.setDaemon(daemon);
             return t;
         };
+        this.trampoline = false;
+        this.placement = ThreadPlacement.roundRobin();
         init(n);
     }
 
     public ParallelScheduler(ThreadFactory factory) {
         this.n = Runtime.getRuntime().availableProcessors();
         this.factory = factory;
+        this.trampoline = false;
+        this.placement = ThreadPlacement.roundRobin();
         init(n);
     }
     
     public ParallelScheduler(int n, ThreadFactory factory) {
+        this(n, factory, false);
+    }
+    
+    public ParallelScheduler(int n, String name, boolean daemon, boolean trampoline) {
+        this(n, r -> {
+            Thread t = new Thread(r, name + COUNTER.incrementAndGet());
+            t.setDaemon(daemon);
+            return t;
+        }, trampoline);
+    }
+    
+    public ParallelScheduler(int n, ThreadFactory factory, boolean trampoline) {
+        this(n, factory, trampoline, ThreadPlacement.roundRobin());
+    }
+    
+    public ParallelScheduler(int n, ThreadFactory factory, boolean trampoline, ThreadPlacement placement) {
         if (n <= 0) {
             throw new IllegalArgumentException("n > 0 required but it was " + n);
         }
         this.n = n;
         this.factory = factory;
+        this.trampoline = trampoline;
+        this.placement = Objects.requireNonNull(placement, "placement");
         init(n);
     }
     
     private void init(int n) {
         ExecutorService[] a = new ExecutorService[n];
         for (int i = 0; i < n; i++) {
-            a[i] = Executors.newSingleThreadExecutor(factory);
+            a[i] = newExecutor(i);
         }
         EXECUTORS.lazySet(this, a);
     }
     
+    ExecutorService newExecutor(int slot) {
+        ThreadPlacement p = placement;
+        if (p == ThreadPlacement.roundRobin()) {
+            return Executors.newSingleThreadExecutor(factory);
+        }
+        return Executors.newSingleThreadExecutor(r -> factory.newThread(() -> {
+            p.onStart(slot, n);
+            r.run();
+        }));
+    }
+    
     public int parallelism() {
         return n;
     }
@@ -120,7 +172,7 @@ public final class ParallelScheduler implements Scheduler {
             if (b == null) {
                 b = new ExecutorService[n];
                 for (int i = 0; i < n; i++) {
-                    b[i] = Executors.newSingleThreadExecutor(factory);
+                    b[i] = newExecutor(i);
                 }
             }
             
@@ -168,7 +220,27 @@ public final class ParallelScheduler implements Scheduler {
 
     @Override
     public Worker createWorker() {
-        return new ParallelWorker(pick());
+        return createWorker(pick());
+    }
+    
+    @Override
+    public Worker createWorker(int index) {
+        if (placement == ThreadPlacement.roundRobin()) {
+            // keep spreading the workers of concurrent flows over all threads
+            return createWorker();
+        }
+        ExecutorService[] a = executors;
+        if (a != SHUTDOWN) {
+            return createWorker(a[placement.slot(index, n)]);
+        }
+        return createWorker(TERMINATED);
+    }
+    
+    Worker createWorker(ExecutorService exec) {
+        if (trampoline) {
+            return new ExecutorSchedulerTrampolineWorker(exec);
+        }
+        return new ParallelWorker(exec);
     }
     
     static final class ParallelWorker implements Worker {
@@ -1,6 +1,8 @@
 package rsc.scheduler;
 
 import rsc.flow.Disposable;
+import rsc.util.ExceptionHelper;
+import rsc.util.UnsignalledExceptions;
 
 /**
  * Provides an abstract asychronous boundary to operators.
@@ -35,6 +37,22 @@ public interface Scheduler {
      */
     Worker createWorker();
     
+    /**
+     * Creates a worker of this Scheduler for the given logical index, such as
+     * the rail index of a parallel flow.
+     * <p>
+     * Schedulers with a fixed set of threads may return workers running on the same
+     * thread for the same index so repeated subscriptions and subsequent stages
+     * of the same index keep their locality, see {@link ThreadPlacement}. The default
+     * implementation ignores the index.
+     * 
+     * @param index the non-negative logical index of the worker
+     * @return the Worker instance.
+     */
+    default Worker createWorker(int index) {
+        return createWorker();
+    }
+    
     /**
      * Instructs this Scheduler to prepare itself for running tasks
      * directly or through its Workers.
@@ -78,6 +96,34 @@ public interface Scheduler {
          */
         Disposable schedule(Runnable task);
         
+        /**
+         * Schedules the tasks on this worker, in order, with a single submission
+         * so the underlying thread is woken up at most once for the whole batch.
+         * 
+         * <p>The default implementation runs the tasks one after the other as
+         * one task scheduled via {@link #schedule(Runnable)}; workers
+         * that trampoline their tasks enqueue them individually instead.
+         * 
+         * @param tasks the tasks to schedule
+         * @return the Disposable instance that let's one cancel the remaining tasks of this batch.
+         * If the Scheduler has been shut down, the {@link #REJECTED} Disposable instance is returned.
+         */
+        default Disposable scheduleAll(Runnable... tasks) {
+            return schedule(() -> {
+                for (Runnable task : tasks) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable ex) {
+                        ExceptionHelper.throwIfFatal(ex);
+                        UnsignalledExceptions.onErrorDropped(ex);
+                    }
+                }
+            });
+        }
+        
         /**
          * Instructs this worker to cancel all pending tasks, all running tasks in 
          * a best-effort manner, reject new tasks and
@@ -0,0 +1,430 @@
+package rsc.scheduler;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Collects task counts, queueing latency, run time and per-thread utilization of an
+ * {@link InstrumentedScheduler}.
+ * <p>
+ * Recording doesn't allocate: counters are striped {@link LongAdder}s, histograms have
+ * a fixed set of power-of-2 buckets and each thread keeps its own busy time.
+ * <p>
+ * The per-thread busy times live in a fixed-size table keyed by the thread id, so
+ * schedulers that start a new thread per task or per drain don't grow it: the slot of a
+ * thread that has ended is handed to the next new thread. Threads that find no free
+ * slot share a single overflow entry.
+ */
+public final class SchedulerMetrics {
+
+    final LongAdder scheduled;
+
+    final LongAdder pending;
+
+    final LongAdder completed;
+
+    final LongAdder cancelled;
+
+    final LongAdder rejected;
+
+    final Histogram latency;
+
+    final Histogram runTime;
+
+    final AtomicReferenceArray<ThreadUsage> threads;
+
+    final ThreadUsage overflow;
+
+    /** The default maximum number of threads whose busy time is tracked individually. */
+    public static final int DEFAULT_MAX_THREADS = 256;
+
+    public SchedulerMetrics() {
+        this(DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Constructs a SchedulerMetrics that tracks the busy time of at most the given number
+     * of live threads individually.
+     * @param maxThreads the size of the per-thread table, positive
+     */
+    public SchedulerMetrics(int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads > 0 required but it was " + maxThreads);
+        }
+        this.scheduled = new LongAdder();
+        this.pending = new LongAdder();
+        this.completed = new LongAdder();
+        this.cancelled = new LongAdder();
+        this.rejected = new LongAdder();
+        this.latency = new Histogram();
+        this.runTime = new Histogram();
+        this.threads = new AtomicReferenceArray<>(maxThreads);
+        this.overflow = new ThreadUsage(null, "overflow");
+    }
+
+    /**
+     * Returns the number of tasks submitted so far, including the rejected ones.
+     * @return the number of tasks submitted
+     */
+    public long scheduled() {
+        return scheduled.sum();
+    }
+
+    /**
+     * Returns the number of tasks accepted but neither started nor cancelled yet.
+     * @return the number of pending tasks
+     */
+    public long pending() {
+        return pending.sum();
+    }
+
+    /**
+     * Returns the number of tasks that finished running, normally or by throwing.
+     * @return the number of completed tasks
+     */
+    public long completed() {
+        return completed.sum();
+    }
+
+    /**
+     * Returns the number of tasks cancelled before they could start, including those
+     * dropped by a Worker shutdown.
+     * @return the number of cancelled tasks
+     */
+    public long cancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Returns the number of tasks the wrapped scheduler rejected.
+     * @return the number of rejected tasks
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the histogram of the time, in nanoseconds, the tasks spent between
+     * submission and the start of their execution.
+     * @return the enqueue-to-run latency histogram
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * Returns the histogram of the execution time of the tasks, in nanoseconds.
+     * @return the run-time histogram
+     */
+    public Histogram runTime() {
+        return runTime;
+    }
+
+    /**
+     * Returns the ratio of the time spent executing tasks to the time elapsed since each
+     * thread executed its first task, keyed by the thread name.
+     * <p>
+     * Threads that have ended are not reported. If more live threads executed tasks than
+     * the table can hold, the rest are reported together under the "overflow" key.
+     * @return the busy ratio, between 0 and 1, of each live thread that executed a task
+     */
+    public Map<String, Double> busyRatios() {
+        long now = System.nanoTime();
+        Map<String, Double> map = new LinkedHashMap<>();
+        AtomicReferenceArray<ThreadUsage> a = threads;
+        for (int i = 0; i < a.length(); i++) {
+            ThreadUsage u = a.get(i);
+            if (u != null && u.thread.isAlive()) {
+                map.put(u.name, u.busyRatio(now));
+            }
+        }
+        if (overflow.since != ThreadUsage.NOT_STARTED) {
+            map.put(overflow.name, overflow.busyRatio(now));
+        }
+        return map;
+    }
+
+    void onSchedule() {
+        scheduled.increment();
+        pending.increment();
+    }
+
+    void onReject() {
+        pending.decrement();
+        rejected.increment();
+    }
+
+    void onCancel(long n) {
+        pending.add(-n);
+        cancelled.add(n);
+    }
+
+    long onStart(long enqueued) {
+        pending.decrement();
+        return onRun(enqueued);
+    }
+
+    /**
+     * Records the start of a task that has already left the pending state, such as a
+     * later execution of a periodic task.
+     */
+    long onRun(long due) {
+        long start = System.nanoTime();
+        latency.record(start - due);
+        return start;
+    }
+
+    void onFinish(long start) {
+        long end = System.nanoTime();
+        runTime.record(end - start);
+        usage().add(start, end);
+        completed.increment();
+    }
+
+    /**
+     * Finds the slot of the current thread by linear probing from its home index,
+     * claiming a free slot or the slot of an ended thread on the first task it runs.
+     */
+    ThreadUsage usage() {
+        Thread t = Thread.currentThread();
+        long id = t.getId();
+        AtomicReferenceArray<ThreadUsage> a = threads;
+        int n = a.length();
+        int home = (int)((id * 0x9E3779B97F4A7C15L) >>> 33) % n;
+
+        int i = home;
+        for (int k = 0; k < n; k++) {
+            ThreadUsage u = a.get(i);
+            if (u == null) {
+                u = new ThreadUsage(t, t.getName());
+                if (a.compareAndSet(i, null, u)) {
+                    return u;
+                }
+                u = a.get(i);
+            }
+            if (u.id == id) {
+                return u;
+            }
+            if (++i == n) {
+                i = 0;
+            }
+        }
+
+        // slots are never cleared, only taken over, so the current thread has none yet
+        i = home;
+        for (int k = 0; k < n; k++) {
+            ThreadUsage u = a.get(i);
+            if (!u.thread.isAlive()) {
+                ThreadUsage v = new ThreadUsage(t, t.getName());
+                if (a.compareAndSet(i, u, v)) {
+                    return v;
+                }
+            }
+            if (++i == n) {
+                i = 0;
+            }
+        }
+        return overflow;
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerMetrics[scheduled=" + scheduled()
+                + ", pending=" + pending()
+                + ", completed=" + completed()
+                + ", cancelled=" + cancelled()
+                + ", rejected=" + rejected()
+                + ", latency=" + latency
+                + ", runTime=" + runTime + "]";
+    }
+
+    /**
+     * A histogram of non-negative nanosecond values with fixed power-of-2 buckets:
+     * bucket 0 counts zeros and bucket i counts values between 2<sup>i - 1</sup> and
+     * 2<sup>i</sup> - 1.
+     */
+    public static final class Histogram {
+
+        /** The number of buckets, enough to cover all positive long values. */
+        public static final int BUCKETS = 64;
+
+        final LongAdder[] buckets;
+
+        final LongAdder sum;
+
+        final AtomicLong max;
+
+        Histogram() {
+            LongAdder[] a = new LongAdder[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                a[i] = new LongAdder();
+            }
+            this.buckets = a;
+            this.sum = new LongAdder();
+            this.max = new AtomicLong();
+        }
+
+        static int bucket(long value) {
+            if (value <= 0L) {
+                return 0;
+            }
+            return 64 - Long.numberOfLeadingZeros(value);
+        }
+
+        /**
+         * Returns the largest value the given bucket counts.
+         * @param bucket the bucket index
+         * @return the inclusive upper bound of the bucket
+         */
+        public static long upperBound(int bucket) {
+            if (bucket == 0) {
+                return 0L;
+            }
+            if (bucket >= 63) {
+                return Long.MAX_VALUE;
+            }
+            return (1L << bucket) - 1;
+        }
+
+        void record(long value) {
+            if (value < 0L) {
+                // nanoTime is not guaranteed to be consistent across threads
+                value = 0L;
+            }
+            buckets[bucket(value)].increment();
+            sum.add(value);
+            long m = max.get();
+            while (value > m && !max.compareAndSet(m, value)) {
+                m = max.get();
+            }
+        }
+
+        /**
+         * Returns the number of recorded values.
+         * @return the number of recorded values
+         */
+        public long count() {
+            long c = 0L;
+            for (LongAdder a : buckets) {
+                c += a.sum();
+            }
+            return c;
+        }
+
+        /**
+         * Returns the number of recorded values that fell into the given bucket.
+         * @param bucket the bucket index, between 0 and {@link #BUCKETS} - 1
+         * @return the number of values in the bucket
+         */
+        public long count(int bucket) {
+            return buckets[bucket].sum();
+        }
+
+        /**
+         * Returns the largest value recorded.
+         * @return the largest value recorded, 0 if none
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns the average of the recorded values.
+         * @return the average, 0 if none
+         */
+        public double mean() {
+            long c = count();
+            return c != 0L ? (double)sum.sum() / c : 0d;
+        }
+
+        /**
+         * Returns an upper estimate of the given percentile: the upper bound of the bucket
+         * the percentile falls into, capped by the largest value recorded.
+         * @param percentile the percentile, between 0 and 100
+         * @return the estimated value, 0 if none recorded
+         */
+        public long percentile(double percentile) {
+            if (percentile < 0d || percentile > 100d) {
+                throw new IllegalArgumentException("percentile between 0 and 100 required but it was " + percentile);
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = buckets[i].sum();
+                counts[i] = c;
+                total += c;
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = (long)Math.ceil(total * percentile / 100d);
+            if (rank == 0L) {
+                rank = 1L;
+            }
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max());
+                }
+            }
+            return max();
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram[count=" + count() + ", mean=" + mean() + ", p50=" + percentile(50)
+                    + ", p99=" + percentile(99) + ", max=" + max() + "]";
+        }
+    }
+
+    /**
+     * The busy time of a single thread; only the owner thread updates it, except for the
+     * shared overflow entry which has no owner.
+     */
+    static final class ThreadUsage {
+        static final long NOT_STARTED = Long.MIN_VALUE;
+
+        final Thread thread;
+
+        final long id;
+
+        final String name;
+
+        volatile long since;
+
+        volatile long busy;
+        static final AtomicLongFieldUpdater<ThreadUsage> BUSY =
+                AtomicLongFieldUpdater.newUpdater(ThreadUsage.class, "busy");
+
+        ThreadUsage(Thread thread, String name) {
+            this.thread = thread;
+            this.id = thread != null ? thread.getId() : -1L;
+            this.name = name;
+            this.since = NOT_STARTED;
+        }
+
+        void add(long start, long end) {
+            if (since == NOT_STARTED) {
+                since = start;
+            }
+            if (thread != null) {
+                BUSY.lazySet(this, busy + (end - start));
+            } else {
+                BUSY.getAndAdd(this, end - start);
+            }
+        }
+
+        double busyRatio(long now) {
+            long s = since;
+            if (s == NOT_STARTED) {
+                return 0d;
+            }
+            long elapsed = now - s;
+            if (elapsed <= 0L) {
+                return 0d;
+            }
+            return Math.min(1d, (double)busy / elapsed);
+        }
+    }
+}
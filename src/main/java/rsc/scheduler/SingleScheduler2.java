@@ -1,5 +1,6 @@
 package rsc.scheduler;
 
+import java.util.Objects;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
@@ -13,6 +14,9 @@ import rsc.util.UnsignalledExceptions;
 /**
  * Scheduler that works with a single-threaded ExecutorService and is suited for
  * same-thread work (like an event dispatch thread).
+ * <p>
+ * The {@link WaitStrategy} decides whether the idle thread spins, yields or parks
+ * while waiting for tasks.
  */
 public final class SingleScheduler2 implements Scheduler {
 
@@ -31,6 +35,8 @@ public final class SingleScheduler2 implements Scheduler {
 
     final ThreadFactory factory;
 
+    final WaitStrategy waitStrategy;
+
     volatile SingleThreadedExecutor executor;
     static final AtomicReferenceFieldUpdater<SingleScheduler2, SingleThreadedExecutor> EXECUTORS =
             AtomicReferenceFieldUpdater.newUpdater(SingleScheduler2.class, SingleThreadedExecutor.class, "executor");
@@ -43,9 +49,14 @@ public final class SingleScheduler2 implements Scheduler {
     
     public SingleScheduler2() {
         this.factory = THREAD_FACTORY;
+        this.waitStrategy = SingleThreadedExecutor.DEFAULT_WAIT_STRATEGY;
         init();
     }
 
+    public SingleScheduler2(WaitStrategy waitStrategy) {
+        this(THREAD_FACTORY, waitStrategy);
+    }
+
     public SingleScheduler2(String name) {
         this(name, false);
     }
@@ -56,16 +67,22 @@ public final class SingleScheduler2 implements Scheduler {
             t.setDaemon(daemon);
             return t;
         };
+        this.waitStrategy = SingleThreadedExecutor.DEFAULT_WAIT_STRATEGY;
         init();
     }
 
     public SingleScheduler2(ThreadFactory factory) {
+        this(factory, SingleThreadedExecutor.DEFAULT_WAIT_STRATEGY);
+    }
+
+    public SingleScheduler2(ThreadFactory factory, WaitStrategy waitStrategy) {
         this.factory = factory;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
         init();
     }
     
     private void init() {
-        EXECUTORS.lazySet(this, new SingleThreadedExecutor());
+        EXECUTORS.lazySet(this, new SingleThreadedExecutor(waitStrategy));
     }
     
     public boolean isStarted() {
@@ -85,7 +102,7 @@ public final class SingleScheduler2 implements Scheduler {
             }
 
             if (b == null) {
-                b = new SingleThreadedExecutor();
+                b = new SingleThreadedExecutor(waitStrategy);
             }
             
             if (EXECUTORS.compareAndSet(this, a, b)) {
@@ -1,16 +1,20 @@
 package rsc.scheduler;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 import rsc.flow.Disposable;
 
 public final class SingleThreadedExecutor implements Runnable {
 
-    final BlockingQueue<Runnable> queue;
+    final Queue<Runnable> queue;
+    
+    final WaitStrategy waitStrategy;
     
     volatile boolean shutdown;
     
@@ -18,16 +22,33 @@ public final class SingleThreadedExecutor implements Runnable {
     
     volatile Thread thread;
     
+    volatile int parked;
+    static final AtomicIntegerFieldUpdater<SingleThreadedExecutor> PARKED =
+            AtomicIntegerFieldUpdater.newUpdater(SingleThreadedExecutor.class, "parked");
+    
     static final int spinLimit = 64;
     
+    /**
+     * The default strategy: spin a little and then park until a task arrives.
+     */
+    static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.spinYieldPark(spinLimit, 0);
+    
     public SingleThreadedExecutor() {
-        this.queue = new LinkedBlockingQueue<>();
+        this(DEFAULT_WAIT_STRATEGY);
+    }
+    
+    public SingleThreadedExecutor(WaitStrategy waitStrategy) {
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+        this.queue = new ConcurrentLinkedQueue<>();
         this.once = new AtomicBoolean();
     }
     
     @Override
     public void run() {
-        BlockingQueue<Runnable> q = queue;
+        Queue<Runnable> q = queue;
+        WaitStrategy ws = waitStrategy;
+        
+        int idle = 0;
         
         for (;;) {
             
@@ -35,37 +56,40 @@ public final class SingleThreadedExecutor implements Runnable {
                 return;
             }
             
-            int spin = spinLimit;
+            Runnable run = q.poll();
             
-            while (--spin != 0 && q.isEmpty()) {
-                if (shutdown) {
-                    return;
+            if (run == null) {
+                switch (ws.idle(idle)) {
+                case WaitStrategy.YIELD:
+                    Thread.yield();
+                    break;
+                case WaitStrategy.PARK:
+                    parked = 1;
+                    if (q.isEmpty() && !shutdown) {
+                        LockSupport.park(this);
+                    }
+                    parked = 0;
+                    idle = 0;
+                    continue;
+                default:
+                }
+                if (idle != Integer.MAX_VALUE) {
+                    idle++;
                 }
+                continue;
             }
             
-
+            idle = 0;
             
             try {
-                Runnable run = q.poll(1, TimeUnit.MILLISECONDS);
-
-                if (shutdown) {
-                    return;
-                }
-                
-                if (run != null) {
-                    try {
-                        run.run();
-                    } catch (Throwable ex) {
-                        Thread t = Thread.currentThread();
-                        t.getUncaughtExceptionHandler().uncaughtException(t, ex);
-                    } finally {
-                        if (Thread.currentThread().isInterrupted()) {
-                            Thread.interrupted();
-                        }
-                    }
+                run.run();
+            } catch (Throwable ex) {
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+            } finally {
+                if (Thread.currentThread().isInterrupted()) {
+                    Thread.interrupted();
                 }
-            } catch (InterruptedException e) {
-                // ignore for now
             }
         }
     }
@@ -89,6 +113,10 @@ public final class SingleThreadedExecutor implements Runnable {
             thread = null;
             throw new RejectedExecutionException();
         }
+        
+        if (parked != 0 && PARKED.compareAndSet(this, 1, 0)) {
+            LockSupport.unpark(thread);
+        }
 
         return t;
     }
@@ -98,8 +126,12 @@ public final class SingleThreadedExecutor implements Runnable {
             return;
         }
         shutdown = true;
+        Thread th = thread;
         thread = null;
         queue.clear();
+        if (th != null) {
+            LockSupport.unpark(th);
+        }
     }
     
     static final class Task implements Runnable, Disposable {
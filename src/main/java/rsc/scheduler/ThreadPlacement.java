@@ -0,0 +1,146 @@
+package rsc.scheduler;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Decides which thread of a fixed-size scheduler hosts the worker of a given index
+ * and lets each thread pin itself to a set of CPUs when it starts.
+ * <p>
+ * The default {@link #roundRobin()} placement keeps handing out workers round-robin
+ * so the rails of concurrent flows spread over all threads; any other placement maps
+ * the same index to the same thread on every subscription.
+ * <p>
+ * The JVM has no portable thread affinity API, hence the actual pinning is delegated
+ * to a user-supplied callback (for example one backed by a native affinity library);
+ * without it, placement still keeps index-to-thread assignments stable.
+ */
+public interface ThreadPlacement {
+
+    /**
+     * Returns the thread slot, between 0 and n - 1, for the worker of the given index.
+     * @param index the non-negative logical index of the worker, such as a rail index
+     * @param n the number of threads of the scheduler
+     * @return the thread slot
+     */
+    default int slot(int index, int n) {
+        return index % n;
+    }
+
+    /**
+     * Called on the thread of the given slot before it executes any task.
+     * @param slot the thread slot
+     * @param n the number of threads of the scheduler
+     */
+    default void onStart(int slot, int n) {
+
+    }
+
+    /**
+     * Returns the default placement which ignores the index, hands out workers
+     * round-robin and doesn't pin threads.
+     * @return the default placement
+     */
+    static ThreadPlacement roundRobin() {
+        return RoundRobinPlacement.INSTANCE;
+    }
+
+    /**
+     * Returns a placement which maps the worker of index i to thread i modulo the number
+     * of threads and doesn't pin threads.
+     * @return the index-stable placement
+     */
+    static ThreadPlacement byIndex() {
+        return IndexPlacement.INSTANCE;
+    }
+
+    /**
+     * Returns a placement that splits the threads into contiguous groups, one group per CPU socket
+     * of the current machine, and calls the pinner with the CPUs of the socket of each thread.
+     * <p>
+     * Worker indexes close to each other therefore end up on the same socket.
+     * The socket layout is read from {@code /sys/devices/system/cpu} on Linux; other
+     * platforms are treated as a single socket.
+     * @param pinner called on each thread with the CPU ids it should be restricted to
+     * @return the socket-grouping placement
+     */
+    static ThreadPlacement bySocket(Consumer<int[]> pinner) {
+        return bySocket(CpuTopology.sockets(), pinner);
+    }
+
+    /**
+     * Returns a placement that splits the threads into contiguous groups, one group per
+     * given CPU set, and calls the pinner with the CPU set of each thread.
+     * @param cpuSets the CPU ids of each group, such as the CPUs of each socket
+     * @param pinner called on each thread with the CPU ids it should be restricted to
+     * @return the grouping placement
+     */
+    static ThreadPlacement bySocket(int[][] cpuSets, Consumer<int[]> pinner) {
+        Objects.requireNonNull(cpuSets, "cpuSets");
+        Objects.requireNonNull(pinner, "pinner");
+        if (cpuSets.length == 0) {
+            throw new IllegalArgumentException("At least one CPU set required");
+        }
+        return new GroupedPlacement(cpuSets, pinner);
+    }
+
+    /**
+     * Returns the CPU set the thread of the given slot belongs to when the threads are
+     * split into contiguous groups.
+     * @param cpuSets the CPU sets of the groups
+     * @param slot the thread slot
+     * @param n the number of threads
+     * @return the CPU set of the thread
+     */
+    static int[] group(int[][] cpuSets, int slot, int n) {
+        int g = (int)((long)slot * cpuSets.length / n);
+        return cpuSets[g];
+    }
+
+    final class RoundRobinPlacement implements ThreadPlacement {
+        static final ThreadPlacement INSTANCE = new RoundRobinPlacement();
+
+        private RoundRobinPlacement() {
+
+        }
+
+        @Override
+        public String toString() {
+            return "RoundRobinPlacement";
+        }
+    }
+
+    final class IndexPlacement implements ThreadPlacement {
+        static final ThreadPlacement INSTANCE = new IndexPlacement();
+
+        private IndexPlacement() {
+
+        }
+
+        @Override
+        public String toString() {
+            return "IndexPlacement";
+        }
+    }
+
+    final class GroupedPlacement implements ThreadPlacement {
+        final int[][] cpuSets;
+
+        final Consumer<int[]> pinner;
+
+        GroupedPlacement(int[][] cpuSets, Consumer<int[]> pinner) {
+            this.cpuSets = cpuSets;
+            this.pinner = pinner;
+        }
+
+        @Override
+        public void onStart(int slot, int n) {
+            pinner.accept(ThreadPlacement.group(cpuSets, slot, n).clone());
+        }
+
+        @Override
+        public String toString() {
+            return "GroupedPlacement[groups=" + cpuSets.length + "]";
+        }
+    }
+}
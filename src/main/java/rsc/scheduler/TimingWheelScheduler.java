@@ -0,0 +1,652 @@
+package rsc.scheduler;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+import rsc.flow.Disposable;
+import rsc.util.*;
+
+/**
+ * A TimedScheduler backed by a hashed timing wheel and a single timer thread,
+ * shared among all workers.
+ * <p>
+ * Scheduling and cancelling a delayed task are O(1): new tasks are handed over to the
+ * timer thread through a lock-free queue and placed into the bucket of their deadline tick,
+ * cancelled tasks are unlinked from their bucket by the timer thread. The timer thread wakes
+ * up once per tick and processes all elapsed ticks in one batch, which means delayed tasks
+ * may run up to one tick later than requested. While the wheel holds no tasks, the timer
+ * thread doesn't tick but parks until the next submission.
+ * <p>
+ * Delays longer than a full revolution of the wheel are handled by counting the remaining
+ * rounds of each task. All tasks, delayed or not, run on the timer thread so they should
+ * be short.
+ */
+public final class TimingWheelScheduler implements TimedScheduler {
+
+    static final AtomicLong COUNTER = new AtomicLong();
+
+    static final ThreadFactory THREAD_FACTORY = r -> {
+        Thread t = new Thread(r, "TimingWheelScheduler-" + COUNTER.incrementAndGet());
+        return t;
+    };
+
+    static final ThreadFactory THREAD_FACTORY_DAEMON = r -> {
+        Thread t = new Thread(r, "TimingWheelScheduler-" + COUNTER.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    };
+
+    /** The default tick resolution in milliseconds. */
+    static final long DEFAULT_TICK_MILLIS = 1;
+
+    /** The default number of buckets in the wheel. */
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** The maximum number of new tasks placed into the wheel per tick. */
+    static final int TRANSFER_LIMIT = 100_000;
+
+    final long tickNanos;
+
+    final Bucket[] wheel;
+
+    final int mask;
+
+    final long startNanos;
+
+    final Queue<WheelTask> immediate;
+
+    final Queue<WheelTask> incoming;
+
+    final Queue<WheelTask> cancelled;
+
+    final Thread thread;
+
+    volatile boolean shutdown;
+
+    /** {@link #RUNNING}, {@link #TICKING} or {@link #IDLE}. */
+    volatile int waiting;
+    static final AtomicIntegerFieldUpdater<TimingWheelScheduler> WAITING =
+            AtomicIntegerFieldUpdater.newUpdater(TimingWheelScheduler.class, "waiting");
+
+    /** The timer thread is processing tasks. */
+    static final int RUNNING = 0;
+    /** The timer thread waits for the next tick; only immediate tasks wake it up. */
+    static final int TICKING = 1;
+    /** The wheel is empty and the timer thread waits for any new task. */
+    static final int IDLE = 2;
+
+    /** The next tick to be processed, accessed by the timer thread only. */
+    long tick;
+
+    /** The number of tasks in the wheel, accessed by the timer thread only. */
+    long size;
+
+    /**
+     * Constructs a new TimingWheelScheduler with non-daemon timer thread, default
+     * naming of "TimingWheelScheduler-N", 1 millisecond tick and 512 buckets.
+     */
+    public TimingWheelScheduler() {
+        this(THREAD_FACTORY);
+    }
+
+    /**
+     * Constructs a new TimingWheelScheduler with non-daemon timer thread and
+     * named as specified.
+     * @param threadName the constant thread name to use
+     */
+    public TimingWheelScheduler(String threadName) {
+        this(threadName, false);
+    }
+
+    /**
+     * Constructs a new TimingWheelScheduler with possibly daemon timer thread and default
+     * naming of "TimingWheelScheduler-N".
+     * @param daemon create a daemon thread?
+     */
+    public TimingWheelScheduler(boolean daemon) {
+        this(daemon ? THREAD_FACTORY_DAEMON : THREAD_FACTORY);
+    }
+
+    /**
+     * Constructs a new TimingWheelScheduler with possible daemon timer thread and
+     * named as specified.
+     * @param threadName the constant thread name to use
+     * @param daemon create a daemon thread?
+     */
+    public TimingWheelScheduler(String threadName, boolean daemon) {
+        this(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(daemon);
+            return t;
+        });
+    }
+
+    /**
+     * Constructs a new TimingWheelScheduler with the given thread factory,
+     * 1 millisecond tick and 512 buckets.
+     * @param threadFactory the thread factory to use
+     */
+    public TimingWheelScheduler(ThreadFactory threadFactory) {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, threadFactory);
+    }
+
+    /**
+     * Constructs a new TimingWheelScheduler with the given tick resolution, wheel size
+     * and thread factory.
+     * @param tickDuration the time between two ticks of the wheel, positive
+     * @param unit the unit of the tick duration
+     * @param wheelSize the number of buckets, rounded up to the next power of 2
+     * @param threadFactory the thread factory to use
+     */
+    public TimingWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize, ThreadFactory threadFactory) {
+        if (tickDuration <= 0L) {
+            throw new IllegalArgumentException("tickDuration > 0 required but it was " + tickDuration);
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheelSize > 0 required but it was " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int n = PowerOf2.roundUp(wheelSize);
+        Bucket[] w = new Bucket[n];
+        for (int i = 0; i < n; i++) {
+            w[i] = new Bucket();
+        }
+        this.wheel = w;
+        this.mask = n - 1;
+        this.immediate = new ConcurrentLinkedQueue<>();
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.cancelled = new ConcurrentLinkedQueue<>();
+        this.startNanos = System.nanoTime();
+        Thread t = threadFactory.newThread(this::loop);
+        this.thread = t;
+        t.start();
+    }
+
+    /**
+     * Returns the tick resolution of this scheduler.
+     * @param unit the target unit of the tick duration
+     * @return the tick duration in the target unit of measure
+     */
+    public long tickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long elapsed() {
+        return System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return schedule(task, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        WheelTask wt = new WheelTask(task, this, null, 0L);
+        if (submit(wt, delay, unit)) {
+            return wt;
+        }
+        return REJECTED;
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        WheelTask wt = new WheelTask(task, this, null, Math.max(1L, unit.toNanos(period)));
+        if (submit(wt, initialDelay, unit)) {
+            return wt;
+        }
+        return REJECTED;
+    }
+
+    boolean submit(WheelTask wt, long delay, TimeUnit unit) {
+        if (shutdown) {
+            return false;
+        }
+        if (delay <= 0L) {
+            if (wt.period != 0L) {
+                wt.deadline = elapsed();
+            }
+            immediate.offer(wt);
+            if (shutdown) {
+                immediate.clear();
+                return false;
+            }
+            int w = waiting;
+            if (w != RUNNING && WAITING.compareAndSet(this, w, RUNNING)) {
+                LockSupport.unpark(thread);
+            }
+        } else {
+            // saturates so that very long delays stay in the far future instead of wrapping around
+            wt.deadline = BackpressureHelper.addCap(elapsed(), unit.toNanos(delay));
+            incoming.offer(wt);
+            if (shutdown) {
+                incoming.clear();
+                return false;
+            }
+            if (waiting == IDLE && WAITING.compareAndSet(this, IDLE, RUNNING)) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return true;
+    }
+
+    void cancel(WheelTask wt) {
+        if (!shutdown) {
+            cancelled.offer(wt);
+        }
+    }
+
+    @Override
+    public void start() {
+        throw new UnsupportedOperationException("Not supported, yet.");
+    }
+
+    @Override
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public TimedWorker createWorker() {
+        return new TimingWheelWorker(this);
+    }
+
+    void loop() {
+        final Queue<WheelTask> imm = immediate;
+
+        for (;;) {
+            if (shutdown) {
+                clear();
+                return;
+            }
+
+            WheelTask wt;
+
+            while ((wt = imm.poll()) != null) {
+                if (shutdown) {
+                    clear();
+                    return;
+                }
+                if (wt.run()) {
+                    wt.deadline = BackpressureHelper.addCap(wt.deadline, wt.period);
+                    place(wt);
+                }
+            }
+
+            removeCancelled();
+
+            if (size == 0L) {
+                // skip the empty ticks since the wheel went idle instead of visiting them
+                long t = elapsed() / tickNanos;
+                if (t > tick) {
+                    tick = t;
+                }
+            }
+
+            transferIncoming();
+
+            long now = elapsed();
+
+            while (tick * tickNanos <= now) {
+                if (shutdown) {
+                    clear();
+                    return;
+                }
+                Bucket b = wheel[(int)tick & mask];
+                tick++;
+                expire(b);
+            }
+
+            if (size == 0L && incoming.isEmpty()) {
+                waiting = IDLE;
+
+                if (!imm.isEmpty() || !incoming.isEmpty() || shutdown) {
+                    waiting = RUNNING;
+                    continue;
+                }
+
+                LockSupport.park(this);
+                waiting = RUNNING;
+                continue;
+            }
+
+            waiting = TICKING;
+
+            if (!imm.isEmpty() || shutdown) {
+                waiting = RUNNING;
+                continue;
+            }
+
+            long next = tick * tickNanos - elapsed();
+            if (next > 0L) {
+                LockSupport.parkNanos(this, next);
+            }
+            waiting = RUNNING;
+        }
+    }
+
+    void transferIncoming() {
+        final Queue<WheelTask> q = incoming;
+        for (int i = 0; i < TRANSFER_LIMIT; i++) {
+            WheelTask wt = q.poll();
+            if (wt == null) {
+                break;
+            }
+            if (!wt.isCancelled()) {
+                place(wt);
+            }
+        }
+    }
+
+    void removeCancelled() {
+        final Queue<WheelTask> q = cancelled;
+        WheelTask wt;
+        while ((wt = q.poll()) != null) {
+            Bucket b = wt.bucket;
+            if (b != null && b.remove(wt)) {
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Places the task into the bucket of its deadline tick, never into a tick
+     * that has been processed already.
+     * @param wt the task to place
+     */
+    void place(WheelTask wt) {
+        long d = wt.deadline;
+        long t = d / tickNanos;
+        if (t * tickNanos < d) {
+            t++;
+        }
+        long current = tick;
+        if (t < current) {
+            t = current;
+        }
+        wt.rounds = (t - current) / wheel.length;
+        wheel[(int)t & mask].add(wt);
+        size++;
+    }
+
+    void expire(Bucket b) {
+        // periodic tasks may be placed back into this bucket, don't visit them again
+        WheelTask last = b.tail;
+        WheelTask wt = b.head;
+        while (wt != null) {
+            WheelTask next = wt.next;
+            boolean end = wt == last;
+            if (wt.isCancelled()) {
+                b.remove(wt);
+                size--;
+            } else
+            if (wt.rounds <= 0L) {
+                b.remove(wt);
+                size--;
+                if (wt.run()) {
+                    wt.deadline = BackpressureHelper.addCap(wt.deadline, wt.period);
+                    place(wt);
+                }
+            } else {
+                wt.rounds--;
+            }
+            if (end) {
+                break;
+            }
+            wt = next;
+        }
+    }
+
+    void clear() {
+        immediate.clear();
+        incoming.clear();
+        cancelled.clear();
+        for (Bucket b : wheel) {
+            b.head = null;
+            b.tail = null;
+        }
+        size = 0L;
+    }
+
+    /**
+     * A doubly linked list of tasks of the same tick, accessed by the timer thread only.
+     */
+    static final class Bucket {
+        WheelTask head;
+
+        WheelTask tail;
+
+        void add(WheelTask wt) {
+            wt.bucket = this;
+            WheelTask t = tail;
+            if (t == null) {
+                head = wt;
+            } else {
+                t.next = wt;
+                wt.prev = t;
+            }
+            tail = wt;
+        }
+
+        boolean remove(WheelTask wt) {
+            if (wt.bucket != this) {
+                return false;
+            }
+            WheelTask p = wt.prev;
+            WheelTask n = wt.next;
+            if (p == null) {
+                head = n;
+            } else {
+                p.next = n;
+            }
+            if (n == null) {
+                tail = p;
+            } else {
+                n.prev = p;
+            }
+            wt.prev = null;
+            wt.next = null;
+            wt.bucket = null;
+            return true;
+        }
+    }
+
+    static final class TimingWheelWorker implements TimedWorker {
+        final TimingWheelScheduler scheduler;
+
+        OpenHashSet<WheelTask> tasks;
+
+        volatile boolean terminated;
+
+        public TimingWheelWorker(TimingWheelScheduler scheduler) {
+            this.scheduler = scheduler;
+            this.tasks = new OpenHashSet<>();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return schedule(task, 0L, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            Objects.requireNonNull(task, "task");
+            return submit(new WheelTask(task, scheduler, this, 0L), delay, unit);
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            Objects.requireNonNull(task, "task");
+            return submit(new WheelTask(task, scheduler, this, Math.max(1L, unit.toNanos(period))), initialDelay, unit);
+        }
+
+        Disposable submit(WheelTask wt, long delay, TimeUnit unit) {
+            if (terminated) {
+                return REJECTED;
+            }
+
+            synchronized (this) {
+                if (terminated) {
+                    return REJECTED;
+                }
+                tasks.add(wt);
+            }
+
+            if (!scheduler.submit(wt, delay, unit)) {
+                delete(wt);
+                return REJECTED;
+            }
+            return wt;
+        }
+
+        void delete(WheelTask wt) {
+            synchronized (this) {
+                if (!terminated) {
+                    tasks.remove(wt);
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            if (terminated) {
+                return;
+            }
+
+            OpenHashSet<WheelTask> set;
+
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                set = tasks;
+                tasks = null;
+            }
+
+            if (!set.isEmpty()) {
+                Object[] a = set.keys();
+                for (Object o : a) {
+                    if (o != null) {
+                        ((WheelTask)o).cancelTask();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A delayed or periodic task sitting in the wheel; the linking fields are
+     * accessed by the timer thread only.
+     */
+    static final class WheelTask extends AtomicInteger implements Disposable {
+        /** */
+        private static final long serialVersionUID = -4937413412396291634L;
+
+        static final int READY = 0;
+        static final int RUNNING = 1;
+        static final int FINISHED = 2;
+        static final int CANCELLED = 3;
+
+        final Runnable task;
+
+        final TimingWheelScheduler scheduler;
+
+        final TimingWheelWorker parent;
+
+        /** The repeat period in nanoseconds, zero for one-shot tasks. */
+        final long period;
+
+        /** The deadline relative to the start of the scheduler in nanoseconds. */
+        long deadline;
+
+        long rounds;
+
+        Bucket bucket;
+
+        WheelTask prev;
+
+        WheelTask next;
+
+        public WheelTask(Runnable task, TimingWheelScheduler scheduler, TimingWheelWorker parent, long period) {
+            this.task = task;
+            this.scheduler = scheduler;
+            this.parent = parent;
+            this.period = period;
+        }
+
+        boolean isCancelled() {
+            return get() == CANCELLED;
+        }
+
+        /**
+         * Runs the task on the timer thread.
+         * @return true if the task is periodic and should be placed back into the wheel
+         */
+        boolean run() {
+            if (!compareAndSet(READY, RUNNING)) {
+                return false;
+            }
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                UnsignalledExceptions.onErrorDropped(ex);
+                if (compareAndSet(RUNNING, FINISHED)) {
+                    delete();
+                }
+                return false;
+            }
+            if (period == 0L) {
+                if (compareAndSet(RUNNING, FINISHED)) {
+                    delete();
+                }
+                return false;
+            }
+            return compareAndSet(RUNNING, READY);
+        }
+
+        void delete() {
+            TimingWheelWorker p = parent;
+            if (p != null) {
+                p.delete(this);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (cancelTask()) {
+                delete();
+            }
+        }
+
+        boolean cancelTask() {
+            for (;;) {
+                int s = get();
+                if (s == FINISHED || s == CANCELLED) {
+                    return false;
+                }
+                if (compareAndSet(s, CANCELLED)) {
+                    if (s == READY) {
+                        scheduler.cancel(this);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "WheelTask[state=" + get() + ", task=" + task + "]";
+        }
+    }
+}
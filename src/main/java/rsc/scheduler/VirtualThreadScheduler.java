@@ -0,0 +1,306 @@
+package rsc.scheduler;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import rsc.flow.Disposable;
+
+/**
+ * Runs tasks and Worker drain loops on virtual threads when the runtime supports them,
+ * suited for subscribing to blocking sources.
+ * <p>
+ * Every direct task and every drain episode of a Worker gets a fresh virtual thread:
+ * a Worker trampolines its tasks so they still execute in FIFO order and strictly
+ * non-concurrently, and its virtual thread ends once the Worker runs out of tasks.
+ * Delayed and periodic tasks wait on a {@link TimingWheelScheduler} shared by all
+ * instances and are handed over to the (virtual thread) Worker once due. Its timer thread
+ * starts with the first instance and parks while no delayed task is pending.
+ * <p>
+ * If virtual threads are not available, tasks run on a {@link CachedScheduler} instead.
+ * <p>
+ * This scheduler is not restartable.
+ */
+public final class VirtualThreadScheduler implements TimedScheduler {
+
+    static final AtomicLong COUNTER = new AtomicLong();
+
+    static final ThreadFactory TIMER_FACTORY = r -> {
+        Thread t = new Thread(r, "virtual-timer-" + COUNTER.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    };
+
+    final Scheduler actual;
+
+    /** Tracks the delayed tasks of this instance on the shared wheel. */
+    final TimedWorker timer;
+
+    final ThreadPerTaskExecutor executor;
+
+    public VirtualThreadScheduler() {
+        this("virtual-");
+    }
+
+    public VirtualThreadScheduler(String name) {
+        this(virtualThreadFactory(name), name);
+    }
+
+    VirtualThreadScheduler(ThreadFactory threadFactory, String name) {
+        if (threadFactory != null) {
+            this.executor = new ThreadPerTaskExecutor(threadFactory);
+            this.actual = new ExecutorScheduler(executor, true);
+        } else {
+            this.executor = null;
+            this.actual = new CachedScheduler(name, true);
+        }
+        this.timer = SharedTimer.INSTANCE.createWorker();
+    }
+
+    /**
+     * Returns true if the current runtime supports virtual threads.
+     * @return true if the current runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return virtualThreadFactory("virtual-") != null;
+    }
+
+    /**
+     * Returns true if this scheduler runs its tasks on virtual threads,
+     * false if it fell back to a CachedScheduler.
+     * @return true if this scheduler runs its tasks on virtual threads
+     */
+    public boolean isVirtual() {
+        return executor != null;
+    }
+
+    /**
+     * Creates a virtual thread factory, through reflection, if the runtime supports it.
+     * @param prefix the thread name prefix, followed by a counter
+     * @return the virtual thread factory or null if not supported
+     */
+    static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable ex) {
+            // not available or preview features are not enabled
+            return null;
+        }
+    }
+
+    @Override
+    public void start() {
+        throw new UnsupportedOperationException("Restarting not supported yet");
+    }
+
+    @Override
+    public void shutdown() {
+        ThreadPerTaskExecutor e = executor;
+        if (e != null) {
+            e.shutdown = true;
+        }
+        actual.shutdown();
+        timer.shutdown();
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return actual.schedule(task);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        if (delay <= 0L) {
+            return actual.schedule(task);
+        }
+        HandoffTask ht = new HandoffTask(task, actual::schedule);
+        Disposable d = timer.schedule(ht, delay, unit);
+        if (d == REJECTED) {
+            return REJECTED;
+        }
+        ht.setTimer(d);
+        return ht;
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        HandoffTask ht = new HandoffTask(task, actual::schedule, true);
+        Disposable d = timer.schedulePeriodically(ht, initialDelay, period, unit);
+        if (d == REJECTED) {
+            return REJECTED;
+        }
+        ht.setTimer(d);
+        return ht;
+    }
+
+    @Override
+    public TimedWorker createWorker() {
+        return new VirtualTimedWorker(actual.createWorker(), SharedTimer.INSTANCE.createWorker());
+    }
+
+    /**
+     * Holds the timer wheel, started on first use and never shut down.
+     */
+    static final class SharedTimer {
+        static final TimingWheelScheduler INSTANCE = new TimingWheelScheduler(TIMER_FACTORY);
+    }
+
+    /**
+     * Starts a new thread for each task.
+     */
+    static final class ThreadPerTaskExecutor implements Executor {
+        final ThreadFactory factory;
+
+        volatile boolean shutdown;
+
+        public ThreadPerTaskExecutor(ThreadFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException();
+            }
+            factory.newThread(command).start();
+        }
+    }
+
+    /**
+     * Waits on the timer and then hands the task over to the target for execution.
+     * <p>
+     * A periodic handoff skips the ticks that arrive while its previous run is still
+     * pending or executing, so runs never overlap and dispose() reaches the one in flight.
+     */
+    static final class HandoffTask implements Runnable, Disposable {
+        final Runnable task;
+
+        final Function<Runnable, Disposable> target;
+
+        /** The task itself or, if periodic, a wrapper that ends the run in flight. */
+        final Runnable handoff;
+
+        final boolean periodic;
+
+        volatile boolean cancelled;
+
+        volatile Disposable timer;
+
+        volatile Disposable running;
+
+        volatile int busy;
+        static final AtomicIntegerFieldUpdater<HandoffTask> BUSY =
+                AtomicIntegerFieldUpdater.newUpdater(HandoffTask.class, "busy");
+
+        public HandoffTask(Runnable task, Function<Runnable, Disposable> target) {
+            this(task, target, false);
+        }
+
+        public HandoffTask(Runnable task, Function<Runnable, Disposable> target, boolean periodic) {
+            this.task = Objects.requireNonNull(task, "task");
+            this.target = target;
+            this.periodic = periodic;
+            this.handoff = periodic ? this::runPeriodic : task;
+        }
+
+        void setTimer(Disposable d) {
+            timer = d;
+            if (cancelled) {
+                d.dispose();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            // the timer calls run() serially so only this tick can replace the run in flight
+            if (periodic && !BUSY.compareAndSet(this, 0, 1)) {
+                return;
+            }
+            Disposable d = target.apply(handoff);
+            running = d;
+            if (cancelled) {
+                d.dispose();
+            }
+        }
+
+        void runPeriodic() {
+            try {
+                task.run();
+            } finally {
+                busy = 0;
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!cancelled) {
+                cancelled = true;
+                Disposable d = timer;
+                if (d != null) {
+                    d.dispose();
+                }
+                d = running;
+                if (d != null) {
+                    d.dispose();
+                }
+            }
+        }
+    }
+
+    static final class VirtualTimedWorker implements TimedWorker {
+        final Worker worker;
+
+        final TimedWorker timerWorker;
+
+        public VirtualTimedWorker(Worker worker, TimedWorker timerWorker) {
+            this.worker = worker;
+            this.timerWorker = timerWorker;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return worker.schedule(task);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            if (delay <= 0L) {
+                return worker.schedule(task);
+            }
+            HandoffTask ht = new HandoffTask(task, worker::schedule);
+            Disposable d = timerWorker.schedule(ht, delay, unit);
+            if (d == REJECTED) {
+                return REJECTED;
+            }
+            ht.setTimer(d);
+            return ht;
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            HandoffTask ht = new HandoffTask(task, worker::schedule, true);
+            Disposable d = timerWorker.schedulePeriodically(ht, initialDelay, period, unit);
+            if (d == REJECTED) {
+                return REJECTED;
+            }
+            ht.setTimer(d);
+            return ht;
+        }
+
+        @Override
+        public void shutdown() {
+            timerWorker.shutdown();
+            worker.shutdown();
+        }
+    }
+}
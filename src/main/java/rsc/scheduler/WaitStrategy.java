@@ -0,0 +1,61 @@
+package rsc.scheduler;
+
+/**
+ * Decides what an idle consumer thread should do while its task queue is empty,
+ * trading CPU time for handoff latency.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /** Check the queue again right away. */
+    int SPIN = 0;
+
+    /** Yield the thread and then check the queue again. */
+    int YIELD = 1;
+
+    /** Park the thread until a producer wakes it up. */
+    int PARK = 2;
+
+    /**
+     * Returns the action to take after the given number of consecutive
+     * checks found the queue empty.
+     * @param idleRounds the number of consecutive empty checks, starting from 0
+     * @return one of {@link #SPIN}, {@link #YIELD} or {@link #PARK}
+     */
+    int idle(int idleRounds);
+
+    /**
+     * Returns a strategy that never gives up the CPU; producers never have to wake the
+     * consumer up.
+     * @return the busy-spin strategy
+     */
+    static WaitStrategy busySpin() {
+        return r -> SPIN;
+    }
+
+    /**
+     * Returns a strategy that parks the consumer as soon as the queue is empty.
+     * @return the blocking strategy
+     */
+    static WaitStrategy blocking() {
+        return r -> PARK;
+    }
+
+    /**
+     * Returns a strategy that spins for the given number of rounds, then yields for
+     * the given number of rounds and then parks.
+     * @param spins the number of empty checks spent spinning, non-negative
+     * @param yields the number of empty checks spent yielding after spinning, non-negative
+     * @return the spin-yield-park strategy
+     */
+    static WaitStrategy spinYieldPark(int spins, int yields) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("spins >= 0 required but it was " + spins);
+        }
+        if (yields < 0) {
+            throw new IllegalArgumentException("yields >= 0 required but it was " + yields);
+        }
+        int limit = spins + yields;
+        return r -> r < spins ? SPIN : (r < limit ? YIELD : PARK);
+    }
+}
@@ -0,0 +1,526 @@
+package rsc.scheduler;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+import rsc.flow.Disposable;
+import rsc.util.*;
+
+/**
+ * Scheduler that hosts a fixed pool of threads, each with its own lock-free run queue,
+ * where idle threads steal pending Worker drain loops from busy ones.
+ * <p>
+ * Each Worker trampolines its tasks through a single drain loop which is submitted to
+ * the run queue of the Worker's home thread. Since only one instance of a drain loop can be
+ * queued or running at a time, the tasks of a Worker still execute in FIFO order and strictly
+ * non-concurrently, but the drain loop itself may be picked up by any thread of the pool.
+ * A drain loop yields its thread after a fixed number of tasks so a hot Worker can't
+ * starve the other Workers sharing the same home thread.
+ */
+public final class WorkStealingScheduler implements Scheduler {
+
+    static final AtomicLong COUNTER = new AtomicLong();
+
+    static final ThreadFactory THREAD_FACTORY = r -> {
+        Thread t = new Thread(r, "workstealing-" + COUNTER.incrementAndGet());
+        return t;
+    };
+
+    static final ThreadFactory THREAD_FACTORY_DAEMON = r -> {
+        Thread t = new Thread(r, "workstealing-" + COUNTER.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    };
+
+    /** The number of tasks a Worker drain loop executes before yielding its thread. */
+    static final int DRAIN_LIMIT = 64;
+
+    final int n;
+
+    final ThreadFactory factory;
+
+    volatile WorkQueue[] queues;
+    static final AtomicReferenceFieldUpdater<WorkStealingScheduler, WorkQueue[]> QUEUES =
+            AtomicReferenceFieldUpdater.newUpdater(WorkStealingScheduler.class, WorkQueue[].class, "queues");
+
+    static final WorkQueue[] SHUTDOWN = new WorkQueue[0];
+
+    static final WorkQueue TERMINATED;
+    static {
+        TERMINATED = new WorkQueue(SHUTDOWN, 0);
+        TERMINATED.shutdown();
+    }
+
+    int roundRobin;
+
+    public WorkStealingScheduler() {
+        this.n = Runtime.getRuntime().availableProcessors();
+        this.factory = THREAD_FACTORY;
+        init(n);
+    }
+
+    public WorkStealingScheduler(int n) {
+        this(n, THREAD_FACTORY);
+    }
+
+    public WorkStealingScheduler(int n, String name) {
+        this(n, name, false);
+    }
+
+    public WorkStealingScheduler(int n, String name, boolean daemon) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n > 0 required but it was " + n);
+        }
+        this.n = n;
+        this.factory = r -> {
+            Thread t = new Thread(r, name + COUNTER.incrementAndGet());
+            t.setDaemon(daemon);
+            return t;
+        };
+        init(n);
+    }
+
+    public WorkStealingScheduler(ThreadFactory factory) {
+        this.n = Runtime.getRuntime().availableProcessors();
+        this.factory = factory;
+        init(n);
+    }
+
+    public WorkStealingScheduler(int n, ThreadFactory factory) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n > 0 required but it was " + n);
+        }
+        this.n = n;
+        this.factory = factory;
+        init(n);
+    }
+
+    private void init(int n) {
+        QUEUES.lazySet(this, create(n));
+    }
+
+    WorkQueue[] create(int n) {
+        WorkQueue[] a = new WorkQueue[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = new WorkQueue(a, i);
+        }
+        for (WorkQueue q : a) {
+            q.start(factory);
+        }
+        return a;
+    }
+
+    public int parallelism() {
+        return n;
+    }
+
+    public boolean isStarted() {
+        return queues != SHUTDOWN;
+    }
+
+    @Override
+    public void start() {
+        WorkQueue[] b = null;
+        for (;;) {
+            WorkQueue[] a = queues;
+            if (a != SHUTDOWN) {
+                if (b != null) {
+                    for (WorkQueue q : b) {
+                        q.shutdown();
+                    }
+                }
+                return;
+            }
+
+            if (b == null) {
+                b = create(n);
+            }
+
+            if (QUEUES.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        WorkQueue[] a = queues;
+        if (a != SHUTDOWN) {
+            a = QUEUES.getAndSet(this, SHUTDOWN);
+            if (a != SHUTDOWN) {
+                for (WorkQueue q : a) {
+                    q.shutdown();
+                }
+            }
+        }
+    }
+
+    WorkQueue pick() {
+        WorkQueue[] a = queues;
+        if (a != SHUTDOWN) {
+            // ignoring the race condition here, its already random who gets which queue
+            int idx = roundRobin;
+            if (idx >= n) {
+                idx = 0;
+            }
+            roundRobin = idx + 1;
+            return a[idx];
+        }
+        return TERMINATED;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        StealingTask t = new StealingTask(task);
+        if (pick().offer(t)) {
+            return t;
+        }
+        return REJECTED;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new StealingWorker(pick());
+    }
+
+    @Override
+    public Worker createWorker(int index) {
+        WorkQueue[] a = queues;
+        if (a != SHUTDOWN) {
+            return new StealingWorker(a[index % n]);
+        }
+        return new StealingWorker(TERMINATED);
+    }
+
+    /**
+     * The run queue of a single pool thread; the sibling queues of the same pool
+     * are the targets when this thread runs out of work.
+     */
+    static final class WorkQueue implements Runnable {
+        final WorkQueue[] siblings;
+
+        final int index;
+
+        final Queue<Runnable> queue;
+
+        volatile boolean shutdown;
+
+        Thread thread;
+
+        volatile int parked;
+        static final AtomicIntegerFieldUpdater<WorkQueue> PARKED =
+                AtomicIntegerFieldUpdater.newUpdater(WorkQueue.class, "parked");
+
+        public WorkQueue(WorkQueue[] siblings, int index) {
+            this.siblings = siblings;
+            this.index = index;
+            this.queue = new ConcurrentLinkedQueue<>();
+        }
+
+        void start(ThreadFactory factory) {
+            Thread t = factory.newThread(this);
+            thread = t;
+            t.start();
+        }
+
+        boolean offer(Runnable task) {
+            if (shutdown) {
+                return false;
+            }
+            queue.offer(task);
+            if (shutdown) {
+                queue.clear();
+                return false;
+            }
+            if (!unpark()) {
+                // the owner is busy, wake up someone who could steal the task
+                WorkQueue[] a = siblings;
+                int n = a.length;
+                for (int i = 1; i < n; i++) {
+                    int j = index + i;
+                    if (j >= n) {
+                        j -= n;
+                    }
+                    if (a[j].unpark()) {
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+
+        boolean unpark() {
+            if (parked != 0 && PARKED.compareAndSet(this, 1, 0)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+
+        void shutdown() {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            queue.clear();
+            Thread t = thread;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+
+        Runnable steal() {
+            WorkQueue[] a = siblings;
+            int n = a.length;
+            for (int i = 1; i < n; i++) {
+                int j = index + i;
+                if (j >= n) {
+                    j -= n;
+                }
+                Runnable r = a[j].queue.poll();
+                if (r != null) {
+                    return r;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            final Queue<Runnable> q = queue;
+
+            for (;;) {
+                if (shutdown) {
+                    q.clear();
+                    return;
+                }
+
+                Runnable r = q.poll();
+                if (r == null) {
+                    r = steal();
+                }
+
+                if (r == null) {
+                    parked = 1;
+
+                    r = q.poll();
+                    if (r == null) {
+                        r = steal();
+                    }
+
+                    if (r == null) {
+                        if (shutdown) {
+                            q.clear();
+                            return;
+                        }
+                        LockSupport.park(this);
+                        parked = 0;
+                        continue;
+                    }
+                    parked = 0;
+                }
+
+                try {
+                    r.run();
+                } catch (Throwable ex) {
+                    ExceptionHelper.throwIfFatal(ex);
+                    UnsignalledExceptions.onErrorDropped(ex);
+                }
+            }
+        }
+
+        /**
+         * Returns the run queue of the current thread if it belongs to the same pool,
+         * this queue otherwise.
+         * @return the run queue to requeue a yielding drain loop into
+         */
+        WorkQueue current() {
+            Thread t = Thread.currentThread();
+            for (WorkQueue q : siblings) {
+                if (q.thread == t) {
+                    return q;
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * A task that can be cancelled by not executing it.
+     */
+    static final class StealingTask extends AtomicBoolean implements Runnable, Disposable {
+        /** */
+        private static final long serialVersionUID = -3365426213622386806L;
+
+        final Runnable task;
+
+        public StealingTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!get()) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    ExceptionHelper.throwIfFatal(e);
+                    UnsignalledExceptions.onErrorDropped(e);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            set(true);
+        }
+
+        @Override
+        public String toString() {
+            return "StealingTask[cancelled=" + get() + ", task=" + task + "]";
+        }
+    }
+
+    /**
+     * A trampolining worker whose drain loop is scheduled on its home run queue
+     * but can be stolen by any thread of the pool.
+     */
+    static final class StealingWorker implements Worker, Runnable {
+        final WorkQueue home;
+
+        final Queue<StealingTask> queue;
+
+        volatile boolean terminated;
+
+        volatile int wip;
+        static final AtomicIntegerFieldUpdater<StealingWorker> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(StealingWorker.class, "wip");
+
+        public StealingWorker(WorkQueue home) {
+            this.home = home;
+            this.queue = new ConcurrentLinkedQueue<>();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Objects.requireNonNull(task, "task");
+            if (terminated) {
+                return REJECTED;
+            }
+
+            StealingTask t = new StealingTask(task);
+            queue.offer(t);
+
+            if (terminated) {
+                queue.clear();
+                return REJECTED;
+            }
+
+            if (WIP.getAndIncrement(this) == 0) {
+                if (!home.offer(this)) {
+                    terminated = true;
+                    queue.clear();
+                    return REJECTED;
+                }
+            }
+            return t;
+        }
+
+        @Override
+        public Disposable scheduleAll(Runnable... tasks) {
+            int n = tasks.length;
+            if (terminated) {
+                return REJECTED;
+            }
+
+            StealingTask[] ts = new StealingTask[n];
+            for (int i = 0; i < n; i++) {
+                ts[i] = new StealingTask(Objects.requireNonNull(tasks[i], "task"));
+                queue.offer(ts[i]);
+            }
+
+            if (terminated) {
+                queue.clear();
+                return REJECTED;
+            }
+
+            if (n != 0 && WIP.getAndAdd(this, n) == 0) {
+                if (!home.offer(this)) {
+                    terminated = true;
+                    queue.clear();
+                    return REJECTED;
+                }
+            }
+            return () -> {
+                for (StealingTask t : ts) {
+                    t.dispose();
+                }
+            };
+        }
+
+        @Override
+        public void shutdown() {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            queue.clear();
+        }
+
+        int pendingTasks() {
+            return queue.size();
+        }
+
+        @Override
+        public void run() {
+            final Queue<StealingTask> q = queue;
+
+            int e = 0;
+            int r = wip;
+
+            for (;;) {
+                while (e != r) {
+                    if (terminated) {
+                        q.clear();
+                        return;
+                    }
+
+                    StealingTask t = q.poll();
+                    if (t == null) {
+                        break;
+                    }
+
+                    t.run();
+
+                    if (++e == DRAIN_LIMIT) {
+                        break;
+                    }
+                }
+
+                if (terminated) {
+                    q.clear();
+                    return;
+                }
+
+                r = WIP.addAndGet(this, -e);
+                if (r == 0) {
+                    return;
+                }
+
+                if (e == DRAIN_LIMIT) {
+                    // yield the thread but keep the wip so nobody else resubmits this loop
+                    if (!home.current().offer(this)) {
+                        terminated = true;
+                        q.clear();
+                    }
+                    return;
+                }
+                e = 0;
+            }
+        }
+    }
+}
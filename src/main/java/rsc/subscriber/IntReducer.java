@@ -3,11 +3,18 @@ package rsc.subscriber;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import rsc.flow.Fuseable;
+import rsc.flow.Fuseable.BatchSubscription;
+import rsc.util.ExceptionHelper;
+
 /**
  * Base class for reducing integer values (without the constant re-boxing).
  * <p>
  * Use the {@code accumulator} field and set the {@code hasValue} to indicate
  * there is actually something in the accumulator.
+ * <p>
+ * If the upstream is a {@link BatchSubscription}, the values are pulled synchronously and,
+ * if possible, in chunks that are handed to {@link #onNextBatch(Object[], int)}.
  */
 public abstract class IntReducer extends DeferredScalarSubscriber<Integer, Integer> {
         protected int accumulator;
@@ -16,19 +23,85 @@ public abstract class IntReducer extends DeferredScalarSubscriber<Integer, Integ
         
         protected Subscription s;
         
+        static final int BATCH_SIZE = 128;
+        
         public IntReducer(Subscriber<? super Integer> subscriber) {
             super(subscriber);
         }
         
+        @SuppressWarnings("unchecked")
         @Override
         public final void onSubscribe(Subscription s) {
             this.s = s;
             
+            if (s instanceof BatchSubscription) {
+                BatchSubscription<Integer> qs = (BatchSubscription<Integer>) s;
+                
+                if (qs.requestFusion(Fuseable.SYNC) == Fuseable.SYNC) {
+                    subscriber.onSubscribe(this);
+                    
+                    drainSync(qs, qs.requestFusion(Fuseable.BATCH) == Fuseable.BATCH);
+                    return;
+                }
+            }
+            
             subscriber.onSubscribe(this);
             
             s.request(Long.MAX_VALUE);
         }
         
+        /**
+         * Called with a chunk of values when the upstream runs in BATCH mode; by default,
+         * calls {@link #onNext(Object)} with each value.
+         * @param values the buffer holding the values
+         * @param count the number of values in the buffer
+         */
+        @SuppressWarnings("unchecked")
+        protected void onNextBatch(Object[] values, int count) {
+            for (int i = 0; i < count; i++) {
+                onNext((Integer)values[i]);
+            }
+        }
+        
+        void drainSync(BatchSubscription<Integer> qs, boolean batch) {
+            try {
+                if (batch) {
+                    Object[] buffer = new Object[BATCH_SIZE];
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+                        
+                        int n = qs.poll(buffer, BATCH_SIZE);
+                        if (n == 0) {
+                            break;
+                        }
+                        
+                        onNextBatch(buffer, n);
+                    }
+                } else {
+                    for (;;) {
+                        if (isCancelled()) {
+                            return;
+                        }
+                        
+                        Integer v = qs.poll();
+                        if (v == null) {
+                            break;
+                        }
+                        
+                        onNext(v);
+                    }
+                }
+            } catch (Throwable ex) {
+                ExceptionHelper.throwIfFatal(ex);
+                qs.cancel();
+                onError(ExceptionHelper.unwrap(ex));
+                return;
+            }
+            onComplete();
+        }
+        
         @Override
         public final void onComplete() {
             if (hasValue) {
@@ -1,17 +1,23 @@
 package rsc.subscriber;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import rsc.flow.Producer;
 import rsc.flow.Receiver;
 import rsc.flow.Trackable;
+import rsc.util.MpscLinkedArrayQueue;
 
 /**
  * Subscriber that makes sure signals are delivered sequentially in case the onNext, onError or onComplete methods are
  * called concurrently.
  * <p>
  * <p>
- * The implementation uses {@code synchronized (this)} to ensure mutual exclusion.
+ * The implementation is lock-free: the caller which moves the work-in-progress counter from zero emits directly
+ * and then drains whatever the other callers queued into a multi-producer queue in the meantime. The queue is
+ * created on the first contended onNext so uncontended use doesn't allocate anything per signal.
  * <p>
  * <p>
  * Note that the class implements Subscription to save on allocation.
@@ -21,19 +27,37 @@ import rsc.flow.Trackable;
 public final class SerializedSubscriber<T> implements Subscriber<T>, Subscription, Receiver, Producer,
                                                       Trackable {
 
+    static final int DEFAULT_CHUNK_SIZE = 16;
+
     final Subscriber<? super T> actual;
 
-    boolean emitting;
+    /** The maximum number of queued values, Integer.MAX_VALUE if unbounded. */
+    final int capacity;
 
-    boolean missed;
+    volatile int wip;
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<SerializedSubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(SerializedSubscriber.class, "wip");
 
-    volatile boolean done;
+    volatile MpscLinkedArrayQueue<T> queue;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<SerializedSubscriber, MpscLinkedArrayQueue> QUEUE =
+            AtomicReferenceFieldUpdater.newUpdater(SerializedSubscriber.class, MpscLinkedArrayQueue.class, "queue");
 
-    volatile boolean cancelled;
+    /** The number of values queued or about to be queued, only tracked if bounded. */
+    volatile int queued;
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<SerializedSubscriber> QUEUED =
+            AtomicIntegerFieldUpdater.newUpdater(SerializedSubscriber.class, "queued");
 
-    LinkedArrayNode<T> head;
+    volatile int once;
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<SerializedSubscriber> ONCE =
+            AtomicIntegerFieldUpdater.newUpdater(SerializedSubscriber.class, "once");
 
-    LinkedArrayNode<T> tail;
+    volatile boolean done;
+
+    volatile boolean cancelled;
 
     Throwable error;
 
@@ -52,6 +76,21 @@ public final class SerializedSubscriber<T> implements Subscriber<T>, Subscriptio
 
     public SerializedSubscriber(Subscriber<? super T> actual) {
         this.actual = actual;
+        this.capacity = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs a SerializedSubscriber which queues at most the given number of values while another
+     * thread is emitting; exceeding it cancels the upstream and signals an IllegalStateException.
+     * @param actual the subscriber to gate
+     * @param capacity the maximum number of queued values, positive
+     */
+    public SerializedSubscriber(Subscriber<? super T> actual, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity > 0 required but it was " + capacity);
+        }
+        this.actual = actual;
+        this.capacity = capacity;
     }
 
     @Override
@@ -69,68 +108,59 @@ public final class SerializedSubscriber<T> implements Subscriber<T>, Subscriptio
             return;
         }
 
-        synchronized (this) {
-            if (isCancelled() || isTerminated()) {
+        if (wip == 0 && WIP.compareAndSet(this, 0, 1)) {
+            actual.onNext(t);
+
+            if (WIP.decrementAndGet(this) == 0) {
                 return;
             }
+        } else {
+            MpscLinkedArrayQueue<T> q = getOrCreateQueue();
 
-            if (emitting) {
-                serAdd(t);
-                missed = true;
+            if (capacity != Integer.MAX_VALUE && !reserve()) {
+                Subscription a = s;
+                if (a != null) {
+                    a.cancel();
+                }
+                onError(new IllegalStateException("Queue is full?!"));
                 return;
             }
 
-            emitting = true;
-        }
+            q.offer(t);
 
-        actual.onNext(t);
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+        }
 
         serDrainLoop(actual);
     }
 
     @Override
     public void onError(Throwable t) {
-        if (isCancelled() || isTerminated()) {
+        if (isCancelled() || !ONCE.compareAndSet(this, 0, 1)) {
             return;
         }
 
-        synchronized (this) {
-            if (isCancelled() || isTerminated()) {
-                return;
-            }
-
-            done = true;
-            error = t;
+        error = t;
+        done = true;
 
-            if (emitting) {
-                missed = true;
-                return;
-            }
+        if (WIP.getAndIncrement(this) == 0) {
+            serDrainLoop(actual);
         }
-
-        actual.onError(t);
     }
 
     @Override
     public void onComplete() {
-        if (isCancelled() || isTerminated()) {
+        if (isCancelled() || !ONCE.compareAndSet(this, 0, 1)) {
             return;
         }
 
-        synchronized (this) {
-            if (isCancelled() || isTerminated()) {
-                return;
-            }
-
-            done = true;
+        done = true;
 
-            if (emitting) {
-                missed = true;
-                return;
-            }
+        if (WIP.getAndIncrement(this) == 0) {
+            serDrainLoop(actual);
         }
-
-        actual.onComplete();
     }
 
     @Override
@@ -144,84 +174,84 @@ public final class SerializedSubscriber<T> implements Subscriber<T>, Subscriptio
         s.cancel();
     }
 
-    void serAdd(T value) {
-        LinkedArrayNode<T> t = tail;
-
-        if (t == null) {
-            t = new LinkedArrayNode<>(value);
-
-            head = t;
-            tail = t;
-        } else {
-            if (t.count == LinkedArrayNode.DEFAULT_CAPACITY) {
-                LinkedArrayNode<T> n = new LinkedArrayNode<>(value);
+    /**
+     * Claims a slot in the bounded queue before offering, so concurrent producers can't
+     * exceed the capacity together.
+     * @return false if the queue is full
+     */
+    boolean reserve() {
+        int c = capacity;
+        for (;;) {
+            int n = queued;
+            if (n >= c) {
+                return false;
+            }
+            if (QUEUED.compareAndSet(this, n, n + 1)) {
+                return true;
+            }
+        }
+    }
 
-                t.next = n;
-                tail = n ;
-            } else {
-                t.array[t.count++] = value;
+    @SuppressWarnings("unchecked")
+    MpscLinkedArrayQueue<T> getOrCreateQueue() {
+        MpscLinkedArrayQueue<T> q = queue;
+        if (q == null) {
+            q = new MpscLinkedArrayQueue<>(Math.min(capacity, DEFAULT_CHUNK_SIZE));
+            if (!QUEUE.compareAndSet(this, null, q)) {
+                q = queue;
             }
         }
+        return q;
     }
 
     void serDrainLoop(Subscriber<? super T> actual) {
-        for (; ; ) {
+        int missed = 1;
 
-            if (isCancelled()) {
-                return;
-            }
+        for (; ; ) {
 
-            boolean d;
-            Throwable e;
-            LinkedArrayNode<T> n;
+            for (; ; ) {
 
-            synchronized (this) {
                 if (isCancelled()) {
+                    MpscLinkedArrayQueue<T> q = queue;
+                    if (q != null) {
+                        q.clear();
+                    }
                     return;
                 }
 
-                if (!missed) {
-                    emitting = false;
-                    return;
-                }
-
-                missed = false;
+                boolean d = isTerminated();
 
-                d = isTerminated();
-                e = getError();
-                n = head;
-
-                head = null;
-                tail = null;
-            }
+                // read after done so a queue created by a producer racing with onComplete isn't missed
+                MpscLinkedArrayQueue<T> q = queue;
 
-            while (n != null) {
+                T v = q != null ? q.poll() : null;
 
-                T[] arr = n.array;
-                int c = n.count;
+                boolean empty = v == null;
 
-                for (int i = 0; i < c; i++) {
-
-                    if (isCancelled()) {
-                        return;
+                if (d && empty) {
+                    Throwable e = getError();
+                    if (e != null) {
+                        actual.onError(e);
+                    } else {
+                        actual.onComplete();
                     }
+                    return;
+                }
 
-                    actual.onNext(arr[i]);
+                if (empty) {
+                    break;
                 }
 
-                n = n.next;
-            }
+                if (capacity != Integer.MAX_VALUE) {
+                    QUEUED.decrementAndGet(this);
+                }
 
-            if (isCancelled()) {
-                return;
+                actual.onNext(v);
             }
 
-            if (e != null) {
-                actual.onError(e);
-                return;
-            } else if (d) {
-                actual.onComplete();
-                return;
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                break;
             }
         }
     }
@@ -258,37 +288,16 @@ public final class SerializedSubscriber<T> implements Subscriber<T>, Subscriptio
 
     @Override
     public long getPending() {
-        LinkedArrayNode<T> node = tail;
-        if(node != null){
-            return node.count;
+        MpscLinkedArrayQueue<T> q = queue;
+        if(q != null){
+            return q.size();
         }
         return 0;
     }
 
     @Override
     public long getCapacity() {
-        return LinkedArrayNode.DEFAULT_CAPACITY;
-    }
-
-    /**
-     * Node in a linked array list that is only appended.
-     *
-     * @param <T> the value type
-     */
-    static final class LinkedArrayNode<T> {
-
-        static final int DEFAULT_CAPACITY = 16;
-
-        final T[] array;
-        int count;
-
-        LinkedArrayNode<T> next;
-
-        @SuppressWarnings("unchecked")
-        public LinkedArrayNode(T value) {
-            array = (T[]) new Object[DEFAULT_CAPACITY];
-            array[0] = value;
-            count = 1;
-        }
+        int c = capacity;
+        return c != Integer.MAX_VALUE ? c : -1L;
     }
 }
@@ -0,0 +1,96 @@
+package rsc.util;
+
+/**
+ * Tracks an upstream request window that grows or shrinks between a minimum and
+ * a maximum size depending on how fast the consumer drains the prefetched items.
+ * <p>
+ * The owner requests {@link #window()} items initially and calls
+ * {@link #replenish(long, int)} once the number of consumed items reaches
+ * {@link #limit()}, the usual 75% of the window. If at that point
+ * the queue is (nearly) empty, the consumer keeps up with the producer and the
+ * window is doubled to save on request round trips; if more than half of the
+ * window is still sitting in the queue, the consumer lags behind and the window
+ * is halved to limit the memory held per subscriber.
+ * <p>
+ * Since the window may grow up to the maximum, the owner's queue has to hold
+ * that many items; an unbounded, linked queue is preferred so the memory is only
+ * allocated when the window actually grows.
+ * <p>
+ * The class is not thread-safe; calls have to be serialized by the owner,
+ * usually from within its drain loop.
+ */
+public final class AdaptivePrefetch {
+
+    final int minWindow;
+
+    final int maxWindow;
+
+    int window;
+
+    int limit;
+
+    /**
+     * Constructs an AdaptivePrefetch instance starting with the minimum window size.
+     * @param minWindow the minimum (and initial) window size, positive
+     * @param maxWindow the maximum window size, at least minWindow
+     */
+    public AdaptivePrefetch(int minWindow, int maxWindow) {
+        if (minWindow <= 0) {
+            throw new IllegalArgumentException("minWindow > 0 required but it was " + minWindow);
+        }
+        if (maxWindow < minWindow) {
+            throw new IllegalArgumentException("maxWindow >= minWindow required but it was " + maxWindow + " < " + minWindow);
+        }
+        this.minWindow = minWindow;
+        this.maxWindow = maxWindow;
+        this.window = minWindow;
+        this.limit = limitOf(minWindow);
+    }
+
+    static int limitOf(int window) {
+        return window - (window >> 2);
+    }
+
+    /**
+     * Returns the current number of items the upstream may have in flight.
+     * @return the current number of items the upstream may have in flight
+     */
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Returns the number of consumed items after which {@link #replenish(long, int)} should be called.
+     * @return the number of consumed items after which replenish should be called
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Resizes the window based on the queue occupancy and returns the amount to
+     * request from upstream so the in-flight amount matches the new window.
+     * @param consumed the number of items consumed since the last replenish, at least {@link #limit()}
+     * @param pending the number of items delivered by the upstream but not yet consumed
+     * @return the amount to request from upstream, positive
+     */
+    public long replenish(long consumed, int pending) {
+        int w = window;
+        int u;
+
+        if (pending > (w >> 1)) {
+            u = Math.max(minWindow, w >> 1);
+        } else
+        if (pending <= (w >> 3)) {
+            u = w > (maxWindow >> 1) ? maxWindow : w << 1;
+        } else {
+            return consumed;
+        }
+
+        if (u != w) {
+            window = u;
+            limit = limitOf(u);
+        }
+        return consumed + u - w;
+    }
+}
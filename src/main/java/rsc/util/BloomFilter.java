@@ -0,0 +1,304 @@
+package rsc.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import rsc.scheduler.TimedScheduler;
+
+/**
+ * An approximate, constant-memory collection that remembers the recently added values
+ * with the help of two rotating Bloom filters.
+ * <p>
+ * {@link #add(Object)} returns false if the value has been (probably) added before, thus
+ * this collection can be used as the seen-set of distinct. A value never added before is
+ * reported as seen with about the configured false-positive probability.
+ * <p>
+ * A single Bloom filter saturates on an unbounded stream, therefore values are added to the
+ * current generation which, once it holds {@code expectedInsertions} values (or gets older than
+ * the optional maximum age), becomes the previous generation and the older previous one is
+ * dropped. Values found only in the previous generation are copied forward, so a value is
+ * forgotten only after it hasn't been added for at least a full generation.
+ * <p>
+ * Each generation uses {@code -n ln(p / 2) / ln(2)^2} bits and {@code m / n ln(2)} hash
+ * functions derived from a single hash of the value via double hashing, sized so
+ * that the two generations together have about the configured false-positive rate.
+ * <p>
+ * By default the hash is the value's 32-bit {@code hashCode()}, and values with equal hash
+ * codes always collide. The false-positive rate can't drop below about
+ * {@code 2 n / 2^32}, so smaller rates are rejected. A 64-bit key hash supplied via
+ * the {@code ToLongFunction} constructors removes that floor. For example, it can be
+ * the long id of an event.
+ * <p>
+ * Doesn't support {@code null}s nor iteration. The class is not thread-safe.
+ *
+ * @param <T> the value type
+ */
+public final class BloomFilter<T> extends AbstractCollection<T> {
+
+    final int expectedInsertions;
+
+    final int hashes;
+
+    final int bitMask;
+
+    final long maxAgeNanos;
+
+    final TimedScheduler clock;
+
+    final ToLongFunction<? super T> hasher;
+
+    long[] current;
+
+    long[] previous;
+
+    int currentSize;
+
+    int previousSize;
+
+    long generationStart;
+
+    /**
+     * Constructs a BloomFilter which rotates generations based on the number of insertions only.
+     * @param expectedInsertions the number of distinct values a generation holds, positive
+     * @param fpp the false-positive probability, between 0 and 1 exclusive
+     */
+    public BloomFilter(int expectedInsertions, double fpp) {
+        this(expectedInsertions, fpp, Long.MAX_VALUE, TimeUnit.NANOSECONDS, null, null);
+    }
+
+    /**
+     * Constructs a BloomFilter which rotates generations based on the number of insertions only
+     * and hashes the values with the given 64-bit hash function.
+     * @param expectedInsertions the number of distinct values a generation holds, positive
+     * @param fpp the false-positive probability, between 0 and 1 exclusive
+     * @param hasher the function returning the 64-bit hash of a value
+     */
+    public BloomFilter(int expectedInsertions, double fpp, ToLongFunction<? super T> hasher) {
+        this(expectedInsertions, fpp, Long.MAX_VALUE, TimeUnit.NANOSECONDS, null, Objects.requireNonNull(hasher, "hasher"));
+    }
+
+    /**
+     * Constructs a BloomFilter which rotates generations based on the number of insertions or
+     * their age, whichever comes first; values are thus remembered for at most twice the maximum age.
+     * @param expectedInsertions the number of distinct values a generation holds, positive
+     * @param fpp the false-positive probability, between 0 and 1 exclusive
+     * @param maxAge the maximum age of a generation, positive
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler whose {@code now()} provides the time
+     */
+    public BloomFilter(int expectedInsertions, double fpp, long maxAge, TimeUnit unit, TimedScheduler clock) {
+        this(expectedInsertions, fpp, maxAge, unit, clock, null);
+    }
+
+    /**
+     * Constructs a BloomFilter which rotates generations based on the number of insertions or
+     * their age, whichever comes first, and hashes the values with the given 64-bit hash function.
+     * @param expectedInsertions the number of distinct values a generation holds, positive
+     * @param fpp the false-positive probability, between 0 and 1 exclusive
+     * @param maxAge the maximum age of a generation, positive
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler whose {@code now()} provides the time
+     * @param hasher the function returning the 64-bit hash of a value, null to use {@code hashCode()}
+     */
+    public BloomFilter(int expectedInsertions, double fpp, long maxAge, TimeUnit unit, TimedScheduler clock,
+            ToLongFunction<? super T> hasher) {
+        verify(expectedInsertions, fpp, maxAge, hasher == null);
+        this.expectedInsertions = expectedInsertions;
+        this.hasher = hasher;
+
+        double ln2 = Math.log(2);
+        double bits = -expectedInsertions * Math.log(fpp / 2) / (ln2 * ln2);
+        int words = PowerOf2.roundUp((int)Math.min(1 << 25, Math.max(1L, (long)Math.ceil(bits / 64))));
+
+        this.bitMask = (int)(words * 64L - 1);
+        this.hashes = Math.max(1, (int)Math.round(words * 64d / expectedInsertions * ln2));
+        this.current = new long[words];
+        this.previous = new long[words];
+        if (clock != null) {
+            this.maxAgeNanos = unit.toNanos(maxAge);
+            this.clock = clock;
+            this.generationStart = clock.now(TimeUnit.NANOSECONDS);
+        } else {
+            this.maxAgeNanos = Long.MAX_VALUE;
+            this.clock = null;
+        }
+    }
+
+    /**
+     * Checks the constructor parameters of a BloomFilter, allowing them to be validated
+     * before the filter itself is needed.
+     * @param expectedInsertions the number of distinct values a generation holds, positive
+     * @param fpp the false-positive probability, between 0 and 1 exclusive
+     * @param maxAge the maximum age of a generation, positive
+     * @param hashCodes true if the values are hashed by their 32-bit {@code hashCode()}
+     * @throws IllegalArgumentException if any of the parameters is out of range
+     */
+    public static void verify(int expectedInsertions, double fpp, long maxAge, boolean hashCodes) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions > 0 required but it was " + expectedInsertions);
+        }
+        if (!(fpp > 0d && fpp < 1d)) {
+            throw new IllegalArgumentException("0 < fpp < 1 required but it was " + fpp);
+        }
+        if (hashCodes && fpp < minHashCodeFpp(expectedInsertions)) {
+            throw new IllegalArgumentException("fpp >= " + minHashCodeFpp(expectedInsertions)
+                    + " required with 32-bit hashCode()s but it was " + fpp + "; supply a 64-bit hash function instead");
+        }
+        if (maxAge <= 0L) {
+            throw new IllegalArgumentException("maxAge > 0 required but it was " + maxAge);
+        }
+    }
+
+    /**
+     * Returns the lowest false-positive probability reachable when the values are hashed
+     * by their 32-bit {@code hashCode()}: the chance that a new value shares its hash code
+     * with one of the values of the two live generations.
+     * @param expectedInsertions the number of distinct values a generation holds
+     * @return the lowest reachable false-positive probability
+     */
+    public static double minHashCodeFpp(int expectedInsertions) {
+        return 2d * expectedInsertions / 4294967296d;
+    }
+
+    @SuppressWarnings("unchecked")
+    long hash(Object value) {
+        ToLongFunction<? super T> f = hasher;
+        if (f == null) {
+            return (long)value.hashCode() * 0x9E3779B97F4A7C15L;
+        }
+        // a bijective mix, so distinct 64-bit hashes keep distinct probe sequences
+        long h = f.applyAsLong((T)value);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public boolean add(T value) {
+        TimedScheduler c = clock;
+        if (c != null) {
+            long now = c.now(TimeUnit.NANOSECONDS);
+            long age = now - generationStart;
+            if (age >= maxAgeNanos) {
+                rotate();
+                // the previous generation has expired as well
+                if (age - maxAgeNanos >= maxAgeNanos) {
+                    rotate();
+                }
+                generationStart = now;
+            }
+        }
+
+        long h = hash(value);
+        int h1 = (int)(h >>> 32);
+        int h2 = (int)h | 1;
+
+        if (test(current, h1, h2)) {
+            return false;
+        }
+
+        boolean seen = previousSize != 0 && test(previous, h1, h2);
+
+        set(current, h1, h2);
+        if (++currentSize >= expectedInsertions) {
+            rotate();
+            if (c != null) {
+                generationStart = c.now(TimeUnit.NANOSECONDS);
+            }
+        }
+        return !seen;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        long h = hash(value);
+        int h1 = (int)(h >>> 32);
+        int h2 = (int)h | 1;
+
+        return test(current, h1, h2) || (previousSize != 0 && test(previous, h1, h2));
+    }
+
+    boolean test(long[] bits, int h1, int h2) {
+        int m = bitMask;
+        int k = hashes;
+        for (int i = 0; i < k; i++) {
+            int pos = (h1 + i * h2) & m;
+            if ((bits[pos >>> 6] & (1L << pos)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void set(long[] bits, int h1, int h2) {
+        int m = bitMask;
+        int k = hashes;
+        for (int i = 0; i < k; i++) {
+            int pos = (h1 + i * h2) & m;
+            bits[pos >>> 6] |= 1L << pos;
+        }
+    }
+
+    void rotate() {
+        long[] b = previous;
+        if (previousSize != 0) {
+            Arrays.fill(b, 0L);
+        }
+        previous = current;
+        previousSize = currentSize;
+        current = b;
+        currentSize = 0;
+    }
+
+    /**
+     * Returns the number of values added to the live generations, an upper bound on the
+     * number of distinct values remembered.
+     * @return the number of values added to the live generations
+     */
+    @Override
+    public int size() {
+        return currentSize + previousSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return currentSize == 0 && previousSize == 0;
+    }
+
+    @Override
+    public void clear() {
+        if (currentSize != 0) {
+            Arrays.fill(current, 0L);
+            currentSize = 0;
+        }
+        if (previousSize != 0) {
+            Arrays.fill(previous, 0L);
+            previousSize = 0;
+        }
+    }
+
+    /**
+     * Returns the number of hash functions per value.
+     * @return the number of hash functions per value
+     */
+    public int hashes() {
+        return hashes;
+    }
+
+    /**
+     * Returns the number of bits per generation.
+     * @return the number of bits per generation
+     */
+    public long bits() {
+        return bitMask + 1L;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException();
+    }
+}
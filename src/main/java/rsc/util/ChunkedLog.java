@@ -0,0 +1,187 @@
+package rsc.util;
+
+import java.util.Collection;
+
+/**
+ * An unbounded, append-only log written by a single producer and read through any number
+ * of independent {@link Cursor}s, possibly running on other threads.
+ * <p>
+ * Elements are stored in fixed-size chunks linked forward. The log itself only references
+ * its last chunk, therefore chunks that no cursor can reach anymore are reclaimed by the GC
+ * without any explicit trimming.
+ *
+ * @param <T> the value type
+ */
+public final class ChunkedLog<T> {
+
+    final int chunkSize;
+
+    /** The chunk the producer writes into; published to readers via {@link #tail}. */
+    Chunk producerChunk;
+
+    int producerOffset;
+
+    volatile Chunk tail;
+
+    volatile long size;
+
+    public ChunkedLog(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        Chunk c = new Chunk(0L, chunkSize);
+        this.producerChunk = c;
+        this.tail = c;
+    }
+
+    /**
+     * Appends a value to the end of the log; must be called from one thread at a time.
+     * <p>
+     * The new size is published with a volatile write so a producer which reads some
+     * shared state after appending and a reader which updates that state before reading
+     * {@link #size()} can't both miss each other.
+     *
+     * @param value the value to append
+     */
+    public void append(T value) {
+        Chunk c = producerChunk;
+        int offset = producerOffset;
+        long s = size;
+
+        if (offset == chunkSize) {
+            Chunk n = new Chunk(s, chunkSize);
+            c.next = n;
+            tail = n;
+            producerChunk = n;
+            c = n;
+            offset = 0;
+        }
+
+        c.array[offset] = value;
+        producerOffset = offset + 1;
+        size = s + 1;
+    }
+
+    /**
+     * @return the number of values appended so far
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns a new cursor positioned at the current end of the log, i.e., it will
+     * read the values appended after this call returns. Can be called from any thread.
+     * @return the new cursor
+     */
+    public Cursor<T> cursor() {
+        // tail has to be read before size: a chunk is published before any of its slots
+        // so the size read afterwards is never smaller than the base of that chunk
+        Chunk c = tail;
+        return new Cursor<>(c, size);
+    }
+
+    static final class Chunk {
+        final long base;
+
+        final Object[] array;
+
+        volatile Chunk next;
+
+        Chunk(long base, int chunkSize) {
+            this.base = base;
+            this.array = new Object[chunkSize];
+        }
+    }
+
+    /**
+     * Reads the values of a log from a given position onwards.
+     * <p>
+     * A cursor is not thread-safe and must be used by one thread at a time; readers
+     * have to make sure they don't read past the {@link ChunkedLog#size()} of the log.
+     *
+     * @param <T> the value type
+     */
+    public static final class Cursor<T> {
+
+        Chunk chunk;
+
+        long index;
+
+        Cursor(Chunk chunk, long index) {
+            this.chunk = chunk;
+            this.index = index;
+        }
+
+        /**
+         * @return the index of the value the next call to {@link #next()} returns
+         */
+        public long index() {
+            return index;
+        }
+
+        /**
+         * Returns the value at the current index and moves to the next one.
+         * @return the value
+         */
+        @SuppressWarnings("unchecked")
+        public T next() {
+            Chunk c = chunk;
+            long i = index;
+            long offset = i - c.base;
+            int n = c.array.length;
+            while (offset >= n) {
+                c = c.next;
+                offset -= n;
+            }
+            chunk = c;
+            index = i + 1;
+            return (T)c.array[(int)offset];
+        }
+
+        /**
+         * Adds the values between the current index (inclusive) and the given end
+         * index (exclusive) to the collection and moves to the end index.
+         * @param collection the target collection
+         * @param end the end index, not greater than the size of the log
+         */
+        @SuppressWarnings("unchecked")
+        public void drainTo(Collection<? super T> collection, long end) {
+            long i = index;
+            if (i == end) {
+                return;
+            }
+            Chunk c = chunk;
+            int n = c.array.length;
+            int offset = (int)(i - c.base);
+
+            for (;;) {
+                while (offset >= n) {
+                    c = c.next;
+                    offset -= n;
+                }
+                Object[] a = c.array;
+                int m = (int)Math.min(n, offset + (end - i));
+                for (int j = offset; j < m; j++) {
+                    collection.add((T)a[j]);
+                }
+                i += m - offset;
+                offset = m;
+                if (i == end) {
+                    break;
+                }
+            }
+            chunk = c;
+            index = i;
+        }
+
+        /**
+         * Releases the current chunk so the cursor no longer prevents it from being
+         * reclaimed; the cursor can't be used afterwards.
+         */
+        public void clear() {
+            chunk = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package rsc.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A collection that remembers the last N distinct values added.
+ * <p>
+ * {@link #add(Object)} returns false if an equal value is among the last N values accepted,
+ * thus this collection can be used as the seen-set of distinct to drop the duplicates
+ * arriving within a count window. A duplicate doesn't extend the lifetime of the original value.
+ * <p>
+ * The values are kept in insertion order in a fixed ring buffer indexed by an
+ * {@link OpenHashSet}; accepting a value when the ring is full evicts the oldest one.
+ * <p>
+ * Doesn't support {@code null}s nor iteration. The class is not thread-safe.
+ *
+ * @param <T> the value type
+ */
+public final class CountWindowSet<T> extends AbstractCollection<T> {
+
+    final OpenHashSet<T> index;
+
+    final Object[] values;
+
+    int offset;
+
+    int size;
+
+    /**
+     * Constructs a CountWindowSet.
+     * @param maxSize the number of values remembered, positive
+     */
+    public CountWindowSet(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize > 0 required but it was " + maxSize);
+        }
+        this.values = new Object[maxSize];
+        // sized so that a full window stays below the load factor
+        this.index = new OpenHashSet<>(Math.max(16, (int)Math.min(1 << 30, maxSize * 4L / 3 + 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean add(T value) {
+        if (!index.add(value)) {
+            return false;
+        }
+        Object[] a = values;
+        int o = offset;
+        if (size == a.length) {
+            index.remove((T)a[o]);
+        } else {
+            size++;
+        }
+        a[o] = value;
+        offset = o + 1 == a.length ? 0 : o + 1;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object value) {
+        return index.contains((T)value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        if (size != 0) {
+            index.clear(v -> { });
+            Arrays.fill(values, null);
+            offset = 0;
+            size = 0;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,212 @@
+package rsc.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.BiPredicate;
+
+/**
+ * An unbounded, lock-free multi-producer, single-consumer queue made of fixed-size
+ * array chunks.
+ * <p>
+ * Producers claim a slot with a single atomic increment of the producer index and
+ * then locate (or append) the chunk holding that slot; the chunk boundaries never
+ * block the other producers. The consumer frees whole chunks by moving past them, so
+ * the only per-element cost is the slot itself.
+ * <p>
+ * A claimed slot becomes visible to the consumer only after its producer wrote it,
+ * hence {@link #poll()} may return null while {@link #isEmpty()} reports false; callers
+ * running a drain loop get signalled again by the producer after its offer completes.
+ *
+ * @param <T> the value type
+ */
+public final class MpscLinkedArrayQueue<T> extends AbstractQueue<T> implements BiPredicate<T, T> {
+
+    final int chunkSize;
+
+    volatile long producerIndex;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MpscLinkedArrayQueue> PRODUCER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscLinkedArrayQueue.class, "producerIndex");
+
+    /** A hint to the chunk of the most recent offers, can lag behind. */
+    volatile Chunk producerChunk;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<MpscLinkedArrayQueue, Chunk> PRODUCER_CHUNK =
+            AtomicReferenceFieldUpdater.newUpdater(MpscLinkedArrayQueue.class, Chunk.class, "producerChunk");
+
+    volatile long consumerIndex;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MpscLinkedArrayQueue> CONSUMER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscLinkedArrayQueue.class, "consumerIndex");
+
+    /** The chunk holding the consumer index; written only by the consumer. */
+    volatile Chunk consumerChunk;
+
+    public MpscLinkedArrayQueue(int chunkSize) {
+        int c = PowerOf2.roundUp(Math.max(2, chunkSize));
+        this.chunkSize = c;
+        Chunk first = new Chunk(c, 0L);
+        this.producerChunk = first;
+        this.consumerChunk = first;
+    }
+
+    @Override
+    public boolean offer(T e) {
+        Objects.requireNonNull(e, "e");
+        long pi = PRODUCER_INDEX.getAndIncrement(this);
+        Chunk c = chunkFor(pi);
+        c.lazySet((int)(pi - c.base), e);
+        return true;
+    }
+
+    /**
+     * Offer two elements at the same time so the consumer sees either both or none of them
+     * and no other producer can interleave between them.
+     * @param first the first value, not null
+     * @param second the second value, not null
+     * @return true if the queue accepted the two new values
+     */
+    @Override
+    public boolean test(T first, T second) {
+        Objects.requireNonNull(first, "first");
+        Objects.requireNonNull(second, "second");
+        long pi = PRODUCER_INDEX.getAndAdd(this, 2);
+        Chunk c = chunkFor(pi);
+        Chunk d = next(c, pi + 1);
+        // the consumer reads first then second, make sure second is visible when first is
+        d.lazySet((int)(pi + 1 - d.base), second);
+        c.lazySet((int)(pi - c.base), first);
+        return true;
+    }
+
+    /**
+     * Returns the chunk holding the given claimed, not yet written index.
+     * @param index the producer index
+     * @return the chunk
+     */
+    Chunk chunkFor(long index) {
+        Chunk c = producerChunk;
+        if (c.base > index) {
+            // a faster producer moved the hint past us; the consumer can't be beyond
+            // our unwritten slot so its chunk is a safe place to start from
+            c = consumerChunk;
+        }
+        c = next(c, index);
+
+        for (;;) {
+            Chunk h = producerChunk;
+            if (h.base >= c.base || PRODUCER_CHUNK.compareAndSet(this, h, c)) {
+                break;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Walks forward from the given chunk to the chunk holding the index, appending
+     * chunks as necessary.
+     */
+    Chunk next(Chunk c, long index) {
+        int size = chunkSize;
+        for (;;) {
+            long end = c.base + size;
+            if (index < end) {
+                return c;
+            }
+            Chunk n = c.next;
+            if (n == null) {
+                n = new Chunk(size, end);
+                if (!Chunk.NEXT.compareAndSet(c, null, n)) {
+                    n = c.next;
+                }
+            }
+            c = n;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T poll() {
+        long ci = consumerIndex;
+        Chunk c = consumerChunk;
+        int offset = (int)(ci - c.base);
+        if (offset == chunkSize) {
+            Chunk n = c.next;
+            if (n == null) {
+                return null;
+            }
+            consumerChunk = n;
+            c = n;
+            offset = 0;
+        }
+
+        Object o = c.get(offset);
+        if (o == null) {
+            return null;
+        }
+        c.lazySet(offset, null);
+        CONSUMER_INDEX.lazySet(this, ci + 1);
+        return (T)o;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T peek() {
+        long ci = consumerIndex;
+        Chunk c = consumerChunk;
+        int offset = (int)(ci - c.base);
+        if (offset == chunkSize) {
+            c = c.next;
+            if (c == null) {
+                return null;
+            }
+            offset = 0;
+        }
+        return (T)c.get(offset);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerIndex == consumerIndex;
+    }
+
+    @Override
+    public int size() {
+        long ci = consumerIndex;
+        for (;;) {
+            long pi = producerIndex;
+            long ci2 = consumerIndex;
+            if (ci == ci2) {
+                return (int)(pi - ci);
+            }
+            ci = ci2;
+        }
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null && !isEmpty());
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    static final class Chunk extends AtomicReferenceArray<Object> {
+        /** */
+        private static final long serialVersionUID = -2506462283542493929L;
+
+        /** The queue index of the first slot. */
+        final long base;
+
+        volatile Chunk next;
+        static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        Chunk(int size, long base) {
+            super(size);
+            this.base = base;
+        }
+    }
+}
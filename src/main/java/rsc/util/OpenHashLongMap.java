@@ -0,0 +1,253 @@
+
+/*
+ * Inspired by fastutils' Long2ObjectOpenHashMap implementation at
+ * https://github.com/vigna/fastutil/blob/master/drv/OpenHashMap.drv
+ */
+
+package rsc.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A simple open hash map from primitive longs to non-null values with get, put, remove
+ * and clear capabilities only.
+ * <p>
+ * The keys and values are stored in two parallel arrays, without boxing and without
+ * per-entry objects. Since zero marks a free slot, the zero key's value is kept in a field.
+ * <p>
+ * The class is not thread-safe.
+ *
+ * @param <V> the value type
+ */
+public final class OpenHashLongMap<V> {
+    final float loadFactor;
+    int mask;
+    int size;
+    int maxSize;
+    long[] keys;
+    V[] values;
+    V zeroValue;
+
+    public OpenHashLongMap() {
+        this(16, 0.75f);
+    }
+
+    /**
+     * Creates an OpenHashLongMap with the initial capacity and load factor of 0.75f.
+     * @param capacity the initial capacity
+     */
+    public OpenHashLongMap(int capacity) {
+        this(capacity, 0.75f);
+    }
+
+    @SuppressWarnings("unchecked")
+    public OpenHashLongMap(int capacity, float loadFactor) {
+        this.loadFactor = loadFactor;
+        int c = PowerOf2.roundUp(capacity);
+        this.mask = c - 1;
+        this.maxSize = (int)(loadFactor * c);
+        this.keys = new long[c];
+        this.values = (V[])new Object[c];
+    }
+
+    /**
+     * Returns the value mapped to the key or null if there is no such mapping.
+     * @param key the key
+     * @return the value or null
+     */
+    public V get(long key) {
+        if (key == 0L) {
+            return zeroValue;
+        }
+        final long[] a = keys;
+        final int m = mask;
+
+        int pos = OpenHashLongSet.mix(key) & m;
+        for (;;) {
+            long curr = a[pos];
+            if (curr == 0L) {
+                return null;
+            }
+            if (curr == key) {
+                return values[pos];
+            }
+            pos = (pos + 1) & m;
+        }
+    }
+
+    /**
+     * Maps the value to the key, replacing any previous mapping.
+     * @param key the key
+     * @param value the value, not null
+     * @return the previous value or null
+     */
+    public V put(long key, V value) {
+        if (key == 0L) {
+            V old = zeroValue;
+            zeroValue = value;
+            if (old == null) {
+                size++;
+            }
+            return old;
+        }
+        final long[] a = keys;
+        final int m = mask;
+
+        int pos = OpenHashLongSet.mix(key) & m;
+        for (;;) {
+            long curr = a[pos];
+            if (curr == 0L) {
+                break;
+            }
+            if (curr == key) {
+                V old = values[pos];
+                values[pos] = value;
+                return old;
+            }
+            pos = (pos + 1) & m;
+        }
+        a[pos] = key;
+        values[pos] = value;
+        if (++size >= maxSize) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key.
+     * @param key the key
+     * @return the removed value or null if there was no mapping
+     */
+    public V remove(long key) {
+        return remove(key, null);
+    }
+
+    /**
+     * Removes the mapping of the key if it is mapped to the given value instance.
+     * @param key the key
+     * @param value the expected value, null to remove any value
+     * @return the removed value or null if there was no matching mapping
+     */
+    public V remove(long key, V value) {
+        if (key == 0L) {
+            V old = zeroValue;
+            if (old != null && (value == null || old == value)) {
+                zeroValue = null;
+                size--;
+                return old;
+            }
+            return null;
+        }
+        long[] a = keys;
+        int m = mask;
+        int pos = OpenHashLongSet.mix(key) & m;
+        for (;;) {
+            long curr = a[pos];
+            if (curr == 0L) {
+                return null;
+            }
+            if (curr == key) {
+                V old = values[pos];
+                if (value != null && old != value) {
+                    return null;
+                }
+                removeEntry(pos, a, values, m);
+                return old;
+            }
+            pos = (pos + 1) & m;
+        }
+    }
+
+    void removeEntry(int pos, long[] a, V[] v, int m) {
+        size--;
+
+        int last;
+        int slot;
+        long curr;
+        for (;;) {
+            last = pos;
+            pos = (pos + 1) & m;
+            for (;;) {
+                curr = a[pos];
+                if (curr == 0L) {
+                    a[last] = 0L;
+                    v[last] = null;
+                    return;
+                }
+                slot = OpenHashLongSet.mix(curr) & m;
+
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+
+                pos = (pos + 1) & m;
+            }
+            a[last] = curr;
+            v[last] = v[pos];
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        zeroValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void rehash() {
+        long[] a = keys;
+        V[] v = values;
+        int i = a.length;
+        int newCap = i << 1;
+        int m = newCap - 1;
+
+        long[] b = new long[newCap];
+        V[] u = (V[])new Object[newCap];
+
+        for (int j = zeroValue != null ? size - 1 : size; j-- != 0; ) {
+            while (a[--i] == 0L);
+            int pos = OpenHashLongSet.mix(a[i]) & m;
+            if (b[pos] != 0L) {
+                for (;;) {
+                    pos = (pos + 1) & m;
+                    if (b[pos] == 0L) {
+                        break;
+                    }
+                }
+            }
+            b[pos] = a[i];
+            u[pos] = v[i];
+        }
+
+        this.mask = m;
+        this.maxSize = (int)(newCap * loadFactor);
+        this.keys = b;
+        this.values = u;
+    }
+
+    public void forEach(Consumer<? super V> consumer) {
+        V z = zeroValue;
+        if (z != null) {
+            consumer.accept(z);
+        }
+        for (V e : values) {
+            if (e != null) {
+                consumer.accept(e);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,202 @@
+
+/*
+ * Inspired by fastutils' LongOpenHashSet implementation at
+ * https://github.com/vigna/fastutil/blob/master/drv/OpenHashSet.drv
+ */
+
+package rsc.util;
+
+import java.util.Arrays;
+
+/**
+ * A simple open hash set of primitive longs with add, contains, remove and clear capabilities only.
+ * <p>
+ * The keys are stored inline in a single long array, without boxing and without
+ * per-entry objects. Since zero marks a free slot, the zero key is tracked by a flag.
+ * <p>
+ * The class is not thread-safe.
+ */
+public final class OpenHashLongSet {
+    final float loadFactor;
+    int mask;
+    int size;
+    int maxSize;
+    long[] keys;
+    boolean containsZero;
+
+    public OpenHashLongSet() {
+        this(16, 0.75f);
+    }
+
+    /**
+     * Creates an OpenHashLongSet with the initial capacity and load factor of 0.75f.
+     * @param capacity the initial capacity
+     */
+    public OpenHashLongSet(int capacity) {
+        this(capacity, 0.75f);
+    }
+
+    public OpenHashLongSet(int capacity, float loadFactor) {
+        this.loadFactor = loadFactor;
+        int c = PowerOf2.roundUp(capacity);
+        this.mask = c - 1;
+        this.maxSize = (int)(loadFactor * c);
+        this.keys = new long[c];
+    }
+
+    public boolean add(long value) {
+        if (value == 0L) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        final long[] a = keys;
+        final int m = mask;
+
+        int pos = mix(value) & m;
+        long curr = a[pos];
+        if (curr != 0L) {
+            if (curr == value) {
+                return false;
+            }
+            for (;;) {
+                pos = (pos + 1) & m;
+                curr = a[pos];
+                if (curr == 0L) {
+                    break;
+                }
+                if (curr == value) {
+                    return false;
+                }
+            }
+        }
+        a[pos] = value;
+        if (++size >= maxSize) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0L) {
+            return containsZero;
+        }
+        final long[] a = keys;
+        final int m = mask;
+
+        int pos = mix(value) & m;
+        for (;;) {
+            long curr = a[pos];
+            if (curr == 0L) {
+                return false;
+            }
+            if (curr == value) {
+                return true;
+            }
+            pos = (pos + 1) & m;
+        }
+    }
+
+    public boolean remove(long value) {
+        if (value == 0L) {
+            if (containsZero) {
+                containsZero = false;
+                size--;
+                return true;
+            }
+            return false;
+        }
+        long[] a = keys;
+        int m = mask;
+        int pos = mix(value) & m;
+        for (;;) {
+            long curr = a[pos];
+            if (curr == 0L) {
+                return false;
+            }
+            if (curr == value) {
+                removeEntry(pos, a, m);
+                return true;
+            }
+            pos = (pos + 1) & m;
+        }
+    }
+
+    void removeEntry(int pos, long[] a, int m) {
+        size--;
+
+        int last;
+        int slot;
+        long curr;
+        for (;;) {
+            last = pos;
+            pos = (pos + 1) & m;
+            for (;;) {
+                curr = a[pos];
+                if (curr == 0L) {
+                    a[last] = 0L;
+                    return;
+                }
+                slot = mix(curr) & m;
+
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+
+                pos = (pos + 1) & m;
+            }
+            a[last] = curr;
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0L);
+        containsZero = false;
+        size = 0;
+    }
+
+    void rehash() {
+        long[] a = keys;
+        int i = a.length;
+        int newCap = i << 1;
+        int m = newCap - 1;
+
+        long[] b = new long[newCap];
+
+        for (int j = containsZero ? size - 1 : size; j-- != 0; ) {
+            while (a[--i] == 0L);
+            int pos = mix(a[i]) & m;
+            if (b[pos] != 0L) {
+                for (;;) {
+                    pos = (pos + 1) & m;
+                    if (b[pos] == 0L) {
+                        break;
+                    }
+                }
+            }
+            b[pos] = a[i];
+        }
+
+        this.mask = m;
+        this.maxSize = (int)(newCap * loadFactor);
+        this.keys = b;
+    }
+
+    static int mix(long x) {
+        return OpenHashSet.mix((int)(x ^ (x >>> 32)));
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
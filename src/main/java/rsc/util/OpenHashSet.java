@@ -13,7 +13,7 @@ import java.util.function.Consumer;
 import rsc.util.PowerOf2;
 
 /**
- * A simple open hash set with add, remove and clear capabilities only.
+ * A simple open hash set with add, contains, remove and clear capabilities only.
  * <p>Doesn't support nor checks for {@code null}s.
  *
  * @param <T> the element type
@@ -73,6 +73,24 @@ public final class OpenHashSet<T> {
         }
         return true;
     }
+
+    public boolean contains(T value) {
+        final T[] a = keys;
+        final int m = mask;
+
+        int pos = mix(value.hashCode()) & m;
+        for (;;) {
+            T curr = a[pos];
+            if (curr == null) {
+                return false;
+            }
+            if (curr.equals(value)) {
+                return true;
+            }
+            pos = (pos + 1) & m;
+        }
+    }
+
     public boolean remove(T value) {
         T[] a = keys;
         int m = mask;
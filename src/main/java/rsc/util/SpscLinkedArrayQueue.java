@@ -36,7 +36,7 @@ public final class SpscLinkedArrayQueue<T> extends AbstractQueue<T> implements
     static final Object NEXT = new Object();
     
     public SpscLinkedArrayQueue(int linkSize) {
-        int c = PowerOf2.roundUp(Math.min(2, linkSize));
+        int c = PowerOf2.roundUp(Math.max(2, linkSize));
         this.producerArray = this.consumerArray = new AtomicReferenceArray<>(c + 1);
         this.mask = c - 1;
     }
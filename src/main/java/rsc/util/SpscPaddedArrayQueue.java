@@ -0,0 +1,248 @@
+package rsc.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded, array backed, single-producer single-consumer queue with padded indexes,
+ * a padded buffer and a producer-side lookahead cache.
+ * <p>
+ * This implementation follows JCTools'
+ * <a href='https://github.com/JCTools/JCTools/blob/master/jctools-core/src/main/java/org/jctools/queues/atomic/SpscAtomicArrayQueue.java'>SpscAtomicArrayQueue</a>:
+ * the producer caches how far ahead it can write without touching the array by probing
+ * a slot a quarter capacity ahead, so most offers neither read the consumer's index nor
+ * the slot being written. The consumer detects available elements through the slot itself
+ * and never reads the producer's index in {@code poll}.
+ * <p>
+ * Unlike {@link SpscArrayQueue}, the backing array is padded on both ends so the first
+ * and last slots don't share a cache line with neighboring objects. This pays off for
+ * long-lived queues between two busy threads, at the cost of a larger footprint.
+ *
+ * @param <T> the value type
+ */
+public final class SpscPaddedArrayQueue<T> extends SpscPaddedArrayQueueP3<T> implements Queue<T> {
+    /** */
+    private static final long serialVersionUID = -5923025356406926424L;
+
+    public SpscPaddedArrayQueue(int capacity) {
+        super(PowerOf2.roundUp(capacity));
+    }
+
+    @Override
+    public boolean offer(T e) {
+        Objects.requireNonNull(e, "e");
+        long pi = producerIndex;
+        if (pi >= producerLimit && !offerSlowPath(pi)) {
+            return false;
+        }
+        lazySet(offset(pi), e);
+        PRODUCER_INDEX.lazySet(this, pi + 1);
+        return true;
+    }
+
+    boolean offerSlowPath(long pi) {
+        long limit = pi + lookAheadStep;
+        if (get(offset(limit)) == null) {
+            // the consumer is at least a lookahead step behind, no need to check until then
+            producerLimit = limit;
+        } else if (get(offset(pi)) != null) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        long ci = consumerIndex;
+        int offset = offset(ci);
+
+        T v = get(offset);
+        if (v != null) {
+            lazySet(offset, null);
+            CONSUMER_INDEX.lazySet(this, ci + 1);
+        }
+        return v;
+    }
+
+    @Override
+    public T peek() {
+        return get(offset(consumerIndex));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerIndex == consumerIndex;
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null && !isEmpty());
+    }
+
+    @Override
+    public int size() {
+        long ci = consumerIndex;
+        for (;;) {
+            long pi = producerIndex;
+            long ci2 = consumerIndex;
+            if (ci == ci2) {
+                return (int)(pi - ci);
+            }
+            ci = ci2;
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object[] toArray() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <R> R[] toArray(R[] a) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean add(T e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T element() {
+        throw new UnsupportedOperationException();
+    }
+}
+
+class SpscPaddedArrayQueueCold<T> extends AtomicReferenceArray<T> {
+    /** */
+    private static final long serialVersionUID = -3227339413213926233L;
+
+    /** The number of unused slots on each end of the array, 128 bytes with compressed references. */
+    static final int BUFFER_PAD = 32;
+
+    static final int MAX_LOOK_AHEAD_STEP = 4096;
+
+    final int mask;
+
+    final int lookAheadStep;
+
+    public SpscPaddedArrayQueueCold(int length) {
+        super(length + 2 * BUFFER_PAD);
+        mask = length - 1;
+        lookAheadStep = Math.min(length / 4, MAX_LOOK_AHEAD_STEP);
+    }
+
+    final int offset(long index) {
+        return ((int)index & mask) + BUFFER_PAD;
+    }
+}
+
+class SpscPaddedArrayQueueP1<T> extends SpscPaddedArrayQueueCold<T> {
+    /** */
+    private static final long serialVersionUID = 6781452716532960418L;
+
+    volatile long p00, p01, p02, p03, p04, p05, p06, p07;
+    volatile long p08, p09, p0A, p0B, p0C, p0D, p0E;
+
+    public SpscPaddedArrayQueueP1(int length) {
+        super(length);
+    }
+}
+
+class SpscPaddedArrayQueueProducer<T> extends SpscPaddedArrayQueueP1<T> {
+    /** */
+    private static final long serialVersionUID = -8009617367463563385L;
+
+    public SpscPaddedArrayQueueProducer(int length) {
+        super(length);
+    }
+
+    volatile long producerIndex;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SpscPaddedArrayQueueProducer> PRODUCER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(SpscPaddedArrayQueueProducer.class, "producerIndex");
+
+    /** The producer index up to which the slots are known to be free; only the producer accesses it. */
+    long producerLimit;
+}
+
+class SpscPaddedArrayQueueP2<T> extends SpscPaddedArrayQueueProducer<T> {
+    /** */
+    private static final long serialVersionUID = -1745402516413539185L;
+
+    volatile long p00, p01, p02, p03, p04, p05, p06, p07;
+    volatile long p08, p09, p0A, p0B, p0C, p0D, p0E;
+
+    public SpscPaddedArrayQueueP2(int length) {
+        super(length);
+    }
+}
+
+class SpscPaddedArrayQueueConsumer<T> extends SpscPaddedArrayQueueP2<T> {
+    /** */
+    private static final long serialVersionUID = 1839316563004386153L;
+
+    public SpscPaddedArrayQueueConsumer(int length) {
+        super(length);
+    }
+
+    volatile long consumerIndex;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SpscPaddedArrayQueueConsumer> CONSUMER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(SpscPaddedArrayQueueConsumer.class, "consumerIndex");
+}
+
+class SpscPaddedArrayQueueP3<T> extends SpscPaddedArrayQueueConsumer<T> {
+    /** */
+    private static final long serialVersionUID = -2119658434180651000L;
+
+    volatile long p00, p01, p02, p03, p04, p05, p06, p07;
+    volatile long p08, p09, p0A, p0B, p0C, p0D, p0E;
+
+    public SpscPaddedArrayQueueP3(int length) {
+        super(length);
+    }
+}
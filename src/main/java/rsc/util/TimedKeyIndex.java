@@ -0,0 +1,202 @@
+package rsc.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import rsc.scheduler.TimedScheduler;
+
+/**
+ * A multimap that remembers the values put within a sliding time window and indexes them
+ * by a key.
+ * <p>
+ * Each value is linked into the bucket of its key and into a single list in insertion order.
+ * Since every value lives for the same time, the insertion order is also the expiration order
+ * and the expired values are unlinked from the head of both lists whenever the index is
+ * accessed, in O(1) time per value; there is no timer or cancellable task per value.
+ * <p>
+ * Doesn't support {@code null}s. The class is not thread-safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class TimedKeyIndex<K, V> {
+
+    final HashMap<K, Bucket<K, V>> buckets;
+
+    final long maxAgeNanos;
+
+    final TimedScheduler clock;
+
+    Node<K, V> oldest;
+
+    Node<K, V> newest;
+
+    int size;
+
+    /**
+     * Constructs a TimedKeyIndex.
+     * @param maxAge the time a value is remembered, positive
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler whose {@code now()} provides the time
+     */
+    public TimedKeyIndex(long maxAge, TimeUnit unit, TimedScheduler clock) {
+        if (maxAge <= 0L) {
+            throw new IllegalArgumentException("maxAge > 0 required but it was " + maxAge);
+        }
+        this.maxAgeNanos = unit.toNanos(maxAge);
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.buckets = new HashMap<>();
+    }
+
+    /**
+     * Removes the expired values then adds the value under the given key.
+     * @param key the key, not null
+     * @param value the value, not null
+     */
+    public void put(K key, V value) {
+        long now = clock.now(TimeUnit.NANOSECONDS);
+        expire(now);
+
+        Bucket<K, V> b = buckets.get(key);
+        if (b == null) {
+            b = new Bucket<>();
+            buckets.put(key, b);
+        }
+
+        Node<K, V> n = new Node<>(key, value, now, b);
+        if (b.head == null) {
+            b.head = n;
+        } else {
+            b.tail.nextInBucket = n;
+        }
+        b.tail = n;
+
+        if (newest == null) {
+            oldest = n;
+        } else {
+            newest.nextInTime = n;
+        }
+        newest = n;
+        size++;
+    }
+
+    /**
+     * Removes the expired values then returns the live values of the given key in insertion
+     * order. The returned view is valid until the next modification of this index.
+     * @param key the key
+     * @return the values, possibly empty
+     */
+    public Iterable<V> get(K key) {
+        expire(clock.now(TimeUnit.NANOSECONDS));
+        Bucket<K, V> b = buckets.get(key);
+        return b != null ? b : Collections.emptyList();
+    }
+
+    /**
+     * Removes the values older than the maximum age.
+     */
+    public void expire() {
+        expire(clock.now(TimeUnit.NANOSECONDS));
+    }
+
+    void expire(long now) {
+        Node<K, V> n = oldest;
+        long maxAge = maxAgeNanos;
+        int s = size;
+
+        while (n != null && now - n.time >= maxAge) {
+            Bucket<K, V> b = n.bucket;
+            // the oldest value of all is the oldest value of its key as well
+            b.head = n.nextInBucket;
+            if (b.head == null) {
+                buckets.remove(n.key);
+            }
+
+            Node<K, V> next = n.nextInTime;
+            n.nextInTime = null;
+            n = next;
+            s--;
+        }
+
+        oldest = n;
+        if (n == null) {
+            newest = null;
+        }
+        size = s;
+    }
+
+    /**
+     * @return the number of values in the index, including those that have expired but
+     * haven't been removed yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct keys in the index
+     */
+    public int keys() {
+        return buckets.size();
+    }
+
+    public void clear() {
+        buckets.clear();
+        oldest = null;
+        newest = null;
+        size = 0;
+    }
+
+    static final class Node<K, V> {
+        final K key;
+
+        final V value;
+
+        final long time;
+
+        final Bucket<K, V> bucket;
+
+        Node<K, V> nextInBucket;
+
+        Node<K, V> nextInTime;
+
+        Node(K key, V value, long time, Bucket<K, V> bucket) {
+            this.key = key;
+            this.value = value;
+            this.time = time;
+            this.bucket = bucket;
+        }
+    }
+
+    static final class Bucket<K, V> implements Iterable<V> {
+        Node<K, V> head;
+
+        Node<K, V> tail;
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                Node<K, V> current = head;
+
+                @Override
+                public boolean hasNext() {
+                    return current != null;
+                }
+
+                @Override
+                public V next() {
+                    Node<K, V> n = current;
+                    if (n == null) {
+                        throw new NoSuchElementException();
+                    }
+                    current = n.nextInBucket;
+                    return n.value;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package rsc.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import rsc.scheduler.TimedScheduler;
+
+/**
+ * A collection that remembers the values added within a sliding time window.
+ * <p>
+ * {@link #add(Object)} returns false if an equal value has been added not longer than
+ * the maximum age ago, thus this collection can be used as the seen-set of distinct to drop
+ * the duplicates arriving within a time window. A duplicate doesn't extend the lifetime of
+ * the original value.
+ * <p>
+ * The values are indexed by an {@link OpenHashSet} and queued, along with the time they were
+ * added, in insertion order in a growable ring buffer. Since the insertion order is also
+ * the expiration order, the expired values are removed from the head of the queue whenever
+ * the collection is accessed, in amortized O(1) time per value.
+ * <p>
+ * Doesn't support {@code null}s nor iteration. The class is not thread-safe.
+ *
+ * @param <T> the value type
+ */
+public final class TimedWindowSet<T> extends AbstractCollection<T> {
+
+    final OpenHashSet<T> index;
+
+    final long maxAgeNanos;
+
+    final TimedScheduler clock;
+
+    Object[] values;
+
+    long[] times;
+
+    int head;
+
+    int tail;
+
+    /**
+     * Constructs a TimedWindowSet.
+     * @param maxAge the time a value is remembered, positive
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler whose {@code now()} provides the time
+     */
+    public TimedWindowSet(long maxAge, TimeUnit unit, TimedScheduler clock) {
+        this(maxAge, unit, clock, 16);
+    }
+
+    /**
+     * Constructs a TimedWindowSet.
+     * @param maxAge the time a value is remembered, positive
+     * @param unit the unit of the maximum age
+     * @param clock the scheduler whose {@code now()} provides the time
+     * @param capacityHint the expected number of values in the window
+     */
+    public TimedWindowSet(long maxAge, TimeUnit unit, TimedScheduler clock, int capacityHint) {
+        if (maxAge <= 0L) {
+            throw new IllegalArgumentException("maxAge > 0 required but it was " + maxAge);
+        }
+        if (capacityHint <= 0) {
+            throw new IllegalArgumentException("capacityHint > 0 required but it was " + capacityHint);
+        }
+        this.maxAgeNanos = unit.toNanos(maxAge);
+        this.clock = Objects.requireNonNull(clock, "clock");
+        int c = PowerOf2.roundUp(capacityHint);
+        this.index = new OpenHashSet<>(c);
+        this.values = new Object[c];
+        this.times = new long[c];
+    }
+
+    @Override
+    public boolean add(T value) {
+        long now = clock.now(TimeUnit.NANOSECONDS);
+        expire(now);
+
+        if (index.add(value)) {
+            offer(value, now);
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object value) {
+        expire(clock.now(TimeUnit.NANOSECONDS));
+        return index.contains((T)value);
+    }
+
+    void offer(T value, long now) {
+        Object[] a = values;
+        int m = a.length - 1;
+        int t = tail;
+        a[t & m] = value;
+        times[t & m] = now;
+        tail = t + 1;
+        if (t + 1 - head == a.length) {
+            grow();
+        }
+    }
+
+    void grow() {
+        Object[] a = values;
+        long[] ts = times;
+        int n = a.length;
+        int h = head & (n - 1);
+
+        Object[] b = new Object[n << 1];
+        long[] us = new long[n << 1];
+
+        int k = n - h;
+        System.arraycopy(a, h, b, 0, k);
+        System.arraycopy(a, 0, b, k, h);
+        System.arraycopy(ts, h, us, 0, k);
+        System.arraycopy(ts, 0, us, k, h);
+
+        values = b;
+        times = us;
+        head = 0;
+        tail = n;
+    }
+
+    @SuppressWarnings("unchecked")
+    void expire(long now) {
+        Object[] a = values;
+        long[] ts = times;
+        int m = a.length - 1;
+        int h = head;
+        int t = tail;
+        long maxAge = maxAgeNanos;
+
+        while (h != t) {
+            int offset = h & m;
+            if (now - ts[offset] < maxAge) {
+                break;
+            }
+            index.remove((T)a[offset]);
+            a[offset] = null;
+            h++;
+        }
+        head = h;
+    }
+
+    @Override
+    public int size() {
+        return tail - head;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail == head;
+    }
+
+    @Override
+    public void clear() {
+        if (tail != head) {
+            index.clear(v -> { });
+            Arrays.fill(values, null);
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException();
+    }
+}
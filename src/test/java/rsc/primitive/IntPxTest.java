@@ -0,0 +1,329 @@
+package rsc.primitive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import org.reactivestreams.Subscription;
+
+import rsc.publisher.Px;
+import rsc.test.TestSubscriber;
+
+public class IntPxTest {
+
+    @Test
+    public void range() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 5).boxed().subscribe(ts);
+
+        ts.assertResult(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void rangeEmpty() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 0).boxed().subscribe(ts);
+
+        ts.assertResult();
+    }
+
+    @Test
+    public void rangeBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        IntPx.range(1, 5).boxed().subscribe(ts);
+
+        ts.assertNoEvents();
+
+        ts.request(2);
+
+        ts.assertIncomplete(1, 2);
+
+        ts.request(3);
+
+        ts.assertResult(1, 2, 3, 4, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOverflow() {
+        IntPx.range(Integer.MAX_VALUE, 2);
+    }
+
+    @Test
+    public void fromArray() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.fromArray(3, 1, 2).boxed().subscribe(ts);
+
+        ts.assertResult(3, 1, 2);
+    }
+
+    @Test
+    public void fromArrayBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1);
+
+        IntPx.fromArray(3, 1, 2).boxed().subscribe(ts);
+
+        ts.assertIncomplete(3);
+
+        ts.request(2);
+
+        ts.assertResult(3, 1, 2);
+    }
+
+    @Test
+    public void mapFilter() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 10).map(v -> v * 10).filter(v -> v % 20 == 0).boxed().subscribe(ts);
+
+        ts.assertResult(20, 40, 60, 80, 100);
+    }
+
+    @Test
+    public void filterBackpressuredDoesNotRerequest() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(2);
+        List<Long> requests = new ArrayList<>();
+
+        IntPx source = IntPx.range(1, 10);
+        IntPx requestLogged = new IntPx() {
+            @Override
+            public void subscribe(IntSubscriber s) {
+                source.subscribe(new IntSubscriber() {
+                    @Override
+                    public void onSubscribe(Subscription sub) {
+                        s.onSubscribe(new Subscription() {
+                            @Override
+                            public void request(long n) {
+                                requests.add(n);
+                                sub.request(n);
+                            }
+
+                            @Override
+                            public void cancel() {
+                                sub.cancel();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNextInt(int t) {
+                        s.onNextInt(t);
+                    }
+
+                    @Override
+                    public boolean tryOnNextInt(int t) {
+                        return s.tryOnNextInt(t);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        s.onError(t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        s.onComplete();
+                    }
+                });
+            }
+        };
+
+        requestLogged.filter(v -> v % 2 == 0).boxed().subscribe(ts);
+
+        ts.assertIncomplete(2, 4);
+
+        ts.request(3);
+
+        ts.assertResult(2, 4, 6, 8, 10);
+
+        Assert.assertEquals(requests.toString(), 2, requests.size());
+    }
+
+    @Test
+    public void mapThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 5).map(v -> {
+            if (v == 3) {
+                throw new IllegalStateException("forced failure");
+            }
+            return v;
+        }).boxed().subscribe(ts);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure", 1, 2);
+    }
+
+    @Test
+    public void filterThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 5).filter(v -> {
+            throw new IllegalStateException("forced failure");
+        }).boxed().subscribe(ts);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure");
+    }
+
+    @Test
+    public void mapToObj() {
+        TestSubscriber<String> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 3).mapToObj(v -> "" + v).subscribe(ts);
+
+        ts.assertResult("1", "2", "3");
+    }
+
+    @Test
+    public void mapToObjNull() {
+        TestSubscriber<String> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 3).mapToObj(v -> (String)null).subscribe(ts);
+
+        ts.assertFailure(NullPointerException.class);
+    }
+
+    @Test
+    public void mapToLong() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        IntPx.fromArray(Integer.MAX_VALUE, Integer.MAX_VALUE).mapToLong(v -> v).sum().subscribe(ts);
+
+        ts.assertResult(2L * Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void sum() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 10).sum().subscribe(ts);
+
+        ts.assertResult(55);
+    }
+
+    @Test
+    public void sumEmpty() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 0).sum().subscribe(ts);
+
+        ts.assertResult();
+    }
+
+    @Test
+    public void sumBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        IntPx.range(1, 10).sum().subscribe(ts);
+
+        ts.assertNoEvents();
+
+        ts.request(1);
+
+        ts.assertResult(55);
+    }
+
+    @Test
+    public void minMax() {
+        TestSubscriber<Integer> ts1 = new TestSubscriber<>();
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        IntPx.fromArray(5, -3, 9, 0).min().subscribe(ts1);
+        IntPx.fromArray(5, -3, 9, 0).max().subscribe(ts2);
+
+        ts1.assertResult(-3);
+        ts2.assertResult(9);
+    }
+
+    @Test
+    public void reduceThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        IntPx.range(1, 10).reduce((a, b) -> {
+            throw new IllegalStateException("forced failure");
+        }).subscribe(ts);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure");
+    }
+
+    @Test
+    public void toArray() {
+        TestSubscriber<int[]> ts = new TestSubscriber<>();
+
+        IntPx.range(0, 100).toArray().subscribe(ts);
+
+        ts.assertValueCount(1).assertNoError().assertComplete();
+
+        int[] a = ts.values().get(0);
+        Assert.assertEquals(100, a.length);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, a[i]);
+        }
+    }
+
+    @Test
+    public void toArrayEmpty() {
+        TestSubscriber<int[]> ts = new TestSubscriber<>();
+
+        IntPx.range(0, 0).toArray().subscribe(ts);
+
+        ts.assertValueCount(1).assertNoError().assertComplete();
+
+        Assert.assertEquals(0, ts.values().get(0).length);
+    }
+
+    @Test
+    public void fromPx() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.fromArray("a", "bb", "ccc").mapToInt(String::length).sum().subscribe(ts);
+
+        ts.assertResult(6);
+    }
+
+    @Test
+    public void fromPxConditional() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(2);
+
+        Px.range(1, 10).mapToInt(v -> v).filter(v -> v > 5).boxed().subscribe(ts);
+
+        ts.assertIncomplete(6, 7);
+
+        ts.request(10);
+
+        ts.assertResult(6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void fromPxError() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.<Integer>error(new RuntimeException("forced failure")).mapToInt(v -> v).sum().subscribe(ts);
+
+        ts.assertFailureMessage(RuntimeException.class, "forced failure");
+    }
+
+    @Test
+    public void cancel() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(3);
+
+        IntPx.range(1, 10).map(v -> v + 1).boxed().subscribe(ts);
+
+        ts.cancel();
+
+        ts.request(10);
+
+        ts.assertValues(2, 3, 4).assertNotComplete();
+    }
+
+    @Test
+    public void forEach() {
+        List<Integer> list = new ArrayList<>();
+
+        IntPx.range(1, 5).filter(v -> v != 3).forEach(list::add);
+
+        Assert.assertEquals("[1, 2, 4, 5]", list.toString());
+    }
+}
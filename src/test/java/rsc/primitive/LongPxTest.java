@@ -0,0 +1,129 @@
+package rsc.primitive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+
+import rsc.publisher.Px;
+import rsc.test.TestSubscriber;
+
+public class LongPxTest {
+
+    @Test
+    public void range() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        LongPx.range(Long.MAX_VALUE - 3, 3).boxed().subscribe(ts);
+
+        ts.assertResult(Long.MAX_VALUE - 3, Long.MAX_VALUE - 2, Long.MAX_VALUE - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOverflow() {
+        LongPx.range(Long.MAX_VALUE, 2);
+    }
+
+    @Test
+    public void rangeBackpressured() {
+        TestSubscriber<Long> ts = new TestSubscriber<>(0);
+
+        LongPx.range(1, 5).filter(v -> v != 2).boxed().subscribe(ts);
+
+        ts.assertNoEvents();
+
+        ts.request(2);
+
+        ts.assertIncomplete(1L, 3L);
+
+        ts.request(2);
+
+        ts.assertResult(1L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void fromArray() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        LongPx.fromArray(3, 1, 2).map(v -> v * 2).boxed().subscribe(ts);
+
+        ts.assertResult(6L, 2L, 4L);
+    }
+
+    @Test
+    public void mapThrows() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        LongPx.range(1, 5).map(v -> {
+            throw new IllegalStateException("forced failure");
+        }).boxed().subscribe(ts);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure");
+    }
+
+    @Test
+    public void mapToInt() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        LongPx.range(1, 4).mapToInt(v -> (int)v).sum().subscribe(ts);
+
+        ts.assertResult(10);
+    }
+
+    @Test
+    public void sumMinMax() {
+        TestSubscriber<Long> ts1 = new TestSubscriber<>();
+        TestSubscriber<Long> ts2 = new TestSubscriber<>();
+        TestSubscriber<Long> ts3 = new TestSubscriber<>();
+
+        LongPx.fromArray(5, -3, 9, 0).sum().subscribe(ts1);
+        LongPx.fromArray(5, -3, 9, 0).min().subscribe(ts2);
+        LongPx.fromArray(5, -3, 9, 0).max().subscribe(ts3);
+
+        ts1.assertResult(11L);
+        ts2.assertResult(-3L);
+        ts3.assertResult(9L);
+    }
+
+    @Test
+    public void sumEmpty() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        LongPx.fromArray().sum().subscribe(ts);
+
+        ts.assertResult();
+    }
+
+    @Test
+    public void toArray() {
+        TestSubscriber<long[]> ts = new TestSubscriber<>();
+
+        LongPx.range(0, 40).toArray().subscribe(ts);
+
+        ts.assertValueCount(1).assertNoError().assertComplete();
+
+        long[] a = ts.values().get(0);
+        Assert.assertEquals(40, a.length);
+        for (int i = 0; i < 40; i++) {
+            Assert.assertEquals(i, a[i]);
+        }
+    }
+
+    @Test
+    public void fromPx() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        Px.range(1, 3).mapToLong(v -> v * 1_000_000_000L).sum().subscribe(ts);
+
+        ts.assertResult(6_000_000_000L);
+    }
+
+    @Test
+    public void forEach() {
+        List<Long> list = new ArrayList<>();
+
+        LongPx.range(1, 3).forEach(list::add);
+
+        Assert.assertEquals("[1, 2, 3]", list.toString());
+    }
+}
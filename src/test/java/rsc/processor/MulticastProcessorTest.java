@@ -0,0 +1,252 @@
+package rsc.processor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rsc.scheduler.WaitStrategy;
+import rsc.test.TestSubscriber;
+
+public class MulticastProcessorTest {
+
+    @Test(expected = NullPointerException.class)
+    public void onNextNull() {
+        new MulticastProcessor<Integer>(16).onNext(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new MulticastProcessor<Integer>(0);
+    }
+
+    @Test
+    public void normal() {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(16);
+
+        TestSubscriber<Integer> ts1 = new TestSubscriber<>();
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        mp.subscribe(ts1);
+        mp.subscribe(ts2);
+
+        Assert.assertEquals(2, mp.downstreamCount());
+
+        for (int i = 0; i < 100; i++) {
+            mp.onNext(i);
+        }
+        mp.onComplete();
+
+        Assert.assertFalse("Has subscribers?", mp.hasDownstreams());
+
+        ts1.assertValueCount(100).assertNoError().assertComplete();
+        ts2.assertValueCount(100).assertNoError().assertComplete();
+    }
+
+    @Test
+    public void backpressured() {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(16);
+
+        TestSubscriber<Integer> ts1 = new TestSubscriber<>(0L);
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>(2L);
+
+        mp.subscribe(ts1);
+        mp.subscribe(ts2);
+
+        for (int i = 0; i < 5; i++) {
+            mp.onNext(i);
+        }
+        mp.onComplete();
+
+        ts1.assertNoValues().assertNotComplete();
+        ts2.assertValues(0, 1).assertNotComplete();
+
+        ts1.request(5);
+        ts2.request(2);
+
+        ts1.assertResult(0, 1, 2, 3, 4);
+        ts2.assertValues(0, 1, 2, 3).assertNotComplete();
+
+        ts2.request(1);
+
+        ts2.assertResult(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void noSubscribersDropsValues() {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(2);
+
+        for (int i = 0; i < 100; i++) {
+            mp.onNext(i);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        mp.subscribe(ts);
+
+        mp.onNext(100);
+        mp.onNext(101);
+        mp.onNext(102);
+        mp.onComplete();
+
+        ts.assertResult(100, 101, 102);
+    }
+
+    @Test
+    public void error() {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(16);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1L);
+
+        mp.subscribe(ts);
+
+        mp.onNext(1);
+        mp.onNext(2);
+        mp.onError(new RuntimeException("forced failure"));
+
+        ts.assertValues(1).assertNoError();
+
+        ts.request(1);
+
+        ts.assertFailureMessage(RuntimeException.class, "forced failure", 1, 2);
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        mp.subscribe(ts2);
+
+        ts2.assertFailureMessage(RuntimeException.class, "forced failure");
+    }
+
+    @Test
+    public void lateSubscriberAfterComplete() {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(16);
+
+        mp.onNext(1);
+        mp.onComplete();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        mp.subscribe(ts);
+
+        ts.assertResult();
+    }
+
+    @Test
+    public void slowSubscriberBlocksProducer() throws Exception {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(4, WaitStrategy.spinYieldPark(0, 16));
+
+        TestSubscriber<Integer> fast = new TestSubscriber<>();
+        TestSubscriber<Integer> slow = new TestSubscriber<>(0L);
+
+        mp.subscribe(fast);
+        mp.subscribe(slow);
+
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                mp.onNext(i);
+            }
+            mp.onComplete();
+            done.countDown();
+        });
+        t.start();
+
+        Assert.assertFalse("Producer not blocked?", done.await(200, TimeUnit.MILLISECONDS));
+
+        fast.assertValues(0, 1, 2, 3);
+        Assert.assertEquals(4, mp.getPending());
+
+        slow.request(10);
+
+        Assert.assertTrue("Producer still blocked?", done.await(5, TimeUnit.SECONDS));
+
+        fast.assertResult(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        slow.assertResult(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void cancelUnblocksProducer() throws Exception {
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(4, WaitStrategy.blocking());
+
+        TestSubscriber<Integer> fast = new TestSubscriber<>();
+        TestSubscriber<Integer> slow = new TestSubscriber<>(1L);
+
+        mp.subscribe(fast);
+        mp.subscribe(slow);
+
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                mp.onNext(i);
+            }
+            done.countDown();
+        });
+        t.start();
+
+        Assert.assertFalse("Producer not blocked?", done.await(200, TimeUnit.MILLISECONDS));
+
+        slow.cancel();
+
+        Assert.assertTrue("Producer still blocked?", done.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, mp.downstreamCount());
+
+        fast.assertValueCount(10);
+        slow.assertValues(0);
+    }
+
+    @Test
+    public void concurrentProducers() throws Exception {
+        int producers = 4;
+        int count = 10_000;
+
+        MulticastProcessor<Integer> mp = new MulticastProcessor<>(64);
+
+        TestSubscriber<Integer> ts1 = new TestSubscriber<>();
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        mp.subscribe(ts1);
+        mp.subscribe(ts2);
+
+        ExecutorService exec = Executors.newFixedThreadPool(producers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int j = 0; j < producers; j++) {
+                int base = j * count;
+                futures.add(exec.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        mp.onNext(base + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            exec.shutdown();
+        }
+        mp.onComplete();
+
+        for (TestSubscriber<Integer> ts : Arrays.asList(ts1, ts2)) {
+            ts.assertValueCount(producers * count)
+            .assertNoError()
+            .assertComplete();
+
+            int[] last = new int[producers];
+            Arrays.fill(last, -1);
+            for (Integer v : ts.values()) {
+                int p = v / count;
+                int i = v % count;
+                Assert.assertEquals("Out of order from producer " + p, last[p] + 1, i);
+                last[p] = i;
+            }
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package rsc.processor;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import rsc.flow.Disposable;
 import rsc.flow.Fuseable;
+import rsc.scheduler.TimedScheduler;
 import rsc.test.TestSubscriber;
 
 public class ReplayProcessorTest {
@@ -280,4 +289,481 @@ public class ReplayProcessorTest {
         .assertComplete();
     }
 
+    @Test
+    public void sizeAndTimeBoundedSize() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(4, 5, 1, TimeUnit.DAYS, new ManualClock());
+
+        for (int i = 0; i < 20; i++) {
+            rp.onNext(i);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0L);
+
+        rp.subscribe(ts);
+
+        ts.assertNoValues();
+
+        ts.request(2);
+
+        ts.assertValues(15, 16);
+
+        rp.onNext(20);
+        rp.onComplete();
+
+        ts.request(10);
+
+        ts.assertValues(15, 16, 17, 18, 19, 20)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void sizeAndTimeBoundedTime() {
+        ManualClock clock = new ManualClock();
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(3, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, clock);
+
+        for (int i = 0; i < 10; i++) {
+            rp.onNext(i);
+            clock.advance(1, TimeUnit.SECONDS);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+        clock.advance(5, TimeUnit.SECONDS);
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        rp.subscribe(ts2);
+
+        ts2.assertValues(5, 6, 7, 8, 9);
+
+        clock.advance(20, TimeUnit.SECONDS);
+
+        rp.onNext(10);
+
+        TestSubscriber<Integer> ts3 = new TestSubscriber<>();
+
+        rp.subscribe(ts3);
+
+        ts3.assertValues(10);
+
+        rp.onComplete();
+
+        ts.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10).assertComplete();
+        ts2.assertValues(5, 6, 7, 8, 9, 10).assertComplete();
+        ts3.assertValues(10).assertComplete();
+    }
+
+    @Test
+    public void sizeAndTimeBoundedAllExpired() {
+        ManualClock clock = new ManualClock();
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(10, 1, TimeUnit.SECONDS, clock);
+
+        rp.onNext(1);
+        rp.onNext(2);
+        rp.onComplete();
+
+        clock.advance(2, TimeUnit.SECONDS);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertNoValues()
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void sizeAndTimeBoundedSlowSubscriberKeepsEvicted() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(2, 2, 1, TimeUnit.DAYS, new ManualClock());
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1L);
+
+        rp.subscribe(ts);
+
+        for (int i = 0; i < 10; i++) {
+            rp.onNext(i);
+        }
+        rp.onComplete();
+
+        ts.assertValues(0);
+
+        ts.request(Long.MAX_VALUE);
+
+        ts.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void sizeAndTimeBoundedError() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(2, 1, TimeUnit.DAYS, new ManualClock());
+
+        rp.onNext(1);
+        rp.onNext(2);
+        rp.onNext(3);
+        rp.onError(new RuntimeException("forced failure"));
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertFailureMessage(RuntimeException.class, "forced failure", 2, 3);
+    }
+
+    @Test
+    public void fusedSizeAndTimeBounded() {
+        ManualClock clock = new ManualClock();
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(16, 100, 10, TimeUnit.SECONDS, clock);
+
+        for (int i = 0; i < 256; i++) {
+            rp.onNext(i);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ASYNC);
+
+        rp.subscribe(ts);
+
+        for (int i = 256; i < 300; i++) {
+            rp.onNext(i);
+        }
+        rp.onComplete();
+
+        Assert.assertFalse("Has subscribers?", rp.hasDownstreams());
+
+        ts
+        .assertFuseableSource()
+        .assertFusionMode(Fuseable.ASYNC)
+        .assertValueCount(144)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertEquals(156, (int)ts.values().get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeAndTimeBoundedInvalidSize() {
+        new ReplayProcessor<Integer>(0, 1, TimeUnit.SECONDS, new ManualClock());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeAndTimeBoundedInvalidAge() {
+        new ReplayProcessor<Integer>(1, -1, TimeUnit.SECONDS, new ManualClock());
+    }
+
+    static final ReplayProcessor.Codec<Integer> INT_CODEC = new ReplayProcessor.Codec<Integer>() {
+        @Override
+        public void encode(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    static final ReplayProcessor.Codec<String> STRING_CODEC = new ReplayProcessor.Codec<String>() {
+        @Override
+        public void encode(String value, ByteBuffer buffer) {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            byte[] b = new byte[buffer.remaining()];
+            buffer.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    public void serialized() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(INT_CODEC, 20);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0L);
+
+        rp.subscribe(ts);
+
+        for (int i = 0; i < 10; i++) {
+            rp.onNext(i);
+        }
+        rp.onComplete();
+
+        Assert.assertFalse("Has subscribers?", rp.hasDownstreams());
+
+        ts.assertNoValues();
+
+        ts.request(3);
+
+        ts.assertValues(0, 1, 2);
+
+        ts.request(10);
+
+        ts.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)
+        .assertNoError()
+        .assertComplete();
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        rp.subscribe(ts2);
+
+        ts2.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void serializedVariableLength() {
+        ReplayProcessor<String> rp = new ReplayProcessor<>(STRING_CODEC, 16);
+
+        rp.onNext("a");
+        rp.onNext("bbbbbbbbbbb");
+        rp.onNext("");
+        rp.onNext("cc");
+        rp.onComplete();
+
+        TestSubscriber<String> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertResult("a", "bbbbbbbbbbb", "", "cc");
+    }
+
+    @Test
+    public void serializedBounded() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(INT_CODEC, 20, 5);
+
+        for (int i = 0; i < 20; i++) {
+            rp.onNext(i);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertValues(15, 16, 17, 18, 19);
+
+        rp.onNext(20);
+        rp.onComplete();
+
+        ts.assertResult(15, 16, 17, 18, 19, 20);
+
+        Assert.assertEquals(5, rp.getCapacity());
+    }
+
+    @Test
+    public void serializedReleasesSegments() {
+        List<ByteBuffer> released = new ArrayList<>();
+        int[] allocated = { 0 };
+
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(INT_CODEC, 2, () -> {
+            allocated[0]++;
+            return ByteBuffer.allocate(16);
+        }, released::add);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1L);
+
+        rp.subscribe(ts);
+
+        for (int i = 0; i < 10; i++) {
+            rp.onNext(i);
+        }
+
+        ts.assertValues(0);
+
+        // two items per segment, the slow subscriber holds the first one and everything after it
+        Assert.assertEquals(5, allocated[0]);
+        Assert.assertEquals(0, released.size());
+
+        ts.request(3);
+
+        ts.assertValues(0, 1, 2, 3);
+
+        Assert.assertEquals(1, released.size());
+
+        ts.cancel();
+
+        Assert.assertEquals(4, released.size());
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+
+        rp.subscribe(ts2);
+
+        ts2.assertValues(8, 9);
+
+        rp.onComplete();
+
+        ts2.assertComplete();
+
+        Assert.assertEquals(4, released.size());
+    }
+
+    @Test
+    public void serializedLittleEndian() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(INT_CODEC, Integer.MAX_VALUE,
+                () -> ByteBuffer.allocateDirect(64).order(ByteOrder.LITTLE_ENDIAN), b -> { });
+
+        for (int i = 0; i < 20; i++) {
+            rp.onNext(i * 1000);
+        }
+        rp.onComplete();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        ts.assertValueCount(20)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertEquals(19000, (int)ts.values().get(19));
+    }
+
+    @Test
+    public void serializedFused() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(INT_CODEC, 64, 100);
+
+        for (int i = 0; i < 256; i++) {
+            rp.onNext(i);
+        }
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ASYNC);
+
+        rp.subscribe(ts);
+
+        for (int i = 256; i < 300; i++) {
+            rp.onNext(i);
+        }
+        rp.onComplete();
+
+        ts
+        .assertFuseableSource()
+        .assertFusionMode(Fuseable.ASYNC)
+        .assertValueCount(144)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertEquals(156, (int)ts.values().get(0));
+        Assert.assertEquals(299, (int)ts.values().get(143));
+    }
+
+    @Test
+    public void serializedItemTooLarge() {
+        ReplayProcessor<String> rp = new ReplayProcessor<>(STRING_CODEC, 8);
+
+        TestSubscriber<String> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        rp.onNext("a");
+        rp.onNext("abcdefgh");
+
+        ts.assertFailure(IllegalArgumentException.class, "a");
+
+        Assert.assertFalse("Has subscribers?", rp.hasDownstreams());
+    }
+
+    @Test
+    public void serializedEncodeFails() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(new ReplayProcessor.Codec<Integer>() {
+            @Override
+            public void encode(Integer value, ByteBuffer buffer) {
+                throw new IllegalStateException("forced failure");
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer) {
+                return 0;
+            }
+        }, 64);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        rp.onNext(1);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure");
+    }
+
+    @Test
+    public void serializedDecodeFails() {
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(new ReplayProcessor.Codec<Integer>() {
+            @Override
+            public void encode(Integer value, ByteBuffer buffer) {
+                buffer.putInt(value);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer) {
+                int v = buffer.getInt();
+                if (v == 2) {
+                    throw new IllegalStateException("forced failure");
+                }
+                return v;
+            }
+        }, 64);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        rp.subscribe(ts);
+
+        rp.onNext(1);
+        rp.onNext(2);
+        rp.onNext(3);
+
+        ts.assertFailureMessage(IllegalStateException.class, "forced failure", 1);
+
+        Assert.assertFalse("Has subscribers?", rp.hasDownstreams());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void serializedInvalidSegmentSize() {
+        new ReplayProcessor<>(INT_CODEC, 4);
+    }
+
+    /**
+     * A TimedScheduler whose clock only moves when told to.
+     */
+    static final class ManualClock implements TimedScheduler {
+
+        long nanos;
+
+        void advance(long time, TimeUnit unit) {
+            nanos += unit.toNanos(time);
+        }
+
+        @Override
+        public long now(TimeUnit unit) {
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimedWorker createWorker() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
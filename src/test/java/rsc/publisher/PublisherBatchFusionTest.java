@@ -0,0 +1,237 @@
+package rsc.publisher;
+
+import java.util.*;
+
+import org.junit.*;
+import org.reactivestreams.*;
+
+import rsc.flow.Fuseable;
+import rsc.flow.Fuseable.*;
+import rsc.test.TestSubscriber;
+
+public class PublisherBatchFusionTest {
+
+    @SuppressWarnings("unchecked")
+    static <T> QueueSubscription<T> capture(Publisher<T> p) {
+        Subscription[] ref = { null };
+        p.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                ref[0] = s;
+            }
+
+            @Override
+            public void onNext(T t) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return (QueueSubscription<T>)ref[0];
+    }
+
+    static <T> QueueSubscription<T> subscribe(Publisher<T> p) {
+        QueueSubscription<T> qs = capture(p);
+        Assert.assertEquals(Fuseable.SYNC, qs.requestFusion(Fuseable.ANY));
+        return qs;
+    }
+
+    static <T> BatchSubscription<T> batch(Publisher<T> p) {
+        QueueSubscription<T> qs = subscribe(p);
+        Assert.assertEquals(Fuseable.BATCH, qs.requestFusion(Fuseable.BATCH));
+        return (BatchSubscription<T>)qs;
+    }
+
+    static List<Object> drain(BatchSubscription<?> qs, int max) {
+        List<Object> list = new ArrayList<>();
+        Object[] buffer = new Object[max];
+        for (;;) {
+            int n = qs.poll(buffer, max);
+            if (n == 0) {
+                return list;
+            }
+            Assert.assertTrue(n <= max);
+            list.addAll(Arrays.asList(buffer).subList(0, n));
+        }
+    }
+
+    @Test
+    public void array() {
+        BatchSubscription<Integer> qs = batch(Px.fromArray(1, 2, 3, 4, 5));
+
+        Object[] buffer = new Object[2];
+
+        Assert.assertEquals(2, qs.poll(buffer, 2));
+        Assert.assertArrayEquals(new Object[] { 1, 2 }, buffer);
+        Assert.assertEquals((Integer)3, qs.poll());
+        Assert.assertEquals(2, qs.poll(buffer, 2));
+        Assert.assertArrayEquals(new Object[] { 4, 5 }, buffer);
+        Assert.assertEquals(0, qs.poll(buffer, 2));
+        Assert.assertTrue(qs.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void arrayNullElement() {
+        BatchSubscription<Integer> qs = batch(Px.fromArray(1, null, 3));
+
+        qs.poll(new Object[4], 4);
+    }
+
+    @Test
+    public void range() {
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), drain(batch(Px.range(1, 7)), 3));
+    }
+
+    @Test
+    public void iterable() {
+        BatchSubscription<Integer> qs = batch(Px.fromIterable(Arrays.asList(1, 2, 3, 4, 5)));
+
+        Object[] buffer = new Object[3];
+
+        Assert.assertEquals(3, qs.poll(buffer, 3));
+        Assert.assertArrayEquals(new Object[] { 1, 2, 3 }, buffer);
+        Assert.assertFalse(qs.isEmpty());
+        Assert.assertEquals((Integer)4, qs.poll());
+        Assert.assertEquals(1, qs.poll(buffer, 3));
+        Assert.assertEquals(5, buffer[0]);
+        Assert.assertEquals(0, qs.poll(buffer, 3));
+        Assert.assertNull(qs.poll());
+    }
+
+    @Test
+    public void mapFilter() {
+        BatchSubscription<Integer> qs = batch(Px.range(1, 10).map(v -> v * 2).filter(v -> v % 3 == 0));
+
+        Assert.assertEquals(Arrays.asList(6, 12, 18), drain(qs, 4));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void mapperReturnsNull() {
+        BatchSubscription<Integer> qs = batch(Px.range(1, 10).map(v -> v == 5 ? null : v));
+
+        drain(qs, 4);
+    }
+
+    @Test
+    public void batchRefusedWithoutBatchSource() {
+        QueueSubscription<Integer> qs = subscribe(Px.range(1, 10).doOnComplete(() -> { }).map(v -> v + 1));
+
+        Assert.assertEquals(Fuseable.NONE, qs.requestFusion(Fuseable.BATCH));
+        Assert.assertEquals((Integer)2, qs.poll());
+    }
+
+    @Test
+    public void batchRefusedWithoutSync() {
+        QueueSubscription<Integer> qs = capture(Px.range(1, 10).map(v -> v + 1));
+
+        Assert.assertEquals(Fuseable.NONE, qs.requestFusion(Fuseable.ANY | Fuseable.THREAD_BARRIER));
+        Assert.assertEquals(Fuseable.NONE, qs.requestFusion(Fuseable.BATCH));
+    }
+
+    @Test
+    public void reducers() {
+        Px<Integer> source = Px.range(1, 1000).map(v -> v * 2).filter(v -> v % 3 == 0);
+
+        TestSubscriber<Long> ts1 = new TestSubscriber<>();
+        source.count().subscribe(ts1);
+        ts1.assertResult(333L);
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+        source.sumInt().subscribe(ts2);
+        ts2.assertResult(333 * 334 * 3);
+
+        TestSubscriber<Long> ts3 = new TestSubscriber<>();
+        source.map(v -> (long)v).sumLong().subscribe(ts3);
+        ts3.assertResult(333L * 334 * 3);
+
+        TestSubscriber<Integer> ts4 = new TestSubscriber<>();
+        source.maxInt().subscribe(ts4);
+        ts4.assertResult(1998);
+
+        TestSubscriber<List<Integer>> ts5 = new TestSubscriber<>();
+        Px.range(1, 300).reduce(ArrayList<Integer>::new, (a, b) -> { a.add(b); return a; }).subscribe(ts5);
+        ts5.assertValueCount(1)
+          .assertComplete();
+        Assert.assertEquals(300, ts5.values().get(0).size());
+        Assert.assertEquals((Integer)300, ts5.values().get(0).get(299));
+    }
+
+    @Test
+    public void reducersWithoutBatch() {
+        Px<Integer> source = Px.range(1, 1000).doOnComplete(() -> { }).map(v -> v * 2);
+
+        TestSubscriber<Long> ts1 = new TestSubscriber<>();
+        source.count().subscribe(ts1);
+        ts1.assertResult(1000L);
+
+        TestSubscriber<Integer> ts2 = new TestSubscriber<>();
+        source.sumInt().subscribe(ts2);
+        ts2.assertResult(1000 * 1001);
+
+        TestSubscriber<Integer> ts3 = new TestSubscriber<>();
+        source.reduce(() -> 0, (a, b) -> a + b).subscribe(ts3);
+        ts3.assertResult(1000 * 1001);
+    }
+
+    @Test
+    public void reducerBackpressured() {
+        TestSubscriber<Long> ts = new TestSubscriber<>(0);
+
+        Px.range(1, 1000).count().subscribe(ts);
+
+        ts.assertNoValues()
+          .assertNoError()
+          .assertNotComplete();
+
+        ts.request(1);
+
+        ts.assertResult(1000L);
+    }
+
+    @Test
+    public void reduceAccumulatorThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 1000).reduce(() -> 0, (a, b) -> {
+            if (b == 500) {
+                throw new RuntimeException("forced failure");
+            }
+            return a + b;
+        }).subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(RuntimeException.class)
+          .assertErrorMessage("forced failure");
+    }
+
+    @Test
+    public void sumMapperThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 1000).map(v -> {
+            if (v == 500) {
+                throw new RuntimeException("forced failure");
+            }
+            return v;
+        }).sumInt().subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(RuntimeException.class)
+          .assertErrorMessage("forced failure");
+    }
+
+    @Test
+    public void countNullElement() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        Px.fromArray(1, 2, null, 4).count().subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(NullPointerException.class);
+    }
+}
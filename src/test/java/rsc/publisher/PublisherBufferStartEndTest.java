@@ -5,6 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -12,6 +15,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.reactivestreams.Publisher;
 import rsc.processor.DirectProcessor;
+import rsc.scheduler.ExecutorTimedScheduler;
 import rsc.test.TestSubscriber;
 import rsc.util.ConstructorTestBuilder;
 
@@ -127,4 +131,150 @@ public class PublisherBufferStartEndTest {
 
     }
 
+    @Test
+    public void overlappingClosedOutOfOrder() {
+        TestSubscriber<List<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source = new DirectProcessor<>();
+        DirectProcessor<Integer> start = new DirectProcessor<>();
+        List<DirectProcessor<Integer>> ends = new ArrayList<>();
+
+        source.buffer(start, v -> {
+            DirectProcessor<Integer> end = new DirectProcessor<>();
+            ends.add(end);
+            return end;
+        }).subscribe(ts);
+
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) {
+                start.onNext(i);
+            }
+            source.onNext(i);
+        }
+
+        Assert.assertEquals(10, ends.size());
+
+        ends.get(9).onComplete();
+        ends.get(0).onNext(1);
+
+        ts.assertValueCount(2)
+        .assertNoError()
+        .assertNotComplete();
+
+        Assert.assertEquals(100, ts.values().get(0).size());
+        Assert.assertEquals((Integer)900, ts.values().get(0).get(0));
+        Assert.assertEquals(1000, ts.values().get(1).size());
+        Assert.assertEquals((Integer)0, ts.values().get(1).get(0));
+
+        source.onNext(1000);
+        source.onComplete();
+
+        ts.assertValueCount(10)
+        .assertNoError()
+        .assertComplete();
+
+        for (int i = 2; i < 10; i++) {
+            List<Integer> b = ts.values().get(i);
+            Assert.assertEquals(1001 - (i - 1) * 100, b.size());
+            for (int j = 0; j < b.size(); j++) {
+                Assert.assertEquals((i - 1) * 100 + j, b.get(j).intValue());
+            }
+        }
+
+        for (DirectProcessor<Integer> end : ends) {
+            Assert.assertFalse("end has subscribers?", end.hasDownstreams());
+        }
+    }
+
+    @Test
+    public void valuesWithoutOpenBufferIgnored() {
+        TestSubscriber<List<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp3 = new DirectProcessor<>();
+
+        DirectProcessor<Integer> sp4 = new DirectProcessor<>();
+
+        sp1.buffer(sp2, v -> v == 1 ? sp3 : sp4).subscribe(ts);
+
+        for (int i = 0; i < 500; i++) {
+            sp1.onNext(i);
+        }
+
+        sp2.onNext(1);
+
+        sp1.onNext(500);
+        sp1.onNext(501);
+
+        sp3.onComplete();
+
+        sp1.onNext(502);
+
+        sp2.onNext(2);
+
+        sp1.onNext(503);
+
+        sp1.onComplete();
+
+        ts.assertValues(Arrays.asList(500, 501), Arrays.asList(503))
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void mainError() {
+        TestSubscriber<List<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp3 = new DirectProcessor<>();
+
+        sp1.buffer(sp2, v -> sp3).subscribe(ts);
+
+        sp2.onNext(1);
+        sp1.onNext(1);
+
+        sp1.onError(new RuntimeException("forced failure"));
+
+        ts.assertNoValues()
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+
+        Assert.assertFalse("sp2 has subscribers?", sp2.hasDownstreams());
+        Assert.assertFalse("sp3 has subscribers?", sp3.hasDownstreams());
+    }
+
+    @Test
+    public void concurrentCloses() throws Exception {
+        ScheduledExecutorService exec = Executors.newScheduledThreadPool(4);
+        try {
+            for (int k = 0; k < 20; k++) {
+                TestSubscriber<List<Integer>> ts = new TestSubscriber<>();
+
+                ExecutorTimedScheduler scheduler = new ExecutorTimedScheduler(exec);
+
+                Px.range(0, 200_000).subscribeOn(scheduler)
+                .buffer(Px.range(0, 50).subscribeOn(scheduler), v -> Px.timer(v % 3, TimeUnit.MILLISECONDS, scheduler))
+                .subscribe(ts);
+
+                if (!ts.await(5, TimeUnit.SECONDS)) {
+                    ts.cancel();
+                    Assert.fail("TestSubscriber timed out");
+                }
+
+                ts.assertNoError()
+                .assertComplete();
+
+                for (List<Integer> b : ts.values()) {
+                    for (int j = 1; j < b.size(); j++) {
+                        Assert.assertEquals(b.get(j - 1) + 1, b.get(j).intValue());
+                    }
+                }
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,313 @@
+package rsc.publisher;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.reactivestreams.Publisher;
+
+import rsc.processor.DirectProcessor;
+import rsc.scheduler.ExecutorServiceScheduler;
+import rsc.test.TestSubscriber;
+
+public class PublisherCombineLatestLockFreeTest {
+
+    @Test(expected = NullPointerException.class)
+    public void source1Null() {
+        new PublisherCombineLatestLockFree<>((Publisher<Integer>[])null, a -> a, 128, false);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void source2Null() {
+        new PublisherCombineLatestLockFree<>((Iterable<Publisher<Integer>>)null, a -> a, 128, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = NullPointerException.class)
+    public void combinerNull() {
+        new PublisherCombineLatestLockFree<>(new Publisher[] { }, null, 128, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferSizeInvalid() {
+        new PublisherCombineLatestLockFree<Object, Object[]>(new Publisher[] { }, a -> a, 0, false);
+    }
+
+    void normal(boolean coalesce) {
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+
+        TestSubscriber<List<Object>> ts = new TestSubscriber<>();
+
+        new PublisherCombineLatestLockFree<>(Arrays.asList(sp1, sp2), a -> Arrays.asList(a), 128, coalesce).subscribe(ts);
+
+        sp1.onNext(1);
+        sp1.onNext(2);
+
+        ts.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+
+        sp2.onNext(1);
+
+        ts.assertValue(Arrays.asList(2, 1))
+        .assertNoError()
+        .assertNotComplete();
+
+        sp2.onNext(2);
+
+        ts.assertValues(Arrays.asList(2, 1), Arrays.asList(2, 2))
+        .assertNoError()
+        .assertNotComplete();
+
+        sp1.onComplete();
+
+        ts.assertValues(Arrays.asList(2, 1), Arrays.asList(2, 2))
+        .assertNoError()
+        .assertNotComplete();
+
+        sp2.onNext(3);
+
+        ts.assertValues(Arrays.asList(2, 1), Arrays.asList(2, 2), Arrays.asList(2, 3))
+        .assertNoError()
+        .assertNotComplete();
+
+        sp2.onComplete();
+
+        ts.assertValues(Arrays.asList(2, 1), Arrays.asList(2, 2), Arrays.asList(2, 3))
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void normal() {
+        normal(false);
+    }
+
+    @Test
+    public void normalCoalesce() {
+        normal(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void firstEmpty() {
+        for (boolean coalesce : new boolean[] { false, true }) {
+            TestSubscriber<List<Object>> ts = new TestSubscriber<>();
+
+            new PublisherCombineLatestLockFree<Object, List<Object>>(new Publisher[] { PublisherEmpty.instance(), PublisherNever.instance() },
+                    a -> Arrays.asList(a), 128, coalesce).subscribe(ts);
+
+            ts.assertNoValues()
+            .assertNoError()
+            .assertComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void secondError() {
+        for (boolean coalesce : new boolean[] { false, true }) {
+            TestSubscriber<List<Object>> ts = new TestSubscriber<>();
+
+            new PublisherCombineLatestLockFree<Object, List<Object>>(new Publisher[] { PublisherNever.instance(), new PublisherError<>(new RuntimeException("forced failure")) },
+                    a -> Arrays.asList(a), 128, coalesce).subscribe(ts);
+
+            ts.assertNoValues()
+            .assertError(RuntimeException.class)
+            .assertErrorMessage("forced failure")
+            .assertNotComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void combinerThrows() {
+        for (boolean coalesce : new boolean[] { false, true }) {
+            TestSubscriber<Object> ts = new TestSubscriber<>();
+
+            new PublisherCombineLatestLockFree<>(new Publisher[] { new PublisherJust<>(1), new PublisherJust<>(2) },
+                    a -> { throw new RuntimeException("forced failure"); }, 128, coalesce).subscribe(ts);
+
+            ts.assertNoValues()
+            .assertError(RuntimeException.class)
+            .assertErrorMessage("forced failure")
+            .assertNotComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void combinerReturnsNull() {
+        for (boolean coalesce : new boolean[] { false, true }) {
+            TestSubscriber<Object> ts = new TestSubscriber<>();
+
+            new PublisherCombineLatestLockFree<>(new Publisher[] { new PublisherJust<>(1), new PublisherJust<>(2) },
+                    a -> null, 128, coalesce).subscribe(ts);
+
+            ts.assertNoValues()
+            .assertError(NullPointerException.class)
+            .assertNotComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void unpairedKeepsRequesting() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+
+        new PublisherCombineLatestLockFree<Integer, Integer>(new Publisher[] { sp1, sp2 }, a -> (Integer)a[0] + (Integer)a[1], 16, false).subscribe(ts);
+
+        for (int i = 0; i < 17; i++) {
+            sp1.onNext(i);
+        }
+
+        ts.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+
+        sp2.onNext(100);
+
+        ts.assertValue(116)
+        .assertNoError()
+        .assertNotComplete();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void backpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        new PublisherCombineLatestLockFree<Integer, Integer>(new Publisher[] { Px.just(10), Px.range(1, 5) },
+                a -> (Integer)a[0] + (Integer)a[1], 2, false).subscribe(ts);
+
+        ts.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(2);
+
+        ts.assertValues(11, 12)
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(3);
+
+        ts.assertResult(11, 12, 13, 14, 15);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void coalesceBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+
+        new PublisherCombineLatestLockFree<Integer, Integer>(new Publisher[] { sp1, sp2 },
+                a -> (Integer)a[0] + (Integer)a[1], 16, true).subscribe(ts);
+
+        sp1.onNext(10);
+        for (int i = 1; i <= 100; i++) {
+            sp2.onNext(i);
+        }
+
+        ts.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(1);
+
+        ts.assertValue(110)
+        .assertNoError()
+        .assertNotComplete();
+
+        sp1.onNext(20);
+        sp2.onNext(1);
+        sp1.onComplete();
+        sp2.onComplete();
+
+        ts.assertValue(110)
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(1);
+
+        ts.assertResult(110, 21);
+    }
+
+    @Test
+    public void cancel() {
+        for (boolean coalesce : new boolean[] { false, true }) {
+            TestSubscriber<List<Object>> ts = new TestSubscriber<>();
+
+            DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+            DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+
+            new PublisherCombineLatestLockFree<>(Arrays.asList(sp1, sp2), a -> Arrays.asList(a), 128, coalesce).subscribe(ts);
+
+            Assert.assertTrue(sp1.hasDownstreams());
+            Assert.assertTrue(sp2.hasDownstreams());
+
+            ts.cancel();
+
+            Assert.assertFalse(sp1.hasDownstreams());
+            Assert.assertFalse(sp2.hasDownstreams());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void concurrentSources(boolean coalesce) throws Exception {
+        int n = 8;
+        int count = 10_000;
+        ExecutorService exec = Executors.newFixedThreadPool(n);
+
+        try {
+            ExecutorServiceScheduler scheduler = new ExecutorServiceScheduler(exec);
+
+            Publisher<Integer>[] sources = new Publisher[n];
+            for (int i = 0; i < n; i++) {
+                sources[i] = Px.range(1, count).subscribeOn(scheduler);
+            }
+
+            TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+            Px.combineLatestLockFree(a -> {
+                int sum = 0;
+                for (Object o : a) {
+                    sum += (Integer)o;
+                }
+                return sum;
+            }, coalesce, sources).subscribe(ts);
+
+            if (!ts.await(10, TimeUnit.SECONDS)) {
+                ts.cancel();
+                Assert.fail("TestSubscriber timed out");
+            }
+
+            ts.assertNoError()
+            .assertComplete();
+
+            List<Integer> values = ts.values();
+            Assert.assertFalse(values.isEmpty());
+            Assert.assertEquals(n * count, values.get(values.size() - 1).intValue());
+            Assert.assertTrue("" + values.size(), values.size() <= n * count);
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentSources() throws Exception {
+        concurrentSources(false);
+    }
+
+    @Test
+    public void concurrentSourcesCoalesce() throws Exception {
+        concurrentSources(true);
+    }
+}
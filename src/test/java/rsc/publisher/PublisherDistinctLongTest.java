@@ -0,0 +1,107 @@
+package rsc.publisher;
+
+import org.junit.Test;
+
+import rsc.test.TestSubscriber;
+import rsc.util.ConstructorTestBuilder;
+
+public class PublisherDistinctLongTest {
+
+    @Test
+    public void constructors() {
+        ConstructorTestBuilder ctb = new ConstructorTestBuilder(PublisherDistinctLong.class);
+
+        ctb.addRef("source", PublisherNever.instance());
+        ctb.addRef("keyExtractor", (java.util.function.ToLongFunction<Object>)v -> 0L);
+        ctb.addInt("capacityHint", 1, Integer.MAX_VALUE);
+
+        ctb.test();
+    }
+
+    @Test
+    public void allDistinct() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 10).distinctLong(v -> v).subscribe(ts);
+
+        ts.assertResult(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void someDistinct() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.fromArray(1, 2, 2, 3, 4, 5, 6, 1, 2, 7, 7, 8, 9, 9, 10, 10, 10, 0, 0)
+        .distinctLong(v -> v).subscribe(ts);
+
+        ts.assertResult(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 0);
+    }
+
+    @Test
+    public void someDistinctBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        Px.fromArray(1, 2, 2, 3, 4, 5, 6, 1, 2, 7, 7, 8, 9, 9, 10, 10, 10)
+        .distinctLong(v -> v).subscribe(ts);
+
+        ts.assertNoEvents();
+
+        ts.request(2);
+
+        ts.assertIncomplete(1, 2);
+
+        ts.request(5);
+
+        ts.assertIncomplete(1, 2, 3, 4, 5, 6, 7);
+
+        ts.request(10);
+
+        ts.assertResult(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void withKeyExtractorConditional() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 10).distinctLong(v -> v % 3 * 1_000_000_000_000L).filter(v -> v != 2).subscribe(ts);
+
+        ts.assertResult(1, 3);
+    }
+
+    @Test
+    public void withKeyExtractorConditionalBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1);
+
+        Px.range(1, 10).distinctLong(v -> v % 3).filter(v -> true).subscribe(ts);
+
+        ts.assertIncomplete(1);
+
+        ts.request(2);
+
+        ts.assertIncomplete(1, 2, 3);
+
+        ts.request(1);
+
+        ts.assertResult(1, 2, 3);
+    }
+
+    @Test
+    public void manyKeys() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(0, 100_000).distinctLong(v -> v / 2).subscribe(ts);
+
+        ts.assertValueCount(50_000).assertNoError().assertComplete();
+    }
+
+    @Test
+    public void keyExtractorThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 10).distinctLong(v -> {
+            throw new RuntimeException("forced failure");
+        }).subscribe(ts);
+
+        ts.assertFailureMessage(RuntimeException.class, "forced failure");
+    }
+}
@@ -1,10 +1,14 @@
 package rsc.publisher;
 
 import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.Assert;
 import org.junit.Test;
+import rsc.flow.Disposable;
 import rsc.flow.Fuseable;
 import rsc.processor.ReplayProcessor;
+import rsc.scheduler.TimedScheduler;
 import rsc.test.TestSubscriber;
 
 public class PublisherDistinctTest {
@@ -237,4 +241,141 @@ public class PublisherDistinctTest {
           .assertNotComplete()
           .assertError(NullPointerException.class);
     }
+
+    @Test
+    public void approx() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 10).concatWith(Px.range(1, 10)).distinctApprox(k -> k, 100, 0.001).subscribe(ts);
+
+        ts.assertValues(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+          .assertComplete()
+          .assertNoError();
+    }
+
+    @Test
+    public void approxFused() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ANY);
+
+        Px.range(1, 10).map(v -> v % 3).distinctApprox(k -> k, 100, 0.001).subscribe(ts);
+
+        ts.assertFuseableSource()
+          .assertFusionMode(Fuseable.SYNC)
+          .assertResult(1, 2, 0);
+    }
+
+    @Test
+    public void approxForgetsOldKeys() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 30).map(v -> v % 10).concatWith(Px.just(100)).hide().distinctApprox(k -> k, 4, 0.001).subscribe(ts);
+
+        // keys 0..9 cycle through 2 generations of 4, thus each repeat is forgotten
+        Assert.assertEquals(31, ts.values().size());
+        ts.assertComplete()
+          .assertNoError();
+    }
+
+    @Test
+    public void approxLong() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        // equal hashCode()s, which distinctApprox would drop
+        Px.fromArray(1L << 32 | 1L, 2L << 32 | 2L, 1L << 32 | 1L, 3L << 32 | 3L)
+        .distinctApproxLong(k -> k, 100, 0.001).subscribe(ts);
+
+        ts.assertValues(1L << 32 | 1L, 2L << 32 | 2L, 3L << 32 | 3L)
+          .assertComplete()
+          .assertNoError();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void approxInvalidFpp() {
+        Px.range(1, 10).distinctApprox(k -> k, 100, 2d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void approxInvalidExpectedKeys() {
+        Px.range(1, 10).distinctApproxLong(k -> k, 0, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void approxUnreachableFpp() {
+        Px.range(1, 10).distinctApprox(k -> k, 1_000_000, 1e-9, 1, TimeUnit.SECONDS, new ManualClock());
+    }
+
+    @Test
+    public void within() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ManualClock clock = new ManualClock();
+
+        ReplayProcessor<Integer> rp = new ReplayProcessor<>(16, false);
+
+        rp.distinctWithin(k -> k, 10, TimeUnit.SECONDS, clock).subscribe(ts);
+
+        rp.onNext(1);
+        rp.onNext(2);
+        rp.onNext(1);
+
+        clock.time = TimeUnit.SECONDS.toNanos(10);
+
+        rp.onNext(2);
+        rp.onNext(1);
+        rp.onNext(1);
+        rp.onComplete();
+
+        ts.assertResult(1, 2, 2, 1);
+    }
+
+    @Test
+    public void last() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.fromArray(1, 2, 1, 3, 2, 4, 1, 3).distinctLast(k -> k, 2).subscribe(ts);
+
+        ts.assertResult(1, 2, 3, 4, 1, 3);
+    }
+
+    @Test
+    public void lastFused() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ANY);
+
+        Px.range(1, 10).map(v -> v % 3).distinctLast(k -> k, 3).subscribe(ts);
+
+        ts.assertFuseableSource()
+          .assertFusionMode(Fuseable.SYNC)
+          .assertResult(1, 2, 0);
+    }
+
+    static final class ManualClock implements TimedScheduler {
+
+        long time;
+
+        @Override
+        public long now(TimeUnit unit) {
+            return unit.convert(time, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimedWorker createWorker() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,205 @@
+package rsc.publisher;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import org.junit.*;
+import org.reactivestreams.Publisher;
+
+import rsc.processor.DirectProcessor;
+import rsc.scheduler.*;
+import rsc.test.TestSubscriber;
+import rsc.util.ConstructorTestBuilder;
+
+public class PublisherFlatMapSharedTest {
+
+    @Test
+    public void constructors() {
+        ConstructorTestBuilder ctb = new ConstructorTestBuilder(PublisherFlatMapShared.class);
+        
+        ctb.addRef("source", PublisherNever.instance());
+        ctb.addRef("mapper", (Function<Object, Publisher<Object>>)v -> PublisherNever.instance());
+        ctb.addInt("prefetch", 1, Integer.MAX_VALUE);
+        ctb.addInt("maxConcurrency", 1, Integer.MAX_VALUE);
+        
+        ctb.test();
+    }
+    
+    @Test
+    public void normal() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        new PublisherRange(1, 1000).flatMapShared(v -> new PublisherRange(v, 2)).subscribe(ts);
+        
+        ts.assertValueCount(2000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void normalBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+        
+        new PublisherRange(1, 1000).flatMapShared(v -> new PublisherRange(v, 2)).subscribe(ts);
+        
+        ts.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+        
+        ts.request(1000);
+
+        ts.assertValueCount(1000)
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(1000);
+
+        ts.assertValueCount(2000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void maxConcurrency() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        new PublisherRange(1, 1000).flatMapShared(v -> new PublisherRange(v, 2).hide(), false, 4, 1).subscribe(ts);
+        
+        ts.assertValueCount(2000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void scalarsBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+        
+        new PublisherRange(1, 1000).flatMapShared(v -> v % 2 == 0 ? new PublisherJust<>(v) : Px.<Integer>empty(), false, 16, 16)
+        .subscribe(ts);
+        
+        ts.assertNoValues();
+        
+        ts.request(100);
+        
+        ts.assertValueCount(100)
+        .assertNotComplete();
+        
+        ts.request(400);
+
+        ts.assertValueCount(500)
+        .assertNoError()
+        .assertComplete();
+    }
+    
+    @Test
+    public void perInnerOrderKept() {
+        DirectProcessor<Integer> dp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> dp2 = new DirectProcessor<>();
+        
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+        
+        Px.fromArray(dp1, dp2).flatMapShared(v -> v).subscribe(ts);
+        
+        dp1.onNext(1);
+        dp2.onNext(10);
+        dp1.onNext(2);
+        dp2.onNext(20);
+        dp1.onComplete();
+        
+        ts.assertNoValues();
+        
+        ts.request(3);
+        
+        ts.assertValues(1, 10, 2)
+        .assertNotComplete();
+        
+        dp2.onComplete();
+        
+        ts.assertNotComplete();
+        
+        ts.request(1);
+        
+        ts.assertValues(1, 10, 2, 20)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void mainError() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        new PublisherError<Integer>(new RuntimeException("forced failure"))
+                .flatMapShared(v -> new PublisherJust<>(v)).subscribe(ts);
+        
+        ts.assertNoValues()
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+    }
+
+    @Test
+    public void innerError() {
+        TestSubscriber<Object> ts = new TestSubscriber<>(0);
+
+        new PublisherJust<>(1).hide().flatMapShared(v -> new PublisherError<>(new RuntimeException("forced failure"))).subscribe(ts);
+        
+        ts.assertNoValues()
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+    }
+    
+    @Test
+    public void innerErrorDelayed() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 3).flatMapShared(v -> v == 2 ? new PublisherError<Integer>(new RuntimeException("forced failure")) 
+                : new PublisherRange(v, 2).hide(), true, Integer.MAX_VALUE, 128).subscribe(ts);
+        
+        ts.assertValues(1, 2, 3, 4)
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+    }
+
+    @Test
+    public void cancel() {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Px.just(1).hide().flatMapShared(v -> dp).subscribe(ts);
+        
+        Assert.assertTrue(dp.hasDownstreams());
+        
+        ts.cancel();
+        
+        Assert.assertFalse(dp.hasDownstreams());
+    }
+
+    @Test
+    public void asyncInners() {
+        ParallelScheduler s = new ParallelScheduler(4, "flatmap-shared-", true);
+        try {
+            for (int k = 0; k < 20; k++) {
+                TestSubscriber<Integer> ts = new TestSubscriber<>();
+                
+                Px.range(0, 1000)
+                .flatMapShared(v -> Px.range(v * 10, 10).subscribeOn(s), false, 256, 4)
+                .subscribe(ts);
+                
+                ts.await(5, TimeUnit.SECONDS);
+                
+                ts.assertValueCount(10_000)
+                .assertNoError()
+                .assertComplete();
+                
+                Set<Integer> set = new HashSet<>(ts.values());
+                Assert.assertEquals(10_000, set.size());
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+}
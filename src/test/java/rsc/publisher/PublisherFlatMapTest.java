@@ -23,6 +23,7 @@ public class PublisherFlatMapTest {
         ctb.addRef("mapper", (Function<Object, Publisher<Object>>)v -> PublisherNever.instance());
         ctb.addInt("prefetch", 1, Integer.MAX_VALUE);
         ctb.addInt("maxConcurrency", 1, Integer.MAX_VALUE);
+        ctb.addInt("maxPrefetch", 1, Integer.MAX_VALUE);
         ctb.addRef("mainQueueSupplier", (Supplier<Queue<Object>>)() -> new ConcurrentLinkedQueue<>());
         ctb.addRef("innerQueueSupplier", (Supplier<Queue<Object>>)() -> new ConcurrentLinkedQueue<>());
         
@@ -726,4 +727,68 @@ public class PublisherFlatMapTest {
         }
     }
 
+    @Test
+    public void adaptivePrefetch() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 1000).flatMap(v -> Px.range(v, 100).hide(), false, 8, 4, 64).subscribe(ts);
+
+        ts.assertValueCount(100_000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void adaptivePrefetchBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+
+        Px.range(1, 10).flatMap(v -> Px.range(v, 100).hide(), false, 4, 4, 64).subscribe(ts);
+
+        ts.assertNoValues();
+
+        ts.request(500);
+
+        ts.assertValueCount(500)
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.request(500);
+
+        ts.assertValueCount(1000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void adaptivePrefetchAsync() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 100)
+        .flatMap(v -> Px.range(v, 1000).hide().observeOn(ForkJoinPool.commonPool()), false, 16, 4, 256)
+        .subscribe(ts);
+
+        ts.await(10, TimeUnit.SECONDS);
+
+        ts.assertValueCount(100_000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void adaptivePrefetchGrowsWithFastConsumer() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        List<Long> requests = new ArrayList<>();
+
+        Px.just(1).hide()
+        .flatMap(v -> Px.range(1, 1000).hide().doOnRequest(requests::add), false, 1, 8, 128)
+        .subscribe(ts);
+
+        ts.assertValueCount(1000)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertEquals(8L, requests.get(0).longValue());
+        long max = Collections.max(requests);
+        Assert.assertTrue("" + requests, max > 8L && max <= 128L);
+    }
 }
@@ -0,0 +1,187 @@
+package rsc.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rsc.flow.MultiProducer;
+import rsc.processor.DirectProcessor;
+import rsc.publisher.PublisherGroupByTest.ManualTicker;
+import rsc.scheduler.ExecutorTimedScheduler;
+import rsc.test.TestSubscriber;
+import rsc.util.ConstructorTestBuilder;
+
+public class PublisherGroupByLongTest {
+
+    @Test
+    public void constructors() {
+        ConstructorTestBuilder ctb = new ConstructorTestBuilder(PublisherGroupByLong.class);
+
+        ctb.addRef("source", Px.never());
+        ctb.addRef("keySelector", (ToLongFunction<Object>)v -> 0L);
+        ctb.addRef("valueSelector", (Function<Object, Object>)v -> v);
+        ctb.addRef("mainQueueSupplier", Px.defaultQueueSupplier(1));
+        ctb.addRef("groupQueueSupplier", Px.defaultQueueSupplier(1));
+        ctb.addInt("prefetch", 1, Integer.MAX_VALUE);
+        ctb.addInt("maxGroups", 1, Integer.MAX_VALUE);
+        ctb.addLong("idleTimeout", 1, Long.MAX_VALUE);
+        ctb.addRef("unit", TimeUnit.MILLISECONDS);
+        ctb.addRef("scheduler", new ManualTicker());
+
+        ctb.test();
+    }
+
+    @Test
+    public void normal() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        List<Long> keys = new ArrayList<>();
+
+        Px.range(0, 10).groupByLong(v -> v % 3 * 1_000_000_000_000L)
+        .doOnNext(g -> keys.add(g.key()))
+        .concatMap(g -> g)
+        .subscribe(ts);
+
+        ts.assertResult(0, 3, 6, 9, 1, 4, 7, 2, 5, 8);
+
+        Assert.assertEquals("[0, 1000000000000, 2000000000000]", keys.toString());
+    }
+
+    @Test
+    public void normalValueSelector() {
+        TestSubscriber<String> ts = new TestSubscriber<>();
+
+        Px.range(0, 10).groupByLong(v -> v & 1, v -> "" + v)
+        .flatMap(g -> g.reduce((a, b) -> a + b))
+        .subscribe(ts);
+
+        ts.assertResult("02468", "13579");
+    }
+
+    @Test
+    public void manyGroups() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(0, 100_000).groupByLong(v -> v % 10_000)
+        .flatMap(g -> g, false, Integer.MAX_VALUE)
+        .subscribe(ts);
+
+        ts.assertValueCount(100_000).assertNoError().assertComplete();
+    }
+
+    @Test
+    public void keySelectorThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(0, 10).groupByLong(v -> {
+            throw new RuntimeException("forced failure");
+        })
+        .flatMap(g -> g)
+        .subscribe(ts);
+
+        ts.assertFailureMessage(RuntimeException.class, "forced failure");
+    }
+
+    @Test
+    public void maxGroupsEvictsOldest() {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+        MultiProducer[] main = { null };
+
+        dp.groupByLong(v -> v, v -> v, 3)
+        .doOnSubscribe(s -> main[0] = (MultiProducer)s)
+        .doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(new TestSubscriber<>());
+
+        dp.onNext(0);
+        dp.onNext(1);
+        dp.onNext(2);
+
+        Assert.assertEquals(3, main[0].downstreamCount());
+
+        dp.onNext(3);
+
+        Assert.assertEquals(3, main[0].downstreamCount());
+        groups.get(0).assertResult(0);
+
+        dp.onNext(0);
+
+        groups.get(1).assertResult(1);
+        groups.get(4).assertValues(0).assertNotComplete();
+
+        groups.get(4).cancel();
+
+        Assert.assertEquals(2, main[0].downstreamCount());
+
+        dp.onComplete();
+
+        Assert.assertEquals(0, main[0].downstreamCount());
+        groups.get(2).assertResult(2);
+        groups.get(3).assertResult(3);
+    }
+
+    @Test
+    public void idleGroupsEvicted() {
+        ManualTicker ticker = new ManualTicker();
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+
+        dp.groupByLong(v -> v % 10, v -> v, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, ticker).doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(new TestSubscriber<>());
+
+        dp.onNext(0);
+        dp.onNext(1);
+
+        ticker.tick();
+        ticker.tick();
+
+        dp.onNext(10);
+
+        ticker.tick();
+
+        groups.get(0).assertValues(0, 10).assertNotComplete();
+        groups.get(1).assertResult(1);
+
+        dp.onNext(11);
+
+        Assert.assertEquals(3, groups.size());
+
+        dp.onComplete();
+
+        groups.get(0).assertResult(0, 10);
+        groups.get(2).assertResult(11);
+        Assert.assertTrue(ticker.shutdown);
+    }
+
+    @Test
+    public void idleEvictionAsync() throws Exception {
+        ExecutorTimedScheduler scheduler = new ExecutorTimedScheduler(Executors.newSingleThreadScheduledExecutor());
+        try {
+            TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+            Px.range(0, 100_000)
+            .groupByLong(v -> v % 1000, v -> v, 64, 1, TimeUnit.MILLISECONDS, scheduler)
+            .flatMap(g -> g, false, Integer.MAX_VALUE)
+            .subscribe(ts);
+
+            ts.await(10, TimeUnit.SECONDS);
+
+            ts.assertValueCount(100_000)
+            .assertNoError()
+            .assertComplete();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package rsc.publisher;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -9,7 +12,13 @@ import org.junit.Test;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import rsc.flow.Disposable;
+import rsc.flow.MultiProducer;
+import rsc.flow.Trackable;
+import rsc.processor.DirectProcessor;
 import rsc.publisher.PublisherConcatMap.ErrorMode;
+import rsc.scheduler.ExecutorTimedScheduler;
+import rsc.scheduler.TimedScheduler;
 import rsc.subscriber.SubscriptionHelper;
 import rsc.test.TestSubscriber;
 import rsc.util.ConstructorTestBuilder;
@@ -27,6 +36,10 @@ public class PublisherGroupByTest {
         ctb.addRef("mainQueueSupplier", Px.defaultQueueSupplier(1));
         ctb.addRef("groupQueueSupplier", Px.defaultQueueSupplier(1));
         ctb.addInt("prefetch", 1, Integer.MAX_VALUE);
+        ctb.addInt("maxGroups", 1, Integer.MAX_VALUE);
+        ctb.addLong("idleTimeout", 1, Long.MAX_VALUE);
+        ctb.addRef("unit", TimeUnit.MILLISECONDS);
+        ctb.addRef("scheduler", new ManualTicker());
         
         ctb.test();
     }
@@ -640,4 +653,283 @@ public class PublisherGroupByTest {
         .assertNoError();
     }
 
+    @Test
+    public void maxGroupsEvictsOldest() {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+        TestSubscriber<GroupedPublisher<Integer, Integer>> ts = new TestSubscriber<>();
+
+        dp.groupBy(v -> v, v -> v, 3).doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(ts);
+
+        dp.onNext(0);
+        dp.onNext(1);
+        dp.onNext(2);
+
+        Assert.assertEquals(3, groups.size());
+        groups.get(0).assertValues(0).assertNotComplete();
+
+        dp.onNext(3);
+
+        Assert.assertEquals(4, groups.size());
+        groups.get(0).assertResult(0);
+        groups.get(1).assertValues(1).assertNotComplete();
+
+        dp.onNext(0);
+
+        Assert.assertEquals(5, groups.size());
+        groups.get(1).assertResult(1);
+        groups.get(4).assertValues(0).assertNotComplete();
+
+        dp.onComplete();
+
+        ts.assertValueCount(5).assertNoError().assertComplete();
+        groups.get(2).assertResult(2);
+        groups.get(3).assertResult(3);
+        groups.get(4).assertResult(0);
+    }
+
+    @Test
+    public void maxGroupsSecondChance() {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+
+        dp.groupBy(v -> v, v -> v, 3).doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(new TestSubscriber<>());
+
+        dp.onNext(0);
+        dp.onNext(1);
+        dp.onNext(2);
+        dp.onNext(3);
+
+        groups.get(0).assertResult(0);
+
+        dp.onNext(1);
+        dp.onNext(4);
+
+        groups.get(1).assertValues(1, 1).assertNotComplete();
+        groups.get(2).assertResult(2);
+        groups.get(3).assertValues(3).assertNotComplete();
+    }
+
+    @Test
+    public void evictedGroupsReplenishWithSlowConsumers() {
+        List<GroupedPublisher<Integer, Integer>> groups = new ArrayList<>();
+        List<TestSubscriber<Integer>> subscribers = new ArrayList<>();
+        TestSubscriber<GroupedPublisher<Integer, Integer>> ts = new TestSubscriber<>();
+
+        Px.range(0, 1000).groupBy(i -> (i / 20) % 8, i -> i, 4).doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>(0);
+            groups.add(g);
+            subscribers.add(gs);
+            g.subscribe(gs);
+        }).subscribe(ts);
+
+        // the consumers only drain a group once it has been closed, so all credit comes back from evicted groups
+        for (int round = 0; round < 2000 && ts.completions() == 0; round++) {
+            for (int i = 0; i < groups.size(); i++) {
+                if (((Trackable)groups.get(i)).isTerminated()) {
+                    subscribers.get(i).request(1);
+                }
+            }
+        }
+
+        ts.assertNoError().assertComplete();
+
+        int count = 0;
+        for (TestSubscriber<Integer> gs : subscribers) {
+            gs.request(Long.MAX_VALUE);
+            gs.assertNoError().assertComplete();
+            count += gs.values().size();
+        }
+        Assert.assertEquals(1000, count);
+    }
+
+    @Test
+    public void liveGroupCount() {
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+        MultiProducer[] main = { null };
+
+        dp.groupBy(v -> v % 10, v -> v, 4)
+        .doOnSubscribe(s -> main[0] = (MultiProducer)s)
+        .doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(new TestSubscriber<>());
+
+        for (int i = 0; i < 100; i++) {
+            dp.onNext(i);
+            Assert.assertTrue(main[0].downstreamCount() <= 4);
+        }
+
+        Assert.assertEquals(4, main[0].downstreamCount());
+
+        groups.get(groups.size() - 1).cancel();
+
+        Assert.assertEquals(3, main[0].downstreamCount());
+
+        dp.onComplete();
+
+        Assert.assertEquals(0, main[0].downstreamCount());
+    }
+
+    @Test
+    public void idleGroupsEvicted() {
+        ManualTicker ticker = new ManualTicker();
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        List<TestSubscriber<Integer>> groups = new ArrayList<>();
+        TestSubscriber<GroupedPublisher<Integer, Integer>> ts = new TestSubscriber<>();
+
+        dp.groupBy(v -> v % 10, v -> v, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, ticker).doOnNext(g -> {
+            TestSubscriber<Integer> gs = new TestSubscriber<>();
+            groups.add(gs);
+            g.subscribe(gs);
+        }).subscribe(ts);
+
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(5), ticker.period);
+
+        dp.onNext(1);
+        dp.onNext(2);
+
+        ticker.tick();
+        ticker.tick();
+
+        groups.get(0).assertValues(1).assertNotComplete();
+        groups.get(1).assertValues(2).assertNotComplete();
+
+        dp.onNext(11);
+
+        ticker.tick();
+
+        groups.get(0).assertValues(1, 11).assertNotComplete();
+        groups.get(1).assertResult(2);
+
+        dp.onNext(12);
+
+        Assert.assertEquals(3, groups.size());
+        groups.get(2).assertValues(12).assertNotComplete();
+
+        ticker.tick();
+        ticker.tick();
+        ticker.tick();
+
+        groups.get(0).assertResult(1, 11);
+        groups.get(2).assertResult(12);
+
+        dp.onComplete();
+
+        ts.assertValueCount(3).assertNoError().assertComplete();
+        Assert.assertTrue("Idle check still running?", ticker.shutdown);
+    }
+
+    @Test
+    public void idleEvictionStopsOnCancel() {
+        ManualTicker ticker = new ManualTicker();
+        DirectProcessor<Integer> dp = new DirectProcessor<>();
+        TestSubscriber<GroupedPublisher<Integer, Integer>> ts = new TestSubscriber<>();
+
+        dp.groupBy(v -> v, v -> v, 16, 1, TimeUnit.SECONDS, ticker).subscribe(ts);
+
+        dp.onNext(1);
+
+        ts.assertValueCount(1);
+
+        ts.cancel();
+        ts.values().get(0).subscribe(new TestSubscriber<>());
+
+        Assert.assertFalse(ticker.shutdown);
+
+        ticker.tick();
+        ticker.tick();
+        ticker.tick();
+
+        Assert.assertTrue("Idle check still running?", ticker.shutdown);
+        Assert.assertFalse("Upstream not cancelled?", dp.hasDownstreams());
+    }
+
+    @Test
+    public void idleEvictionAsync() throws Exception {
+        ExecutorTimedScheduler scheduler = new ExecutorTimedScheduler(Executors.newSingleThreadScheduledExecutor());
+        try {
+            TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+            Px.range(0, 100_000)
+            .groupBy(v -> v % 1000, v -> v, 64, 1, TimeUnit.MILLISECONDS, scheduler)
+            .flatMap(g -> g, false, Integer.MAX_VALUE)
+            .subscribe(ts);
+
+            ts.await(10, TimeUnit.SECONDS);
+
+            ts.assertValueCount(100_000)
+            .assertNoError()
+            .assertComplete();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    static final class ManualTicker implements TimedScheduler {
+
+        Runnable task;
+
+        long period;
+
+        volatile boolean shutdown;
+
+        void tick() {
+            if (!shutdown) {
+                task.run();
+            }
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimedWorker createWorker() {
+            return new TimedWorker() {
+                @Override
+                public Disposable schedule(Runnable task) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+                    ManualTicker.this.task = task;
+                    ManualTicker.this.period = unit.toNanos(period);
+                    return () -> shutdown = true;
+                }
+
+                @Override
+                public void shutdown() {
+                    shutdown = true;
+                }
+            };
+        }
+    }
 }
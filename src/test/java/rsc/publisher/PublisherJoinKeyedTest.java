@@ -0,0 +1,231 @@
+package rsc.publisher;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rsc.processor.DirectProcessor;
+import rsc.scheduler.ExecutorServiceScheduler;
+import rsc.test.TestSubscriber;
+
+public class PublisherJoinKeyedTest {
+
+    final BiFunction<Integer, Integer, Integer> add = (t1, t2) -> t1 + t2;
+
+    final Function<Integer, Integer> mod10 = v -> v % 10;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDuration() {
+        Px.just(1).join(Px.just(1), mod10, mod10, -1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add);
+    }
+
+    @Test
+    public void matchesByKey() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        source1.join(source2, mod10, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        source1.onNext(1);
+        source1.onNext(2);
+        source1.onNext(11);
+
+        source2.onNext(21);
+        source2.onNext(33);
+        source2.onNext(42);
+
+        source1.onNext(3);
+
+        source1.onComplete();
+        source2.onComplete();
+
+        ts.assertValues(22, 32, 44, 36)
+          .assertComplete()
+          .assertNoError();
+    }
+
+    @Test
+    public void durationsExpire() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        PublisherDistinctTest.ManualClock clock = new PublisherDistinctTest.ManualClock();
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        source1.join(source2, mod10, mod10, 10, 5, TimeUnit.SECONDS, clock, add)
+        .subscribe(ts);
+
+        source1.onNext(1);
+
+        clock.time = TimeUnit.SECONDS.toNanos(4);
+
+        source2.onNext(11);
+
+        clock.time = TimeUnit.SECONDS.toNanos(9);
+
+        // the right 11 has expired, the left 1 is still alive
+        source1.onNext(101);
+        source2.onNext(21);
+
+        clock.time = TimeUnit.SECONDS.toNanos(10);
+
+        // the left 1 has expired, the left 101 is still alive
+        source2.onNext(31);
+
+        source1.onComplete();
+        source2.onComplete();
+
+        ts.assertValues(12, 22, 122, 132)
+          .assertComplete()
+          .assertNoError();
+    }
+
+    @Test
+    public void zeroDurationNotRetained() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        source1.join(source2, mod10, mod10, 0, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        source1.onNext(1);
+        source2.onNext(11);
+        source1.onNext(2);
+        source2.onNext(12);
+        source1.onNext(22);
+
+        source1.onComplete();
+        source2.onComplete();
+
+        ts.assertValues(34)
+          .assertComplete()
+          .assertNoError();
+    }
+
+    @Test
+    public void keySelectorReturnsNull() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.just(1).join(Px.never(), v -> null, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(NullPointerException.class)
+          .assertNotComplete();
+    }
+
+    @Test
+    public void resultSelectorThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        BiFunction<Integer, Integer, Integer> failing = (a, b) -> {
+            throw new IllegalStateException("forced failure");
+        };
+
+        source1.join(source2, mod10, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), failing)
+        .subscribe(ts);
+
+        source1.onNext(1);
+        source2.onNext(11);
+
+        ts.assertNoValues()
+          .assertError(IllegalStateException.class)
+          .assertErrorMessage("forced failure")
+          .assertNotComplete();
+
+        Assert.assertFalse(source1.hasDownstreams());
+        Assert.assertFalse(source2.hasDownstreams());
+    }
+
+    @Test
+    public void lackOfRequests() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(1);
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        source1.join(source2, mod10, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        source1.onNext(1);
+        source1.onNext(11);
+        source2.onNext(21);
+
+        ts.assertValues(22)
+          .assertError(IllegalStateException.class)
+          .assertNotComplete();
+    }
+
+    @Test
+    public void mainError() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        Px.<Integer>error(new RuntimeException("forced failure"))
+        .join(source2, mod10, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(RuntimeException.class)
+          .assertErrorMessage("forced failure")
+          .assertNotComplete();
+
+        Assert.assertFalse(source2.hasDownstreams());
+    }
+
+    @Test
+    public void cancel() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source1 = new DirectProcessor<>();
+        DirectProcessor<Integer> source2 = new DirectProcessor<>();
+
+        source1.join(source2, mod10, mod10, 1, 1, TimeUnit.SECONDS, new PublisherDistinctTest.ManualClock(), add)
+        .subscribe(ts);
+
+        ts.cancel();
+
+        Assert.assertFalse(source1.hasDownstreams());
+        Assert.assertFalse(source2.hasDownstreams());
+    }
+
+    @Test
+    public void concurrentSources() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorServiceScheduler exec = new ExecutorServiceScheduler(executor);
+        try {
+            for (int j = 0; j < 20; j++) {
+                TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+                int n = 10_000;
+
+                Px.range(0, n).subscribeOn(exec)
+                .join(Px.range(0, n).map(v -> -v).subscribeOn(exec),
+                        v -> v, v -> -v, 1, 1, TimeUnit.DAYS, new PublisherDistinctTest.ManualClock(), (a, b) -> a)
+                .subscribe(ts);
+
+                ts.await(5, TimeUnit.SECONDS);
+
+                ts.assertValueCount(n)
+                  .assertComplete()
+                  .assertNoError();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package rsc.publisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rsc.flow.Fuseable;
+import rsc.processor.UnicastProcessor;
+import rsc.test.TestSubscriber;
+
+public class PublisherMapFilterTest {
+
+    @Test(expected = NullPointerException.class)
+    public void sourceNull() {
+        new PublisherMapFilter<Integer, Integer>(null, v -> v);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void mapperNull() {
+        new PublisherMapFilter<>(PublisherNever.instance(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fuseableSourceNotFuseable() {
+        new PublisherMapFilterFuseable<>(PublisherNever.instance(), v -> v);
+    }
+
+    @Test
+    public void normal() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        new PublisherMapFilter<>(new PublisherRange(1, 10).hide(), v -> (v & 1) == 0 ? v * 10 : null).subscribe(ts);
+
+        ts.assertResult(20, 40, 60, 80, 100);
+    }
+
+    @Test
+    public void normalBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(2);
+
+        new PublisherMapFilter<>(new PublisherRange(1, 10).hide(), v -> (v & 1) == 0 ? v * 10 : null).subscribe(ts);
+
+        ts.assertValues(20, 40)
+          .assertNotComplete()
+          .assertNoError();
+
+        ts.request(10);
+
+        ts.assertResult(20, 40, 60, 80, 100);
+    }
+
+    @Test
+    public void normalConditional() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(2);
+
+        new PublisherFilter<>(new PublisherMapFilter<>(new PublisherRange(1, 10).hide(), v -> (v & 1) == 0 ? v * 10 : null), v -> v != 60)
+        .subscribe(ts);
+
+        ts.assertValues(20, 40)
+          .assertNotComplete()
+          .assertNoError();
+
+        ts.request(10);
+
+        ts.assertResult(20, 40, 80, 100);
+    }
+
+    @Test
+    public void fusedConditional() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(2);
+
+        new PublisherFilter<>(new PublisherMapFilterFuseable<>(new PublisherRange(1, 10), v -> (v & 1) == 0 ? v * 10 : null), v -> v != 60)
+        .subscribe(ts);
+
+        ts.assertValues(20, 40)
+          .assertNotComplete()
+          .assertNoError();
+
+        ts.request(10);
+
+        ts.assertResult(20, 40, 80, 100);
+    }
+
+    @Test
+    public void mapperThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        new PublisherMapFilter<Integer, Integer>(new PublisherRange(1, 10).hide(), v -> {
+            throw new RuntimeException("forced failure");
+        }).subscribe(ts);
+
+        ts.assertNoValues()
+          .assertNotComplete()
+          .assertError(RuntimeException.class)
+          .assertErrorMessage("forced failure");
+    }
+
+    @Test
+    public void syncFusion() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ANY);
+
+        Px.range(1, 10).map(v -> v + 1).filter(v -> (v & 1) == 0).map(v -> v * 10).subscribe(ts);
+
+        ts.assertFusionMode(Fuseable.SYNC)
+          .assertResult(20, 40, 60, 80, 100);
+    }
+
+    @Test
+    public void asyncFusion() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        ts.requestedFusionMode(Fuseable.ANY);
+
+        UnicastProcessor<Integer> up = new UnicastProcessor<>(new ConcurrentLinkedQueue<>());
+
+        up.map(v -> v + 1).filter(v -> (v & 1) == 0).subscribe(ts);
+
+        for (int i = 1; i < 11; i++) {
+            up.onNext(i);
+        }
+        up.onComplete();
+
+        ts.assertFusionMode(Fuseable.ASYNC)
+          .assertResult(2, 4, 6, 8, 10);
+    }
+
+    @Test
+    public void asyncFusionBackpressured() {
+        TestSubscriber<Object> ts = new TestSubscriber<>(1);
+
+        UnicastProcessor<Integer> up = new UnicastProcessor<>(new ConcurrentLinkedQueue<>());
+
+        Px.just(1).hide().flatMap(w -> up.map(v -> v * 10).filter(v -> v != 10)).subscribe(ts);
+
+        up.onNext(1);
+        up.onNext(2);
+
+        ts.assertValue(20)
+          .assertNoError()
+          .assertNotComplete();
+
+        up.onComplete();
+
+        ts.assertValue(20)
+          .assertNoError()
+          .assertComplete();
+    }
+
+    @Test
+    public void peekOrder() {
+        List<Object> list = new ArrayList<>();
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 3)
+        .doOnNext(v -> list.add("a" + v))
+        .map(v -> v * 10)
+        .doOnNext(v -> list.add("b" + v))
+        .filter(v -> v != 20)
+        .doOnNext(v -> list.add("c" + v))
+        .subscribe(ts);
+
+        ts.assertResult(10, 30);
+        Assert.assertEquals(Arrays.asList("a1", "b10", "c10", "a2", "b20", "a3", "b30", "c30"), list);
+    }
+
+    @Test
+    public void innerMapperReturnsNull() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 3).map(v -> v == 2 ? null : v).map(v -> v + 1).subscribe(ts);
+
+        ts.assertValue(2)
+          .assertError(NullPointerException.class)
+          .assertErrorMessage("The mapper returned a null value.");
+    }
+
+    @Test
+    public void innerMapperReturnsNullBeforeFilter() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 3).hide().map(v -> v == 2 ? null : v).filter(v -> true).subscribe(ts);
+
+        ts.assertValue(1)
+          .assertError(NullPointerException.class)
+          .assertErrorMessage("The mapper returned a null value.");
+    }
+
+    @Test
+    public void assemblyMapMap() {
+        Px<Integer> p = Px.range(1, 5).map(v -> v + 1).map(v -> v * 2);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilterFuseable);
+        Assert.assertTrue(((PublisherMapFilterFuseable<?, ?>)p).source instanceof PublisherRange);
+
+        p = Px.range(1, 5).hide().map(v -> v + 1).map(v -> v * 2);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilter);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(4, 6, 8, 10, 12);
+    }
+
+    @Test
+    public void assemblyFilterFilter() {
+        Px<Integer> p = Px.range(1, 20).filter(v -> (v & 1) == 0).filter(v -> v % 3 == 0);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilterFuseable);
+        Assert.assertTrue(((PublisherMapFilterFuseable<?, ?>)p).source instanceof PublisherRange);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(6, 12, 18);
+    }
+
+    @Test
+    public void assemblyMapFilterChained() {
+        Px<Integer> p = new PublisherMapFilter<>(Px.range(1, 10).hide(), v -> (v & 1) == 0 ? v : null).map(v -> v * 10).filter(v -> v != 40);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilter);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(20, 60, 80, 100);
+    }
+
+    @Test
+    public void assemblyMixed() {
+        Px<Integer> p = Px.range(1, 5).map(v -> v + 1).filter(v -> v != 3).doOnNext(v -> { }).map(v -> v * 2);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilterFuseable);
+        Assert.assertTrue(((PublisherMapFilterFuseable<?, ?>)p).source instanceof PublisherRange);
+
+        p = Px.range(1, 5).hide().filter(v -> v != 3).map(v -> v * 2);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFilter);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(2, 4, 8, 10);
+    }
+
+    @Test
+    public void assemblyPeekWithOtherCallbacksNotFused() {
+        Px<Integer> p = Px.range(1, 5).doOnComplete(() -> { }).map(v -> v + 1);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherMapFuseable);
+        Assert.assertTrue(((PublisherMapFuseable<?, ?>)p).source instanceof PublisherPeekFuseable);
+    }
+
+    @Test
+    public void assemblyTakeTake() {
+        Px<Integer> p = Px.range(1, 10).hide().take(5).take(3);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherTake);
+        Assert.assertEquals(3L, ((PublisherTake<?>)p).n);
+
+        p = Px.range(1, 10).take(2).take(3);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherTakeFuseable);
+        Assert.assertEquals(2L, ((PublisherTakeFuseable<?>)p).n);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(1, 2);
+    }
+
+    @Test
+    public void assemblySkipSkip() {
+        Px<Integer> p = Px.range(1, 10).skip(2).skip(3);
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherSkip);
+        Assert.assertEquals(5L, ((PublisherSkip<?>)p).n);
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(6, 7, 8, 9, 10);
+
+        p = Px.range(1, 10).skip(Long.MAX_VALUE - 1).skip(3);
+
+        Assert.assertEquals(Long.MAX_VALUE, ((PublisherSkip<?>)p).n);
+    }
+
+    @Test
+    public void assemblyJustMap() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Px<Integer> p = Px.just(1).map(v -> {
+            calls.getAndIncrement();
+            return v + 1;
+        });
+
+        Assert.assertTrue(p.getClass().toString(), p instanceof PublisherCallable);
+        Assert.assertEquals(0, calls.get());
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        p.subscribe(ts);
+        ts.assertResult(2);
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void assemblyJustMapNull() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.just(1).<Integer>map(v -> null).subscribe(ts);
+
+        ts.assertNoValues()
+          .assertError(NullPointerException.class)
+          .assertErrorMessage("The mapper returned a null value.");
+    }
+
+    @Test
+    public void assemblyEmptyMap() {
+        Px<Integer> p = Px.<Integer>empty().map(v -> v + 1);
+
+        Assert.assertSame(PublisherEmpty.instance(), p);
+    }
+}
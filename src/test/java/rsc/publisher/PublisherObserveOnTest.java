@@ -1,6 +1,6 @@
 package rsc.publisher;
 
-import java.util.Arrays;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -8,6 +8,7 @@ import org.junit.*;
 
 import rsc.processor.*;
 import rsc.scheduler.ExecutorServiceScheduler;
+import rsc.scheduler.ImmediateScheduler;
 import rsc.test.TestSubscriber;
 import rsc.util.*;
 
@@ -33,6 +34,7 @@ public class PublisherObserveOnTest {
         ctb.addRef("executor", exec);
         ctb.addRef("scheduler", new ExecutorServiceScheduler(ForkJoinPool.commonPool()));
         ctb.addInt("prefetch", 1, Integer.MAX_VALUE);
+        ctb.addInt("maxPrefetch", 1, Integer.MAX_VALUE);
         ctb.addRef("queueSupplier", Px.defaultQueueSupplier(Integer.MAX_VALUE));
         
         ctb.test();
@@ -863,4 +865,77 @@ public class PublisherObserveOnTest {
         }
     }
 
+    @Test
+    public void adaptivePrefetch() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 1_000_000).hide().observeOn(new ExecutorServiceScheduler(exec), false, 16, 1024).subscribe(ts);
+
+        ts.await(5, TimeUnit.SECONDS);
+
+        ts.assertValueCount(1_000_000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void adaptivePrefetchFusedOutput() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        Px.range(1, 1_000_000).hide()
+        .observeOn(new ExecutorServiceScheduler(ForkJoinPool.commonPool()), false, 16, 1024)
+        .observeOn(exec)
+        .subscribe(ts);
+
+        ts.await(5, TimeUnit.SECONDS);
+
+        ts.assertValueCount(1_000_000)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void adaptivePrefetchGrowsWithFastConsumer() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        List<Long> requests = new ArrayList<>();
+
+        Px.range(1, 10_000).hide()
+        .doOnRequest(requests::add)
+        .observeOn(ImmediateScheduler.instance(), false, 16, 256)
+        .subscribe(ts);
+
+        ts.assertValueCount(10_000)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertEquals(16L, requests.get(0).longValue());
+        long max = Collections.max(requests);
+        Assert.assertTrue("" + requests, max > 16L && max <= 256L);
+    }
+
+    @Test
+    public void adaptivePrefetchBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+        List<Long> requests = new ArrayList<>();
+
+        Px.range(1, 1_000).hide()
+        .doOnRequest(requests::add)
+        .observeOn(ImmediateScheduler.instance(), false, 16, 256)
+        .subscribe(ts);
+
+        ts.assertNoValues();
+
+        ts.request(500);
+
+        ts.assertValueCount(500)
+        .assertNotComplete();
+
+        ts.request(500);
+
+        ts.assertValueCount(1_000)
+        .assertNoError()
+        .assertComplete();
+
+        Assert.assertTrue("" + requests, Collections.max(requests) <= 256L);
+    }
 }
@@ -21,7 +21,6 @@ public class PublisherWindowStartEndTest {
         ctb.addRef("start", PublisherNever.instance());
         ctb.addRef("end", (Function<Object, Publisher<Object>>)o -> PublisherNever.instance());
         ctb.addRef("drainQueueSupplier", (Supplier<Queue<Object>>)() -> new ConcurrentLinkedQueue<>());
-        ctb.addRef("processorQueueSupplier", (Supplier<Queue<Object>>)() -> new ConcurrentLinkedQueue<>());
         
         ctb.test();
     }
@@ -159,4 +158,152 @@ public class PublisherWindowStartEndTest {
         Assert.assertFalse("sp4 has subscribers?", sp4.hasDownstreams());
     }
 
+    @Test
+    public void overlappingSubscribedAfterClose() {
+        TestSubscriber<Px<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> source = new DirectProcessor<>();
+        DirectProcessor<Integer> start = new DirectProcessor<>();
+        DirectProcessor<Integer> end = new DirectProcessor<>();
+
+        source.window(start, v -> end).subscribe(ts);
+
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) {
+                start.onNext(i);
+            }
+            source.onNext(i);
+        }
+
+        end.onComplete();
+
+        ts.assertValueCount(10)
+        .assertNoError()
+        .assertNotComplete();
+
+        source.onComplete();
+
+        ts.assertValueCount(10)
+        .assertNoError()
+        .assertComplete();
+
+        for (int i = 0; i < 10; i++) {
+            TestSubscriber<Integer> w = toList(ts.values().get(i));
+
+            w.assertNoError()
+            .assertComplete();
+
+            Assert.assertEquals(1000 - i * 100, w.values().size());
+            Assert.assertEquals((Integer)(i * 100), w.values().get(0));
+            Assert.assertEquals((Integer)999, w.values().get(w.values().size() - 1));
+        }
+
+        Assert.assertFalse("start has subscribers?", start.hasDownstreams());
+    }
+
+    @Test
+    public void windowBackpressured() {
+        TestSubscriber<Px<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp3 = new DirectProcessor<>();
+
+        sp1.window(sp2, v -> sp3).subscribe(ts);
+
+        sp2.onNext(1);
+
+        TestSubscriber<Integer> w = new TestSubscriber<>(0);
+        ts.values().get(0).subscribe(w);
+
+        sp1.onNext(1);
+        sp1.onNext(2);
+        sp1.onNext(3);
+
+        w.assertNoValues()
+        .assertNoError()
+        .assertNotComplete();
+
+        w.request(2);
+
+        w.assertValues(1, 2)
+        .assertNoError()
+        .assertNotComplete();
+
+        sp3.onComplete();
+
+        w.assertValues(1, 2)
+        .assertNoError()
+        .assertNotComplete();
+
+        w.request(1);
+
+        w.assertResult(1, 2, 3);
+    }
+
+    @Test
+    public void windowCancelled() {
+        TestSubscriber<Px<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp3 = new DirectProcessor<>();
+
+        sp1.window(sp2, v -> sp3).subscribe(ts);
+
+        sp2.onNext(1);
+
+        TestSubscriber<Integer> w = new TestSubscriber<>();
+        ts.values().get(0).subscribe(w);
+
+        sp1.onNext(1);
+
+        Assert.assertTrue("sp3 has no subscribers?", sp3.hasDownstreams());
+
+        w.cancel();
+
+        Assert.assertFalse("sp3 has subscribers?", sp3.hasDownstreams());
+
+        sp1.onNext(2);
+
+        w.assertValue(1)
+        .assertNoError()
+        .assertNotComplete();
+
+        ts.cancel();
+
+        Assert.assertFalse("sp1 has subscribers?", sp1.hasDownstreams());
+        Assert.assertFalse("sp2 has subscribers?", sp2.hasDownstreams());
+    }
+
+    @Test
+    public void mainErrorAfterValues() {
+        TestSubscriber<Px<Integer>> ts = new TestSubscriber<>();
+
+        DirectProcessor<Integer> sp1 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp2 = new DirectProcessor<>();
+        DirectProcessor<Integer> sp3 = new DirectProcessor<>();
+
+        sp1.window(sp2, v -> sp3).subscribe(ts);
+
+        sp2.onNext(1);
+
+        sp1.onNext(1);
+        sp1.onNext(2);
+        sp1.onError(new RuntimeException("forced failure"));
+
+        ts.assertValueCount(1)
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+
+        toList(ts.values().get(0))
+        .assertValues(1, 2)
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+
+        Assert.assertFalse("sp2 has subscribers?", sp2.hasDownstreams());
+        Assert.assertFalse("sp3 has subscribers?", sp3.hasDownstreams());
+    }
 }
@@ -531,4 +531,128 @@ public class PublisherZipTest {
         .assertNoError()
         .assertComplete();
     }
+    
+    @Test
+    public void zipWithFlattens() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Px<Integer> source = Px.range(1, 3).hide();
+        
+        Px<Integer> result = source.zipWith(source, (a, b) -> a + b).zipWith(source, (a, b) -> a * b);
+        
+        Assert.assertTrue(result instanceof PublisherZip);
+        Assert.assertEquals(3, ((PublisherZip<?, ?>)result).upstreamCount());
+        
+        result.subscribe(ts);
+        
+        ts.assertValues(2, 8, 18)
+        .assertNoError()
+        .assertComplete();
+    }
+    
+    @Test
+    public void threeSourcesBackpressured() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>(0);
+        
+        UnicastProcessor<Integer> up = new UnicastProcessor<>(new SpscLinkedArrayQueue<>(16));
+        
+        Px.range(1, 5).zipWith((Publisher<Integer>)up, (a, b) -> a + b).zipWith(Px.range(100, 3).hide(), (a, b) -> a + b).subscribe(ts);
+        
+        up.onNext(10);
+        up.onNext(20);
+        
+        ts.assertNoValues();
+        
+        ts.request(1);
+        
+        ts.assertValues(111)
+        .assertNoError()
+        .assertNotComplete();
+        
+        ts.request(5);
+        
+        ts.assertValues(111, 123)
+        .assertNoError()
+        .assertNotComplete();
+        
+        up.onNext(30);
+        
+        ts.assertValues(111, 123, 135)
+        .assertNoError()
+        .assertComplete();
+    }
+    
+    @Test
+    public void threeSourcesShortestCompletes() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Px.range(1, 5).zipWith(Px.range(1, 2).hide(), (a, b) -> a + b).zipWith(Px.range(1, 10), (a, b) -> a + b).subscribe(ts);
+        
+        ts.assertValues(3, 6)
+        .assertNoError()
+        .assertComplete();
+    }
+    
+    @Test
+    public void pairwiseZipperThrows() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Px.range(1, 5).zipWith(Px.range(1, 5), (a, b) -> a + b).<Integer, Integer>zipWith(Px.range(1, 5), (a, b) -> {
+            if (b == 2) {
+                throw new RuntimeException("forced failure");
+            }
+            return a + b;
+        }).subscribe(ts);
+        
+        ts.assertValues(3)
+        .assertError(RuntimeException.class)
+        .assertErrorMessage("forced failure")
+        .assertNotComplete();
+    }
+    
+    @Test
+    public void pairwiseZipperReturnsNull() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Px.range(1, 5).<Integer, Integer>zipWith(Px.range(1, 5), (a, b) -> a == 2 ? null : a + b).subscribe(ts);
+        
+        ts.assertValues(2)
+        .assertError(NullPointerException.class)
+        .assertNotComplete();
+    }
+    
+    @Test
+    public void nonRetainingZipperReusesArray() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+        
+        Set<Object[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        PublisherZip.NonRetainingZipper<Integer> zipper = a -> {
+            arrays.add(a);
+            return (Integer)a[0] + (Integer)a[1] + (Integer)a[2] + (Integer)a[3];
+        };
+        
+        Px.zip(zipper, Px.range(1, 3), Px.range(1, 3).hide(), Px.range(1, 3), Px.range(1, 3)).subscribe(ts);
+        
+        ts.assertValues(4, 8, 12)
+        .assertNoError()
+        .assertComplete();
+        
+        Assert.assertEquals(1, arrays.size());
+    }
+    
+    @Test
+    public void retainingZipperGetsCopies() {
+        TestSubscriber<Object[]> ts = new TestSubscriber<>();
+        
+        Px.zip(a -> a, Px.range(1, 3), Px.range(1, 3).hide()).subscribe(ts);
+        
+        ts.assertValueCount(3)
+        .assertNoError()
+        .assertComplete();
+        
+        for (int i = 0; i < 3; i++) {
+            Assert.assertArrayEquals(new Object[] { i + 1, i + 1 }, ts.values().get(i));
+        }
+    }
 }
@@ -0,0 +1,366 @@
+package rsc.scheduler;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import rsc.flow.Disposable;
+import rsc.publisher.Px;
+import rsc.test.TestSubscriber;
+
+public class InstrumentedSchedulerTest {
+
+    @Test
+    public void completed() throws Exception {
+        InstrumentedScheduler s = new InstrumentedScheduler(new ParallelScheduler(2, "instrumented-", true));
+        try {
+            int n = 1000;
+            CountDownLatch cdl = new CountDownLatch(n);
+            for (int i = 0; i < n; i++) {
+                s.schedule(cdl::countDown);
+            }
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            SchedulerMetrics m = s.metrics();
+
+            // the counters are updated after the task body has run
+            for (int i = 0; i < 500 && m.completed() != n; i++) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(n, m.scheduled());
+            Assert.assertEquals(n, m.completed());
+            Assert.assertEquals(0, m.pending());
+            Assert.assertEquals(0, m.cancelled());
+            Assert.assertEquals(0, m.rejected());
+            Assert.assertEquals(n, m.latency().count());
+            Assert.assertEquals(n, m.runTime().count());
+
+            Map<String, Double> ratios = m.busyRatios();
+            Assert.assertFalse(ratios.isEmpty());
+            for (double d : ratios.values()) {
+                Assert.assertTrue("" + d, d >= 0d && d <= 1d);
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void observeOn() {
+        InstrumentedScheduler s = new InstrumentedScheduler(new SingleScheduler2(SingleScheduler2.THREAD_FACTORY_DAEMON));
+        try {
+            TestSubscriber<Integer> ts = Px.range(0, 1000).observeOn(s).test();
+
+            ts.await(5, TimeUnit.SECONDS);
+            ts.assertValueCount(1000)
+            .assertNoError()
+            .assertComplete();
+
+            Assert.assertTrue(s.metrics().scheduled() > 0);
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void pendingAndCancelled() throws Exception {
+        InstrumentedScheduler s = new InstrumentedScheduler(new ParallelScheduler(1, "instrumented-", true));
+        try {
+            Scheduler.Worker w = s.createWorker();
+            try {
+                CountDownLatch running = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(1);
+
+                w.schedule(() -> {
+                    running.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        // ignored
+                    }
+                });
+                Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+                Disposable d = w.schedule(() -> { });
+                w.schedule(done::countDown);
+
+                SchedulerMetrics m = s.metrics();
+                Assert.assertEquals(2, m.pending());
+
+                d.dispose();
+
+                Assert.assertEquals(1, m.pending());
+                Assert.assertEquals(1, m.cancelled());
+
+                release.countDown();
+                Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+                for (int i = 0; i < 500 && m.completed() != 2; i++) {
+                    Thread.sleep(10);
+                }
+
+                Assert.assertEquals(0, m.pending());
+                Assert.assertEquals(2, m.completed());
+            } finally {
+                w.shutdown();
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void workerShutdownCancelsPending() throws Exception {
+        InstrumentedScheduler s = new InstrumentedScheduler(new ParallelScheduler(1, "instrumented-", true));
+        try {
+            Scheduler.Worker w = s.createWorker();
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            w.schedule(() -> {
+                running.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    // ignored
+                }
+            });
+            Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 5; i++) {
+                w.schedule(() -> { });
+            }
+
+            SchedulerMetrics m = s.metrics();
+            Assert.assertEquals(5, m.pending());
+
+            w.shutdown();
+            release.countDown();
+
+            Assert.assertEquals(0, m.pending());
+            Assert.assertEquals(5, m.cancelled());
+
+            Assert.assertSame(Scheduler.REJECTED, w.schedule(() -> { }));
+            Assert.assertEquals(1, m.rejected());
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownCancelsPending() throws Exception {
+        InstrumentedScheduler s = new InstrumentedScheduler(new ParallelScheduler(1, "instrumented-", true));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        s.schedule(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                // ignored
+            }
+        });
+        Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; i++) {
+            s.schedule(() -> { });
+        }
+
+        SchedulerMetrics m = s.metrics();
+        Assert.assertEquals(5, m.pending());
+
+        s.shutdown();
+        release.countDown();
+
+        Assert.assertEquals(0, m.pending());
+        Assert.assertEquals(5, m.cancelled());
+    }
+
+    @Test
+    public void directShutdownCancelsPending() throws Exception {
+        ParallelScheduler p = new ParallelScheduler(1, "instrumented-", true);
+        InstrumentedScheduler s = new InstrumentedScheduler(p);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        s.schedule(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                // ignored
+            }
+        });
+        Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Scheduler.Worker w = s.createWorker();
+        for (int i = 0; i < 5; i++) {
+            s.schedule(() -> { });
+            w.schedule(() -> { });
+        }
+
+        SchedulerMetrics m = s.metrics();
+        Assert.assertEquals(10, m.pending());
+
+        // bypasses the wrapper, the dropped tasks are accounted for on the next rejection
+        p.shutdown();
+        release.countDown();
+
+        try {
+            s.schedule(() -> { });
+            Assert.fail("Should have thrown");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+        Assert.assertSame(Scheduler.REJECTED, w.schedule(() -> { }));
+
+        Assert.assertEquals(0, m.pending());
+        Assert.assertEquals(10, m.cancelled());
+        Assert.assertEquals(2, m.rejected());
+    }
+
+    @Test
+    public void rejected() {
+        ParallelScheduler p = new ParallelScheduler(1, "instrumented-", true);
+        p.shutdown();
+        InstrumentedScheduler s = new InstrumentedScheduler(p);
+
+        Assert.assertSame(Scheduler.REJECTED, s.createWorker().schedule(() -> { }));
+
+        try {
+            s.schedule(() -> { });
+            Assert.fail("Should have thrown");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+
+        SchedulerMetrics m = s.metrics();
+        Assert.assertEquals(2, m.scheduled());
+        Assert.assertEquals(2, m.rejected());
+        Assert.assertEquals(0, m.pending());
+    }
+
+    @Test
+    public void histogram() {
+        SchedulerMetrics.Histogram h = new SchedulerMetrics().latency();
+
+        Assert.assertEquals(0, h.percentile(50));
+
+        h.record(0);
+        h.record(1);
+        h.record(3);
+        h.record(1000);
+        h.record(-5);
+
+        Assert.assertEquals(5, h.count());
+        Assert.assertEquals(2, h.count(0));
+        Assert.assertEquals(1, h.count(1));
+        Assert.assertEquals(1, h.count(2));
+        Assert.assertEquals(1, h.count(10));
+        Assert.assertEquals(1000, h.max());
+
+        Assert.assertEquals(0, h.percentile(40));
+        Assert.assertEquals(3, h.percentile(80));
+        Assert.assertEquals(1000, h.percentile(100));
+
+        Assert.assertEquals(1023, SchedulerMetrics.Histogram.upperBound(10));
+        Assert.assertEquals(Long.MAX_VALUE, SchedulerMetrics.Histogram.upperBound(63));
+    }
+
+    @Test
+    public void threadPerTaskStaysBounded() throws Exception {
+        SchedulerMetrics m = new SchedulerMetrics(4);
+        CountDownLatch[] linger = { new CountDownLatch(0) };
+        InstrumentedScheduler s = new InstrumentedScheduler(new ExecutorScheduler(r -> {
+            CountDownLatch l = linger[0];
+            Thread t = new Thread(() -> {
+                r.run();
+                try {
+                    l.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    // ignored
+                }
+            }, "instrumented-per-task");
+            t.setDaemon(true);
+            t.start();
+        }), m);
+
+        int n = 100;
+        for (int i = 0; i < n; i++) {
+            CountDownLatch cdl = new CountDownLatch(1);
+            Thread[] runner = { null };
+            s.schedule(() -> {
+                runner[0] = Thread.currentThread();
+                cdl.countDown();
+            });
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+            runner[0].join(5000);
+        }
+
+        for (int i = 0; i < 500 && m.completed() != n; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(n, m.completed());
+        Assert.assertEquals(4, m.threads.length());
+
+        // the slots of the ended threads are reused instead of spilling into the overflow
+        Assert.assertEquals(SchedulerMetrics.ThreadUsage.NOT_STARTED, m.overflow.since);
+        Assert.assertTrue(m.busyRatios().isEmpty());
+
+        linger[0] = new CountDownLatch(1);
+        try {
+            s.schedule(() -> { });
+
+            for (int i = 0; i < 500 && m.completed() != n + 1; i++) {
+                Thread.sleep(10);
+            }
+            Map<String, Double> ratios = m.busyRatios();
+            Assert.assertEquals(1, ratios.size());
+            Assert.assertTrue(ratios.containsKey("instrumented-per-task"));
+        } finally {
+            linger[0].countDown();
+        }
+    }
+
+    @Test
+    public void timed() throws Exception {
+        InstrumentedTimedScheduler s = new InstrumentedTimedScheduler(new TimingWheelScheduler(true));
+        try {
+            CountDownLatch delayed = new CountDownLatch(1);
+            CountDownLatch periodic = new CountDownLatch(3);
+
+            s.schedule(delayed::countDown, 10, TimeUnit.MILLISECONDS);
+
+            TimedScheduler.TimedWorker w = s.createWorker();
+            try {
+                Disposable d = w.schedulePeriodically(periodic::countDown, 0, 5, TimeUnit.MILLISECONDS);
+
+                Assert.assertTrue(delayed.await(5, TimeUnit.SECONDS));
+                Assert.assertTrue(periodic.await(5, TimeUnit.SECONDS));
+
+                d.dispose();
+
+                w.schedule(() -> { }, 1, TimeUnit.HOURS).dispose();
+            } finally {
+                w.shutdown();
+            }
+
+            SchedulerMetrics m = s.metrics();
+
+            for (int i = 0; i < 500 && m.completed() < 4; i++) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(3, m.scheduled());
+            Assert.assertTrue("" + m.completed(), m.completed() >= 4);
+            Assert.assertEquals(0, m.pending());
+            Assert.assertEquals(1, m.cancelled());
+        } finally {
+            s.shutdown();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package rsc.scheduler;
 
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -75,4 +76,140 @@ public class ParallelSchedulerTest {
         }
     }
 
+    @Test
+    public void workerTrampoline() throws Exception {
+        ParallelScheduler s = new ParallelScheduler(4, "parallel-trampoline-", true, true);
+        try {
+            for (int j = 0; j < 100; j++) {
+                AtomicInteger counter = new AtomicInteger();
+                
+                CountDownLatch cdl = new CountDownLatch(1);
+                
+                Runnable r = () -> counter.getAndIncrement();
+                
+                int n = 100_000;
+                
+                Scheduler.Worker w = s.createWorker();
+                try {
+                    for (int i = 0; i < n; i++) {
+                        w.schedule(r);
+                    }
+                    w.schedule(cdl::countDown);
+                    
+                    if (!cdl.await(5, TimeUnit.SECONDS)) {
+                        Assert.fail("Timed out: " + counter.get() + " of " + n + " @ " + j);
+                    }
+                    
+                    Assert.assertEquals(n, counter.get());
+                } finally {
+                    w.shutdown();
+                }
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+    
+    void scheduleAll(Scheduler s) throws Exception {
+        Scheduler.Worker w = s.createWorker();
+        try {
+            List<Integer> list = new ArrayList<>();
+            CountDownLatch cdl = new CountDownLatch(1);
+            
+            Runnable[] tasks = new Runnable[1000];
+            for (int i = 0; i < tasks.length; i++) {
+                int j = i;
+                tasks[i] = () -> list.add(j);
+            }
+            
+            w.schedule(() -> list.add(-1));
+            w.scheduleAll(tasks);
+            w.scheduleAll(() -> { throw new IllegalStateException(); }, () -> list.add(1000));
+            w.schedule(cdl::countDown);
+            
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+            
+            Assert.assertEquals(1002, list.size());
+            for (int i = 0; i < list.size(); i++) {
+                Assert.assertEquals(i - 1, list.get(i).intValue());
+            }
+        } finally {
+            w.shutdown();
+        }
+    }
+    
+    @Test
+    public void scheduleAll() throws Exception {
+        scheduleAll(scheduler);
+    }
+    
+    @Test
+    public void scheduleAllTrampoline() throws Exception {
+        ParallelScheduler s = new ParallelScheduler(4, "parallel-trampoline-", true, true);
+        try {
+            scheduleAll(s);
+        } finally {
+            s.shutdown();
+        }
+    }
+    
+    @Test
+    public void shutdownRejectsTrampoline() {
+        ParallelScheduler s = new ParallelScheduler(4, "parallel-trampoline-", true, true);
+        s.shutdown();
+        
+        Assert.assertSame(Scheduler.REJECTED, s.createWorker().schedule(() -> { }));
+        Assert.assertSame(Scheduler.REJECTED, s.createWorker().scheduleAll(() -> { }, () -> { }));
+    }
+
+    @Test
+    public void disposePendingTrampolineGoesIdle() throws Exception {
+        ParallelScheduler s = new ParallelScheduler(1, "parallel-trampoline-", true, true);
+        try {
+            Scheduler.Worker w = s.createWorker();
+            try {
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                AtomicInteger counter = new AtomicInteger();
+                
+                w.schedule(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                
+                Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+                
+                w.scheduleAll(counter::getAndIncrement, counter::getAndIncrement).dispose();
+                w.schedule(counter::getAndIncrement).dispose();
+                
+                release.countDown();
+                
+                ExecutorScheduler.ExecutorSchedulerTrampolineWorker tw = (ExecutorScheduler.ExecutorSchedulerTrampolineWorker)w;
+                
+                long deadline = System.currentTimeMillis() + 5000;
+                while (tw.wip != 0) {
+                    if (System.currentTimeMillis() > deadline) {
+                        Assert.fail("Worker did not go idle: wip = " + tw.wip);
+                    }
+                    Thread.sleep(1);
+                }
+                
+                Assert.assertEquals(0, counter.get());
+                
+                CountDownLatch cdl = new CountDownLatch(1);
+                w.schedule(cdl::countDown);
+                
+                Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+                Assert.assertEquals(0, counter.get());
+            } finally {
+                w.shutdown();
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
 }
@@ -1,8 +1,8 @@
 package rsc.scheduler;
 
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
-import org.junit.Test;
+import org.junit.*;
 
 import rsc.publisher.Px;
 import rsc.test.TestSubscriber;
@@ -27,4 +27,88 @@ public class SingleThreadedExecutorTest {
         .assertNoError()
         .assertComplete();
     }
+
+    void range(WaitStrategy strategy, int count) {
+        Scheduler s1 = new SingleScheduler2(strategy);
+        Scheduler s2 = new SingleScheduler2(strategy);
+        
+        try {
+            TestSubscriber<Integer> ts = Px.range(0, count).subscribeOn(s1).observeOn(s2).test();
+            
+            ts.await(5, TimeUnit.SECONDS);
+            ts.assertValueCount(count)
+            .assertNoError()
+            .assertComplete();
+        } finally {
+            s1.shutdown();
+            s2.shutdown();
+        }
+    }
+    
+    @Test
+    public void rangeBusySpin() {
+        // spinning threads compete for the CPU with each other on small machines
+        range(WaitStrategy.busySpin(), 1_000);
+    }
+
+    @Test
+    public void rangeSpinYieldPark() {
+        range(WaitStrategy.spinYieldPark(16, 16), 100_000);
+    }
+
+    @Test
+    public void rangeBlocking() {
+        range(WaitStrategy.blocking(), 100_000);
+    }
+    
+    @Test
+    public void parkedThreadWakesUp() throws Exception {
+        SingleThreadedExecutor exec = new SingleThreadedExecutor(WaitStrategy.blocking());
+        try {
+            for (int i = 0; i < 100; i++) {
+                CountDownLatch cdl = new CountDownLatch(1);
+                exec.submit(cdl::countDown);
+                
+                Assert.assertTrue("Round " + i, cdl.await(5, TimeUnit.SECONDS));
+                
+                if (i % 10 == 0) {
+                    // give the thread time to park
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+    
+    @Test
+    public void shutdownWakesParkedThread() throws Exception {
+        SingleThreadedExecutor exec = new SingleThreadedExecutor(WaitStrategy.blocking());
+        CountDownLatch cdl = new CountDownLatch(1);
+        exec.submit(cdl::countDown);
+        Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+        
+        Thread t = exec.thread;
+        
+        exec.shutdown();
+        
+        t.join(5000);
+        Assert.assertFalse(t.isAlive());
+    }
+    
+    @Test
+    public void spinYieldParkSequence() {
+        WaitStrategy ws = WaitStrategy.spinYieldPark(2, 1);
+        
+        Assert.assertEquals(WaitStrategy.SPIN, ws.idle(0));
+        Assert.assertEquals(WaitStrategy.SPIN, ws.idle(1));
+        Assert.assertEquals(WaitStrategy.YIELD, ws.idle(2));
+        Assert.assertEquals(WaitStrategy.PARK, ws.idle(3));
+        Assert.assertEquals(WaitStrategy.PARK, ws.idle(Integer.MAX_VALUE));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void spinYieldParkNegative() {
+        WaitStrategy.spinYieldPark(-1, 0);
+    }
 }
@@ -0,0 +1,208 @@
+package rsc.scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import rsc.parallel.ParallelPublisher;
+import rsc.publisher.Px;
+import rsc.test.TestSubscriber;
+
+public class ThreadPlacementTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path sysCpu(int[] socketOfCpu) throws Exception {
+        Path root = folder.newFolder("cpu").toPath();
+        for (int i = 0; i < socketOfCpu.length; i++) {
+            Path topology = Files.createDirectories(root.resolve("cpu" + i).resolve("topology"));
+            Files.write(topology.resolve("physical_package_id"), (socketOfCpu[i] + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        Files.createDirectories(root.resolve("cpufreq"));
+        return root;
+    }
+
+    @Test
+    public void topology() throws Exception {
+        int[][] sockets = CpuTopology.sockets(sysCpu(new int[] { 0, 1, 0, 1, 0, 1 }));
+
+        Assert.assertEquals(2, sockets.length);
+        Assert.assertArrayEquals(new int[] { 0, 2, 4 }, sockets[0]);
+        Assert.assertArrayEquals(new int[] { 1, 3, 5 }, sockets[1]);
+    }
+
+    @Test
+    public void topologyMissing() {
+        Assert.assertNull(CpuTopology.sockets(Paths.get("does-not-exist")));
+
+        int[][] sockets = CpuTopology.sockets();
+        Assert.assertTrue(sockets.length >= 1);
+    }
+
+    @Test
+    public void group() {
+        int[][] sets = { { 0, 1 }, { 2, 3 } };
+
+        Assert.assertSame(sets[0], ThreadPlacement.group(sets, 0, 4));
+        Assert.assertSame(sets[0], ThreadPlacement.group(sets, 1, 4));
+        Assert.assertSame(sets[1], ThreadPlacement.group(sets, 2, 4));
+        Assert.assertSame(sets[1], ThreadPlacement.group(sets, 3, 4));
+
+        Assert.assertSame(sets[0], ThreadPlacement.group(sets, 0, 1));
+    }
+
+    void pinned(Scheduler s, Map<String, int[]> pins, int n) throws Exception {
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            CountDownLatch cdl = new CountDownLatch(n);
+            for (int i = 0; i < n; i++) {
+                Scheduler.Worker w = s.createWorker(i);
+                w.schedule(() -> {
+                    threads.add(Thread.currentThread());
+                    cdl.countDown();
+                });
+            }
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(n, threads.size());
+            Assert.assertEquals(n, pins.size());
+
+            int socket0 = 0;
+            for (int[] cpus : pins.values()) {
+                if (cpus[0] == 0) {
+                    socket0++;
+                }
+            }
+            Assert.assertEquals(n / 2, socket0);
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelSchedulerPins() throws Exception {
+        Map<String, int[]> pins = new ConcurrentHashMap<>();
+
+        ThreadPlacement p = ThreadPlacement.bySocket(new int[][] { { 0, 1 }, { 2, 3 } },
+                cpus -> pins.put(Thread.currentThread().getName(), cpus));
+
+        pinned(new ParallelScheduler(4, ParallelScheduler.THREAD_FACTORY_DAEMON, false, p), pins, 4);
+    }
+
+    @Test
+    public void forkJoinSchedulerPins() throws Exception {
+        Map<String, int[]> pins = new ConcurrentHashMap<>();
+
+        ThreadPlacement p = ThreadPlacement.bySocket(new int[][] { { 0, 1 }, { 2, 3 } },
+                cpus -> pins.put(Thread.currentThread().getName(), cpus));
+
+        pinned(new ForkJoinScheduler(4, p), pins, 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<Integer, Set<Thread>> railThreads(Scheduler s) {
+        Map<Integer, Set<Thread>> map = new ConcurrentHashMap<>();
+
+        for (int k = 0; k < 5; k++) {
+            TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+            // 3 rails over 4 threads so round-robin assignment would move them around
+            ParallelPublisher.fromArray(Px.range(0, 100), Px.range(1000, 100), Px.range(2000, 100))
+            .runOn(s)
+            .map(v -> {
+                map.computeIfAbsent(v / 1000, x -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+                return v;
+            })
+            .sequential()
+            .subscribe(ts);
+
+            ts.await(5, TimeUnit.SECONDS);
+            ts.assertValueCount(300)
+            .assertNoError()
+            .assertComplete();
+        }
+        return map;
+    }
+
+    @Test
+    public void railsStayOnTheirThread() {
+        ParallelScheduler s = new ParallelScheduler(4, ParallelScheduler.THREAD_FACTORY_DAEMON, false, ThreadPlacement.byIndex());
+        try {
+            Map<Integer, Set<Thread>> map = railThreads(s);
+
+            Assert.assertEquals(3, map.size());
+            for (Set<Thread> set : map.values()) {
+                Assert.assertEquals(set.toString(), 1, set.size());
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    Set<Thread> concurrentFlowThreads(Scheduler s) throws Exception {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch release = new CountDownLatch(1);
+        List<TestSubscriber<Integer>> list = new ArrayList<>();
+
+        for (int k = 0; k < 2; k++) {
+            TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+            ParallelPublisher.fromArray(Px.range(0, 10), Px.range(10, 10))
+            .runOn(s)
+            .map(v -> {
+                threads.add(Thread.currentThread());
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    // ignored
+                }
+                return v;
+            })
+            .sequential()
+            .subscribe(ts);
+
+            list.add(ts);
+        }
+
+        for (int i = 0; i < 500 && threads.size() < 4; i++) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (TestSubscriber<Integer> ts : list) {
+            ts.await(5, TimeUnit.SECONDS);
+            ts.assertValueCount(20)
+            .assertNoError()
+            .assertComplete();
+        }
+        return threads;
+    }
+
+    @Test
+    public void concurrentFlowsSpreadByDefault() throws Exception {
+        ParallelScheduler s = new ParallelScheduler(4, "placement-", true);
+        try {
+            Set<Thread> threads = concurrentFlowThreads(s);
+            Assert.assertTrue(threads.toString(), threads.size() > 2);
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentFlowsSpreadByDefaultForkJoin() throws Exception {
+        ForkJoinScheduler s = new ForkJoinScheduler(4);
+        try {
+            Set<Thread> threads = concurrentFlowThreads(s);
+            Assert.assertTrue(threads.toString(), threads.size() > 2);
+        } finally {
+            s.shutdown();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package rsc.scheduler;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import rsc.flow.Disposable;
+import rsc.publisher.Px;
+import rsc.scheduler.TimedScheduler.TimedWorker;
+import rsc.test.TestSubscriber;
+
+public class TimingWheelSchedulerTest {
+
+    static TimingWheelScheduler scheduler;
+
+    TimedWorker worker;
+
+    @BeforeClass
+    public static void beforeClass() {
+        scheduler = new TimingWheelScheduler(1, TimeUnit.MILLISECONDS, 64, TimingWheelScheduler.THREAD_FACTORY_DAEMON);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        scheduler.shutdown();
+    }
+
+    @Before
+    public void before() {
+        worker = scheduler.createWorker();
+    }
+
+    @After
+    public void after() {
+        worker.shutdown();
+    }
+
+    @Test
+    public void fifo() throws Exception {
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        int n = 10_000;
+
+        for (int i = 0; i < n; i++) {
+            int j = i;
+            worker.schedule(() -> queue.offer(j));
+        }
+        worker.schedule(cdl::countDown);
+
+        if (!cdl.await(5, TimeUnit.SECONDS)) {
+            Assert.fail("Timeout " + queue.size());
+        }
+
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(i, queue.poll().intValue());
+        }
+    }
+
+    @Test
+    public void delayed() throws Exception {
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        int n = 10_000;
+
+        for (int i = 0; i < n; i++) {
+            int j = i;
+            worker.schedule(() -> queue.offer(j), 100, TimeUnit.MILLISECONDS);
+        }
+        worker.schedule(cdl::countDown, 250, TimeUnit.MILLISECONDS);
+
+        if (!cdl.await(5, TimeUnit.SECONDS)) {
+            Assert.fail("Timeout " + queue.size());
+        }
+
+        Set<Integer> set = new HashSet<>(queue);
+        Assert.assertEquals(n, set.size());
+    }
+
+    @Test
+    public void delayNotEarly() throws Exception {
+        // spans multiple revolutions of the 64 bucket wheel
+        long start = System.nanoTime();
+        long[] end = { 0L };
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        worker.schedule(() -> {
+            end[0] = System.nanoTime();
+            cdl.countDown();
+        }, 200, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue("" + (end[0] - start), end[0] - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void hugeDelayNeverFires() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        worker.schedule(count::getAndIncrement, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        worker.schedule(count::getAndIncrement, Long.MAX_VALUE - 1, TimeUnit.NANOSECONDS);
+        worker.schedulePeriodically(count::getAndIncrement, Long.MAX_VALUE, 1, TimeUnit.DAYS);
+        worker.schedule(cdl::countDown, 50, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(50);
+
+        Assert.assertEquals(0, count.get());
+    }
+
+    @Test
+    public void cancelled() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+
+        int n = 100_000;
+
+        List<Disposable> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(scheduler.schedule(count::getAndIncrement, 500 + (i % 50), TimeUnit.MILLISECONDS));
+        }
+
+        for (Disposable d : list) {
+            d.dispose();
+        }
+
+        CountDownLatch cdl = new CountDownLatch(1);
+        scheduler.schedule(cdl::countDown, 600, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(0, count.get());
+    }
+
+    @Test
+    public void fifoPeriodic() throws Exception {
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        int n = 1000;
+
+        worker.schedulePeriodically(new Runnable() {
+            int i;
+            @Override
+            public void run() {
+                queue.offer(i++);
+                if (i == n) {
+                    worker.shutdown();
+                    cdl.countDown();
+                }
+            }
+        }, 1, 1, TimeUnit.MILLISECONDS);
+
+        if (!cdl.await(5, TimeUnit.SECONDS)) {
+            Assert.fail("Timeout: " + queue.size());
+        }
+
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(i, queue.poll().intValue());
+        }
+    }
+
+    @Test
+    public void periodicWithoutInitialDelay() throws Exception {
+        CountDownLatch cdl = new CountDownLatch(10);
+
+        Disposable d = scheduler.schedulePeriodically(cdl::countDown, 0, 5, TimeUnit.MILLISECONDS);
+
+        try {
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+        } finally {
+            d.dispose();
+        }
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+
+        for (int i = 0; i < 1000; i++) {
+            worker.schedule(count::getAndIncrement, 100, TimeUnit.MILLISECONDS);
+        }
+
+        worker.shutdown();
+
+        Thread.sleep(200);
+
+        Assert.assertEquals(0, count.get());
+
+        Assert.assertSame(Scheduler.REJECTED, worker.schedule(count::getAndIncrement));
+    }
+
+    @Test
+    public void schedulerShutdown() {
+        TimingWheelScheduler s = new TimingWheelScheduler(true);
+
+        s.shutdown();
+
+        Assert.assertSame(Scheduler.REJECTED, s.schedule(() -> { }));
+        Assert.assertSame(Scheduler.REJECTED, s.schedule(() -> { }, 1, TimeUnit.SECONDS));
+        Assert.assertSame(Scheduler.REJECTED, s.createWorker().schedule(() -> { }, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void timer() {
+        TestSubscriber<Long> ts = new TestSubscriber<>();
+
+        Px.timer(50, TimeUnit.MILLISECONDS, scheduler).subscribe(ts);
+
+        ts.await(5, TimeUnit.SECONDS);
+        ts.assertValue(0L)
+        .assertNoError()
+        .assertComplete();
+    }
+
+    @Test
+    public void parksWhenEmpty() throws Exception {
+        TimingWheelScheduler s = new TimingWheelScheduler(true);
+        try {
+            for (int k = 0; k < 3; k++) {
+                CountDownLatch cdl = new CountDownLatch(1);
+                s.schedule(cdl::countDown, 5, TimeUnit.MILLISECONDS);
+                Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+                // no more ticking once the wheel is empty
+                for (int i = 0; i < 500 && s.thread.getState() != Thread.State.WAITING; i++) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(Thread.State.WAITING, s.thread.getState());
+                Assert.assertEquals(TimingWheelScheduler.IDLE, s.waiting);
+
+                Thread.sleep(20);
+            }
+
+            // a cancelled task leaves the wheel empty again
+            s.schedule(() -> { }, 1, TimeUnit.HOURS).dispose();
+            s.schedule(() -> { }, 1, TimeUnit.MILLISECONDS);
+
+            for (int i = 0; i < 500 && s.thread.getState() != Thread.State.WAITING; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(Thread.State.WAITING, s.thread.getState());
+        } finally {
+            s.shutdown();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package rsc.scheduler;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import rsc.flow.Disposable;
+import rsc.publisher.Px;
+import rsc.scheduler.TimedScheduler.TimedWorker;
+import rsc.test.TestSubscriber;
+
+public class VirtualThreadSchedulerTest {
+
+    static final ThreadFactory PLATFORM = r -> {
+        Thread t = new Thread(r, "virtual-test");
+        t.setDaemon(true);
+        return t;
+    };
+
+    void fifo(VirtualThreadScheduler scheduler) throws Exception {
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        CountDownLatch cdl = new CountDownLatch(1);
+
+        int n = 10_000;
+
+        TimedWorker worker = scheduler.createWorker();
+        try {
+            for (int i = 0; i < n; i++) {
+                int j = i;
+                worker.schedule(() -> {
+                    if (active.getAndIncrement() != 0) {
+                        overlaps.getAndIncrement();
+                    }
+                    queue.offer(j);
+                    active.getAndDecrement();
+                });
+            }
+            worker.schedule(cdl::countDown);
+
+            if (!cdl.await(5, TimeUnit.SECONDS)) {
+                Assert.fail("Timeout " + queue.size());
+            }
+
+            Assert.assertEquals(0, overlaps.get());
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals(i, queue.poll().intValue());
+            }
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    void delayed(VirtualThreadScheduler scheduler) throws Exception {
+        CountDownLatch cdl = new CountDownLatch(2);
+        AtomicInteger count = new AtomicInteger();
+
+        TimedWorker worker = scheduler.createWorker();
+        try {
+            worker.schedule(cdl::countDown, 50, TimeUnit.MILLISECONDS);
+            scheduler.schedule(cdl::countDown, 50, TimeUnit.MILLISECONDS);
+
+            Disposable d1 = worker.schedule(count::getAndIncrement, 100, TimeUnit.MILLISECONDS);
+            Disposable d2 = scheduler.schedule(count::getAndIncrement, 100, TimeUnit.MILLISECONDS);
+            d1.dispose();
+            d2.dispose();
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            Thread.sleep(150);
+
+            Assert.assertEquals(0, count.get());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void threadPerTask() throws Exception {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler(PLATFORM, "virtual-test-");
+        try {
+            Assert.assertTrue(scheduler.isVirtual());
+            fifo(scheduler);
+            delayed(scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+
+        Assert.assertSame(Scheduler.REJECTED, scheduler.schedule(() -> { }));
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler(null, "virtual-test-");
+        try {
+            Assert.assertFalse(scheduler.isVirtual());
+            fifo(scheduler);
+            delayed(scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void periodic() throws Exception {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler(PLATFORM, "virtual-test-");
+        try {
+            TimedWorker worker = scheduler.createWorker();
+
+            CountDownLatch cdl = new CountDownLatch(10);
+
+            worker.schedulePeriodically(cdl::countDown, 0, 5, TimeUnit.MILLISECONDS);
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            worker.shutdown();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void periodicRunsDontOverlap() throws Exception {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler(PLATFORM, "virtual-test-");
+        try {
+            AtomicInteger active = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            AtomicInteger count = new AtomicInteger();
+            CountDownLatch cdl = new CountDownLatch(5);
+
+            // each run takes several periods; the ticks in between are skipped
+            Disposable d = scheduler.schedulePeriodically(() -> {
+                if (active.getAndIncrement() != 0) {
+                    overlaps.getAndIncrement();
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ex) {
+                    // ignored
+                }
+                count.getAndIncrement();
+                active.getAndDecrement();
+                cdl.countDown();
+            }, 0, 2, TimeUnit.MILLISECONDS);
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            d.dispose();
+
+            Thread.sleep(50);
+            int c = count.get();
+            Thread.sleep(50);
+
+            Assert.assertEquals(0, overlaps.get());
+            Assert.assertEquals(c, count.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreads() throws Exception {
+        Assume.assumeTrue(VirtualThreadScheduler.isSupported());
+
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler();
+        try {
+            Assert.assertTrue(scheduler.isVirtual());
+
+            Object[] virtual = { null };
+            CountDownLatch cdl = new CountDownLatch(1);
+
+            scheduler.schedule(() -> {
+                try {
+                    virtual[0] = Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+                } catch (Exception ex) {
+                    virtual[0] = ex;
+                }
+                cdl.countDown();
+            });
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(true, virtual[0]);
+
+            fifo(scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void subscribeOnBlockingSource() {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler();
+        try {
+            List<TestSubscriber<Integer>> list = new ArrayList<>();
+
+            for (int i = 0; i < 100; i++) {
+                TestSubscriber<Integer> ts = Px.fromCallable(() -> {
+                    Thread.sleep(10);
+                    return 1;
+                }).subscribeOn(scheduler).test();
+                list.add(ts);
+            }
+
+            for (TestSubscriber<Integer> ts : list) {
+                ts.await(5, TimeUnit.SECONDS);
+                ts.assertValue(1)
+                .assertNoError()
+                .assertComplete();
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void sharedTimer() throws Exception {
+        VirtualThreadScheduler s1 = new VirtualThreadScheduler(PLATFORM, "virtual-test-");
+        VirtualThreadScheduler s2 = new VirtualThreadScheduler(PLATFORM, "virtual-test-");
+        try {
+            AtomicInteger count = new AtomicInteger();
+            CountDownLatch cdl = new CountDownLatch(1);
+
+            s1.schedule(count::getAndIncrement, 50, TimeUnit.MILLISECONDS);
+            s2.schedule(cdl::countDown, 50, TimeUnit.MILLISECONDS);
+
+            // shutting down one instance only drops its own delayed tasks
+            s1.shutdown();
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            Assert.assertEquals(0, count.get());
+
+            Assert.assertSame(Scheduler.REJECTED, s1.schedule(count::getAndIncrement, 10, TimeUnit.MILLISECONDS));
+        } finally {
+            s1.shutdown();
+            s2.shutdown();
+        }
+    }
+}
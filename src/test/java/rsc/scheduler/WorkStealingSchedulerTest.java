@@ -0,0 +1,216 @@
+package rsc.scheduler;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import rsc.publisher.Px;
+import rsc.scheduler.WorkStealingScheduler.StealingWorker;
+import rsc.test.TestSubscriber;
+
+public class WorkStealingSchedulerTest {
+
+    WorkStealingScheduler scheduler;
+
+    @Before
+    public void before() {
+        scheduler = new WorkStealingScheduler(4, "workstealing-test-", true);
+    }
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void direct() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+
+        Runnable r = () -> counter.getAndIncrement();
+
+        int n = 10_000;
+
+        for (int i = 0; i < n; i++) {
+            scheduler.schedule(r);
+        }
+
+        while (counter.get() != n) ;
+
+        Thread.sleep(10);
+
+        Assert.assertEquals(n, counter.get());
+    }
+
+    @Test
+    public void worker() throws Exception {
+        for (int j = 0; j < 100; j++) {
+            AtomicInteger counter = new AtomicInteger();
+
+            CountDownLatch cdl = new CountDownLatch(1);
+
+            Runnable r = () -> counter.getAndIncrement();
+
+            int n = 100_000;
+
+            Scheduler.Worker w = scheduler.createWorker();
+            try {
+                for (int i = 0; i < n; i++) {
+                    w.schedule(r);
+                }
+                w.schedule(cdl::countDown);
+
+                if (!cdl.await(5, TimeUnit.SECONDS)) {
+                    Assert.fail("Timed out: " + counter.get() + " of " + n + " @ " + j);
+                }
+
+                Assert.assertEquals(n, counter.get());
+
+                Assert.assertEquals(0, ((StealingWorker)w).pendingTasks());
+            } finally {
+                w.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void workerFifoNonConcurrent() throws Exception {
+        int m = 8;
+        int n = 10_000;
+
+        List<Scheduler.Worker> workers = new ArrayList<>();
+        List<List<Integer>> results = new ArrayList<>();
+        AtomicInteger[] active = new AtomicInteger[m];
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch cdl = new CountDownLatch(m);
+
+        for (int k = 0; k < m; k++) {
+            workers.add(scheduler.createWorker());
+            results.add(new ArrayList<>());
+            active[k] = new AtomicInteger();
+        }
+
+        try {
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < m; k++) {
+                    int v = i;
+                    List<Integer> list = results.get(k);
+                    AtomicInteger a = active[k];
+                    workers.get(k).schedule(() -> {
+                        if (a.getAndIncrement() != 0) {
+                            overlaps.getAndIncrement();
+                        }
+                        list.add(v);
+                        a.getAndDecrement();
+                    });
+                }
+            }
+            for (Scheduler.Worker w : workers) {
+                w.schedule(cdl::countDown);
+            }
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(0, overlaps.get());
+            for (List<Integer> list : results) {
+                Assert.assertEquals(n, list.size());
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(i, list.get(i).intValue());
+                }
+            }
+        } finally {
+            for (Scheduler.Worker w : workers) {
+                w.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void blockedWorkerDoesntStarveItsNeighbour() throws Exception {
+        WorkStealingScheduler s = new WorkStealingScheduler(2, "workstealing-test-", true);
+        try {
+            Scheduler.Worker w1 = s.createWorker();
+            Scheduler.Worker w2 = s.createWorker();
+            // shares the home queue with w1
+            Scheduler.Worker w3 = s.createWorker();
+
+            CountDownLatch block = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(1);
+
+            w1.schedule(() -> {
+                try {
+                    block.await();
+                } catch (InterruptedException ex) {
+                    // ignored
+                }
+            });
+
+            w3.schedule(done::countDown);
+
+            Assert.assertTrue("The task was not stolen", done.await(4, TimeUnit.SECONDS));
+
+            block.countDown();
+
+            w1.shutdown();
+            w2.shutdown();
+            w3.shutdown();
+        } finally {
+            s.shutdown();
+        }
+    }
+
+    @Test
+    public void scheduleAll() throws Exception {
+        Scheduler.Worker w = scheduler.createWorker();
+        try {
+            List<Integer> list = new ArrayList<>();
+            CountDownLatch cdl = new CountDownLatch(1);
+
+            Runnable[] tasks = new Runnable[1000];
+            for (int i = 0; i < tasks.length; i++) {
+                int j = i;
+                tasks[i] = () -> list.add(j);
+            }
+
+            w.schedule(() -> list.add(-1));
+            w.scheduleAll(tasks);
+            w.schedule(cdl::countDown);
+
+            Assert.assertTrue(cdl.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(1001, list.size());
+            for (int i = 0; i < list.size(); i++) {
+                Assert.assertEquals(i - 1, list.get(i).intValue());
+            }
+        } finally {
+            w.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownRejects() {
+        Scheduler.Worker w = scheduler.createWorker();
+
+        scheduler.shutdown();
+
+        Assert.assertSame(Scheduler.REJECTED, scheduler.schedule(() -> { }));
+        Assert.assertSame(Scheduler.REJECTED, w.schedule(() -> { }));
+
+        scheduler.start();
+
+        Assert.assertNotSame(Scheduler.REJECTED, scheduler.schedule(() -> { }));
+    }
+
+    @Test
+    public void observeOn() {
+        int count = 1_000_000;
+
+        TestSubscriber<Integer> ts = Px.range(1, count).observeOn(scheduler).test();
+
+        ts.await(5, TimeUnit.SECONDS);
+        ts.assertValueCount(count)
+        .assertNoError()
+        .assertComplete();
+    }
+}
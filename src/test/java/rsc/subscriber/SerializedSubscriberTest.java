@@ -0,0 +1,314 @@
+package rsc.subscriber;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.*;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import rsc.test.TestSubscriber;
+
+public class SerializedSubscriberTest {
+
+    static final class TestSubscription implements Subscription {
+        volatile boolean cancelled;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityInvalid() {
+        new SerializedSubscriber<>(new TestSubscriber<>(), 0);
+    }
+
+    @Test
+    public void normal() {
+        TestSubscriber<Integer> ts = new TestSubscriber<>();
+
+        SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts);
+        serial.onSubscribe(new TestSubscription());
+
+        serial.onNext(1);
+        serial.onNext(2);
+        serial.onComplete();
+
+        serial.onNext(3);
+        serial.onError(new RuntimeException("forced failure"));
+        serial.onComplete();
+
+        ts.assertValues(1, 2)
+          .assertNoError()
+          .assertComplete();
+    }
+
+    @Test
+    public void reentrantOnNextQueued() {
+        AtomicReference<SerializedSubscriber<Integer>> ref = new AtomicReference<>();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+            }
+
+            @Override
+            public void onNext(Integer t) {
+                if (t == 1) {
+                    ref.get().onNext(2);
+                    ref.get().onError(new RuntimeException("forced failure"));
+                    ref.get().onNext(3);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts);
+        ref.set(serial);
+        serial.onSubscribe(new TestSubscription());
+
+        serial.onNext(1);
+
+        ts.assertValues(1, 2)
+          .assertError(RuntimeException.class)
+          .assertErrorMessage("forced failure")
+          .assertNotComplete();
+    }
+
+    @Test
+    public void boundedOverflow() {
+        AtomicReference<SerializedSubscriber<Integer>> ref = new AtomicReference<>();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+            }
+
+            @Override
+            public void onNext(Integer t) {
+                if (t == 1) {
+                    ref.get().onNext(2);
+                    ref.get().onNext(3);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        TestSubscription s = new TestSubscription();
+
+        SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts, 1);
+        ref.set(serial);
+        serial.onSubscribe(s);
+
+        serial.onNext(1);
+
+        ts.assertValues(1, 2)
+          .assertError(IllegalStateException.class)
+          .assertNotComplete();
+
+        Assert.assertTrue(s.cancelled);
+    }
+
+    @Test
+    public void cancelDropsQueued() {
+        AtomicReference<SerializedSubscriber<Integer>> ref = new AtomicReference<>();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+            }
+
+            @Override
+            public void onNext(Integer t) {
+                ref.get().onNext(2);
+                ref.get().cancel();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        TestSubscription s = new TestSubscription();
+
+        SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts);
+        ref.set(serial);
+        serial.onSubscribe(s);
+
+        serial.onNext(1);
+        serial.onComplete();
+
+        ts.assertValues(1)
+          .assertNoError()
+          .assertNotComplete();
+
+        Assert.assertTrue(s.cancelled);
+    }
+
+    @Test
+    public void concurrentOnNext() throws Exception {
+        int threads = 4;
+        int count = 100_000;
+
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        TestSubscriber<Integer> ts = new TestSubscriber<>(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+            }
+
+            @Override
+            public void onNext(Integer t) {
+                if (inside.getAndIncrement() != 0) {
+                    overlaps.incrementAndGet();
+                }
+                inside.decrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts);
+        serial.onSubscribe(new TestSubscription());
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int j = 0; j < count; j++) {
+                    serial.onNext(j);
+                }
+                end.countDown();
+            }).start();
+        }
+
+        start.countDown();
+
+        Assert.assertTrue(end.await(10, TimeUnit.SECONDS));
+
+        serial.onComplete();
+
+        ts.assertValueCount(threads * count)
+          .assertNoError()
+          .assertComplete();
+
+        Assert.assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void boundedConcurrentProducers() throws Exception {
+        int threads = 16;
+        int capacity = 4;
+
+        for (int round = 0; round < 200; round++) {
+            CountDownLatch emitting = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            TestSubscriber<Integer> ts = new TestSubscriber<>(new Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                }
+
+                @Override
+                public void onNext(Integer t) {
+                    if (t == -1) {
+                        emitting.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException ex) {
+                            // ignored
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+
+            SerializedSubscriber<Integer> serial = new SerializedSubscriber<>(ts, capacity);
+            serial.onSubscribe(new TestSubscription());
+
+            Thread emitter = new Thread(() -> serial.onNext(-1));
+            emitter.start();
+            Assert.assertTrue(emitting.await(5, TimeUnit.SECONDS));
+
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch end = new CountDownLatch(threads);
+
+            for (int i = 0; i < threads; i++) {
+                int j = i;
+                new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    serial.onNext(j);
+                    end.countDown();
+                }).start();
+            }
+
+            start.countDown();
+            Assert.assertTrue(end.await(5, TimeUnit.SECONDS));
+
+            // the producers reserve their slots so together they can't exceed the capacity
+            Assert.assertEquals(capacity, serial.getPending());
+
+            release.countDown();
+            emitter.join(5000);
+
+            ts.assertValueCount(1 + capacity)
+              .assertError(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void capacity() {
+        Assert.assertEquals(-1L, new SerializedSubscriber<>(new TestSubscriber<>()).getCapacity());
+        Assert.assertEquals(16L, new SerializedSubscriber<>(new TestSubscriber<>(), 16).getCapacity());
+    }
+}
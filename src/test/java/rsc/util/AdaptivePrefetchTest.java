@@ -0,0 +1,98 @@
+package rsc.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptivePrefetchTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMin() {
+        new AdaptivePrefetch(0, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxLessThanMin() {
+        new AdaptivePrefetch(16, 8);
+    }
+
+    @Test
+    public void initial() {
+        AdaptivePrefetch ap = new AdaptivePrefetch(16, 256);
+
+        Assert.assertEquals(16, ap.window());
+        Assert.assertEquals(12, ap.limit());
+    }
+
+    @Test
+    public void growsWhenDrained() {
+        AdaptivePrefetch ap = new AdaptivePrefetch(16, 64);
+
+        Assert.assertEquals(12 + 16, ap.replenish(12, 0));
+        Assert.assertEquals(32, ap.window());
+        Assert.assertEquals(24, ap.limit());
+
+        Assert.assertEquals(24 + 32, ap.replenish(24, 0));
+        Assert.assertEquals(64, ap.window());
+
+        Assert.assertEquals(48, ap.replenish(48, 0));
+        Assert.assertEquals(64, ap.window());
+    }
+
+    @Test
+    public void growsUpToOddMax() {
+        AdaptivePrefetch ap = new AdaptivePrefetch(16, 40);
+
+        ap.replenish(12, 0);
+        Assert.assertEquals(32, ap.window());
+
+        Assert.assertEquals(24 + 8, ap.replenish(24, 0));
+        Assert.assertEquals(40, ap.window());
+    }
+
+    @Test
+    public void shrinksWhenLagging() {
+        AdaptivePrefetch ap = new AdaptivePrefetch(8, 64);
+
+        ap.replenish(6, 0);
+        ap.replenish(12, 0);
+        ap.replenish(24, 0);
+        Assert.assertEquals(64, ap.window());
+
+        Assert.assertEquals(48 - 32, ap.replenish(48, 40));
+        Assert.assertEquals(32, ap.window());
+        Assert.assertEquals(24, ap.limit());
+
+        ap.replenish(24, 20);
+        ap.replenish(12, 10);
+        Assert.assertEquals(8, ap.window());
+
+        Assert.assertEquals(6, ap.replenish(6, 8));
+        Assert.assertEquals(8, ap.window());
+    }
+
+    @Test
+    public void steadyInBetween() {
+        AdaptivePrefetch ap = new AdaptivePrefetch(8, 64);
+
+        ap.replenish(6, 0);
+        Assert.assertEquals(16, ap.window());
+
+        Assert.assertEquals(12, ap.replenish(12, 5));
+        Assert.assertEquals(16, ap.window());
+    }
+
+    @Test
+    public void requestAlwaysPositive() {
+        for (int min = 1; min < 70; min++) {
+            AdaptivePrefetch ap = new AdaptivePrefetch(min, 1024);
+            for (int i = 0; i < 10; i++) {
+                ap.replenish(ap.limit(), 0);
+            }
+            for (int i = 0; i < 12; i++) {
+                int w = ap.window();
+                Assert.assertTrue(ap.replenish(ap.limit(), w) > 0);
+            }
+            Assert.assertEquals(min, ap.window());
+        }
+    }
+}
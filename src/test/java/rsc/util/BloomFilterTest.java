@@ -0,0 +1,205 @@
+package rsc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import rsc.flow.Disposable;
+import rsc.scheduler.TimedScheduler;
+
+public class BloomFilterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroInsertions() {
+        new BloomFilter<>(0, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fppOne() {
+        new BloomFilter<>(16, 1d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fppBelowHashCodeFloor() {
+        // 2M live hash codes out of 2^32 collide with about 0.05% of the new values
+        new BloomFilter<>(1_000_000, 1e-4);
+    }
+
+    @Test
+    public void fppBelowHashCodeFloorWithLongHash() {
+        BloomFilter<Long> bf = new BloomFilter<>(1_000_000, 1e-4, Long::longValue);
+
+        Assert.assertTrue(bf.add(1L));
+        Assert.assertFalse(bf.add(1L));
+    }
+
+    @Test
+    public void longHashDistinguishesEqualHashCodes() {
+        BloomFilter<Long> byHashCode = new BloomFilter<>(10_000, 0.01);
+        BloomFilter<Long> byLong = new BloomFilter<>(10_000, 0.01, Long::longValue);
+
+        int seenByHashCode = 0;
+        int seenByLong = 0;
+        for (long i = 0; i < 1000; i++) {
+            // all of these have a hashCode() of 0
+            Long v = (i << 32) | i;
+            if (!byHashCode.add(v)) {
+                seenByHashCode++;
+            }
+            if (!byLong.add(v)) {
+                seenByLong++;
+            }
+        }
+
+        Assert.assertEquals(999, seenByHashCode);
+        Assert.assertTrue("" + seenByLong, seenByLong < 10);
+    }
+
+    @Test
+    public void sizing() {
+        BloomFilter<Integer> bf = new BloomFilter<>(1000, 0.01);
+
+        // -1000 * ln(0.005) / ln(2)^2 = 11028 bits, rounded up to a power of 2 words
+        Assert.assertEquals(16384, bf.bits());
+        Assert.assertEquals(11, bf.hashes());
+    }
+
+    @Test
+    public void noFalseNegatives() {
+        BloomFilter<Integer> bf = new BloomFilter<>(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            bf.add(i);
+        }
+        // values reported as seen due to false positives are not counted
+        Assert.assertTrue("" + bf.size(), bf.size() <= 10_000 && bf.size() > 9_900);
+
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue(bf.contains(i));
+            Assert.assertFalse(bf.add(i));
+        }
+    }
+
+    @Test
+    public void falsePositiveRate() {
+        BloomFilter<Integer> bf = new BloomFilter<>(10_000, 0.01);
+
+        for (int i = 0; i < 9_999; i++) {
+            bf.add(i * 2);
+        }
+
+        int fp = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bf.contains(i * 2 + 1)) {
+                fp++;
+            }
+        }
+
+        Assert.assertTrue("False positives: " + fp, fp < 1000);
+    }
+
+    @Test
+    public void forgetsOldGenerations() {
+        BloomFilter<Integer> bf = new BloomFilter<>(100, 0.001);
+
+        bf.add(-1);
+
+        for (int i = 0; i < 250; i++) {
+            bf.add(i);
+        }
+
+        Assert.assertFalse(bf.contains(-1));
+        Assert.assertTrue(bf.add(-1));
+    }
+
+    @Test
+    public void copiesForwardRecentlySeen() {
+        BloomFilter<Integer> bf = new BloomFilter<>(100, 0.001);
+
+        bf.add(-1);
+
+        for (int i = 0; i < 250; i++) {
+            bf.add(i);
+            if (i % 50 == 0) {
+                Assert.assertFalse(bf.add(-1));
+            }
+        }
+
+        Assert.assertTrue(bf.contains(-1));
+    }
+
+    @Test
+    public void clear() {
+        BloomFilter<Integer> bf = new BloomFilter<>(100, 0.01);
+
+        for (int i = 0; i < 150; i++) {
+            bf.add(i);
+        }
+        bf.clear();
+
+        Assert.assertTrue(bf.isEmpty());
+        Assert.assertFalse(bf.contains(1));
+        Assert.assertTrue(bf.add(1));
+    }
+
+    @Test
+    public void maxAge() {
+        ManualClock clock = new ManualClock();
+        BloomFilter<Integer> bf = new BloomFilter<>(1000, 0.01, 10, TimeUnit.SECONDS, clock);
+
+        Assert.assertTrue(bf.add(1));
+
+        clock.time = TimeUnit.SECONDS.toNanos(9);
+
+        Assert.assertFalse(bf.add(1));
+        Assert.assertTrue(bf.add(2));
+
+        clock.time = TimeUnit.SECONDS.toNanos(10);
+
+        // rotated, the values are in the previous generation
+        Assert.assertTrue(bf.add(3));
+        Assert.assertFalse(bf.add(2));
+
+        clock.time = TimeUnit.SECONDS.toNanos(20);
+
+        Assert.assertTrue(bf.add(4));
+        Assert.assertFalse(bf.add(2));
+        Assert.assertTrue(bf.add(1));
+
+        clock.time = TimeUnit.SECONDS.toNanos(40);
+
+        Assert.assertTrue(bf.add(5));
+        Assert.assertTrue(bf.add(2));
+        Assert.assertEquals(2, bf.size());
+    }
+
+    static final class ManualClock implements TimedScheduler {
+
+        long time;
+
+        @Override
+        public long now(TimeUnit unit) {
+            return unit.convert(time, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimedWorker createWorker() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
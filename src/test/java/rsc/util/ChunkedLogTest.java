@@ -0,0 +1,107 @@
+package rsc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+
+public class ChunkedLogTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunkSizeInvalid() {
+        new ChunkedLog<Integer>(0);
+    }
+
+    @Test
+    public void appendAndRead() {
+        ChunkedLog<Integer> log = new ChunkedLog<>(4);
+
+        ChunkedLog.Cursor<Integer> c = log.cursor();
+
+        Assert.assertEquals(0L, c.index());
+
+        for (int i = 0; i < 100; i++) {
+            log.append(i);
+            Assert.assertEquals(i + 1L, log.size());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals((Integer)i, c.next());
+            Assert.assertEquals(i + 1L, c.index());
+        }
+    }
+
+    @Test
+    public void cursorStartsAtEnd() {
+        ChunkedLog<Integer> log = new ChunkedLog<>(4);
+
+        for (int i = 0; i < 10; i++) {
+            log.append(i);
+        }
+
+        ChunkedLog.Cursor<Integer> c1 = log.cursor();
+        ChunkedLog.Cursor<Integer> c2 = log.cursor();
+
+        Assert.assertEquals(10L, c1.index());
+
+        for (int i = 10; i < 20; i++) {
+            log.append(i);
+        }
+
+        Assert.assertEquals((Integer)10, c1.next());
+
+        List<Integer> list = new ArrayList<>();
+        c2.drainTo(list, 15);
+
+        Assert.assertEquals(5, list.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals((Integer)(10 + i), list.get(i));
+        }
+        Assert.assertEquals(15L, c2.index());
+
+        c2.drainTo(list, log.size());
+
+        Assert.assertEquals(10, list.size());
+        Assert.assertEquals((Integer)19, list.get(9));
+    }
+
+    @Test
+    public void cursorOnFullChunk() {
+        ChunkedLog<Integer> log = new ChunkedLog<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            log.append(i);
+        }
+
+        ChunkedLog.Cursor<Integer> c = log.cursor();
+
+        log.append(4);
+
+        Assert.assertEquals((Integer)4, c.next());
+    }
+
+    @Test
+    public void concurrentReader() throws Exception {
+        ChunkedLog<Integer> log = new ChunkedLog<>(16);
+
+        int count = 1_000_000;
+
+        ChunkedLog.Cursor<Integer> c = log.cursor();
+
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                log.append(i);
+            }
+        });
+        t.start();
+
+        for (int i = 0; i < count; i++) {
+            while (c.index() == log.size()) {
+                Thread.yield();
+            }
+            Assert.assertEquals((Integer)i, c.next());
+        }
+
+        t.join();
+    }
+}
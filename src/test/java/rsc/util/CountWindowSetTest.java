@@ -0,0 +1,59 @@
+package rsc.util;
+
+import org.junit.*;
+
+public class CountWindowSetTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxSize() {
+        new CountWindowSet<>(0);
+    }
+
+    @Test
+    public void evictsOldest() {
+        CountWindowSet<Integer> set = new CountWindowSet<>(3);
+
+        Assert.assertTrue(set.add(1));
+        Assert.assertTrue(set.add(2));
+        Assert.assertTrue(set.add(3));
+        Assert.assertFalse(set.add(1));
+        Assert.assertEquals(3, set.size());
+
+        Assert.assertTrue(set.add(4));
+
+        Assert.assertFalse(set.contains(1));
+        Assert.assertTrue(set.contains(2));
+        Assert.assertEquals(3, set.size());
+
+        Assert.assertTrue(set.add(1));
+        Assert.assertFalse(set.contains(2));
+        Assert.assertFalse(set.add(3));
+    }
+
+    @Test
+    public void slidingWindow() {
+        CountWindowSet<Integer> set = new CountWindowSet<>(100);
+
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue(set.add(i));
+            Assert.assertFalse(set.add(Math.max(0, i - 99)));
+        }
+
+        Assert.assertEquals(100, set.size());
+        Assert.assertFalse(set.contains(9899));
+        Assert.assertTrue(set.contains(9900));
+    }
+
+    @Test
+    public void clear() {
+        CountWindowSet<Integer> set = new CountWindowSet<>(3);
+
+        set.add(1);
+        set.add(2);
+        set.clear();
+
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add(1));
+        Assert.assertEquals(1, set.size());
+    }
+}
@@ -0,0 +1,114 @@
+package rsc.util;
+
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+public class MpscLinkedArrayQueueTest {
+
+    MpscLinkedArrayQueue<Integer> queue;
+    
+    @Before
+    public void before() {
+        queue = new MpscLinkedArrayQueue<>(16);
+    }
+    
+    @Test
+    public void offerTakeOneByOne() {
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.size());
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(queue.offer(i));
+            Assert.assertFalse(queue.isEmpty());
+            Assert.assertEquals(1, queue.size());
+            
+            Assert.assertEquals((Integer)i, queue.peek());
+            Assert.assertEquals((Integer)i, queue.poll());
+            Assert.assertTrue(queue.isEmpty());
+            Assert.assertEquals(0, queue.size());
+        }
+    }
+    
+    @Test
+    public void grow() {
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(queue.offer(i));
+            Assert.assertEquals(1 + i, queue.size());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals((Integer)i, queue.peek());
+            Assert.assertEquals((Integer)i, queue.poll());
+        }
+
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+    
+    @Test
+    public void pairsAcrossChunks() {
+        MpscLinkedArrayQueue<Integer> q = new MpscLinkedArrayQueue<>(4);
+        
+        q.offer(-1);
+        
+        for (int i = 0; i < 20; i += 2) {
+            Assert.assertTrue(q.test(i, i + 1));
+        }
+        
+        Assert.assertEquals((Integer)(-1), q.poll());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals((Integer)i, q.poll());
+        }
+        Assert.assertNull(q.poll());
+    }
+    
+    @Test
+    public void multipleProducers() throws Exception {
+        int producers = 4;
+        int count = 200_000;
+        MpscLinkedArrayQueue<Integer> q = new MpscLinkedArrayQueue<>(32);
+        
+        ExecutorService exec = Executors.newFixedThreadPool(producers);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(producers);
+            for (int p = 0; p < producers; p++) {
+                int base = p * count;
+                exec.execute(() -> {
+                    try {
+                        barrier.await();
+                    } catch (Exception ex) {
+                        return;
+                    }
+                    for (int i = 0; i < count; i += 2) {
+                        q.test(base + i, base + i + 1);
+                    }
+                });
+            }
+            
+            int[] last = new int[producers];
+            java.util.Arrays.fill(last, -1);
+            
+            long deadline = System.currentTimeMillis() + 10_000;
+            int received = 0;
+            while (received != producers * count) {
+                Integer v = q.poll();
+                if (v == null) {
+                    Assert.assertTrue("Timeout, received " + received, System.currentTimeMillis() < deadline);
+                    continue;
+                }
+                Integer w = q.poll();
+                Assert.assertNotNull(w);
+                Assert.assertEquals(v + 1, w.intValue());
+                
+                int p = v / count;
+                Assert.assertEquals(last[p] + 1, v % count);
+                last[p] = w % count;
+                received += 2;
+            }
+            Assert.assertTrue(q.isEmpty());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package rsc.util;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class OpenHashLongMapTest {
+
+    @Test
+    public void putGetRemove() {
+        OpenHashLongMap<String> map = new OpenHashLongMap<>(4);
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertNull(map.put(i << 32, "" + i));
+        }
+
+        Assert.assertEquals(201, map.size());
+        Assert.assertEquals("5", map.put(5L << 32, "five"));
+        Assert.assertEquals(201, map.size());
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertEquals(i == 5 ? "five" : "" + i, map.get(i << 32));
+            Assert.assertNull(map.get((i << 32) + 1));
+        }
+
+        for (long i = -100; i <= 100; i += 2) {
+            Assert.assertNotNull(map.remove(i << 32));
+            Assert.assertNull(map.remove(i << 32));
+        }
+
+        Assert.assertEquals(100, map.size());
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertEquals(i % 2 != 0, map.get(i << 32) != null);
+        }
+    }
+
+    @Test
+    public void removeExpectedValue() {
+        OpenHashLongMap<String> map = new OpenHashLongMap<>();
+
+        String a = new String("a");
+        map.put(1L, a);
+        map.put(0L, a);
+
+        Assert.assertNull(map.remove(1L, new String("a")));
+        Assert.assertNull(map.remove(0L, new String("a")));
+        Assert.assertEquals(2, map.size());
+
+        Assert.assertSame(a, map.remove(1L, a));
+        Assert.assertSame(a, map.remove(0L, a));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void zeroKey() {
+        OpenHashLongMap<Integer> map = new OpenHashLongMap<>();
+
+        Assert.assertNull(map.get(0L));
+        Assert.assertNull(map.put(0L, 1));
+        Assert.assertEquals((Integer)1, map.put(0L, 2));
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals((Integer)2, map.get(0L));
+
+        Assert.assertEquals((Integer)2, map.remove(0L));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void forEachAndClear() {
+        OpenHashLongMap<Long> map = new OpenHashLongMap<>();
+
+        for (long i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+
+        List<Long> list = new ArrayList<>();
+        map.forEach(list::add);
+        Collections.sort(list);
+
+        Assert.assertEquals(100, list.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals((Long)(long)i, list.get(i));
+        }
+
+        map.clear();
+
+        Assert.assertTrue(map.isEmpty());
+        for (long i = 0; i < 100; i++) {
+            Assert.assertNull(map.get(i));
+        }
+    }
+
+    @Test
+    public void randomAgainstHashMap() {
+        OpenHashLongMap<Long> map = new OpenHashLongMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random rnd = new Random(1);
+
+        for (int i = 0; i < 100_000; i++) {
+            long k = rnd.nextInt(5000) - 2500L;
+            if (rnd.nextBoolean()) {
+                Long v = (long)i;
+                Assert.assertEquals(expected.put(k, v), map.put(k, v));
+            } else {
+                Assert.assertEquals(expected.remove(k), map.remove(k));
+            }
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        for (long k = -2500; k < 2500; k++) {
+            Assert.assertEquals(expected.get(k), map.get(k));
+        }
+    }
+}
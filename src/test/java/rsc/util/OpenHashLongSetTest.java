@@ -0,0 +1,96 @@
+package rsc.util;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.*;
+
+public class OpenHashLongSetTest {
+
+    @Test
+    public void addContainsRemove() {
+        OpenHashLongSet set = new OpenHashLongSet(4);
+
+        Assert.assertTrue(set.isEmpty());
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertTrue(set.add(i * 1_000_000_007L));
+            Assert.assertFalse(set.add(i * 1_000_000_007L));
+        }
+
+        Assert.assertEquals(201, set.size());
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertTrue(set.contains(i * 1_000_000_007L));
+            Assert.assertFalse(set.contains(i * 1_000_000_007L + 1));
+        }
+
+        for (long i = -100; i <= 100; i += 2) {
+            Assert.assertTrue(set.remove(i * 1_000_000_007L));
+            Assert.assertFalse(set.remove(i * 1_000_000_007L));
+        }
+
+        Assert.assertEquals(100, set.size());
+
+        for (long i = -100; i <= 100; i++) {
+            Assert.assertEquals(i % 2 != 0, set.contains(i * 1_000_000_007L));
+        }
+    }
+
+    @Test
+    public void zeroKey() {
+        OpenHashLongSet set = new OpenHashLongSet();
+
+        Assert.assertFalse(set.contains(0L));
+        Assert.assertTrue(set.add(0L));
+        Assert.assertFalse(set.add(0L));
+        Assert.assertTrue(set.contains(0L));
+        Assert.assertEquals(1, set.size());
+
+        for (long i = 1; i < 100; i++) {
+            set.add(i);
+        }
+        Assert.assertTrue(set.contains(0L));
+
+        Assert.assertTrue(set.remove(0L));
+        Assert.assertFalse(set.contains(0L));
+        Assert.assertEquals(99, set.size());
+    }
+
+    @Test
+    public void clear() {
+        OpenHashLongSet set = new OpenHashLongSet();
+
+        for (long i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        set.clear();
+
+        Assert.assertTrue(set.isEmpty());
+        for (long i = 0; i < 100; i++) {
+            Assert.assertFalse(set.contains(i));
+        }
+    }
+
+    @Test
+    public void randomAgainstHashSet() {
+        OpenHashLongSet set = new OpenHashLongSet();
+        Set<Long> expected = new HashSet<>();
+        Random rnd = new Random(1);
+
+        for (int i = 0; i < 100_000; i++) {
+            long v = rnd.nextInt(5000) - 2500L;
+            if (rnd.nextBoolean()) {
+                Assert.assertEquals(expected.add(v), set.add(v));
+            } else {
+                Assert.assertEquals(expected.remove(v), set.remove(v));
+            }
+        }
+
+        Assert.assertEquals(expected.size(), set.size());
+        for (long v = -2500; v < 2500; v++) {
+            Assert.assertEquals(expected.contains(v), set.contains(v));
+        }
+    }
+}
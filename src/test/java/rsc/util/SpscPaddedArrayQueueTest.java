@@ -0,0 +1,118 @@
+package rsc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import rsc.publisher.Px;
+import rsc.scheduler.ParallelScheduler;
+import rsc.test.TestSubscriber;
+
+public class SpscPaddedArrayQueueTest {
+
+    SpscPaddedArrayQueue<Integer> queue;
+    
+    @Before
+    public void before() {
+        queue = new SpscPaddedArrayQueue<>(16);
+    }
+    
+    @Test
+    public void offerTakeOneByOne() {
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.size());
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(queue.offer(i));
+            Assert.assertFalse(queue.isEmpty());
+            Assert.assertEquals(1, queue.size());
+            
+            Assert.assertEquals((Integer)i, queue.peek());
+            Assert.assertEquals((Integer)i, queue.poll());
+            Assert.assertTrue(queue.isEmpty());
+            Assert.assertEquals(0, queue.size());
+        }
+    }
+    
+    @Test
+    public void fillAndDrain() {
+        for (int k = 0; k < 10; k++) {
+            for (int i = 0; i < 16; i++) {
+                Assert.assertTrue(queue.offer(i));
+                Assert.assertEquals(1 + i, queue.size());
+            }
+            
+            Assert.assertFalse(queue.offer(16));
+            
+            for (int i = 0; i < 16; i++) {
+                Assert.assertEquals((Integer)i, queue.poll());
+            }
+            
+            Assert.assertNull(queue.poll());
+            Assert.assertTrue(queue.isEmpty());
+        }
+    }
+    
+    @Test
+    public void lookaheadRespectsConsumer() {
+        // leaves exactly one free slot at varying positions behind the lookahead window
+        for (int i = 0; i < 16; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        for (int k = 16; k < 1000; k++) {
+            Assert.assertEquals((Integer)(k - 16), queue.poll());
+            Assert.assertTrue(queue.offer(k));
+            Assert.assertFalse(queue.offer(-1));
+        }
+    }
+    
+    @Test
+    public void capacityOne() {
+        SpscPaddedArrayQueue<Integer> q = new SpscPaddedArrayQueue<>(1);
+        
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(q.offer(i));
+            Assert.assertFalse(q.offer(i));
+            Assert.assertEquals((Integer)i, q.poll());
+            Assert.assertNull(q.poll());
+        }
+    }
+    
+    @Test
+    public void clear() {
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        queue.clear();
+        
+        Assert.assertTrue(queue.isEmpty());
+        
+        for (int i = 0; i < 16; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(16));
+    }
+    
+    @Test
+    public void observeOnAsync() {
+        ParallelScheduler s = new ParallelScheduler(2, "padded-queue-", true);
+        try {
+            int count = 1_000_000;
+            TestSubscriber<Integer> ts = Px.range(0, count).hide().subscribeOn(s)
+                    .observeOn(s, false, 64, Px.paddedQueueSupplier(64))
+                    .test();
+            
+            ts.await(10, TimeUnit.SECONDS);
+            ts.assertValueCount(count)
+            .assertNoError()
+            .assertComplete();
+            
+            int i = 0;
+            for (Integer v : ts.values()) {
+                Assert.assertEquals(i++, v.intValue());
+            }
+        } finally {
+            s.shutdown();
+        }
+    }
+}
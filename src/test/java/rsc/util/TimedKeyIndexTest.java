@@ -0,0 +1,98 @@
+package rsc.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+public class TimedKeyIndexTest {
+
+    static <V> List<V> list(Iterable<V> it) {
+        List<V> result = new ArrayList<>();
+        for (V v : it) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxAge() {
+        new TimedKeyIndex<>(0, TimeUnit.SECONDS, new BloomFilterTest.ManualClock());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullClock() {
+        new TimedKeyIndex<>(1, TimeUnit.SECONDS, null);
+    }
+
+    @Test
+    public void groupsByKey() {
+        TimedKeyIndex<Integer, String> index = new TimedKeyIndex<>(10, TimeUnit.SECONDS, new BloomFilterTest.ManualClock());
+
+        index.put(1, "a");
+        index.put(2, "b");
+        index.put(1, "c");
+
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(2, index.keys());
+
+        Assert.assertEquals(Arrays.asList("a", "c"), list(index.get(1)));
+        Assert.assertEquals(Arrays.asList("b"), list(index.get(2)));
+        Assert.assertTrue(list(index.get(3)).isEmpty());
+
+        index.clear();
+
+        Assert.assertEquals(0, index.size());
+        Assert.assertTrue(list(index.get(1)).isEmpty());
+    }
+
+    @Test
+    public void expiry() {
+        BloomFilterTest.ManualClock clock = new BloomFilterTest.ManualClock();
+        TimedKeyIndex<Integer, String> index = new TimedKeyIndex<>(10, TimeUnit.SECONDS, clock);
+
+        index.put(1, "a");
+
+        clock.time = TimeUnit.SECONDS.toNanos(5);
+
+        index.put(2, "b");
+        index.put(1, "c");
+
+        clock.time = TimeUnit.SECONDS.toNanos(10);
+
+        Assert.assertEquals(Arrays.asList("c"), list(index.get(1)));
+        Assert.assertEquals(2, index.size());
+
+        clock.time = TimeUnit.SECONDS.toNanos(15);
+
+        Assert.assertTrue(list(index.get(1)).isEmpty());
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(0, index.keys());
+
+        index.put(1, "d");
+
+        Assert.assertEquals(Arrays.asList("d"), list(index.get(1)));
+    }
+
+    @Test
+    public void manyKeysSlidingWindow() {
+        BloomFilterTest.ManualClock clock = new BloomFilterTest.ManualClock();
+        TimedKeyIndex<Integer, Integer> index = new TimedKeyIndex<>(100, TimeUnit.NANOSECONDS, clock);
+
+        for (int i = 0; i < 10_000; i++) {
+            clock.time = i;
+            index.put(i % 7, i);
+
+            Assert.assertEquals(Math.min(i + 1, 100), index.size());
+
+            int expected = i;
+            for (Integer v : index.get(i % 7)) {
+                Assert.assertTrue(v > i - 100);
+                expected = v;
+            }
+            Assert.assertEquals(i, expected);
+        }
+    }
+}
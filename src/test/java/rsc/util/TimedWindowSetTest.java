@@ -0,0 +1,82 @@
+package rsc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+public class TimedWindowSetTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxAge() {
+        new TimedWindowSet<>(0, TimeUnit.SECONDS, new BloomFilterTest.ManualClock());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullClock() {
+        new TimedWindowSet<>(1, TimeUnit.SECONDS, null);
+    }
+
+    @Test
+    public void expiry() {
+        BloomFilterTest.ManualClock clock = new BloomFilterTest.ManualClock();
+        TimedWindowSet<Integer> set = new TimedWindowSet<>(10, TimeUnit.SECONDS, clock);
+
+        Assert.assertTrue(set.add(1));
+        Assert.assertFalse(set.add(1));
+
+        clock.time = TimeUnit.SECONDS.toNanos(5);
+
+        Assert.assertTrue(set.add(2));
+        Assert.assertFalse(set.add(1));
+        Assert.assertEquals(2, set.size());
+
+        clock.time = TimeUnit.SECONDS.toNanos(10);
+
+        // the duplicate at 5 seconds didn't extend the lifetime of 1
+        Assert.assertFalse(set.contains(1));
+        Assert.assertTrue(set.contains(2));
+        Assert.assertEquals(1, set.size());
+
+        Assert.assertTrue(set.add(1));
+
+        clock.time = TimeUnit.SECONDS.toNanos(100);
+
+        Assert.assertFalse(set.contains(1));
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void growAcrossWrap() {
+        BloomFilterTest.ManualClock clock = new BloomFilterTest.ManualClock();
+        TimedWindowSet<Integer> set = new TimedWindowSet<>(10, TimeUnit.NANOSECONDS, clock, 4);
+
+        for (int i = 0; i < 1000; i++) {
+            clock.time = i;
+            Assert.assertTrue(set.add(i));
+            Assert.assertTrue(set.add(-i - 1));
+            Assert.assertFalse(set.add(i - 9 >= 0 ? i - 9 : i));
+            Assert.assertEquals(Math.min(i + 1, 10) * 2, set.size());
+        }
+
+        for (int i = 990; i < 1000; i++) {
+            Assert.assertTrue(set.contains(i));
+            Assert.assertTrue(set.contains(-i - 1));
+        }
+        Assert.assertFalse(set.contains(989));
+    }
+
+    @Test
+    public void clear() {
+        BloomFilterTest.ManualClock clock = new BloomFilterTest.ManualClock();
+        TimedWindowSet<Integer> set = new TimedWindowSet<>(10, TimeUnit.SECONDS, clock);
+
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        set.clear();
+
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add(1));
+        Assert.assertEquals(1, set.size());
+    }
+}